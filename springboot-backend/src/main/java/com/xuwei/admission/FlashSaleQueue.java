@@ -0,0 +1,286 @@
+package com.xuwei.admission;
+
+import com.xuwei.dto.AdmissionTicketDTO;
+import com.xuwei.dto.FlashSaleQueueStatsDTO;
+import com.xuwei.exception.AdmissionException;
+import com.xuwei.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission control for products flagged as flash sales, held in memory.
+ * <p>
+ * A shopper joins the product's queue and gets a token and a position. The
+ * queue admits shoppers in join order at a fixed rate per product, so cart
+ * adds and checkouts of a hot product reach the database at that rate however
+ * many shoppers are waiting. An admission lasts for a window and is used up
+ * by a checkout. The queue is bounded: once it is full, joining is refused
+ * outright instead of queueing work that would time out anyway.
+ * <p>
+ * Admission is computed when a queue is touched rather than by a timer: the
+ * admissions earned since the last touch are handed to the head of the queue.
+ * An empty queue banks at most one second of them, so a shopper arriving at
+ * a quiet queue is let in at once but a crowd is still let in at the rate.
+ * Queues are per instance; with several instances each admits at the rate,
+ * and a shopper's requests have to reach the instance that queued them.
+ */
+@Component
+public class FlashSaleQueue {
+
+    private final int capacity;
+    private final double admissionsPerMilli;
+    private final long windowMillis;
+    private final LongSupplier clock;
+    private final Map<Long, ProductQueue> queues = new ConcurrentHashMap<>();
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+
+    @Autowired
+    public FlashSaleQueue(@Value("${flash-sale.queue.capacity:10000}") int capacity,
+                          @Value("${flash-sale.admissions-per-second:50}") double admissionsPerSecond,
+                          @Value("${flash-sale.admission-window:PT10M}") Duration window) {
+        this(capacity, admissionsPerSecond, window, System::currentTimeMillis);
+    }
+
+    FlashSaleQueue(int capacity, double admissionsPerSecond, Duration window, LongSupplier clock) {
+        this.capacity = capacity;
+        this.admissionsPerMilli = admissionsPerSecond / 1000;
+        this.windowMillis = window.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Queues the shopper for the product, or returns their ticket if they are
+     * already queued or admitted.
+     */
+    public AdmissionTicketDTO join(Long userId, Product product) throws AdmissionException {
+        if (!product.isFlashSale()) {
+            throw new AdmissionException("Product " + product.getId() + " is not on flash sale");
+        }
+        while (true) {
+            ProductQueue queue = queues.computeIfAbsent(product.getId(), ProductQueue::new);
+            synchronized (queue) {
+                // swept away while this thread waited for it; a fresh queue replaces it
+                if (!queue.closed) {
+                    return joinLocked(queue, userId, product.getId());
+                }
+            }
+        }
+    }
+
+    public AdmissionTicketDTO status(String token) throws AdmissionException {
+        Ticket ticket = tickets.get(token);
+        ProductQueue queue = ticket == null ? null : queues.get(ticket.productId);
+        if (queue == null) {
+            throw new AdmissionException("Unknown or expired admission token");
+        }
+        synchronized (queue) {
+            long now = clock.getAsLong();
+            queue.advance(now);
+            if (ticket.expiredAt(now)) {
+                forget(queue, ticket);
+                throw new AdmissionException("Unknown or expired admission token");
+            }
+            return queue.toDTO(ticket);
+        }
+    }
+
+    /**
+     * Throws unless the shopper holds a live admission for the product.
+     */
+    public void checkAdmitted(Long userId, Long productId) throws AdmissionException {
+        ProductQueue queue = queues.get(productId);
+        Ticket ticket = null;
+        if (queue != null) {
+            synchronized (queue) {
+                long now = clock.getAsLong();
+                queue.advance(now);
+                ticket = queue.byUser.get(userId);
+                if (ticket != null && ticket.expiredAt(now)) {
+                    forget(queue, ticket);
+                    ticket = null;
+                } else if (ticket != null && ticket.admittedAt == 0) {
+                    throw new AdmissionException("Waiting in the flash sale queue of product " + productId
+                            + " at position " + queue.positionOf(ticket));
+                }
+            }
+        }
+        if (ticket == null) {
+            throw new AdmissionException("Join the flash sale queue of product " + productId + " first");
+        }
+    }
+
+    /**
+     * Uses up the shopper's admission to the product after a checkout.
+     */
+    public void complete(Long userId, Long productId) {
+        ProductQueue queue = queues.get(productId);
+        if (queue == null) {
+            return;
+        }
+        synchronized (queue) {
+            Ticket ticket = queue.byUser.get(userId);
+            if (ticket != null && ticket.admittedAt != 0) {
+                forget(queue, ticket);
+            }
+        }
+    }
+
+    public List<FlashSaleQueueStatsDTO> stats() {
+        List<FlashSaleQueueStatsDTO> stats = new ArrayList<>();
+        long now = clock.getAsLong();
+        for (ProductQueue queue : queues.values()) {
+            synchronized (queue) {
+                queue.advance(now);
+                stats.add(new FlashSaleQueueStatsDTO(queue.productId, queue.waiting.size(),
+                        queue.byUser.size() - queue.waiting.size(), capacity, admissionsPerMilli * 1000,
+                        queue.issued, queue.issued - queue.waiting.size(), queue.rejected));
+            }
+        }
+        stats.sort(Comparator.comparing(FlashSaleQueueStatsDTO::getProductId));
+        return stats;
+    }
+
+    /**
+     * Drops admissions past their window, and the queues left with nobody
+     * in them once they have banked all they can.
+     */
+    @Scheduled(fixedDelayString = "${flash-sale.sweep-interval:PT30S}")
+    public void sweep() {
+        long now = clock.getAsLong();
+        for (ProductQueue queue : queues.values()) {
+            synchronized (queue) {
+                queue.advance(now);
+                queue.byUser.values().removeIf(ticket -> {
+                    if (ticket.expiredAt(now)) {
+                        tickets.remove(ticket.token);
+                        return true;
+                    }
+                    return false;
+                });
+                if (queue.byUser.isEmpty() && queue.credit >= queue.maxBankedCredit()) {
+                    queue.closed = true;
+                    queues.remove(queue.productId, queue);
+                }
+            }
+        }
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private AdmissionTicketDTO joinLocked(ProductQueue queue, Long userId, Long productId)
+            throws AdmissionException {
+        long now = clock.getAsLong();
+        queue.advance(now);
+        Ticket ticket = queue.byUser.get(userId);
+        if (ticket != null && !ticket.expiredAt(now)) {
+            return queue.toDTO(ticket);
+        }
+        if (queue.waiting.size() >= capacity) {
+            queue.rejected++;
+            throw new AdmissionException("The flash sale queue of product " + productId
+                    + " is full, please try again later");
+        }
+        if (ticket != null) {
+            forget(queue, ticket);
+        }
+        ticket = new Ticket(UUID.randomUUID().toString(), userId, productId, queue.issued++);
+        queue.waiting.addLast(ticket);
+        queue.byUser.put(userId, ticket);
+        tickets.put(ticket.token, ticket);
+        // a quiet queue lets the newcomer straight in
+        queue.advance(now);
+        return queue.toDTO(ticket);
+    }
+
+    /**
+     * Removes a ticket that is no longer waiting. Callers hold the queue's lock.
+     */
+    private void forget(ProductQueue queue, Ticket ticket) {
+        queue.byUser.remove(ticket.userId, ticket);
+        tickets.remove(ticket.token, ticket);
+    }
+
+    private static final class Ticket {
+        final String token;
+        final Long userId;
+        final Long productId;
+        final long sequence;
+        // set when the ticket leaves the waiting line; 0 while waiting
+        long admittedAt;
+        long expiresAt;
+
+        Ticket(String token, Long userId, Long productId, long sequence) {
+            this.token = token;
+            this.userId = userId;
+            this.productId = productId;
+            this.sequence = sequence;
+        }
+
+        boolean expiredAt(long now) {
+            return admittedAt != 0 && now >= expiresAt;
+        }
+    }
+
+    /**
+     * One product's line; all fields are guarded by the instance's lock.
+     */
+    private final class ProductQueue {
+        final Long productId;
+        final ArrayDeque<Ticket> waiting = new ArrayDeque<>();
+        // waiting and admitted tickets by shopper
+        final Map<Long, Ticket> byUser = new HashMap<>();
+        long issued;
+        long rejected;
+        // admissions earned and not yet handed out
+        double credit;
+        long lastAdvance;
+        boolean closed;
+
+        ProductQueue(Long productId) {
+            this.productId = productId;
+            this.lastAdvance = clock.getAsLong();
+            this.credit = maxBankedCredit();
+        }
+
+        double maxBankedCredit() {
+            return Math.max(1, admissionsPerMilli * 1000);
+        }
+
+        void advance(long now) {
+            credit += Math.max(0, now - lastAdvance) * admissionsPerMilli;
+            lastAdvance = Math.max(lastAdvance, now);
+            while (credit >= 1 && !waiting.isEmpty()) {
+                Ticket ticket = waiting.pollFirst();
+                ticket.admittedAt = now;
+                ticket.expiresAt = now + windowMillis;
+                credit -= 1;
+            }
+            if (waiting.isEmpty()) {
+                credit = Math.min(credit, maxBankedCredit());
+            }
+        }
+
+        long positionOf(Ticket ticket) {
+            Ticket head = waiting.peekFirst();
+            return head == null ? 0 : ticket.sequence - head.sequence + 1;
+        }
+
+        AdmissionTicketDTO toDTO(Ticket ticket) {
+            if (ticket.admittedAt != 0) {
+                return new AdmissionTicketDTO(ticket.token, productId, true, 0, 0,
+                        Instant.ofEpochMilli(ticket.expiresAt));
+            }
+            long position = positionOf(ticket);
+            long waitSeconds = (long) Math.ceil((position - credit) / (admissionsPerMilli * 1000));
+            return new AdmissionTicketDTO(ticket.token, productId, false, position, Math.max(0, waitSeconds), null);
+        }
+    }
+}
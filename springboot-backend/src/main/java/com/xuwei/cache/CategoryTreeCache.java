@@ -0,0 +1,171 @@
+package com.xuwei.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.xuwei.model.Category;
+import com.xuwei.repository.CategoryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory copy of the Category tree with a closure of every node's descendants.
+ * <p>
+ * The whole table is loaded on first use. New categories are written through
+ * to the database and then added to the cache, so the product write path no
+ * longer queries categories for levels that already exist. The closure maps
+ * each categoryId to the database ids of the category and everything below
+ * it, so a filter on any level becomes a single IN predicate. A reload builds
+ * a new tree and publishes it at once, so readers, which take no lock, see
+ * either the old tree or the new one.
+ * <p>
+ * A lookup of a categoryId the cache does not know checks the database, and
+ * reloads the tree when the category is there: another instance created it.
+ * The answer is remembered for a short time, so repeated lookups of an id
+ * that does not exist do not each query the database.
+ */
+@Component
+@RequiredArgsConstructor
+public class CategoryTreeCache {
+
+    private static final Duration LOOKUP_TTL = Duration.ofSeconds(30);
+    private static final long MAX_LOOKUPS = 10_000;
+
+    private final CategoryRepository categoryRepository;
+
+    // categoryId -> whether the database had it, for ids missing from the tree
+    private final Cache<String, Boolean> lookups = Caffeine.newBuilder()
+            .maximumSize(MAX_LOOKUPS)
+            .expireAfterWrite(LOOKUP_TTL)
+            .build();
+
+    private volatile Tree tree;
+
+    public Category findByCategoryId(String categoryId) {
+        Category category = loadedTree().byCategoryId().get(categoryId);
+        if (category == null && existsElsewhere(categoryId)) {
+            category = tree.byCategoryId().get(categoryId);
+        }
+        return category;
+    }
+
+    /**
+     * Ids of the category and all categories below it; empty when the
+     * database does not have it either.
+     */
+    public Set<Long> descendantIds(String categoryId) {
+        Set<Long> ids = loadedTree().descendants().get(categoryId);
+        if (ids == null && existsElsewhere(categoryId)) {
+            ids = tree.descendants().get(categoryId);
+        }
+        return ids != null ? ids : Set.of();
+    }
+
+    /**
+     * Returns the cached category, or creates and persists it.
+     * The database is still consulted on a cache miss so that categories
+     * created by another instance are picked up instead of duplicated.
+     */
+    public synchronized Category getOrCreate(String categoryId, String name, int level, Category parent) {
+        Tree current = loadedTree();
+        Category cached = current.byCategoryId().get(categoryId);
+        if (cached != null) {
+            return cached;
+        }
+
+        Category category = categoryRepository.findByCategoryId(categoryId);
+        if (category == null) {
+            category = new Category();
+            category.setName(name);
+            category.setCategoryId(categoryId);
+            category.setParentCategory(parent);
+            category.setLevel(level);
+            category = categoryRepository.save(category);
+        }
+        current.add(category);
+        lookups.invalidate(categoryId);
+        return category;
+    }
+
+    public synchronized void reload() {
+        Tree loaded = new Tree(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        List<Category> all = categoryRepository.findAll();
+        for (Category category : all) {
+            loaded.byCategoryId().put(category.getCategoryId(), category);
+        }
+        for (Category category : all) {
+            loaded.linkAncestors(category);
+        }
+        tree = loaded;
+        lookups.invalidateAll();
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private Tree loadedTree() {
+        Tree current = tree;
+        if (current == null) {
+            synchronized (this) {
+                if (tree == null) {
+                    reload();
+                }
+                current = tree;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Whether the database has a category the tree is missing, reloading the
+     * tree when it does: its descendants may have been created elsewhere too,
+     * so the whole tree is read again rather than just the one row. The
+     * database is checked without holding the cache's lock.
+     */
+    private boolean existsElsewhere(String categoryId) {
+        boolean exists = lookups.get(categoryId, id -> categoryRepository.findByCategoryId(id) != null);
+        if (exists) {
+            synchronized (this) {
+                // a reload or getOrCreate may have added it while this thread waited
+                if (!tree.byCategoryId().containsKey(categoryId)) {
+                    reload();
+                }
+            }
+        }
+        return exists;
+    }
+
+    private record Tree(Map<String, Category> byCategoryId, Map<String, Set<Long>> descendants) {
+
+        void add(Category category) {
+            byCategoryId.put(category.getCategoryId(), category);
+            linkAncestors(category);
+        }
+
+        /**
+         * Adds the category's id to its own closure entry and to every ancestor's.
+         * Sets are replaced rather than mutated so readers never see a partial update.
+         */
+        void linkAncestors(Category category) {
+            for (Category c = category; c != null; c = parentOf(c)) {
+                Set<Long> current = descendants.getOrDefault(c.getCategoryId(), Set.of());
+                if (!current.contains(category.getId())) {
+                    Set<Long> updated = new HashSet<>(current);
+                    updated.add(category.getId());
+                    descendants.put(c.getCategoryId(), Collections.unmodifiableSet(updated));
+                }
+            }
+        }
+
+        private Category parentOf(Category category) {
+            Category parent = category.getParentCategory();
+            if (parent == null) {
+                return null;
+            }
+            Category cached = byCategoryId.get(parent.getCategoryId());
+            return cached != null ? cached : parent;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.xuwei.cache;
+
+import com.xuwei.model.Coupon;
+import com.xuwei.repository.CouponRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of the active coupons by code, with the ids of the users
+ * who redeemed each one.
+ * <p>
+ * The coupons are loaded on first use and refreshed periodically; each keeps
+ * the end of its validity window as an epoch millisecond, so checking a code
+ * is a map lookup and a comparison. The redeeming user ids of a coupon are
+ * read once, as ids only, the first time the coupon is checked, and then kept
+ * up to date by {@link #recordRedemption}; the User rows behind
+ * {@code Coupon.usedByUsers} are never loaded. Redemptions made on another
+ * instance show up after the next refresh, and the join table's key stops a
+ * second redemption in the meantime.
+ */
+@Component
+@RequiredArgsConstructor
+public class CouponCache {
+
+    private final CouponRepository couponRepository;
+
+    private volatile Map<String, ActiveCoupon> byCode;
+    // coupon id -> ids of the users who redeemed it, for the coupons checked so far
+    private final Map<Long, Set<Long>> redeemedBy = new ConcurrentHashMap<>();
+
+    /**
+     * The active coupon with the code, or null. The coupon may still be expired.
+     */
+    public ActiveCoupon find(String code) {
+        if (code == null) {
+            return null;
+        }
+        return coupons().get(code.trim());
+    }
+
+    public boolean isRedeemedBy(ActiveCoupon coupon, Long userId) {
+        return redeemedBy.computeIfAbsent(coupon.id(), this::loadRedemptions).contains(userId);
+    }
+
+    /**
+     * Adds a committed redemption to the index.
+     */
+    public void recordRedemption(ActiveCoupon coupon, Long userId) {
+        Set<Long> users = redeemedBy.get(coupon.id());
+        if (users != null) {
+            users.add(userId);
+        }
+        // not loaded yet: the first check reads it with the others
+    }
+
+    @Scheduled(initialDelayString = "${coupon.cache.refresh-interval:PT5M}",
+            fixedDelayString = "${coupon.cache.refresh-interval:PT5M}")
+    public synchronized void reload() {
+        Map<String, ActiveCoupon> coupons = new HashMap<>();
+        for (Coupon coupon : couponRepository.findActive()) {
+            if (coupon.getCode() != null) {
+                coupons.put(coupon.getCode().trim(), ActiveCoupon.of(coupon));
+            }
+        }
+        // read again on next use, picking up redemptions made elsewhere
+        redeemedBy.clear();
+        byCode = Map.copyOf(coupons);
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private Map<String, ActiveCoupon> coupons() {
+        Map<String, ActiveCoupon> coupons = byCode;
+        if (coupons == null) {
+            synchronized (this) {
+                if (byCode == null) {
+                    reload();
+                }
+                coupons = byCode;
+            }
+        }
+        return coupons;
+    }
+
+    private Set<Long> loadRedemptions(Long couponId) {
+        Set<Long> users = ConcurrentHashMap.newKeySet();
+        users.addAll(couponRepository.findRedeemingUserIds(couponId));
+        return users;
+    }
+
+    /**
+     * What validating a coupon needs, with its validity window precomputed.
+     * validUntilMillis is the start of the day after the validity end date.
+     */
+    public record ActiveCoupon(Long id, String code, double discountPercentage, double minimumOrderValue,
+                               long validUntilMillis) {
+
+        static ActiveCoupon of(Coupon coupon) {
+            LocalDate endDate = coupon.getValidityEndDate();
+            long validUntil = endDate == null ? Long.MAX_VALUE
+                    : endDate.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            return new ActiveCoupon(coupon.getId(), coupon.getCode().trim(), coupon.getDiscountPercentage(),
+                    coupon.getMinimumOrderValue(), validUntil);
+        }
+
+        public boolean isValidAt(long millis) {
+            return millis < validUntilMillis;
+        }
+
+        public int discountFor(double orderValue) {
+            return (int) (orderValue * discountPercentage / 100);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.xuwei.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.xuwei.dto.CacheStatsDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Approximate match counts for product listing filters, keyed by a normalized
+ * filter signature.
+ * <p>
+ * Counting the matches of a filter costs as much as the listing query itself,
+ * so count-free listings only run it when the caller asks for a total, and
+ * then at most once per signature per TTL. Entries are not invalidated by
+ * product writes; a total may be off by the products created or deleted
+ * within the TTL.
+ */
+@Component
+public class ListingCountCache {
+
+    private final boolean enabled;
+    private final Cache<String, Long> counts;
+
+    public ListingCountCache(@Value("${product.listing.count-cache.enabled:true}") boolean enabled,
+                             @Value("${product.listing.count-cache.max-size:10000}") long maxSize,
+                             @Value("${product.listing.count-cache.ttl:60s}") Duration ttl) {
+        this.enabled = enabled;
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached count for the signature, or runs the counter once for all concurrent callers.
+     */
+    public long getCount(String signature, LongSupplier counter) {
+        if (!enabled) {
+            return counter.getAsLong();
+        }
+        return counts.get(signature, key -> counter.getAsLong());
+    }
+
+    public void invalidateAll() {
+        counts.invalidateAll();
+    }
+
+    public CacheStatsDTO stats() {
+        CacheStats stats = counts.stats();
+        return new CacheStatsDTO("listingCount", counts.estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.hitRate(), stats.loadCount(), stats.evictionCount(),
+                stats.averageLoadPenalty() / 1_000_000.0);
+    }
+}
@@ -0,0 +1,117 @@
+package com.xuwei.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.xuwei.dto.CacheStatsDTO;
+import com.xuwei.dto.ProductDetailDTO;
+import com.xuwei.model.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache for single-product lookups, keyed by product id.
+ * <p>
+ * Backed by Caffeine, whose W-TinyLFU policy only admits a new entry when it is
+ * requested more often than the entry it would evict, so a scan over cold
+ * products cannot flush the hot ones. Entries expire after a fixed TTL as a
+ * safety net; writes invalidate the id explicitly. Concurrent misses on the
+ * same id wait for a single load instead of each querying the database.
+ * Missing products are not cached.
+ * <p>
+ * Every caller gets its own copy of a cached product, so changing what it
+ * was handed cannot leak into other requests or threads. The copy shares
+ * the category and seller and leaves out the reviews, which the cached
+ * entity never loads.
+ */
+@Component
+public class ProductCache {
+
+    private final boolean enabled;
+    private final Cache<Long, Product> products;
+    private final Cache<Long, ProductDetailDTO> details;
+
+    public ProductCache(@Value("${product.cache.enabled:true}") boolean enabled,
+                        @Value("${product.cache.max-size:10000}") long maxSize,
+                        @Value("${product.cache.ttl:10m}") Duration ttl) {
+        this.enabled = enabled;
+        this.products = build(maxSize, ttl);
+        this.details = build(maxSize, ttl);
+    }
+
+    /**
+     * Returns a copy of the cached product, or runs the loader once for all concurrent
+     * callers. Returns null when the loader finds nothing.
+     */
+    public Product getProduct(Long productId, Function<Long, Product> loader) {
+        if (!enabled) {
+            return loader.apply(productId);
+        }
+        Product product = products.get(productId, loader);
+        return product == null ? null : copyOf(product);
+    }
+
+    public ProductDetailDTO getDetail(Long productId, Function<Long, ProductDetailDTO> loader) {
+        return enabled ? details.get(productId, loader) : loader.apply(productId);
+    }
+
+    /**
+     * Drops every cached view of the product. Call after the change is committed;
+     * a load already in flight for the id completes before the entry is removed.
+     */
+    public void invalidate(Long productId) {
+        products.invalidate(productId);
+        details.invalidate(productId);
+    }
+
+    public void invalidateAll() {
+        products.invalidateAll();
+        details.invalidateAll();
+    }
+
+    public List<CacheStatsDTO> stats() {
+        return List.of(toStats("product", products), toStats("productDetail", details));
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private static Product copyOf(Product product) {
+        Product copy = new Product();
+        copy.setId(product.getId());
+        copy.setTitle(product.getTitle());
+        copy.setDescription(product.getDescription());
+        copy.setMrpPrice(product.getMrpPrice());
+        copy.setSellingPrice(product.getSellingPrice());
+        copy.setDiscountPercent(product.getDiscountPercent());
+        copy.setQuantity(product.getQuantity());
+        copy.setColor(product.getColor());
+        copy.setFlashSale(product.isFlashSale());
+        copy.setImages(new ArrayList<>(product.getImages()));
+        copy.setRating(product.getRating());
+        copy.setCategory(product.getCategory());
+        copy.setSeller(product.getSeller());
+        copy.setCreatedAt(product.getCreatedAt());
+        copy.setSizes(product.getSizes());
+        return copy;
+    }
+
+    private static <V> Cache<Long, V> build(long maxSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    private static CacheStatsDTO toStats(String name, Cache<Long, ?> cache) {
+        CacheStats stats = cache.stats();
+        return new CacheStatsDTO(name, cache.estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.hitRate(), stats.loadCount(), stats.evictionCount(),
+                stats.averageLoadPenalty() / 1_000_000.0);
+    }
+}
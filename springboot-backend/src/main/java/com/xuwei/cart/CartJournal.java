@@ -0,0 +1,180 @@
+package com.xuwei.cart;
+
+import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only local log of the hot-cart mutations of one store shard, written
+ * before the write-behind flush reaches the database.
+ * <p>
+ * Records are full item states rather than deltas, so replaying a record
+ * twice is harmless. The log is split into numbered segments: a flush first
+ * rotates to a new segment, writes everything the closed segments describe to
+ * the database, then deletes them. Segments found at startup belong to a run
+ * that stopped before its flush and are replayed before any journal is
+ * opened. A record cut short by a crash ends the replay of its segment.
+ * <p>
+ * Not thread-safe; the shard's lock serializes appends and rotation.
+ * {@link #deleteUpTo} only touches closed segments and may run alongside.
+ */
+final class CartJournal implements Closeable {
+
+    private static final String PREFIX = "cart-journal-";
+    private static final String SUFFIX = ".log";
+    private static final byte SET = 1;
+    private static final byte REMOVE = 2;
+
+    private final Path directory;
+    private final boolean fsync;
+    private long segment;
+    private FileOutputStream file;
+    private DataOutputStream out;
+
+    CartJournal(Path directory, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        Files.createDirectories(directory);
+        List<Path> existing = segments(directory);
+        segment = existing.isEmpty() ? 0 : number(existing.get(existing.size() - 1));
+        open(++segment);
+    }
+
+    void appendSet(long cartId, long userId, HotCart.Item item) throws IOException {
+        out.writeByte(SET);
+        out.writeLong(cartId);
+        out.writeLong(userId);
+        out.writeLong(item.id);
+        out.writeLong(item.product.getId());
+        out.writeUTF(item.size == null ? "" : item.size);
+        out.writeInt(item.quantity);
+        out.writeInt(item.mrpPrice);
+        out.writeInt(item.sellingPrice);
+        commit();
+    }
+
+    void appendRemove(long cartId, long itemId) throws IOException {
+        out.writeByte(REMOVE);
+        out.writeLong(cartId);
+        out.writeLong(itemId);
+        commit();
+    }
+
+    /**
+     * Starts a new segment and returns the number of the last closed one;
+     * segments up to it can be deleted once their changes are in the database.
+     */
+    long rotate() throws IOException {
+        out.close();
+        long closed = segment;
+        open(++segment);
+        return closed;
+    }
+
+    void deleteUpTo(long lastSegment) throws IOException {
+        for (Path path : segments(directory)) {
+            if (number(path) <= lastSegment) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Reads every record of the segments left in the directory, oldest first.
+     * Nothing may be appending to them.
+     */
+    static List<Record> readSegments(Path directory) throws IOException {
+        List<Record> records = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return records;
+        }
+        for (Path path : segments(directory)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                while (true) {
+                    Record record = read(in);
+                    if (record == null) {
+                        break;
+                    }
+                    records.add(record);
+                }
+            }
+        }
+        return records;
+    }
+
+    static void deleteSegments(Path directory) throws IOException {
+        if (Files.isDirectory(directory)) {
+            for (Path path : segments(directory)) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * One journaled change. For a removal only cartId and itemId are set.
+     */
+    record Record(boolean removal, long cartId, long userId, long itemId, long productId, String size,
+                  int quantity, int mrpPrice, int sellingPrice) {
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private void open(long number) throws IOException {
+        file = new FileOutputStream(directory.resolve(PREFIX + number + SUFFIX).toFile(), true);
+        out = new DataOutputStream(new BufferedOutputStream(file));
+    }
+
+    private void commit() throws IOException {
+        // in the OS page cache: survives a process crash; fsync also survives a power loss
+        out.flush();
+        if (fsync) {
+            file.getFD().sync();
+        }
+    }
+
+    private static Record read(DataInputStream in) throws IOException {
+        try {
+            int type = in.read();
+            if (type < 0) {
+                return null;
+            }
+            if (type == REMOVE) {
+                return new Record(true, in.readLong(), 0L, in.readLong(), 0L, null, 0, 0, 0);
+            }
+            if (type != SET) {
+                return null;
+            }
+            long cartId = in.readLong();
+            long userId = in.readLong();
+            long itemId = in.readLong();
+            long productId = in.readLong();
+            String size = in.readUTF();
+            return new Record(false, cartId, userId, itemId, productId, size.isEmpty() ? null : size,
+                    in.readInt(), in.readInt(), in.readInt());
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            stream.forEach(paths::add);
+        }
+        paths.sort((a, b) -> Long.compare(number(a), number(b)));
+        return paths;
+    }
+
+    private static long number(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,169 @@
+package com.xuwei.cart;
+
+import com.xuwei.event.ProductPriceChangedEvent;
+import com.xuwei.model.Product;
+import com.xuwei.repository.ProductRepository;
+import com.xuwei.service.Impl.CartServiceImpl;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Brings the price snapshots of cart lines up to date after a seller changes
+ * a product's prices.
+ * <p>
+ * Price change events only mark the product as pending, so a burst of changes
+ * to one product between two runs costs a single repricing, at the prices the
+ * product has when it runs. A run finds the stale lines of a product with one
+ * query on the product index of cart_item, then rewrites them a chunk at a
+ * time: one transaction per chunk with a batched update of the lines and a
+ * batched update of their carts' totals, re-summed from the items. Totals are
+ * written under the cart's version; a cart changed by a shopper in between is
+ * summed again, and the {@code CartTotalsRepairJob} catches one that keeps
+ * losing. Carts held by the {@link HotCartStore} are repriced in memory first
+ * and written by its next flush.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "cart.repricer.enabled", havingValue = "true", matchIfMissing = true)
+public class CartRepricer {
+
+    private static final Logger log = LoggerFactory.getLogger(CartRepricer.class);
+
+    private static final int TOTALS_ATTEMPTS = 3;
+
+    private static final String FIND_STALE_LINES = "SELECT id, cart_id FROM cart_item WHERE product_id = ? "
+            + "AND (mrp_price IS NULL OR selling_price IS NULL OR mrp_price <> quantity * ? "
+            + "OR selling_price <> quantity * ?) ORDER BY cart_id";
+    private static final String REPRICE_LINE = "UPDATE cart_item SET mrp_price = quantity * ?, "
+            + "selling_price = quantity * ? WHERE id = ? AND product_id = ?";
+    private static final String SUM_TOTALS = "SELECT c.id, c.version, COALESCE(SUM(i.mrp_price), 0), "
+            + "COALESCE(SUM(i.selling_price), 0), COALESCE(SUM(i.quantity), 0) FROM cart c "
+            + "LEFT JOIN cart_item i ON i.cart_id = c.id WHERE c.id IN (%s) GROUP BY c.id, c.version";
+    private static final String UPDATE_TOTALS = "UPDATE cart SET total_mrp_price = ?, total_selling_price = ?, "
+            + "total_items = ?, discounted_price = ?, version = version + 1 WHERE id = ? AND version = ?";
+
+    private final ProductRepository productRepository;
+    private final HotCartStore hotCartStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Set<Long> pendingProductIds = ConcurrentHashMap.newKeySet();
+
+    @Value("${cart.repricer.chunk-size:500}")
+    private int chunkSize = 500;
+
+    /**
+     * Runs after the commit of the price change, or right away outside a transaction.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPriceChanged(ProductPriceChangedEvent event) {
+        pendingProductIds.add(event.productId());
+    }
+
+    @Scheduled(initialDelayString = "${cart.repricer.interval:PT2S}",
+            fixedDelayString = "${cart.repricer.interval:PT2S}")
+    public void run() {
+        int repriced = repricePending();
+        if (repriced > 0) {
+            log.info("Repriced {} cart lines", repriced);
+        }
+    }
+
+    /**
+     * Reprices the carts of every pending product. Returns the number of lines repriced.
+     */
+    public int repricePending() {
+        int repriced = 0;
+        for (Iterator<Long> iterator = pendingProductIds.iterator(); iterator.hasNext(); ) {
+            Long productId = iterator.next();
+            // removed before the work, so a change arriving meanwhile queues the product again
+            iterator.remove();
+            try {
+                repriced += reprice(productId);
+            } catch (RuntimeException e) {
+                log.warn("Could not reprice the carts of product {}, retrying on the next run", productId, e);
+                pendingProductIds.add(productId);
+            }
+        }
+        return repriced;
+    }
+
+    /**
+     * Number of products waiting for a run.
+     */
+    public int pendingCount() {
+        return pendingProductIds.size();
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private int reprice(Long productId) {
+        List<Product> found = productRepository.findForCartByIdIn(List.of(productId));
+        if (found.isEmpty()) {
+            return 0;
+        }
+        Product product = found.get(0);
+        int mrpPrice = product.getMrpPrice();
+        int sellingPrice = product.getSellingPrice();
+        int repriced = hotCartStore.reprice(product);
+
+        List<long[]> lines = jdbcTemplate.query(FIND_STALE_LINES,
+                (row, rowNum) -> new long[]{row.getLong(1), row.getLong(2)}, productId, mrpPrice, sellingPrice);
+        for (int from = 0; from < lines.size(); from += chunkSize) {
+            List<long[]> chunk = lines.subList(from, Math.min(from + chunkSize, lines.size()));
+            List<Object[]> lineArgs = new ArrayList<>(chunk.size());
+            Set<Long> cartIds = new LinkedHashSet<>();
+            for (long[] line : chunk) {
+                lineArgs.add(new Object[]{mrpPrice, sellingPrice, line[0], productId});
+                cartIds.add(line[1]);
+            }
+            Set<Long> conflicted = transactionTemplate.execute(status -> {
+                jdbcTemplate.batchUpdate(REPRICE_LINE, lineArgs);
+                return writeTotals(cartIds);
+            });
+            for (int attempt = 2; attempt <= TOTALS_ATTEMPTS && !conflicted.isEmpty(); attempt++) {
+                Set<Long> retry = conflicted;
+                conflicted = transactionTemplate.execute(status -> writeTotals(retry));
+            }
+            if (!conflicted.isEmpty()) {
+                log.debug("Totals of carts {} kept changing, leaving them to the repair job", conflicted);
+            }
+            repriced += chunk.size();
+        }
+        return repriced;
+    }
+
+    /**
+     * Rewrites the totals of the carts from their items and returns the ids of
+     * the carts whose version moved between the sum and the update.
+     */
+    private Set<Long> writeTotals(Set<Long> cartIds) {
+        String placeholders = String.join(", ", Collections.nCopies(cartIds.size(), "?"));
+        List<Object[]> totals = jdbcTemplate.query(String.format(SUM_TOTALS, placeholders), (row, rowNum) -> {
+            int mrpPrice = row.getInt(3);
+            int sellingPrice = row.getInt(4);
+            return new Object[]{mrpPrice, sellingPrice, row.getInt(5),
+                    CartServiceImpl.calculateDiscountPercentage(mrpPrice, sellingPrice), row.getLong(1),
+                    row.getLong(2)};
+        }, cartIds.toArray());
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_TOTALS, totals);
+        Set<Long> conflicted = new LinkedHashSet<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                conflicted.add((Long) totals.get(i)[4]);
+            }
+        }
+        return conflicted;
+    }
+}
@@ -0,0 +1,100 @@
+package com.xuwei.cart;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes the database writes to one user's cart within this instance and
+ * retries the ones that lose a race against another instance.
+ * <p>
+ * Users map onto a fixed set of lock stripes, so writes to different carts
+ * rarely wait on each other and no lock is ever held in the database while
+ * waiting. Across instances the unique (cart, product, size) line and the
+ * cart's optimistic version detect a conflicting write; the losing attempt is
+ * rolled back and run again from a fresh read, up to a bounded number of
+ * attempts. The lock is held across the whole transaction, commit included.
+ */
+@Component
+public class CartWriteLocks {
+
+    private static final Logger log = LoggerFactory.getLogger(CartWriteLocks.class);
+
+    private final ReentrantLock[] stripes;
+    private final int maxAttempts;
+    private final TransactionTemplate transactionTemplate;
+
+    public CartWriteLocks(PlatformTransactionManager transactionManager,
+                          @Value("${cart.write.lock-stripes:1024}") int stripeCount,
+                          @Value("${cart.write.max-attempts:5}") int maxAttempts) {
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.maxAttempts = maxAttempts;
+        // a transaction per attempt, so a retry never runs inside a transaction already marked for rollback
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Runs the write in its own transaction while holding the user's stripe,
+     * retrying on a unique-line or cart-version conflict.
+     */
+    public <T, E extends Exception> T write(Long userId, CartWrite<T, E> write) throws E {
+        ReentrantLock lock = stripes[Math.floorMod(Long.hashCode(userId), stripes.length)];
+        lock.lock();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return transactionTemplate.execute(status -> {
+                        try {
+                            return write.run();
+                        } catch (RuntimeException e) {
+                            throw e;
+                        } catch (Exception e) {
+                            throw new CheckedFailure(e);
+                        }
+                    });
+                } catch (DataIntegrityViolationException | OptimisticLockingFailureException e) {
+                    if (attempt >= maxAttempts) {
+                        throw e;
+                    }
+                    log.debug("Cart write of user {} conflicted, attempt {} of {}", userId, attempt, maxAttempts);
+                } catch (CheckedFailure failure) {
+                    throw failure.<E>cause();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public interface CartWrite<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    /**
+     * Carries a checked exception of the write out of the transaction callback.
+     */
+    private static final class CheckedFailure extends RuntimeException {
+        CheckedFailure(Exception cause) {
+            super(cause);
+        }
+
+        @SuppressWarnings("unchecked")
+        <E extends Exception> E cause() {
+            return (E) getCause();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.xuwei.cart;
+
+import com.xuwei.model.Cart;
+import com.xuwei.model.CartItem;
+import com.xuwei.model.Product;
+import com.xuwei.model.User;
+import com.xuwei.service.Impl.CartServiceImpl;
+
+import java.util.*;
+
+/**
+ * In-memory state of one active cart held by the {@link HotCartStore}.
+ * <p>
+ * Not thread-safe: every access happens under the lock of the store shard
+ * that owns the user. Besides the items it tracks what changed since the last
+ * write-behind flush, so a flush writes each touched row once however many
+ * times it changed.
+ */
+final class HotCart {
+
+    final long cartId;
+    final long userId;
+    final User user;
+    String couponCode;
+
+    // keyed by product id and size, like the unique item of a cart
+    private final Map<String, Item> items = new LinkedHashMap<>();
+    private final Map<Long, Item> itemsById = new HashMap<>();
+
+    private final Set<Long> dirtyItemIds = new HashSet<>();
+    private final Set<Long> removedItemIds = new HashSet<>();
+    private boolean totalsDirty;
+
+    private int totalMrpPrice;
+    private int totalSellingPrice;
+    private int totalItems;
+
+    long lastAccessNanos;
+
+    HotCart(long cartId, User user, String couponCode) {
+        this.cartId = cartId;
+        this.userId = user.getId();
+        this.user = user;
+        this.couponCode = couponCode;
+    }
+
+    /**
+     * Adds an item read from the database; it is not dirty.
+     */
+    void load(Item item) {
+        item.persisted = true;
+        put(item);
+        addToTotals(item, 1);
+    }
+
+    Item find(Long productId, String size) {
+        return items.get(key(productId, size));
+    }
+
+    Item findById(Long itemId) {
+        return itemsById.get(itemId);
+    }
+
+    void add(Item item) {
+        put(item);
+        addToTotals(item, 1);
+        markDirty(item);
+    }
+
+    void setQuantity(Item item, int quantity) {
+        Item updated = item.withQuantity(quantity);
+        addToTotals(item, -1);
+        item.quantity = updated.quantity;
+        item.mrpPrice = updated.mrpPrice;
+        item.sellingPrice = updated.sellingPrice;
+        addToTotals(item, 1);
+        markDirty(item);
+    }
+
+    /**
+     * Moves the item onto a newer copy of its product, repricing the line at its quantity.
+     */
+    void reprice(Item item, Product product) {
+        addToTotals(item, -1);
+        item.product = product;
+        item.mrpPrice = item.quantity * product.getMrpPrice();
+        item.sellingPrice = item.quantity * product.getSellingPrice();
+        addToTotals(item, 1);
+        markDirty(item);
+    }
+
+    void remove(Item item) {
+        items.remove(key(item.product.getId(), item.size));
+        itemsById.remove(item.id);
+        addToTotals(item, -1);
+        dirtyItemIds.remove(item.id);
+        // deleted even if its insert is still in flight; deleting a missing row is harmless
+        removedItemIds.add(item.id);
+        totalsDirty = true;
+    }
+
+    boolean isDirty() {
+        return totalsDirty;
+    }
+
+    /**
+     * Copies the pending changes and clears them; see {@link #restore} for a failed flush.
+     */
+    Changes drainChanges() {
+        List<Item> upserts = new ArrayList<>(dirtyItemIds.size());
+        for (Long id : dirtyItemIds) {
+            upserts.add(itemsById.get(id).copy());
+        }
+        Changes changes = new Changes(cartId, upserts, new ArrayList<>(removedItemIds),
+                totalMrpPrice, totalSellingPrice, totalItems);
+        dirtyItemIds.clear();
+        removedItemIds.clear();
+        totalsDirty = false;
+        return changes;
+    }
+
+    void markPersisted(Changes changes) {
+        for (Item written : changes.upserts()) {
+            Item item = itemsById.get(written.id);
+            if (item != null) {
+                item.persisted = true;
+            }
+        }
+    }
+
+    void restore(Changes changes) {
+        for (Item written : changes.upserts()) {
+            if (itemsById.containsKey(written.id)) {
+                dirtyItemIds.add(written.id);
+            }
+        }
+        removedItemIds.addAll(changes.removedItemIds());
+        totalsDirty = true;
+    }
+
+    /**
+     * Detached Cart with its items, for callers of the CartService interface.
+     * The items do not point back at the cart: Lombok's hashCode on the pair
+     * would recurse while the items are added to the cart's set.
+     */
+    Cart toCart() {
+        Cart cart = toCartWithoutItems();
+        for (Item item : items.values()) {
+            cart.getCartItems().add(item.toCartItem(null, userId));
+        }
+        return cart;
+    }
+
+    Cart toCartWithoutItems() {
+        Cart cart = new Cart();
+        cart.setId(cartId);
+        cart.setUser(user);
+        cart.setCouponCode(couponCode);
+        cart.setTotalMrpPrice(totalMrpPrice);
+        cart.setTotalSellingPrice(totalSellingPrice);
+        cart.setTotalItems(totalItems);
+        cart.setDiscountedPrice(CartServiceImpl.calculateDiscountPercentage(totalMrpPrice, totalSellingPrice));
+        return cart;
+    }
+
+    /**
+     * Size of each line by item id.
+     */
+    Map<Long, String> lineSizes() {
+        Map<Long, String> sizes = new HashMap<>();
+        for (Item item : items.values()) {
+            sizes.put(item.id, item.size);
+        }
+        return sizes;
+    }
+
+    List<Item> items() {
+        return new ArrayList<>(items.values());
+    }
+
+    /**
+     * Lines of the product, one per size.
+     */
+    List<Item> itemsOf(Long productId) {
+        List<Item> lines = new ArrayList<>();
+        for (Item item : items.values()) {
+            if (item.product.getId().equals(productId)) {
+                lines.add(item);
+            }
+        }
+        return lines;
+    }
+
+    int size() {
+        return items.size();
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private static String key(Long productId, String size) {
+        return productId + "|" + size;
+    }
+
+    private void put(Item item) {
+        items.put(key(item.product.getId(), item.size), item);
+        itemsById.put(item.id, item);
+    }
+
+    private void markDirty(Item item) {
+        dirtyItemIds.add(item.id);
+        totalsDirty = true;
+    }
+
+    private void addToTotals(Item item, int sign) {
+        totalMrpPrice += sign * item.mrpPrice;
+        totalSellingPrice += sign * item.sellingPrice;
+        totalItems += sign * item.quantity;
+    }
+
+    /**
+     * One cart line. mrpPrice and sellingPrice are line totals, as on CartItem.
+     */
+    static final class Item {
+        final long id;
+        Product product;
+        final String size;
+        int quantity;
+        int mrpPrice;
+        int sellingPrice;
+        boolean persisted;
+
+        Item(long id, Product product, String size, int quantity, int mrpPrice, int sellingPrice) {
+            this.id = id;
+            this.product = product;
+            this.size = size;
+            this.quantity = quantity;
+            this.mrpPrice = mrpPrice;
+            this.sellingPrice = sellingPrice;
+        }
+
+        /**
+         * The state this item has at another quantity, priced at its product's current prices.
+         */
+        Item withQuantity(int newQuantity) {
+            return new Item(id, product, size, newQuantity,
+                    newQuantity * product.getMrpPrice(), newQuantity * product.getSellingPrice());
+        }
+
+        /**
+         * The state this item has when priced at another copy of its product.
+         */
+        Item withProduct(Product newProduct) {
+            return new Item(id, newProduct, size, quantity,
+                    quantity * newProduct.getMrpPrice(), quantity * newProduct.getSellingPrice());
+        }
+
+        Item copy() {
+            Item copy = new Item(id, product, size, quantity, mrpPrice, sellingPrice);
+            copy.persisted = persisted;
+            return copy;
+        }
+
+        CartItem toCartItem(Cart cart, long userId) {
+            CartItem cartItem = new CartItem();
+            cartItem.setId(id);
+            cartItem.setCart(cart);
+            cartItem.setProduct(product);
+            cartItem.setSize(size);
+            cartItem.setQuantity(quantity);
+            cartItem.setMrpPrice(mrpPrice);
+            cartItem.setSellingPrice(sellingPrice);
+            cartItem.setUserId(userId);
+            return cartItem;
+        }
+    }
+
+    /**
+     * What one flush writes for a cart: current rows of the changed items,
+     * ids of removed items and the resulting totals.
+     */
+    record Changes(long cartId, List<Item> upserts, List<Long> removedItemIds,
+                   int totalMrpPrice, int totalSellingPrice, int totalItems) {
+    }
+}
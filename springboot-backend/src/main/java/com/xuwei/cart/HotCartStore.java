@@ -0,0 +1,825 @@
+package com.xuwei.cart;
+
+import com.xuwei.domain.CartOperationType;
+import com.xuwei.exception.CartItemException;
+import com.xuwei.model.Cart;
+import com.xuwei.model.CartItem;
+import com.xuwei.model.Product;
+import com.xuwei.model.User;
+import com.xuwei.repository.CartItemRepository;
+import com.xuwei.repository.CartRepository;
+import com.xuwei.request.CartBatchRequest;
+import com.xuwei.service.Impl.CartServiceImpl;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional in-memory home for active carts, with write-behind to the Cart and
+ * CartItem tables (cart.store.enabled, off by default).
+ * <p>
+ * Carts are held per user in lock-striped shards, so shoppers in different
+ * shards never wait on each other and a cart's reads and writes touch no
+ * database. Every change is first appended to its shard's own
+ * {@link CartJournal}; a background flush then writes the rows touched since
+ * the previous flush in one batched transaction, however often each changed.
+ * Carts that stay clean and untouched for the idle timeout are evicted and
+ * reloaded on next use. Journal segments still on disk at startup are
+ * replayed into the tables before the store serves anything, and shutdown
+ * flushes what is left.
+ * <p>
+ * Nothing waits on the database under a shard lock. Loading a cart and
+ * checking it out run outside it, with the user claimed: requests of that
+ * user wait for the claim, the shard's other users do not.
+ * <p>
+ * The store is the authority for the carts it holds, which assumes requests
+ * of one user reach the same instance (sticky routing); readers of the tables
+ * may lag it by up to the flush interval. New item ids come from the
+ * CartItem id generator, so rows written here and by JPA never collide; they
+ * are taken a block at a time and reserved before a change takes its lock.
+ */
+@Component
+public class HotCartStore {
+
+    private static final Logger log = LoggerFactory.getLogger(HotCartStore.class);
+
+    private static final String INSERT_ITEM = "INSERT INTO cart_item (id, cart_id, product_id, size, quantity, "
+            + "mrp_price, selling_price, user_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_ITEM = "UPDATE cart_item SET quantity = ?, mrp_price = ?, selling_price = ? "
+            + "WHERE id = ?";
+    private static final String DELETE_ITEM = "DELETE FROM cart_item WHERE id = ?";
+    private static final String UPDATE_TOTALS = "UPDATE cart SET total_mrp_price = ?, total_selling_price = ?, "
+            + "total_items = ?, discounted_price = ?, version = version + 1 WHERE id = ?";
+    private static final String SHARD_DIRECTORY_PREFIX = "shard-";
+    private static final int ITEM_ID_BLOCK = 100;
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final SessionFactoryImplementor sessionFactory;
+
+    private final boolean enabled;
+    private final long idleTimeoutNanos;
+    private final Shard[] shards;
+    private final ScheduledExecutorService scheduler;
+    private final Object flushLock = new Object();
+    // item ids taken from the generator and not yet handed out, guarded by itself
+    private final Deque<Long> spareItemIds = new ArrayDeque<>();
+
+    public HotCartStore(CartRepository cartRepository,
+                        CartItemRepository cartItemRepository,
+                        TransactionTemplate transactionTemplate,
+                        JdbcTemplate jdbcTemplate,
+                        EntityManagerFactory entityManagerFactory,
+                        @Value("${cart.store.enabled:false}") boolean enabled,
+                        @Value("${cart.store.shards:64}") int shardCount,
+                        @Value("${cart.store.journal-dir:./data/cart-journal}") String journalDir,
+                        @Value("${cart.store.journal.fsync:false}") boolean fsync,
+                        @Value("${cart.store.flush-interval:200ms}") Duration flushInterval,
+                        @Value("${cart.store.idle-timeout:30m}") Duration idleTimeout) throws IOException {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        // its own transactions even when called from a service's: a new cart must be committed
+        // before a flush on another thread writes items that reference it
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.jdbcTemplate = jdbcTemplate;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.enabled = enabled;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.shards = new Shard[enabled ? shardCount : 0];
+        if (!enabled) {
+            scheduler = null;
+            return;
+        }
+        Path journalRoot = Path.of(journalDir);
+        replay(journalRoot);
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(new CartJournal(journalRoot.resolve(SHARD_DIRECTORY_PREFIX + i), fsync));
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hot-cart-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = flushInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The user's cart with its items, or null when the user has none yet.
+     * Nothing is written for a user without a cart.
+     */
+    public Cart findCart(Long userId) {
+        return withCart(userId, null, cart -> cart == null ? null : cart.toCart());
+    }
+
+    /**
+     * Adds the quantity to the user's item of this product and size, creating
+     * the cart (synchronously) and the item as needed.
+     */
+    public CartItem addItem(User user, Product product, String size, int quantity) {
+        Deque<Long> itemIds = reserveItemIds(1);
+        try {
+            return withCart(user.getId(), user, cart -> {
+                HotCart.Item item = add(cart, itemIds, product, size, quantity);
+                return item.toCartItem(cart.toCartWithoutItems(), cart.userId);
+            });
+        } finally {
+            returnItemIds(itemIds);
+        }
+    }
+
+    public CartItem updateQuantity(Long userId, Long cartItemId, int quantity) throws CartItemException {
+        return withCart(userId, null, cart -> {
+            HotCart.Item item = findItem(cart, cartItemId);
+            setQuantity(cart, item, quantity);
+            return item.toCartItem(cart.toCartWithoutItems(), cart.userId);
+        });
+    }
+
+    public void removeItem(Long userId, Long cartItemId) throws CartItemException {
+        withCart(userId, null, cart -> {
+            remove(cart, findItem(cart, cartItemId));
+            return null;
+        });
+    }
+
+    /**
+     * Applies a cart batch under a single lock of the user's shard, so no
+     * other request sees it half done. Products of the ADD operations must be
+     * in the map. A line moved to another size becomes a new line.
+     */
+    public void applyBatch(User user, List<CartBatchRequest.Operation> operations, Map<Long, Product> products)
+            throws CartItemException {
+        // every ADD, and every UPDATE that names a size, may start a new line
+        int newLines = (int) operations.stream()
+                .filter(operation -> operation.getType() == CartOperationType.ADD
+                        || operation.getType() == CartOperationType.UPDATE && operation.getSize() != null)
+                .count();
+        Deque<Long> itemIds = reserveItemIds(newLines);
+        try {
+            withCart(user.getId(), user, cart -> {
+                CartServiceImpl.validateCartBatch(cart.lineSizes(), operations);
+                for (CartBatchRequest.Operation operation : operations) {
+                    switch (operation.getType()) {
+                        case ADD -> add(cart, itemIds, products.get(operation.getProductId()), operation.getSize(),
+                                operation.getQuantity());
+                        case UPDATE -> {
+                            HotCart.Item item = cart.findById(operation.getCartItemId());
+                            int quantity = operation.getQuantity() != null ? operation.getQuantity() : item.quantity;
+                            if (operation.getSize() != null && !operation.getSize().equals(item.size)) {
+                                remove(cart, item);
+                                add(cart, itemIds, item.product, operation.getSize(), quantity);
+                            } else {
+                                setQuantity(cart, item, quantity);
+                            }
+                        }
+                        case REMOVE -> remove(cart, cart.findById(operation.getCartItemId()));
+                    }
+                }
+                return null;
+            });
+        } finally {
+            returnItemIds(itemIds);
+        }
+    }
+
+    /**
+     * Runs the checkout on a copy of the user's cart (null when there is none)
+     * with the user claimed, then empties the held cart and drops its coupon
+     * if the checkout ordered it. The shard lock is not held while the
+     * checkout runs, but no other request changes the user's cart meanwhile.
+     * The checkout is expected to commit the orders and the cart row's coupon
+     * itself; the emptied lines and totals go out with the next flush. A
+     * checkout that returns an earlier one's orders, or throws, leaves the
+     * cart as it was.
+     */
+    public <T, E extends Exception> T checkout(Long userId, CartCheckout<T, E> checkout) throws E {
+        Shard shard = shardOf(userId);
+        HotCart cart = claim(shard, userId, null);
+        try {
+            Cart copy = null;
+            if (cart != null) {
+                shard.lock.lock();
+                try {
+                    copy = cart.toCart();
+                } finally {
+                    shard.lock.unlock();
+                }
+            }
+            CheckoutResult<T> result = checkout.run(copy);
+            if (cart != null && result.cartOrdered()) {
+                shard.lock.lock();
+                try {
+                    for (HotCart.Item item : cart.items()) {
+                        remove(cart, item);
+                    }
+                    cart.couponCode = null;
+                } finally {
+                    shard.lock.unlock();
+                }
+            }
+            return result.value();
+        } finally {
+            release(shard, userId);
+        }
+    }
+
+    /**
+     * Mirrors a coupon change already committed to the cart row into the held
+     * copy, if any. The coupon is not part of the write-behind. Waits for a
+     * load or checkout of the user, which would otherwise overwrite it.
+     */
+    public void setCouponCode(Long userId, String couponCode) {
+        if (!enabled) {
+            return;
+        }
+        Shard shard = shardOf(userId);
+        while (true) {
+            CompletableFuture<Void> claim;
+            shard.lock.lock();
+            try {
+                claim = shard.claims.get(userId);
+                if (claim == null) {
+                    HotCart cart = shard.carts.get(userId);
+                    if (cart != null) {
+                        cart.couponCode = couponCode;
+                    }
+                    return;
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+            claim.join();
+        }
+    }
+
+    /**
+     * Reprices the held lines of the product at its current prices; the
+     * changed lines and totals are written by the next flush like any other
+     * change. The product should carry what the cart view renders of it.
+     * Returns the number of lines repriced.
+     */
+    public int reprice(Product product) {
+        if (!enabled) {
+            return 0;
+        }
+        int repriced = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                for (HotCart cart : shard.carts.values()) {
+                    for (HotCart.Item item : cart.itemsOf(product.getId())) {
+                        HotCart.Item state = item.withProduct(product);
+                        if (state.mrpPrice == item.mrpPrice && state.sellingPrice == item.sellingPrice) {
+                            item.product = product;
+                            continue;
+                        }
+                        append(cart, state);
+                        cart.reprice(item, product);
+                        repriced++;
+                    }
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return repriced;
+    }
+
+    /**
+     * Writes every pending change to the database and evicts idle carts.
+     * Returns the number of carts written.
+     */
+    public int flush() {
+        if (!enabled) {
+            return 0;
+        }
+        synchronized (flushLock) {
+            long[] closedSegments = new long[shards.length];
+            List<Pending> pending = new ArrayList<>();
+            for (int i = 0; i < shards.length; i++) {
+                Shard shard = shards[i];
+                shard.lock.lock();
+                try {
+                    // drained with the rotation: every change journaled in a closed segment is drained here
+                    closedSegments[i] = rotate(shard.journal);
+                    for (HotCart cart : shard.carts.values()) {
+                        if (cart.isDirty()) {
+                            pending.add(new Pending(shard, cart, cart.drainChanges()));
+                        }
+                    }
+                } finally {
+                    shard.lock.unlock();
+                }
+            }
+
+            int written = write(pending);
+            if (written == pending.size()) {
+                for (int i = 0; i < shards.length; i++) {
+                    try {
+                        shards[i].journal.deleteUpTo(closedSegments[i]);
+                    } catch (IOException e) {
+                        log.warn("Could not delete flushed cart journal segments", e);
+                    }
+                }
+            }
+            evictIdleCarts();
+            return written;
+        }
+    }
+
+    /**
+     * Number of carts held in memory.
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                size += shard.carts.size();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        close(true);
+    }
+
+    /**
+     * Stops the background flush; without the final flush this behaves like a
+     * crash, leaving pending changes to the journal replay of the next start.
+     */
+    void close(boolean flush) {
+        if (!enabled) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flush) {
+            flush();
+        }
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                shard.journal.close();
+            } catch (IOException e) {
+                log.warn("Could not close the cart journal", e);
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private Shard shardOf(Long userId) {
+        return shards[Math.floorMod(Long.hashCode(userId), shards.length)];
+    }
+
+    /**
+     * Runs the action on the user's cart under its shard lock. A held cart
+     * nobody has claimed is used right away; otherwise the user is claimed
+     * first, which loads a missing cart outside the lock. When creator is null
+     * a missing cart is passed as null instead of created.
+     */
+    private <T, E extends Exception> T withCart(Long userId, User creator, CartAction<T, E> action) throws E {
+        Shard shard = shardOf(userId);
+        shard.lock.lock();
+        try {
+            HotCart cart = shard.carts.get(userId);
+            if (cart != null && !shard.claims.containsKey(userId)) {
+                cart.lastAccessNanos = System.nanoTime();
+                return action.apply(cart);
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+
+        HotCart cart = claim(shard, userId, creator);
+        try {
+            shard.lock.lock();
+            try {
+                return action.apply(cart);
+            } finally {
+                shard.lock.unlock();
+            }
+        } finally {
+            release(shard, userId);
+        }
+    }
+
+    /**
+     * Waits out any other claim on the user, claims them and returns their
+     * cart, or null when they have none and creator is null. A cart that is
+     * not held is loaded without the shard lock; the claim keeps a second
+     * load, and any change, out until it is in, and idle eviction skips
+     * claimed users. Every claim must be released.
+     */
+    private HotCart claim(Shard shard, Long userId, User creator) {
+        CompletableFuture<Void> claim = new CompletableFuture<>();
+        while (true) {
+            CompletableFuture<Void> other;
+            shard.lock.lock();
+            try {
+                other = shard.claims.putIfAbsent(userId, claim);
+                HotCart cart = shard.carts.get(userId);
+                if (other == null && cart != null) {
+                    cart.lastAccessNanos = System.nanoTime();
+                    return cart;
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+            if (other == null) {
+                break;
+            }
+            other.join();
+        }
+
+        HotCart cart;
+        try {
+            cart = load(userId, creator);
+        } catch (RuntimeException e) {
+            release(shard, userId);
+            throw e;
+        }
+        if (cart != null) {
+            shard.lock.lock();
+            try {
+                cart.lastAccessNanos = System.nanoTime();
+                shard.carts.put(userId, cart);
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return cart;
+    }
+
+    private void release(Shard shard, Long userId) {
+        CompletableFuture<Void> claim;
+        shard.lock.lock();
+        try {
+            claim = shard.claims.remove(userId);
+        } finally {
+            shard.lock.unlock();
+        }
+        claim.complete(null);
+    }
+
+    private HotCart load(Long userId, User creator) {
+        if (creator != null) {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (cartRepository.findByUserId(userId) == null) {
+                    Cart cart = new Cart();
+                    cart.setUser(creator);
+                    cartRepository.save(cart);
+                }
+            });
+        }
+        return transactionTemplate.execute(status -> {
+            // the user comes along with their addresses, so the cart view needs no query
+            Cart cart = cartRepository.findViewByUserId(userId);
+            if (cart == null) {
+                return null;
+            }
+            HotCart hotCart = new HotCart(cart.getId(), cart.getUser(), cart.getCouponCode());
+            for (CartItem cartItem : cartItemRepository.findViewItemsByCartId(cart.getId())) {
+                hotCart.load(new HotCart.Item(cartItem.getId(), cartItem.getProduct(), cartItem.getSize(),
+                        cartItem.getQuantity(), CartServiceImpl.amount(cartItem.getMrpPrice()),
+                        CartServiceImpl.amount(cartItem.getSellingPrice())));
+            }
+            return hotCart;
+        });
+    }
+
+    /**
+     * Adds to the line of this product and size, or starts one with an id
+     * from those the caller reserved.
+     */
+    private HotCart.Item add(HotCart cart, Deque<Long> itemIds, Product product, String size, int quantity) {
+        HotCart.Item item = cart.find(product.getId(), size);
+        if (item == null) {
+            item = new HotCart.Item(itemIds.pop(), product, size, quantity,
+                    quantity * product.getMrpPrice(), quantity * product.getSellingPrice());
+            append(cart, item);
+            cart.add(item);
+        } else {
+            setQuantity(cart, item, item.quantity + quantity);
+        }
+        return item;
+    }
+
+    private void setQuantity(HotCart cart, HotCart.Item item, int quantity) {
+        append(cart, item.withQuantity(quantity));
+        cart.setQuantity(item, quantity);
+    }
+
+    private void remove(HotCart cart, HotCart.Item item) {
+        try {
+            shardOf(cart.userId).journal.appendRemove(cart.cartId, item.id);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not journal cart change", e);
+        }
+        cart.remove(item);
+    }
+
+    private static HotCart.Item findItem(HotCart cart, Long cartItemId) throws CartItemException {
+        HotCart.Item item = cart == null ? null : cart.findById(cartItemId);
+        if (item == null) {
+            throw new CartItemException("cartItem not found with id : " + cartItemId);
+        }
+        return item;
+    }
+
+    /**
+     * Journals the item's new state. Like every change, called under the lock
+     * of the cart's shard, which also serializes the shard's journal.
+     */
+    private void append(HotCart cart, HotCart.Item state) {
+        try {
+            shardOf(cart.userId).journal.appendSet(cart.cartId, cart.userId, state);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not journal cart change", e);
+        }
+    }
+
+    private static long rotate(CartJournal journal) {
+        try {
+            return journal.rotate();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not rotate the cart journal", e);
+        }
+    }
+
+    /**
+     * Hands out count new item ids. Called before the shard lock is taken:
+     * when the spare ids run short, a block is drawn from the CartItem id
+     * generator in one Session, whose optimizer goes to the database only
+     * once per allocation.
+     */
+    private Deque<Long> reserveItemIds(int count) {
+        Deque<Long> itemIds = new ArrayDeque<>(count);
+        synchronized (spareItemIds) {
+            if (spareItemIds.size() < count) {
+                BeforeExecutionGenerator generator = (BeforeExecutionGenerator) sessionFactory.getMappingMetamodel()
+                        .getEntityDescriptor(CartItem.class).getGenerator();
+                try (Session session = sessionFactory.openSession()) {
+                    for (int i = 0, n = Math.max(count, ITEM_ID_BLOCK); i < n; i++) {
+                        Object id = generator.generate((SharedSessionContractImplementor) session, null, null,
+                                EventType.INSERT);
+                        spareItemIds.add(((Number) id).longValue());
+                    }
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                itemIds.add(spareItemIds.pop());
+            }
+        }
+        return itemIds;
+    }
+
+    /**
+     * Puts back the reserved ids no new line took.
+     */
+    private void returnItemIds(Deque<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+        synchronized (spareItemIds) {
+            spareItemIds.addAll(itemIds);
+        }
+    }
+
+    /**
+     * Writes the drained changes in one transaction; if that fails, each cart
+     * is retried alone so one bad cart cannot hold back the others. Changes of
+     * carts that still fail go back to them for the next flush.
+     */
+    private int write(List<Pending> pending) {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeRows(pending));
+            settle(pending, true);
+            return pending.size();
+        } catch (RuntimeException e) {
+            log.warn("Batched cart flush failed, retrying cart by cart", e);
+        }
+        int written = 0;
+        for (Pending one : pending) {
+            List<Pending> single = List.of(one);
+            try {
+                transactionTemplate.executeWithoutResult(status -> writeRows(single));
+                settle(single, true);
+                written++;
+            } catch (RuntimeException e) {
+                log.warn("Could not flush cart {}, keeping its changes for the next flush", one.cart().cartId, e);
+                settle(single, false);
+            }
+        }
+        return written;
+    }
+
+    private void writeRows(List<Pending> pending) {
+        List<Object[]> deletes = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> totals = new ArrayList<>();
+        for (Pending one : pending) {
+            HotCart.Changes changes = one.changes();
+            for (Long itemId : changes.removedItemIds()) {
+                deletes.add(new Object[]{itemId});
+            }
+            for (HotCart.Item item : changes.upserts()) {
+                if (item.persisted) {
+                    updates.add(new Object[]{item.quantity, item.mrpPrice, item.sellingPrice, item.id});
+                } else {
+                    inserts.add(new Object[]{item.id, changes.cartId(), item.product.getId(), item.size,
+                            item.quantity, item.mrpPrice, item.sellingPrice, one.cart().userId});
+                }
+            }
+            totals.add(new Object[]{changes.totalMrpPrice(), changes.totalSellingPrice(), changes.totalItems(),
+                    CartServiceImpl.calculateDiscountPercentage(changes.totalMrpPrice(), changes.totalSellingPrice()),
+                    changes.cartId()});
+        }
+        jdbcTemplate.batchUpdate(DELETE_ITEM, deletes);
+        jdbcTemplate.batchUpdate(INSERT_ITEM, inserts);
+        jdbcTemplate.batchUpdate(UPDATE_ITEM, updates);
+        jdbcTemplate.batchUpdate(UPDATE_TOTALS, totals);
+    }
+
+    private void settle(List<Pending> pending, boolean persisted) {
+        for (Pending one : pending) {
+            one.shard().lock.lock();
+            try {
+                if (persisted) {
+                    one.cart().markPersisted(one.changes());
+                } else {
+                    one.cart().restore(one.changes());
+                }
+            } finally {
+                one.shard().lock.unlock();
+            }
+        }
+    }
+
+    private void evictIdleCarts() {
+        long now = System.nanoTime();
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                shard.carts.values().removeIf(cart -> !cart.isDirty() && now - cart.lastAccessNanos >= idleTimeoutNanos
+                        && !shard.claims.containsKey(cart.userId));
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Cart flush failed", e);
+        }
+    }
+
+    /**
+     * Applies the shard journals a previous run left behind, whatever its
+     * number of shards. Records hold whole item states and a run journals each
+     * item in one shard only, so the last one per item wins; cart totals are
+     * then summed from the items they touched.
+     */
+    private void replay(Path journalRoot) throws IOException {
+        List<Path> directories = journalDirectories(journalRoot);
+        List<CartJournal.Record> records = new ArrayList<>();
+        for (Path directory : directories) {
+            records.addAll(CartJournal.readSegments(directory));
+        }
+        if (!records.isEmpty()) {
+            Map<Long, CartJournal.Record> latest = new LinkedHashMap<>();
+            Set<Long> cartIds = new LinkedHashSet<>();
+            for (CartJournal.Record record : records) {
+                latest.put(record.itemId(), record);
+                cartIds.add(record.cartId());
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                latest.values().forEach(this::replay);
+                for (Long cartId : cartIds) {
+                    CartRepository.CartTotals sums = cartRepository.sumItemTotals(cartId);
+                    if (sums != null) {
+                        int mrpPrice = sums.getMrpPrice().intValue();
+                        int sellingPrice = sums.getSellingPrice().intValue();
+                        jdbcTemplate.update(UPDATE_TOTALS, mrpPrice, sellingPrice, sums.getQuantity().intValue(),
+                                CartServiceImpl.calculateDiscountPercentage(mrpPrice, sellingPrice), cartId);
+                    }
+                }
+            });
+            log.info("Replayed {} journaled changes of {} carts", latest.size(), cartIds.size());
+        }
+        for (Path directory : directories) {
+            CartJournal.deleteSegments(directory);
+        }
+    }
+
+    /**
+     * The shard journal directories under the root, and the root itself, which
+     * held the single journal of the store before it had one per shard.
+     */
+    private static List<Path> journalDirectories(Path journalRoot) throws IOException {
+        List<Path> directories = new ArrayList<>();
+        directories.add(journalRoot);
+        if (Files.isDirectory(journalRoot)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(journalRoot, SHARD_DIRECTORY_PREFIX + "*")) {
+                stream.forEach(directories::add);
+            }
+        }
+        return directories;
+    }
+
+    private void replay(CartJournal.Record record) {
+        try {
+            if (record.removal()) {
+                jdbcTemplate.update(DELETE_ITEM, record.itemId());
+            } else if (jdbcTemplate.update(UPDATE_ITEM, record.quantity(), record.mrpPrice(), record.sellingPrice(),
+                    record.itemId()) == 0) {
+                jdbcTemplate.update(INSERT_ITEM, record.itemId(), record.cartId(), record.productId(), record.size(),
+                        record.quantity(), record.mrpPrice(), record.sellingPrice(), record.userId());
+            }
+        } catch (DataIntegrityViolationException e) {
+            // the cart or product was deleted since; nothing left to restore the item into
+            log.warn("Skipping journaled change of cart item {}", record.itemId(), e);
+        }
+    }
+
+    private static final class Shard {
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<Long, HotCart> carts = new HashMap<>();
+        // users being loaded or checked out, completed when released
+        final Map<Long, CompletableFuture<Void>> claims = new HashMap<>();
+        final CartJournal journal;
+
+        Shard(CartJournal journal) {
+            this.journal = journal;
+        }
+    }
+
+    private record Pending(Shard shard, HotCart cart, HotCart.Changes changes) {
+    }
+
+    public interface CartCheckout<T, E extends Exception> {
+        CheckoutResult<T> run(Cart cart) throws E;
+    }
+
+    /**
+     * What a checkout returned, and whether it ordered the cart it was given
+     * rather than replaying what an earlier checkout with its key placed.
+     */
+    public record CheckoutResult<T>(T value, boolean cartOrdered) {
+    }
+
+    private interface CartAction<T, E extends Exception> {
+        T apply(HotCart cart) throws E;
+    }
+}
@@ -0,0 +1,56 @@
+package com.xuwei.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * JDBC batching, id allocation and cursor defaults for bulk writes and streamed reads.
+ */
+@Configuration
+public class JpaConfig {
+
+    /**
+     * Groups inserts and updates by entity so consecutive statements can share a JDBC batch.
+     * <p>
+     * Sequence ids are handed out from in-memory blocks of each generator's
+     * allocationSize. pooled-lo reads the stored value as the first id of the
+     * next block, so a block size can be changed later without ever
+     * overlapping ids already issued; on MySQL each sequence is a one-row
+     * table of its own, read once per block.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer batchingHibernatePropertiesCustomizer() {
+        return properties -> {
+            properties.putIfAbsent(AvailableSettings.ORDER_INSERTS, "true");
+            properties.putIfAbsent(AvailableSettings.ORDER_UPDATES, "true");
+            properties.putIfAbsent(AvailableSettings.PREFERRED_POOLED_OPTIMIZER, "pooled-lo");
+        };
+    }
+
+    /**
+     * Without rewriteBatchedStatements, MySQL Connector/J still sends a JDBC batch
+     * one statement per round trip; with it, a batch of inserts becomes one
+     * multi-row INSERT. useCursorFetch makes a positive fetch size read through a
+     * server-side cursor, so streamed queries hold one fetch of rows at a time
+     * instead of the whole result.
+     */
+    @Bean
+    public static BeanPostProcessor mysqlConnectionPropertiesPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource
+                        && dataSource.getJdbcUrl() != null
+                        && dataSource.getJdbcUrl().startsWith("jdbc:mysql:")) {
+                    dataSource.addDataSourceProperty("rewriteBatchedStatements", "true");
+                    dataSource.addDataSourceProperty("useCursorFetch", "true");
+                }
+                return bean;
+            }
+        };
+    }
+}
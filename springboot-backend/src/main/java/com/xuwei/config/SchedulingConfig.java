@@ -0,0 +1,12 @@
+package com.xuwei.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Turns on @Scheduled background jobs (see the com.xuwei.job package).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
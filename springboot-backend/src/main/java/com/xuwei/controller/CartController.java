@@ -1,12 +1,17 @@
 package com.xuwei.controller;
 
+import com.xuwei.admission.FlashSaleQueue;
+import com.xuwei.domain.CartOperationType;
 import com.xuwei.dto.CartItemResponseDTO;
 import com.xuwei.dto.CartResponseDTO;
+import com.xuwei.exception.AdmissionException;
 import com.xuwei.exception.CartItemException;
+import com.xuwei.exception.CouponNotValidException;
 import com.xuwei.exception.ProductException;
 import com.xuwei.exception.UserException;
 import com.xuwei.model.*;
 import com.xuwei.request.AddItemRequest;
+import com.xuwei.request.CartBatchRequest;
 import com.xuwei.response.ApiResponse;
 import com.xuwei.service.*;
 import lombok.RequiredArgsConstructor;
@@ -22,6 +27,8 @@ public class CartController {
     private final UserService userService;
     private final ProductService productService;
     private final CartItemService cartItemService;
+    private final CouponService couponService;
+    private final FlashSaleQueue flashSaleQueue;
 
     @GetMapping
     public ResponseEntity<CartResponseDTO> findUserCartHandler(@RequestHeader("Authorization") String jwt) throws UserException {
@@ -29,6 +36,8 @@ public class CartController {
 
         try {
             CartResponseDTO cart = cartService.findUserCartWithDetails(user);
+            cart.setCouponDiscount(couponService.couponDiscount(user.getId(), cart.getCouponCode(),
+                    cart.getTotalSellingPrice()));
             return new ResponseEntity<>(cart, HttpStatus.OK);
         } catch (Exception e) {
             CartResponseDTO simplifiedCart = new CartResponseDTO();
@@ -40,14 +49,53 @@ public class CartController {
 
     @PutMapping("/add")
     public ResponseEntity<CartItemResponseDTO> addItemToCart(@RequestBody AddItemRequest req,
-                                                             @RequestHeader("Authorization") String jwt) throws UserException, ProductException {
+                                                             @RequestHeader("Authorization") String jwt)
+            throws UserException, ProductException, AdmissionException {
         User user = userService.findUserByJwtToken(jwt);
         Product product = productService.getProductById(req.getProductId());
+        if (product.isFlashSale()) {
+            flashSaleQueue.checkAdmitted(user.getId(), product.getId());
+        }
 
         CartItemResponseDTO item = cartService.addCartItemWithDetails(user, product, req.getSize(), req.getQuantity());
         return new ResponseEntity<>(item, HttpStatus.ACCEPTED);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<CartResponseDTO> applyCartBatchHandler(@RequestBody CartBatchRequest req,
+                                                                 @RequestHeader("Authorization") String jwt)
+            throws UserException, ProductException, CartItemException, AdmissionException {
+        User user = userService.findUserByJwtToken(jwt);
+        for (CartBatchRequest.Operation operation : req.getOperations()) {
+            if (operation.getType() == CartOperationType.ADD && operation.getProductId() != null
+                    && productService.getProductById(operation.getProductId()).isFlashSale()) {
+                flashSaleQueue.checkAdmitted(user.getId(), operation.getProductId());
+            }
+        }
+
+        CartResponseDTO cart = cartService.applyCartBatch(user, req.getOperations());
+        return new ResponseEntity<>(cart, HttpStatus.ACCEPTED);
+    }
+
+    @PutMapping("/coupon")
+    public ResponseEntity<CartResponseDTO> applyCouponHandler(@RequestParam String code,
+                                                              @RequestHeader("Authorization") String jwt)
+            throws UserException, CouponNotValidException {
+        User user = userService.findUserByJwtToken(jwt);
+
+        CartResponseDTO cart = couponService.applyCoupon(user, code);
+        return new ResponseEntity<>(cart, HttpStatus.ACCEPTED);
+    }
+
+    @DeleteMapping("/coupon")
+    public ResponseEntity<CartResponseDTO> removeCouponHandler(@RequestHeader("Authorization") String jwt)
+            throws UserException {
+        User user = userService.findUserByJwtToken(jwt);
+
+        CartResponseDTO cart = couponService.removeCoupon(user);
+        return new ResponseEntity<>(cart, HttpStatus.ACCEPTED);
+    }
+
     @DeleteMapping("/item/{cartItemId}")
     public ResponseEntity<ApiResponse> deleteCartItemHandler(
             @PathVariable Long cartItemId,
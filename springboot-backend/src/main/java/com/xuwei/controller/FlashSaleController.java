@@ -0,0 +1,56 @@
+package com.xuwei.controller;
+
+import com.xuwei.admission.FlashSaleQueue;
+import com.xuwei.dto.AdmissionTicketDTO;
+import com.xuwei.dto.FlashSaleQueueStatsDTO;
+import com.xuwei.exception.AdmissionException;
+import com.xuwei.exception.ProductException;
+import com.xuwei.exception.UserException;
+import com.xuwei.model.Product;
+import com.xuwei.model.User;
+import com.xuwei.service.ProductService;
+import com.xuwei.service.UserService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/flash-sales")
+@RequiredArgsConstructor
+public class FlashSaleController {
+
+    private final FlashSaleQueue flashSaleQueue;
+    private final ProductService productService;
+    private final UserService userService;
+
+    /**
+     * Joins the product's flash sale queue. Poll the ticket's token until it
+     * is admitted, then add the product to the cart and check out.
+     */
+    @PostMapping("/{productId}/queue")
+    public ResponseEntity<AdmissionTicketDTO> joinQueueHandler(
+            @PathVariable Long productId,
+            @RequestHeader("Authorization") String jwt) throws UserException, ProductException, AdmissionException {
+        User user = userService.findUserByJwtToken(jwt);
+        Product product = productService.getProductById(productId);
+
+        AdmissionTicketDTO ticket = flashSaleQueue.join(user.getId(), product);
+        return new ResponseEntity<>(ticket, HttpStatus.ACCEPTED);
+    }
+
+    @GetMapping("/tickets/{token}")
+    public ResponseEntity<AdmissionTicketDTO> ticketHandler(@PathVariable String token) throws AdmissionException {
+        return new ResponseEntity<>(flashSaleQueue.status(token), HttpStatus.OK);
+    }
+
+    /**
+     * Queue lengths, admissions and rejections per flash sale product, for monitoring.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<List<FlashSaleQueueStatsDTO>> statsHandler() {
+        return new ResponseEntity<>(flashSaleQueue.stats(), HttpStatus.OK);
+    }
+}
@@ -0,0 +1,79 @@
+package com.xuwei.controller;
+
+import com.xuwei.dto.OrderResponseDTO;
+import com.xuwei.dto.OrderSummaryDTO;
+import com.xuwei.exception.OrderException;
+import com.xuwei.exception.UserException;
+import com.xuwei.model.User;
+import com.xuwei.request.CheckoutRequest;
+import com.xuwei.response.CursorPageResponse;
+import com.xuwei.service.OrderService;
+import com.xuwei.service.UserService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/orders")
+@RequiredArgsConstructor
+public class OrderController {
+
+    private final OrderService orderService;
+    private final UserService userService;
+
+    /**
+     * The user's orders, newest first, as summaries. Continue with the
+     * returned nextCursor; details are loaded per order.
+     */
+    @GetMapping
+    public ResponseEntity<CursorPageResponse<OrderSummaryDTO>> orderHistoryHandler(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestHeader("Authorization") String jwt) throws UserException, OrderException {
+        User user = userService.findUserByJwtToken(jwt);
+
+        return new ResponseEntity<>(orderService.findUserOrderHistory(user, cursor, size), HttpStatus.OK);
+    }
+
+    @GetMapping("/{orderId}")
+    public ResponseEntity<OrderResponseDTO> findOrderByIdHandler(
+            @PathVariable Long orderId,
+            @RequestHeader("Authorization") String jwt) throws UserException, OrderException {
+        User user = userService.findUserByJwtToken(jwt);
+
+        return new ResponseEntity<>(orderService.findUserOrderById(user, orderId), HttpStatus.OK);
+    }
+
+    /**
+     * Places one order per seller in the cart. Retrying with the same
+     * Idempotency-Key returns the orders of the first attempt.
+     */
+    @PostMapping("/checkout")
+    public ResponseEntity<List<OrderResponseDTO>> checkoutHandler(
+            @RequestBody CheckoutRequest req,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestHeader("Authorization") String jwt) throws UserException, OrderException {
+        User user = userService.findUserByJwtToken(jwt);
+
+        List<OrderResponseDTO> orders = orderService.checkout(user, req, idempotencyKey);
+        return new ResponseEntity<>(orders, HttpStatus.CREATED);
+    }
+
+    /**
+     * Records the payment of an order, which turns its stock reservations
+     * into sales. Fails once the reservations have expired.
+     */
+    @PostMapping("/{orderId}/payment")
+    public ResponseEntity<OrderResponseDTO> paymentHandler(
+            @PathVariable Long orderId,
+            @RequestParam String paymentId,
+            @RequestHeader("Authorization") String jwt) throws UserException, OrderException {
+        User user = userService.findUserByJwtToken(jwt);
+
+        OrderResponseDTO order = orderService.confirmPayment(user, orderId, paymentId);
+        return new ResponseEntity<>(order, HttpStatus.OK);
+    }
+}
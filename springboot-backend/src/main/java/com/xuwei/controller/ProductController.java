@@ -1,14 +1,27 @@
 package com.xuwei.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xuwei.dto.CacheStatsDTO;
+import com.xuwei.dto.ProductDetailDTO;
+import com.xuwei.dto.ProductFacetsDTO;
+import com.xuwei.dto.ProductSuggestionDTO;
+import com.xuwei.dto.ProductSummaryDTO;
 import com.xuwei.exception.ProductException;
 import com.xuwei.model.Product;
+import com.xuwei.response.CursorPageResponse;
 import com.xuwei.service.ProductService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -17,22 +30,64 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final ObjectMapper objectMapper;
 
 
     @GetMapping("/{productId}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long productId) throws ProductException {
+    public ResponseEntity<ProductDetailDTO> getProductById(@PathVariable Long productId) throws ProductException {
 
-        Product product = productService.getProductById(productId);
+        ProductDetailDTO product = productService.getProductDetail(productId);
         return new ResponseEntity<>(product, HttpStatus.OK);
 
     }
 
+    @GetMapping("/cache/stats")
+    public ResponseEntity<List<CacheStatsDTO>> getProductCacheStats() {
+        return new ResponseEntity<>(productService.getProductCacheStats(), HttpStatus.OK);
+    }
+
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProduct(@RequestParam(required = false) String query) {
-        List<Product> products = productService.searchProducts(query);
+    public ResponseEntity<CursorPageResponse<ProductSummaryDTO>> searchProduct(
+            @RequestParam(required = false) String query,
+            @RequestParam(defaultValue = "0") Integer page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor) throws ProductException {
+        CursorPageResponse<ProductSummaryDTO> products =
+                productService.searchProducts(query, page, size, cursor);
         return new ResponseEntity<>(products, HttpStatus.OK);
     }
 
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestionDTO>> suggestProducts(
+            @RequestParam(required = false) String prefix,
+            @RequestParam(required = false) Integer limit) {
+        return new ResponseEntity<>(productService.suggestProducts(prefix, limit), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/search/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSearchProduct(
+            @RequestParam(required = false) String query) {
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = new BufferedOutputStream(outputStream);
+            try {
+                productService.streamSearchResults(query, product -> {
+                    try {
+                        out.write(objectMapper.writeValueAsBytes(product));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @GetMapping
     public ResponseEntity<Page<Product>> getAllProducts(@RequestParam(required = false) String category,
                                                         @RequestParam(required = false) String brand,
@@ -51,4 +106,42 @@ public class ProductController {
                         maxPrice, minDiscount, sort,
                         stock, pageNumber), HttpStatus.OK);
     }
+
+    /**
+     * Count-free listing: mode=slice pages by pageNumber without the COUNT query,
+     * mode=keyset starts at the top; either continues from nextCursor without OFFSET.
+     * includeTotal adds a cached, approximate total when one is not free.
+     */
+    @GetMapping(params = "mode")
+    public ResponseEntity<CursorPageResponse<Product>> scrollProducts(@RequestParam(required = false) String category,
+                                                                      @RequestParam(required = false) String color,
+                                                                      @RequestParam(required = false) String size,
+                                                                      @RequestParam(required = false) Integer minPrice,
+                                                                      @RequestParam(required = false) Integer maxPrice,
+                                                                      @RequestParam(required = false) Integer minDiscount,
+                                                                      @RequestParam(required = false) String sort,
+                                                                      @RequestParam(required = false) String stock,
+                                                                      @RequestParam String mode,
+                                                                      @RequestParam(defaultValue = "0") Integer pageNumber,
+                                                                      @RequestParam(required = false) String cursor,
+                                                                      @RequestParam(defaultValue = "false") boolean includeTotal)
+            throws ProductException {
+        return new ResponseEntity<>(
+                productService.scrollProducts(category, color, size, minPrice,
+                        maxPrice, minDiscount, sort, stock,
+                        mode, pageNumber, cursor, includeTotal), HttpStatus.OK);
+    }
+
+    @GetMapping("/facets")
+    public ResponseEntity<ProductFacetsDTO> getProductFacets(@RequestParam(required = false) String category,
+                                                             @RequestParam(required = false) String color,
+                                                             @RequestParam(required = false) String size,
+                                                             @RequestParam(required = false) Integer minPrice,
+                                                             @RequestParam(required = false) Integer maxPrice,
+                                                             @RequestParam(required = false) Integer minDiscount)
+            throws ProductException {
+        return new ResponseEntity<>(
+                productService.getProductFacets(category, color, size,
+                        minPrice, maxPrice, minDiscount), HttpStatus.OK);
+    }
 }
\ No newline at end of file
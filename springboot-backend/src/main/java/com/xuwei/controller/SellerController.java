@@ -4,12 +4,14 @@ import com.xuwei.config.JwtProvider;
 import com.xuwei.domain.AccountStatus;
 import com.xuwei.domain.USER_ROLE;
 import com.xuwei.model.Seller;
+import com.xuwei.model.SellerReport;
 import com.xuwei.model.VerificationCode;
 import com.xuwei.repository.VerificationCodeRepository;
 import com.xuwei.response.ApiResponse;
 import com.xuwei.response.AuthResponse;
 import com.xuwei.service.EmailService;
 import com.xuwei.service.Impl.CustomerUserServiceImpl;
+import com.xuwei.service.SellerReportService;
 import com.xuwei.service.SellerService;
 import com.xuwei.service.VerificationService;
 import com.xuwei.utils.OtpUtils;
@@ -43,6 +45,7 @@ public class SellerController {
     private final VerificationService verificationService;
     private final JwtProvider jwtProvider;
     private final CustomerUserServiceImpl customerUserService;
+    private final SellerReportService sellerReportService;
 
 
     @PostMapping
@@ -159,6 +162,14 @@ public class SellerController {
         return new ResponseEntity<>(seller, HttpStatus.OK);
     }
 
+    @GetMapping("/report")
+    public ResponseEntity<SellerReport> getSellerReport(
+            @RequestHeader("Authorization") String jwt) {
+        Seller seller = sellerService.getSellerProfile(jwt);
+        SellerReport report = sellerReportService.getSellerReport(seller);
+        return new ResponseEntity<>(report, HttpStatus.OK);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Seller> getSellerById(@PathVariable Long id) throws Exception {
         Seller seller = sellerService.getSellerById(id);
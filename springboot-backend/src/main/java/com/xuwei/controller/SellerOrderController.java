@@ -0,0 +1,48 @@
+package com.xuwei.controller;
+
+import com.xuwei.dto.OrderResponseDTO;
+import com.xuwei.dto.OrderSummaryDTO;
+import com.xuwei.exception.OrderException;
+import com.xuwei.model.Seller;
+import com.xuwei.response.CursorPageResponse;
+import com.xuwei.service.OrderService;
+import com.xuwei.service.SellerService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/sellers/orders")
+@RequiredArgsConstructor
+public class SellerOrderController {
+
+    private final OrderService orderService;
+    private final SellerService sellerService;
+
+    /**
+     * The seller's orders, newest first, as summaries. Continue with the
+     * returned nextCursor; details are loaded per order.
+     */
+    @GetMapping
+    public ResponseEntity<CursorPageResponse<OrderSummaryDTO>> getSellerOrders(
+            @RequestHeader("Authorization") String jwt,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) throws OrderException {
+
+        Seller seller = sellerService.getSellerProfile(jwt);
+
+        return new ResponseEntity<>(orderService.findSellerOrderHistory(seller.getId(), cursor, size),
+                HttpStatus.OK);
+    }
+
+    @GetMapping("/{orderId}")
+    public ResponseEntity<OrderResponseDTO> getSellerOrder(
+            @PathVariable Long orderId,
+            @RequestHeader("Authorization") String jwt) throws OrderException {
+
+        Seller seller = sellerService.getSellerProfile(jwt);
+
+        return new ResponseEntity<>(orderService.findSellerOrderById(seller.getId(), orderId), HttpStatus.OK);
+    }
+}
@@ -1,18 +1,30 @@
 package com.xuwei.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.xuwei.exception.ProductException;
 import com.xuwei.exception.SellerException;
 import com.xuwei.model.Product;
 import com.xuwei.model.Seller;
 import com.xuwei.request.CreateProductRequest;
+import com.xuwei.importer.CsvProductRowReader;
+import com.xuwei.importer.JsonProductRowReader;
+import com.xuwei.importer.ProductRowReader;
+import com.xuwei.service.InventoryService;
+import com.xuwei.service.ProductImportService;
 import com.xuwei.service.ProductService;
 import com.xuwei.service.SellerService;
+import com.xuwei.utils.CsvUtils;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 
 @RestController
 @RequestMapping("/api/sellers/products")
@@ -21,20 +33,74 @@ public class SellerProductController {
 
     private final ProductService productService;
     private final SellerService sellerService;
+    private final ProductImportService productImportService;
+    private final InventoryService inventoryService;
+    private final ObjectMapper objectMapper;
 
 
     @GetMapping()
-    public ResponseEntity<List<Product>> getProductBySellerId(
-            @RequestHeader("Authorization") String jwt) throws ProductException, SellerException {
+    public ResponseEntity<Page<Product>> getProductBySellerId(
+            @RequestHeader("Authorization") String jwt,
+            @RequestParam(defaultValue = "0") Integer page,
+            @RequestParam(required = false) Integer size) throws ProductException, SellerException {
 
         Seller seller = sellerService.getSellerProfile(jwt);
 
-        List<Product> products =
-                productService.getProductBySellerId(seller.getId());
+        Page<Product> products =
+                productService.getProductBySellerId(seller.getId(), page, size);
         return new ResponseEntity<>(products, HttpStatus.OK);
 
     }
 
+    /**
+     * The seller's whole catalog as CSV (format=csv, same columns as the bulk
+     * import plus id and derived fields) or NDJSON (default), streamed from a
+     * database cursor as it is read.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestHeader("Authorization") String jwt,
+            @RequestParam(defaultValue = "ndjson") String format) {
+
+        Seller seller = sellerService.getSellerProfile(jwt);
+        boolean csv = "csv".equalsIgnoreCase(format);
+
+        StreamingResponseBody body = outputStream -> {
+            Writer out = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            try {
+                if (csv) {
+                    out.write(CsvUtils.line("id", "title", "description", "mrpPrice", "sellingPrice",
+                            "discountPercent", "quantity", "color", "sizes", "images",
+                            "category", "subCategory", "subSubCategory", "createdAt"));
+                }
+                productService.exportSellerProducts(seller.getId(), product -> {
+                    try {
+                        if (csv) {
+                            out.write(CsvUtils.line(product.getId(), product.getTitle(), product.getDescription(),
+                                    product.getMrpPrice(), product.getSellingPrice(), product.getDiscountPercent(),
+                                    product.getQuantity(), product.getColor(), product.getSizes(),
+                                    String.join("|", product.getImages()), product.getCategory(),
+                                    product.getSubCategory(), product.getSubSubCategory(), product.getCreatedAt()));
+                        } else {
+                            out.write(objectMapper.writeValueAsString(product));
+                            out.write('\n');
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(csv ? MediaType.valueOf("text/csv") : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"products." + (csv ? "csv" : "ndjson") + "\"")
+                .body(body);
+    }
+
     @PostMapping()
     public ResponseEntity<Product> createProduct(
             @RequestBody CreateProductRequest request,
@@ -49,6 +115,46 @@ public class SellerProductController {
 
     }
 
+    /**
+     * Bulk import from a CSV file (header row of CreateProductRequest field names)
+     * or a JSON array of CreateProductRequest. The upload is parsed as it
+     * arrives; the response is NDJSON progress events, one per inserted batch,
+     * ending with an event whose done flag is set.
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importProducts(
+            @RequestHeader("Authorization") String jwt,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream input) {
+
+        Seller seller = sellerService.getSellerProfile(jwt);
+        boolean csv = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.valueOf("text/csv"));
+
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = new BufferedOutputStream(outputStream);
+            try (ProductRowReader reader = csv
+                    ? new CsvProductRowReader(new InputStreamReader(input, StandardCharsets.UTF_8))
+                    : new JsonProductRowReader(objectMapper, input)) {
+                productImportService.importProducts(reader, seller, progress -> {
+                    try {
+                        out.write(objectMapper.writeValueAsBytes(progress));
+                        out.write('\n');
+                        out.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @DeleteMapping("/{productId}")
     public ResponseEntity<Void> deleteProduct(@PathVariable Long productId) {
         try {
@@ -71,6 +177,22 @@ public class SellerProductController {
         return new ResponseEntity<>(updatedProduct, HttpStatus.OK);
     }
 
+    /**
+     * Adds units to the product's stock, or takes them off when negative,
+     * and returns the stock left. Units held by unpaid orders are not in it.
+     */
+    @PatchMapping("/{productId}/stock")
+    public ResponseEntity<Integer> adjustStock(
+            @PathVariable Long productId,
+            @RequestParam int units,
+            @RequestHeader("Authorization") String jwt) throws ProductException {
+
+        Seller seller = sellerService.getSellerProfile(jwt);
+        int stock = inventoryService.adjustStock(seller.getId(), productId, units);
+
+        return new ResponseEntity<>(stock, HttpStatus.OK);
+    }
+
 
 
 
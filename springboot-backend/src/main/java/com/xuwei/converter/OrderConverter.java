@@ -0,0 +1,50 @@
+package com.xuwei.converter;
+
+import com.xuwei.dto.OrderResponseDTO;
+import com.xuwei.model.Order;
+import com.xuwei.model.OrderItem;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class OrderConverter {
+
+    public OrderResponseDTO convertToOrderResponseDTO(Order order) {
+        OrderResponseDTO dto = new OrderResponseDTO();
+        dto.setId(order.getId());
+        dto.setOrderId(order.getOrderId());
+        dto.setSellerId(order.getSellerId());
+        if (order.getShippingAddress() != null) {
+            dto.setShippingAddressId(order.getShippingAddress().getId());
+        }
+        dto.setTotalMrpPrice(order.getTotalMrpPrice());
+        dto.setTotalSellingPrice(order.getTotalSellingPrice());
+        dto.setDiscount(order.getDiscount());
+        dto.setTotalItem(order.getTotalItem());
+        dto.setOrderStatus(order.getOrderStatus());
+        dto.setPaymentStatus(order.getPaymentStatus());
+        dto.setOrderDate(order.getOrderDate());
+        dto.setDeliverDate(order.getDeliverDate());
+
+        List<OrderResponseDTO.OrderItemDTO> items = order.getOrderItems().stream()
+                .map(this::convertToOrderItemDTO)
+                .toList();
+        dto.setOrderItems(items);
+        return dto;
+    }
+
+    private OrderResponseDTO.OrderItemDTO convertToOrderItemDTO(OrderItem orderItem) {
+        OrderResponseDTO.OrderItemDTO dto = new OrderResponseDTO.OrderItemDTO();
+        dto.setId(orderItem.getId());
+        if (orderItem.getProduct() != null) {
+            dto.setProductId(orderItem.getProduct().getId());
+            dto.setProductTitle(orderItem.getProduct().getTitle());
+        }
+        dto.setSize(orderItem.getSize());
+        dto.setQuantity(orderItem.getQuantity());
+        dto.setMrpPrice(orderItem.getMrpPrice());
+        dto.setSellingPrice(orderItem.getSellingPrice());
+        return dto;
+    }
+}
@@ -0,0 +1,93 @@
+package com.xuwei.converter;
+
+import com.xuwei.dto.ProductDetailDTO;
+import com.xuwei.dto.ProductExportDTO;
+import com.xuwei.repository.ProductRepository.ProductDetailRow;
+import com.xuwei.repository.ProductRepository.ProductExportRow;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class ProductConverter {
+
+    /**
+     * Folds the per-image rows of ProductRepository.findDetailRowsById into one DTO.
+     */
+    public ProductDetailDTO convertToProductDetailDTO(List<ProductDetailRow> rows) {
+        ProductDetailRow first = rows.get(0);
+
+        ProductDetailDTO dto = new ProductDetailDTO();
+        dto.setId(first.getId());
+        dto.setTitle(first.getTitle());
+        dto.setDescription(first.getDescription());
+        dto.setMrpPrice(first.getMrpPrice());
+        dto.setSellingPrice(first.getSellingPrice());
+        dto.setDiscountPercent(first.getDiscountPercent());
+        dto.setQuantity(first.getQuantity());
+        dto.setColor(first.getColor());
+        dto.setSizes(first.getSizes());
+        dto.setCreatedAt(first.getCreatedAt());
+        dto.setAverageRating(first.getAverageRating() != null ? first.getAverageRating() : 0);
+        dto.setReviewCount(first.getReviewCount() != null ? first.getReviewCount() : 0);
+
+        for (ProductDetailRow row : rows) {
+            if (row.getImage() != null) {
+                dto.getImages().add(row.getImage());
+            }
+        }
+
+        ProductDetailDTO.CategoryDTO root = convertToCategoryDTO(
+                first.getRootDbId(), first.getRootName(), first.getRootCategoryId(), first.getRootLevel(), null);
+        ProductDetailDTO.CategoryDTO parent = convertToCategoryDTO(
+                first.getParentDbId(), first.getParentName(), first.getParentCategoryId(), first.getParentLevel(), root);
+        dto.setCategory(convertToCategoryDTO(
+                first.getCategoryDbId(), first.getCategoryName(), first.getCategoryId(), first.getCategoryLevel(), parent));
+
+        if (first.getSellerId() != null) {
+            ProductDetailDTO.SellerSummaryDTO seller = new ProductDetailDTO.SellerSummaryDTO();
+            seller.setId(first.getSellerId());
+            seller.setSellerName(first.getSellerName());
+            seller.setBusinessName(first.getBusinessName());
+            seller.setLogo(first.getLogo());
+            dto.setSeller(seller);
+        }
+
+        return dto;
+    }
+
+    /**
+     * Product fields of an export row; images are added by the caller as rows arrive.
+     */
+    public ProductExportDTO convertToProductExportDTO(ProductExportRow row) {
+        ProductExportDTO dto = new ProductExportDTO();
+        dto.setId(row.getId());
+        dto.setTitle(row.getTitle());
+        dto.setDescription(row.getDescription());
+        dto.setMrpPrice(row.getMrpPrice());
+        dto.setSellingPrice(row.getSellingPrice());
+        dto.setDiscountPercent(row.getDiscountPercent());
+        dto.setQuantity(row.getQuantity());
+        dto.setColor(row.getColor());
+        dto.setSizes(row.getSizes());
+        dto.setCreatedAt(row.getCreatedAt());
+        dto.setCategory(row.getCategory());
+        dto.setSubCategory(row.getSubCategory());
+        dto.setSubSubCategory(row.getSubSubCategory());
+        return dto;
+    }
+
+    private ProductDetailDTO.CategoryDTO convertToCategoryDTO(Long id, String name, String categoryId,
+                                                             Integer level, ProductDetailDTO.CategoryDTO parent) {
+        if (id == null) {
+            return null;
+        }
+        ProductDetailDTO.CategoryDTO categoryDTO = new ProductDetailDTO.CategoryDTO();
+        categoryDTO.setId(id);
+        categoryDTO.setName(name);
+        categoryDTO.setCategoryId(categoryId);
+        categoryDTO.setLevel(level);
+        categoryDTO.setParentCategory(parent);
+        return categoryDTO;
+    }
+}
@@ -0,0 +1,7 @@
+package com.xuwei.domain;
+
+public enum CartOperationType {
+    ADD,
+    UPDATE,
+    REMOVE
+}
@@ -0,0 +1,6 @@
+package com.xuwei.domain;
+
+public enum PayoutRunStatus {
+    RUNNING,
+    COMPLETED
+}
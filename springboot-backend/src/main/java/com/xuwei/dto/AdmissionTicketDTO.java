@@ -0,0 +1,23 @@
+package com.xuwei.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A shopper's place in a flash sale queue. Position is 0 once admitted;
+ * until then estimatedWaitSeconds says when to poll again.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdmissionTicketDTO {
+    private String token;
+    private Long productId;
+    private boolean admitted;
+    private long position;
+    private long estimatedWaitSeconds;
+    private Instant admittedUntil;
+}
@@ -15,6 +15,8 @@ public class CartResponseDTO {
     private int totalMrpPrice;
     private double discountedPrice;
     private String couponCode;
+    // off the selling price; 0 while the cart does not qualify for its coupon
+    private int couponDiscount;
 
     @Data
     public static class UserDTO {
@@ -0,0 +1,22 @@
+package com.xuwei.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * State of one product's flash sale queue; the totals count since the queue opened.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSaleQueueStatsDTO {
+    private Long productId;
+    private int waiting;
+    private int admitted;
+    private int capacity;
+    private double admissionsPerSecond;
+    private long issuedTotal;
+    private long admittedTotal;
+    private long rejectedTotal;
+}
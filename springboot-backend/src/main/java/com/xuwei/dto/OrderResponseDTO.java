@@ -0,0 +1,36 @@
+package com.xuwei.dto;
+
+import com.xuwei.domain.OrderStatus;
+import com.xuwei.domain.PaymentStatus;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class OrderResponseDTO {
+    private Long id;
+    private String orderId;
+    private Long sellerId;
+    private Long shippingAddressId;
+    private List<OrderItemDTO> orderItems;
+    private double totalMrpPrice;
+    private Integer totalSellingPrice;
+    private Integer discount;
+    private int totalItem;
+    private OrderStatus orderStatus;
+    private PaymentStatus paymentStatus;
+    private LocalDateTime orderDate;
+    private LocalDateTime deliverDate;
+
+    @Data
+    public static class OrderItemDTO {
+        private Long id;
+        private Long productId;
+        private String productTitle;
+        private String size;
+        private int quantity;
+        private Integer mrpPrice;
+        private Integer sellingPrice;
+    }
+}
@@ -0,0 +1,31 @@
+package com.xuwei.dto;
+
+import com.xuwei.domain.OrderStatus;
+import com.xuwei.domain.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Flat order row for order history pages.
+ * Loaded with a constructor projection so no items, products or users are
+ * ever initialized; the thumbnail is the first image of the first item.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummaryDTO {
+    private Long id;
+    private String orderId;
+    private Long sellerId;
+    private LocalDateTime orderDate;
+    private OrderStatus orderStatus;
+    private PaymentStatus paymentStatus;
+    private double totalMrpPrice;
+    private Integer totalSellingPrice;
+    private Integer discount;
+    private int itemCount;
+    private String thumbnail;
+}
@@ -0,0 +1,47 @@
+package com.xuwei.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read model for the product page: the product with its images, category
+ * chain, a seller summary and a rating aggregate instead of every review.
+ */
+@Data
+public class ProductDetailDTO {
+    private Long id;
+    private String title;
+    private String description;
+    private int mrpPrice;
+    private int sellingPrice;
+    private int discountPercent;
+    private int quantity;
+    private String color;
+    private String sizes;
+    private LocalDateTime createdAt;
+    private List<String> images = new ArrayList<>();
+    private CategoryDTO category;
+    private SellerSummaryDTO seller;
+    private double averageRating;
+    private long reviewCount;
+
+    @Data
+    public static class CategoryDTO {
+        private Long id;
+        private String name;
+        private String categoryId;
+        private Integer level;
+        private CategoryDTO parentCategory;
+    }
+
+    @Data
+    public static class SellerSummaryDTO {
+        private Long id;
+        private String sellerName;
+        private String businessName;
+        private String logo;
+    }
+}
@@ -0,0 +1,29 @@
+package com.xuwei.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One product of a seller's catalog export. Category names are given per
+ * level, matching the columns of the bulk import.
+ */
+@Data
+public class ProductExportDTO {
+    private Long id;
+    private String title;
+    private String description;
+    private int mrpPrice;
+    private int sellingPrice;
+    private int discountPercent;
+    private int quantity;
+    private String color;
+    private String sizes;
+    private LocalDateTime createdAt;
+    private List<String> images = new ArrayList<>();
+    private String category;
+    private String subCategory;
+    private String subSubCategory;
+}
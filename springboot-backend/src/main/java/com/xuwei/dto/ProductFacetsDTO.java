@@ -0,0 +1,18 @@
+package com.xuwei.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Facet counts for the product filter page, e.g. facets.color.red = 120.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetsDTO {
+    private long total;
+    private Map<String, Map<String, Integer>> facets;
+}
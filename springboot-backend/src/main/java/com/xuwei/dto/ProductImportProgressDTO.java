@@ -0,0 +1,31 @@
+package com.xuwei.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One progress event of a bulk product import. Counters are cumulative;
+ * errors only lists rows rejected since the previous event.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportProgressDTO {
+    private long rowsRead;
+    private long imported;
+    private long failed;
+    private List<RowError> errors;
+    private boolean done;
+    private long elapsedMillis;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long row;
+        private String message;
+    }
+}
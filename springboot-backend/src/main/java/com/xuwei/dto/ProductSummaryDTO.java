@@ -0,0 +1,27 @@
+package com.xuwei.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Flat product row for listings and search results.
+ * Loaded with a constructor projection so no images, reviews or seller
+ * entities are ever initialized.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSummaryDTO {
+    private Long id;
+    private String title;
+    private int mrpPrice;
+    private int sellingPrice;
+    private int discountPercent;
+    private String color;
+    private String image;
+    private int rating;
+    private String sizes;
+    private String categoryId;
+    private Long sellerId;
+}
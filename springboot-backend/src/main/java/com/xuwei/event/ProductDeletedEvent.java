@@ -0,0 +1,8 @@
+package com.xuwei.event;
+
+/**
+ * Published when a product is deleted, before it is removed from the
+ * in-memory indexes, so a rebuild that already read it can drop it again.
+ */
+public record ProductDeletedEvent(Long productId) {
+}
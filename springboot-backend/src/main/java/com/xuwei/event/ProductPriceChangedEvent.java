@@ -0,0 +1,9 @@
+package com.xuwei.event;
+
+/**
+ * Published when a seller changes the MRP or selling price of a product.
+ * Listeners read the new prices from the product itself, so a burst of
+ * changes can be handled once with the last of them.
+ */
+public record ProductPriceChangedEvent(Long productId) {
+}
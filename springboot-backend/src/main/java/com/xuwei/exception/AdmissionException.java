@@ -0,0 +1,7 @@
+package com.xuwei.exception;
+
+public class AdmissionException extends Exception {
+    public AdmissionException(String message) {
+        super(message);
+    }
+}
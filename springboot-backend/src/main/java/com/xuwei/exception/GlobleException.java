@@ -1,5 +1,6 @@
 package com.xuwei.exception;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -81,6 +82,11 @@ public class GlobleException {
 
 	}
 
+	@ExceptionHandler(AdmissionException.class)
+	public ResponseEntity<ErrorDetails> admissionExceptionHandler(AdmissionException ae, WebRequest req){
+		ErrorDetails err=new ErrorDetails(ae.getMessage(),req.getDescription(false),LocalDateTime.now());
+		return new ResponseEntity<ErrorDetails>(err,HttpStatus.TOO_MANY_REQUESTS);
+	}
 
 	@ExceptionHandler(MethodArgumentNotValidException.class)
 	public ResponseEntity<ErrorDetails> methodArgumentNotValidExceptionHandler(MethodArgumentNotValidException me){
@@ -98,6 +104,13 @@ public class GlobleException {
 
 
 
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	public ResponseEntity<ErrorDetails> optimisticLockingFailureHandler(OptimisticLockingFailureException e, WebRequest req){
+		ErrorDetails err=new ErrorDetails("The resource was modified concurrently, please retry",
+				req.getDescription(false),LocalDateTime.now());
+		return new ResponseEntity<ErrorDetails>(err,HttpStatus.CONFLICT);
+	}
+
 	@ExceptionHandler(RuntimeException.class)
 	public ResponseEntity<String> handleRuntimeException(RuntimeException ex) {
 		return new ResponseEntity<>(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
@@ -0,0 +1,153 @@
+package com.xuwei.importer;
+
+import com.xuwei.request.CreateProductRequest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+
+/**
+ * Streaming CSV reader for product imports (RFC 4180: quoted fields, doubled
+ * quotes, line breaks inside quotes). The first record is a header naming
+ * CreateProductRequest fields in any order and case; images are separated by '|'.
+ */
+public class CsvProductRowReader implements ProductRowReader {
+
+    private static final String IMAGE_SEPARATOR = "\\|";
+
+    private final BufferedReader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private final StringBuilder field = new StringBuilder();
+    private int rowNumber;
+    private boolean headerRead;
+    private boolean endOfInput;
+
+    public CsvProductRowReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+    }
+
+    @Override
+    public Row next() throws IOException {
+        if (!headerRead) {
+            readHeader();
+        }
+        List<String> record;
+        do {
+            record = readRecord();
+            if (record == null) {
+                return null;
+            }
+            rowNumber++;
+        } while (record.size() == 1 && record.get(0).isEmpty());
+
+        try {
+            CreateProductRequest request = new CreateProductRequest();
+            request.setTitle(value(record, "title"));
+            request.setDescription(value(record, "description"));
+            request.setMrpPrice(intValue(record, "mrpprice"));
+            request.setSellingPrice(intValue(record, "sellingprice"));
+            request.setQuantity(intValue(record, "quantity"));
+            request.setColor(value(record, "color"));
+            request.setCategory(value(record, "category"));
+            request.setSubCategory(value(record, "subcategory"));
+            request.setSubSubCategory(value(record, "subsubcategory"));
+            request.setSizes(value(record, "sizes"));
+            request.setFlashSale(Boolean.parseBoolean(value(record, "flashsale")));
+            String images = value(record, "images");
+            request.setImages(images == null ? new ArrayList<>()
+                    : Arrays.stream(images.split(IMAGE_SEPARATOR)).map(String::trim).filter(s -> !s.isEmpty()).toList());
+            return Row.valid(rowNumber, request);
+        } catch (NumberFormatException e) {
+            return Row.invalid(rowNumber, "Invalid number: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private void readHeader() throws IOException {
+        headerRead = true;
+        List<String> header = readRecord();
+        if (header == null) {
+            return;
+        }
+        for (int i = 0; i < header.size(); i++) {
+            // spreadsheet exports often start with a UTF-8 byte order mark
+            String name = i == 0 && header.get(i).startsWith("\uFEFF") ? header.get(i).substring(1) : header.get(i);
+            columns.put(name.trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("title")) {
+            throw new IOException("CSV header must contain a title column");
+        }
+    }
+
+    private String value(List<String> record, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private int intValue(List<String> record, String column) {
+        String value = value(record, column);
+        return value == null ? 0 : Integer.parseInt(value);
+    }
+
+    /**
+     * Reads one record, or returns null at the end of the input.
+     */
+    private List<String> readRecord() throws IOException {
+        if (endOfInput) {
+            return null;
+        }
+        List<String> record = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        boolean any = false;
+        while (true) {
+            int c = reader.read();
+            if (c == -1) {
+                endOfInput = true;
+                if (quoted) {
+                    throw new IOException("Unterminated quoted field in CSV row " + (rowNumber + 1));
+                }
+                if (!any) {
+                    return null;
+                }
+                record.add(field.toString());
+                return record;
+            }
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                record.add(field.toString());
+                return record;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+    }
+}
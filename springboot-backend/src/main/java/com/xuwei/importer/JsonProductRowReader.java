@@ -0,0 +1,59 @@
+package com.xuwei.importer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xuwei.request.CreateProductRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming reader for a JSON array of CreateProductRequest objects.
+ * Each element is read as a tree first, so a value of the wrong type fails
+ * only its own row instead of desynchronising the parser.
+ */
+public class JsonProductRowReader implements ProductRowReader {
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private int rowNumber;
+    private boolean started;
+
+    public JsonProductRowReader(ObjectMapper objectMapper, InputStream input) throws IOException {
+        this.objectMapper = objectMapper;
+        this.parser = objectMapper.getFactory().createParser(input);
+    }
+
+    @Override
+    public Row next() throws IOException {
+        if (!started) {
+            started = true;
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of products");
+            }
+        }
+        JsonToken token = parser.nextToken();
+        if (token == null || token == JsonToken.END_ARRAY) {
+            return null;
+        }
+        rowNumber++;
+        if (token != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return Row.invalid(rowNumber, "Expected a product object");
+        }
+        JsonNode node = parser.readValueAsTree();
+        try {
+            return Row.valid(rowNumber, objectMapper.treeToValue(node, CreateProductRequest.class));
+        } catch (JsonProcessingException e) {
+            return Row.invalid(rowNumber, e.getOriginalMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -0,0 +1,31 @@
+package com.xuwei.importer;
+
+import com.xuwei.request.CreateProductRequest;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads a bulk import one product at a time, so the import never holds more
+ * than the current row of the uploaded file.
+ */
+public interface ProductRowReader extends Closeable {
+
+    /**
+     * Returns the next row, or null at the end of the input. A row that cannot
+     * be mapped to a product carries an error instead of a request; an
+     * IOException means the input itself is unreadable and the import stops.
+     */
+    Row next() throws IOException;
+
+    record Row(int number, CreateProductRequest request, String error) {
+
+        static Row valid(int number, CreateProductRequest request) {
+            return new Row(number, request, null);
+        }
+
+        static Row invalid(int number, String error) {
+            return new Row(number, null, error);
+        }
+    }
+}
@@ -0,0 +1,479 @@
+package com.xuwei.index;
+
+import com.xuwei.model.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Column-oriented copy of the fields the product listing filters and sorts on.
+ * <p>
+ * Each product occupies one dense row across primitive arrays (price,
+ * discount, rating, creation time, leaf category id, units ordered); color and
+ * sizes are dictionary-encoded to int codes. A listing scans the columns once,
+ * keeping a bounded heap of the best offset + limit rows for the requested
+ * ordering, so a page costs one pass plus O(n log k) instead of a database
+ * sort followed by OFFSET. Deletes move the last row into the hole to keep the
+ * scan dense.
+ */
+@Component
+public class ProductCatalogSnapshot implements ProductIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final boolean enabled;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Integer> rows = new HashMap<>();
+    private int count;
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] prices = new int[INITIAL_CAPACITY];
+    private int[] discounts = new int[INITIAL_CAPACITY];
+    private int[] ratings = new int[INITIAL_CAPACITY];
+    private long[] createdAt = new long[INITIAL_CAPACITY];
+    private long[] categoryIds = new long[INITIAL_CAPACITY];
+    private int[] colors = new int[INITIAL_CAPACITY];
+    private int[] sizes = new int[INITIAL_CAPACITY];
+    private long[] popularity = new long[INITIAL_CAPACITY];
+
+    // dictionaries: value -> code, and per sizes code the individual sizes it lists
+    private final Map<String, Integer> colorCodes = new HashMap<>();
+    private final Map<String, Integer> sizesCodes = new HashMap<>();
+    private final List<Set<String>> sizesTokens = new ArrayList<>();
+
+    // units ordered per product, kept across re-indexing of the product
+    private final Map<Long, Long> unitsOrdered = new HashMap<>();
+
+    private volatile boolean ready;
+
+    public ProductCatalogSnapshot(@Value("${product.catalog.snapshot.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @Override
+    public void markReady() {
+        ready = true;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Product product) {
+        if (!enabled || product == null || product.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer existing = rows.get(product.getId());
+            int row;
+            if (existing != null) {
+                row = existing;
+            } else {
+                ensureCapacity(count + 1);
+                row = count++;
+                rows.put(product.getId(), row);
+            }
+            ids[row] = product.getId();
+            prices[row] = product.getSellingPrice();
+            discounts[row] = product.getDiscountPercent();
+            ratings[row] = product.getRating();
+            createdAt[row] = product.getCreatedAt() == null
+                    ? 0L : product.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli();
+            categoryIds[row] = product.getCategory() == null || product.getCategory().getId() == null
+                    ? 0L : product.getCategory().getId();
+            colors[row] = colorCode(product.getColor());
+            sizes[row] = sizesCode(product.getSizes());
+            popularity[row] = unitsOrdered.getOrDefault(product.getId(), 0L);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long productId) {
+        if (!enabled || productId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer row = rows.remove(productId);
+            if (row == null) {
+                return;
+            }
+            int last = --count;
+            if (row != last) {
+                moveRow(last, row);
+                rows.put(ids[row], row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            rows.clear();
+            count = 0;
+            colorCodes.clear();
+            sizesCodes.clear();
+            sizesTokens.clear();
+            unitsOrdered.clear();
+            ids = new long[INITIAL_CAPACITY];
+            prices = new int[INITIAL_CAPACITY];
+            discounts = new int[INITIAL_CAPACITY];
+            ratings = new int[INITIAL_CAPACITY];
+            createdAt = new long[INITIAL_CAPACITY];
+            categoryIds = new long[INITIAL_CAPACITY];
+            colors = new int[INITIAL_CAPACITY];
+            sizes = new int[INITIAL_CAPACITY];
+            popularity = new long[INITIAL_CAPACITY];
+            ready = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds ordered units to the products' popularity, e.g. when an order is placed.
+     */
+    public void addUnitsOrdered(Map<Long, Long> unitsByProduct) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Long> units : unitsByProduct.entrySet()) {
+                long total = unitsOrdered.merge(units.getKey(), units.getValue(), Long::sum);
+                Integer row = rows.get(units.getKey());
+                if (row != null) {
+                    popularity[row] = total;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of one page of matching products in the requested order,
+     * with the total number of matches. Ties are broken by product id.
+     */
+    public Listing list(Filter filter, Ordering ordering, int offset, int limit) {
+        return scan(filter, ordering, offset, limit, null);
+    }
+
+    /**
+     * Returns up to limit matching products that rank after the given position,
+     * i.e. after the last row of the previous page as reported in
+     * {@link Listing#sortKeys()}. Only limit rows are ever held, however deep
+     * the position is. The total still counts every match.
+     */
+    public Listing listAfter(Filter filter, Ordering ordering, long afterSortKey, long afterProductId, int limit) {
+        return scan(filter, ordering, 0, limit, new long[]{afterSortKey, afterProductId});
+    }
+
+    /**
+     * Listing filters; null fields are ignored. categoryIds must be sorted and
+     * holds the leaf category ids to accept.
+     */
+    public record Filter(long[] categoryIds, String color, String size,
+                         Integer minPrice, Integer maxPrice, Integer minDiscount) {
+    }
+
+    /**
+     * sortKeys holds each returned product's value of the ordering's sort
+     * column (prices, percentages, epoch millis or units), for listAfter.
+     */
+    public record Listing(long total, long[] productIds, long[] sortKeys) {
+    }
+
+    public enum Ordering {
+        DEFAULT, PRICE_LOW, PRICE_HIGH, NEWEST, DISCOUNT, RATING, POPULARITY;
+
+        /**
+         * Maps the sort request parameter of the listing endpoint; unknown values keep id order.
+         */
+        public static Ordering fromParam(String sort) {
+            if (sort == null) {
+                return DEFAULT;
+            }
+            return switch (sort) {
+                case "price_low" -> PRICE_LOW;
+                case "price_high" -> PRICE_HIGH;
+                case "newest" -> NEWEST;
+                case "discount" -> DISCOUNT;
+                case "rating" -> RATING;
+                case "popularity" -> POPULARITY;
+                default -> DEFAULT;
+            };
+        }
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private Listing scan(Filter filter, Ordering ordering, int offset, int limit, long[] after) {
+        lock.readLock().lock();
+        try {
+            int colorCode = -1;
+            if (filter.color() != null) {
+                Integer code = colorCodes.get(normalize(filter.color()));
+                if (code == null) {
+                    return new Listing(0, new long[0], new long[0]);
+                }
+                colorCode = code;
+            }
+            boolean[] sizesMatch = null;
+            if (filter.size() != null) {
+                String size = normalize(filter.size());
+                sizesMatch = new boolean[sizesTokens.size()];
+                for (int code = 0; code < sizesMatch.length; code++) {
+                    sizesMatch[code] = sizesTokens.get(code).contains(size);
+                }
+            }
+            long[] categories = filter.categoryIds();
+            int minPrice = filter.minPrice() == null ? Integer.MIN_VALUE : filter.minPrice();
+            int maxPrice = filter.maxPrice() == null ? Integer.MAX_VALUE : filter.maxPrice();
+            int minDiscount = filter.minDiscount() == null ? Integer.MIN_VALUE : filter.minDiscount();
+
+            int k = (int) Math.min((long) Math.max(offset, 0) + Math.max(limit, 0), Integer.MAX_VALUE);
+            TopK top = new TopK(ordering, k);
+            int total = 0;
+            for (int row = 0; row < count; row++) {
+                if (prices[row] < minPrice || prices[row] > maxPrice || discounts[row] < minDiscount) {
+                    continue;
+                }
+                if (colorCode >= 0 && colors[row] != colorCode) {
+                    continue;
+                }
+                if (sizesMatch != null && (sizes[row] < 0 || !sizesMatch[sizes[row]])) {
+                    continue;
+                }
+                if (categories != null && Arrays.binarySearch(categories, categoryIds[row]) < 0) {
+                    continue;
+                }
+                total++;
+                if (after != null && top.compareToPosition(row, after[0], after[1]) <= 0) {
+                    continue;
+                }
+                top.offer(row);
+            }
+            int[] ranked = top.sorted();
+            int from = Math.min(Math.max(offset, 0), ranked.length);
+            long[] page = new long[ranked.length - from];
+            long[] keys = new long[page.length];
+            for (int i = from; i < ranked.length; i++) {
+                page[i - from] = ids[ranked[i]];
+                keys[i - from] = top.key(ranked[i]);
+            }
+            return new Listing(total, page, keys);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private int colorCode(String color) {
+        if (color == null || color.isBlank()) {
+            return -1;
+        }
+        return colorCodes.computeIfAbsent(normalize(color), c -> colorCodes.size());
+    }
+
+    private int sizesCode(String value) {
+        if (value == null || value.isBlank()) {
+            return -1;
+        }
+        return sizesCodes.computeIfAbsent(value, v -> {
+            Set<String> tokens = new HashSet<>();
+            for (String size : v.split(",")) {
+                if (!size.isBlank()) {
+                    tokens.add(normalize(size));
+                }
+            }
+            sizesTokens.add(tokens);
+            return sizesTokens.size() - 1;
+        });
+    }
+
+    private void moveRow(int from, int to) {
+        ids[to] = ids[from];
+        prices[to] = prices[from];
+        discounts[to] = discounts[from];
+        ratings[to] = ratings[from];
+        createdAt[to] = createdAt[from];
+        categoryIds[to] = categoryIds[from];
+        colors[to] = colors[from];
+        sizes[to] = sizes[from];
+        popularity[to] = popularity[from];
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(needed, ids.length * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        discounts = Arrays.copyOf(discounts, capacity);
+        ratings = Arrays.copyOf(ratings, capacity);
+        createdAt = Arrays.copyOf(createdAt, capacity);
+        categoryIds = Arrays.copyOf(categoryIds, capacity);
+        colors = Arrays.copyOf(colors, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        popularity = Arrays.copyOf(popularity, capacity);
+    }
+
+    /**
+     * Bounded max-heap of row numbers holding the best k rows seen so far;
+     * the worst of them sits at the root so it can be replaced in O(log k).
+     */
+    private final class TopK {
+        private final int k;
+        // sort column resolved once per query; exactly one of them is set for non-default orderings
+        private final int[] intKeys;
+        private final long[] longKeys;
+        private final boolean descending;
+        private int[] heap;
+        private int size;
+
+        TopK(Ordering ordering, int k) {
+            this.k = k;
+            this.heap = new int[Math.min(k, 1024)];
+            this.intKeys = switch (ordering) {
+                case PRICE_LOW, PRICE_HIGH -> prices;
+                case DISCOUNT -> discounts;
+                case RATING -> ratings;
+                default -> null;
+            };
+            this.longKeys = switch (ordering) {
+                case NEWEST -> createdAt;
+                case POPULARITY -> popularity;
+                default -> null;
+            };
+            this.descending = ordering != Ordering.PRICE_LOW;
+        }
+
+        void offer(int row) {
+            if (k == 0) {
+                return;
+            }
+            if (size < k) {
+                if (size == heap.length) {
+                    heap = Arrays.copyOf(heap, (int) Math.min((long) heap.length * 2, k));
+                }
+                heap[size] = row;
+                siftUp(size++);
+            } else if (compare(row, heap[0]) < 0) {
+                heap[0] = row;
+                siftDown(0);
+            }
+        }
+
+        /**
+         * Drains the heap into ranking order, best first.
+         */
+        int[] sorted() {
+            int[] result = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                result[i] = heap[0];
+                heap[0] = heap[--size];
+                siftDown(0);
+            }
+            return result;
+        }
+
+        long key(int row) {
+            if (intKeys != null) {
+                return intKeys[row];
+            }
+            return longKeys != null ? longKeys[row] : 0L;
+        }
+
+        /**
+         * Negative when the row ranks before the (sort key, product id) position.
+         */
+        int compareToPosition(int row, long sortKey, long productId) {
+            int byKey = Long.compare(key(row), sortKey);
+            if (byKey != 0) {
+                return descending ? -byKey : byKey;
+            }
+            return Long.compare(ids[row], productId);
+        }
+
+        /**
+         * Negative when row a ranks before row b; ties are broken by product id.
+         */
+        private int compare(int a, int b) {
+            int byKey = 0;
+            if (intKeys != null) {
+                byKey = Integer.compare(intKeys[a], intKeys[b]);
+            } else if (longKeys != null) {
+                byKey = Long.compare(longKeys[a], longKeys[b]);
+            }
+            if (byKey != 0) {
+                return descending ? -byKey : byKey;
+            }
+            return Long.compare(ids[a], ids[b]);
+        }
+
+        private void siftUp(int i) {
+            int row = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (compare(row, heap[parent]) <= 0) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = row;
+        }
+
+        private void siftDown(int i) {
+            if (size == 0) {
+                return;
+            }
+            int row = heap[i];
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && compare(heap[child + 1], heap[child]) > 0) {
+                    child++;
+                }
+                if (compare(row, heap[child]) >= 0) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = row;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.xuwei.index;
+
+import com.xuwei.model.Category;
+import com.xuwei.model.Product;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compressed bitmap index answering per-value counts for the product filter page.
+ * <p>
+ * Each product gets a dense ordinal, and every facet value (color, size,
+ * category id at each level, discount bucket, price bucket) owns a
+ * RoaringBitmap of ordinals. Counts for a facet are computed against all
+ * active filters except the facet's own, so the UI can still show the
+ * alternatives of a facet the user has already narrowed.
+ * <p>
+ * Range filters do not use the display buckets: discounts are kept per exact
+ * percent and prices in blocks of PRICE_BLOCK, so a range is an OR of whole
+ * blocks plus an exact check of at most two edge blocks.
+ */
+@Component
+public class ProductFacetIndex implements ProductIndex {
+
+    public static final String COLOR = "color";
+    public static final String SIZE = "size";
+    public static final String CATEGORY = "category";
+    public static final String DISCOUNT = "discount";
+    public static final String PRICE = "price";
+
+    /** Discount buckets are cumulative: "40" means 40% off or more. */
+    private static final int[] DISCOUNT_THRESHOLDS = {10, 20, 30, 40, 50, 60, 70, 80, 90};
+    /** Lower bounds of the selling price buckets; the last one is open-ended. */
+    private static final int[] PRICE_EDGES = {0, 500, 1000, 2000, 5000, 10000, 20000, 50000};
+    private static final int PRICE_BLOCK = 100;
+
+    private final boolean enabled;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Map<String, RoaringBitmap>> facets = new LinkedHashMap<>();
+    private final RoaringBitmap live = new RoaringBitmap();
+    private final RoaringBitmap[] discountExact = new RoaringBitmap[101];
+    private final NavigableMap<Integer, RoaringBitmap> priceBlocks = new TreeMap<>();
+
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private int nextOrdinal;
+    // per ordinal: bitmaps the product is currently in, plus raw values for range edges
+    private RoaringBitmap[][] memberships = new RoaringBitmap[1024][];
+    private int[] prices = new int[1024];
+    private int[] discounts = new int[1024];
+
+    private volatile boolean ready;
+
+    public ProductFacetIndex(@Value("${product.facet.index.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+        for (String facet : List.of(COLOR, SIZE, CATEGORY, DISCOUNT, PRICE)) {
+            facets.put(facet, new HashMap<>());
+        }
+        for (int d = 0; d < discountExact.length; d++) {
+            discountExact[d] = new RoaringBitmap();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @Override
+    public void markReady() {
+        ready = true;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live.getCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Product product) {
+        if (!enabled || product == null || product.getId() == null) {
+            return;
+        }
+        List<String[]> values = new ArrayList<>();
+        if (product.getColor() != null && !product.getColor().isBlank()) {
+            values.add(new String[]{COLOR, normalize(product.getColor())});
+        }
+        if (product.getSizes() != null) {
+            for (String size : product.getSizes().split(",")) {
+                if (!size.isBlank()) {
+                    values.add(new String[]{SIZE, normalize(size)});
+                }
+            }
+        }
+        for (Category c = product.getCategory(); c != null; c = c.getParentCategory()) {
+            if (c.getCategoryId() != null) {
+                values.add(new String[]{CATEGORY, c.getCategoryId()});
+            }
+        }
+        for (int threshold : DISCOUNT_THRESHOLDS) {
+            if (product.getDiscountPercent() >= threshold) {
+                values.add(new String[]{DISCOUNT, String.valueOf(threshold)});
+            }
+        }
+        values.add(new String[]{PRICE, priceLabel(priceBucket(product.getSellingPrice()))});
+
+        lock.writeLock().lock();
+        try {
+            int ordinal = ordinals.computeIfAbsent(product.getId(), id -> allocateOrdinal());
+            removeLocked(ordinal);
+
+            RoaringBitmap[] joined = new RoaringBitmap[values.size() + 2];
+            for (int i = 0; i < values.size(); i++) {
+                String[] fv = values.get(i);
+                joined[i] = facets.get(fv[0]).computeIfAbsent(fv[1], v -> new RoaringBitmap());
+            }
+            joined[values.size()] = discountExact[Math.max(0, Math.min(100, product.getDiscountPercent()))];
+            joined[values.size() + 1] = priceBlocks.computeIfAbsent(
+                    Math.floorDiv(product.getSellingPrice(), PRICE_BLOCK), b -> new RoaringBitmap());
+            for (RoaringBitmap bitmap : joined) {
+                bitmap.add(ordinal);
+            }
+            memberships[ordinal] = joined;
+            prices[ordinal] = product.getSellingPrice();
+            discounts[ordinal] = product.getDiscountPercent();
+            live.add(ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long productId) {
+        if (!enabled || productId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(productId);
+            if (ordinal != null) {
+                removeLocked(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            for (Map<String, RoaringBitmap> values : facets.values()) {
+                values.clear();
+            }
+            for (RoaringBitmap bitmap : discountExact) {
+                bitmap.clear();
+            }
+            priceBlocks.clear();
+            live.clear();
+            ordinals.clear();
+            nextOrdinal = 0;
+            memberships = new RoaringBitmap[1024][];
+            prices = new int[1024];
+            discounts = new int[1024];
+            ready = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Counts matching products per facet value under the given filters.
+     * Null filter fields are ignored.
+     */
+    public FacetCounts count(Filter filter) {
+        lock.readLock().lock();
+        try {
+            Map<String, RoaringBitmap> constraints = new LinkedHashMap<>();
+            if (filter.category() != null) {
+                constraints.put(CATEGORY, valueBitmap(CATEGORY, filter.category()));
+            }
+            if (filter.color() != null) {
+                constraints.put(COLOR, valueBitmap(COLOR, normalize(filter.color())));
+            }
+            if (filter.size() != null) {
+                constraints.put(SIZE, valueBitmap(SIZE, normalize(filter.size())));
+            }
+            if (filter.minPrice() != null || filter.maxPrice() != null) {
+                constraints.put(PRICE, priceRange(filter.minPrice(), filter.maxPrice()));
+            }
+            if (filter.minDiscount() != null) {
+                constraints.put(DISCOUNT, minDiscount(filter.minDiscount()));
+            }
+
+            Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+            for (String facet : facets.keySet()) {
+                RoaringBitmap base = intersect(constraints, facet);
+                // unconstrained facets can read the value cardinalities directly
+                boolean unconstrained = base.getCardinality() == live.getCardinality();
+                Map<String, Integer> valueCounts = new HashMap<>();
+                for (Map.Entry<String, RoaringBitmap> value : facets.get(facet).entrySet()) {
+                    int n = unconstrained
+                            ? value.getValue().getCardinality()
+                            : RoaringBitmap.andCardinality(base, value.getValue());
+                    if (n > 0) {
+                        valueCounts.put(value.getKey(), n);
+                    }
+                }
+                counts.put(facet, sortByCountDesc(valueCounts));
+            }
+            int total = intersect(constraints, null).getCardinality();
+            return new FacetCounts(total, counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private int allocateOrdinal() {
+        int ordinal = nextOrdinal++;
+        if (ordinal == memberships.length) {
+            int capacity = memberships.length * 2;
+            memberships = Arrays.copyOf(memberships, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            discounts = Arrays.copyOf(discounts, capacity);
+        }
+        return ordinal;
+    }
+
+    private void removeLocked(int ordinal) {
+        RoaringBitmap[] joined = memberships[ordinal];
+        if (joined != null) {
+            for (RoaringBitmap bitmap : joined) {
+                bitmap.remove(ordinal);
+            }
+            memberships[ordinal] = null;
+        }
+        live.remove(ordinal);
+    }
+
+    private RoaringBitmap valueBitmap(String facet, String value) {
+        RoaringBitmap bitmap = facets.get(facet).get(value);
+        return bitmap != null ? bitmap : new RoaringBitmap();
+    }
+
+    /**
+     * AND of every constraint except the one on skipFacet, over live products.
+     */
+    private RoaringBitmap intersect(Map<String, RoaringBitmap> constraints, String skipFacet) {
+        RoaringBitmap result = live.clone();
+        for (Map.Entry<String, RoaringBitmap> c : constraints.entrySet()) {
+            if (!c.getKey().equals(skipFacet)) {
+                result.and(c.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Whole price blocks inside the range are OR-ed; the two edge blocks are
+     * filtered against the exact selling prices.
+     */
+    private RoaringBitmap priceRange(Integer min, Integer max) {
+        int lo = min != null ? min : Integer.MIN_VALUE;
+        int hi = max != null ? max : Integer.MAX_VALUE;
+        if (lo > hi) {
+            return new RoaringBitmap();
+        }
+        int firstBlock = Math.floorDiv(lo, PRICE_BLOCK);
+        int lastBlock = Math.floorDiv(hi, PRICE_BLOCK);
+        List<RoaringBitmap> whole = new ArrayList<>();
+        RoaringBitmap edges = new RoaringBitmap();
+        for (Map.Entry<Integer, RoaringBitmap> block : priceBlocks.subMap(firstBlock, true, lastBlock, true).entrySet()) {
+            int blockLo = block.getKey() * PRICE_BLOCK;
+            int blockHi = blockLo + PRICE_BLOCK - 1;
+            if (blockLo >= lo && blockHi <= hi) {
+                whole.add(block.getValue());
+            } else {
+                block.getValue().forEach((int ordinal) -> {
+                    if (prices[ordinal] >= lo && prices[ordinal] <= hi) {
+                        edges.add(ordinal);
+                    }
+                });
+            }
+        }
+        whole.add(edges);
+        return FastAggregation.or(whole.iterator());
+    }
+
+    private RoaringBitmap minDiscount(int min) {
+        List<RoaringBitmap> matching = new ArrayList<>();
+        for (int d = Math.max(0, min); d < discountExact.length; d++) {
+            matching.add(discountExact[d]);
+        }
+        return FastAggregation.or(matching.iterator());
+    }
+
+    private static int priceBucket(int price) {
+        int bucket = 0;
+        for (int b = 1; b < PRICE_EDGES.length; b++) {
+            if (price >= PRICE_EDGES[b]) {
+                bucket = b;
+            }
+        }
+        return bucket;
+    }
+
+    private static String priceLabel(int bucket) {
+        if (bucket + 1 < PRICE_EDGES.length) {
+            return PRICE_EDGES[bucket] + "-" + (PRICE_EDGES[bucket + 1] - 1);
+        }
+        return PRICE_EDGES[bucket] + "+";
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Map<String, Integer> sortByCountDesc(Map<String, Integer> counts) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Integer> sorted = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> e : entries) {
+            sorted.put(e.getKey(), e.getValue());
+        }
+        return sorted;
+    }
+
+    /**
+     * Filters applied to a facet count request; null fields are ignored.
+     */
+    public record Filter(String category, String color, String size,
+                         Integer minPrice, Integer maxPrice, Integer minDiscount) {
+    }
+
+    /**
+     * Number of products matching all filters, and per-facet value counts.
+     */
+    public record FacetCounts(int total, Map<String, Map<String, Integer>> facets) {
+    }
+}
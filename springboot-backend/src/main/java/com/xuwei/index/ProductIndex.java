@@ -0,0 +1,32 @@
+package com.xuwei.index;
+
+import com.xuwei.model.Product;
+
+/**
+ * An in-memory structure derived from the Product table.
+ * Implementations are bulk-built by ProductIndexLoader at startup and kept
+ * current by ProductServiceImpl on every product write.
+ */
+public interface ProductIndex {
+
+    boolean isEnabled();
+
+    /**
+     * Adds the product, or replaces its previous entry.
+     */
+    void index(Product product);
+
+    void remove(Long productId);
+
+    /**
+     * Drops all entries and marks the index as not ready.
+     */
+    void clear();
+
+    /**
+     * Called by the loader once the bulk build has finished.
+     */
+    void markReady();
+
+    int size();
+}
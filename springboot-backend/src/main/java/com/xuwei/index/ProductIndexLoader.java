@@ -0,0 +1,110 @@
+package com.xuwei.index;
+
+import com.xuwei.event.ProductDeletedEvent;
+import com.xuwei.model.Product;
+import com.xuwei.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk-builds every enabled ProductIndex once the application has started.
+ * Products are read once, in id order and one batch at a time, and fed to all
+ * indexes, so the load never holds more than a single batch of entities.
+ * Ordered units per product are loaded first, for the catalog snapshot's
+ * popularity ordering.
+ * <p>
+ * A product deleted while the rebuild runs may already sit in a batch read
+ * before the delete, so deletes are recorded meanwhile and applied again
+ * before the indexes are marked ready.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductIndexLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductIndexLoader.class);
+    private static final int BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final List<ProductIndex> productIndexes;
+    private final ProductCatalogSnapshot catalogSnapshot;
+
+    private final Set<Long> deletedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<ProductIndex> targets = productIndexes.stream().filter(ProductIndex::isEnabled).toList();
+        if (targets.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        rebuilding = true;
+        try {
+            load(targets);
+        } finally {
+            rebuilding = false;
+            deletedDuringRebuild.clear();
+        }
+
+        for (ProductIndex index : targets) {
+            index.markReady();
+            log.info("{} built: {} products in {} ms", index.getClass().getSimpleName(),
+                    index.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Runs before the deleted product leaves the indexes, so whichever of the
+     * two comes last, the delete or the rebuild's write of the product, the
+     * product ends up removed.
+     */
+    @EventListener
+    public void onProductDeleted(ProductDeletedEvent event) {
+        if (rebuilding) {
+            deletedDuringRebuild.add(event.productId());
+        }
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private void load(List<ProductIndex> targets) {
+        targets.forEach(ProductIndex::clear);
+        if (catalogSnapshot.isEnabled()) {
+            catalogSnapshot.addUnitsOrdered(productRepository.sumUnitsOrderedByProduct().stream()
+                    .collect(Collectors.toMap(ProductRepository.ProductUnits::getProductId,
+                            ProductRepository.ProductUnits::getUnits)));
+        }
+
+        long lastId = 0L;
+        PageRequest batch = PageRequest.of(0, BATCH_SIZE, Sort.by("id").ascending());
+        Slice<Product> slice;
+        do {
+            slice = productRepository.findByIdGreaterThan(lastId, batch);
+            List<Product> products = slice.getContent();
+            for (Product product : products) {
+                for (ProductIndex index : targets) {
+                    index.index(product);
+                }
+            }
+            if (!products.isEmpty()) {
+                lastId = products.get(products.size() - 1).getId();
+            }
+        } while (slice.hasNext());
+
+        for (Long productId : deletedDuringRebuild) {
+            targets.forEach(index -> index.remove(productId));
+        }
+    }
+}
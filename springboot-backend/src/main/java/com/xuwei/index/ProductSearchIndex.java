@@ -0,0 +1,319 @@
+package com.xuwei.index;
+
+import com.xuwei.model.Category;
+import com.xuwei.model.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over product title, description and category names.
+ * Replaces the LIKE scans of ProductRepository's search queries unless
+ * product.search.index.enabled is set to false.
+ * <p>
+ * Every query term must match (AND); the last term also matches as a prefix so
+ * partially typed words still find results. Hits are ranked with BM25 over
+ * field-weighted term frequencies.
+ */
+@Component
+public class ProductSearchIndex implements ProductIndex {
+
+    private static final float TITLE_WEIGHT = 3f;
+    private static final float CATEGORY_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final boolean enabled;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (productId -> weighted term frequency); sorted for prefix lookups
+    private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private double totalLength;
+
+    private volatile boolean ready;
+
+    public ProductSearchIndex(@Value("${product.search.index.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * True once the startup rebuild has finished; until then callers should
+     * fall back to the database.
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @Override
+    public void markReady() {
+        ready = true;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the product, or replaces its previous entry.
+     */
+    @Override
+    public void index(Product product) {
+        if (!enabled || product == null || product.getId() == null) {
+            return;
+        }
+        Map<String, Float> terms = new HashMap<>();
+        addTerms(terms, product.getTitle(), TITLE_WEIGHT);
+        addTerms(terms, product.getDescription(), DESCRIPTION_WEIGHT);
+        for (Category c = product.getCategory(); c != null; c = c.getParentCategory()) {
+            addTerms(terms, c.getName(), CATEGORY_WEIGHT);
+        }
+        float length = 0f;
+        for (float weight : terms.values()) {
+            length += weight;
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(product.getId());
+            for (Map.Entry<String, Float> term : terms.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), k -> new HashMap<>())
+                        .put(product.getId(), term.getValue());
+            }
+            documents.put(product.getId(), new Document(terms.keySet(), length));
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long productId) {
+        if (!enabled || productId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            totalLength = 0;
+            ready = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a ranked query and returns one page of hits, best first.
+     * A blank query matches every product, ordered by id.
+     */
+    public SearchResult search(String query, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = score(TextAnalyzer.tokenize(query));
+            int end = (int) Math.min(scores.size(), (long) Math.max(offset, 0) + Math.max(limit, 0));
+            List<SearchHit> top = topK(scores, end);
+            List<SearchHit> page = offset >= top.size()
+                    ? List.of()
+                    : top.subList(Math.max(offset, 0), top.size());
+            return new SearchResult(scores.size(), page);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Keyset variant of search: returns up to limit hits ranked strictly after
+     * the given (score, productId) position. Only limit hits are held in memory.
+     */
+    public SearchResult searchAfter(String query, double afterScore, long afterId, int limit) {
+        SearchHit after = new SearchHit(afterId, afterScore);
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = score(TextAnalyzer.tokenize(query));
+            return new SearchResult(scores.size(), topK(scores, Math.max(limit, 0), after));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private static void addTerms(Map<String, Float> terms, String text, float weight) {
+        for (String token : TextAnalyzer.tokenize(text)) {
+            terms.merge(token, weight, Float::sum);
+        }
+    }
+
+    private void removeLocked(Long productId) {
+        Document previous = documents.remove(productId);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.terms()) {
+            Map<Long, Float> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(productId);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= previous.length();
+    }
+
+    private Map<Long, Double> score(List<String> tokens) {
+        if (tokens.isEmpty()) {
+            Map<Long, Double> all = new HashMap<>(documents.size() * 2);
+            for (Long id : documents.keySet()) {
+                all.put(id, 0d);
+            }
+            return all;
+        }
+
+        List<Map<Long, Double>> perToken = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            boolean last = i == tokens.size() - 1;
+            Map<Long, Double> matches = last ? scorePrefix(tokens.get(i)) : scoreTerm(tokens.get(i));
+            if (matches.isEmpty()) {
+                return Map.of();
+            }
+            perToken.add(matches);
+        }
+
+        // AND: walk the rarest token's matches and probe the others
+        perToken.sort(Comparator.comparingInt(Map::size));
+        Map<Long, Double> result = new HashMap<>();
+        outer:
+        for (Map.Entry<Long, Double> candidate : perToken.get(0).entrySet()) {
+            double total = candidate.getValue();
+            for (int i = 1; i < perToken.size(); i++) {
+                Double s = perToken.get(i).get(candidate.getKey());
+                if (s == null) {
+                    continue outer;
+                }
+                total += s;
+            }
+            result.put(candidate.getKey(), total);
+        }
+        return result;
+    }
+
+    private Map<Long, Double> scoreTerm(String term) {
+        Map<Long, Double> scores = new HashMap<>();
+        Map<Long, Float> docs = postings.get(term);
+        if (docs != null) {
+            accumulate(scores, docs);
+        }
+        return scores;
+    }
+
+    /**
+     * Scores every term starting with the prefix; a document matched by several
+     * expansions keeps its best one so long prefixes are not over-rewarded.
+     */
+    private Map<Long, Double> scorePrefix(String prefix) {
+        Map<Long, Double> scores = new HashMap<>();
+        for (Map<Long, Float> docs : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            accumulate(scores, docs);
+        }
+        return scores;
+    }
+
+    private void accumulate(Map<Long, Double> scores, Map<Long, Float> docs) {
+        int n = documents.size();
+        double idf = Math.log(1 + (n - docs.size() + 0.5) / (docs.size() + 0.5));
+        double avgLength = n == 0 ? 1 : totalLength / n;
+        for (Map.Entry<Long, Float> posting : docs.entrySet()) {
+            Document doc = documents.get(posting.getKey());
+            double tf = posting.getValue();
+            double norm = K1 * (1 - B + B * doc.length() / avgLength);
+            double s = idf * (tf * (K1 + 1)) / (tf + norm);
+            scores.merge(posting.getKey(), s, Math::max);
+        }
+    }
+
+    private static List<SearchHit> topK(Map<Long, Double> scores, int k) {
+        return topK(scores, k, null);
+    }
+
+    /**
+     * Partial selection of the k best hits ranked after the given hit
+     * (or from the start when after is null).
+     */
+    private static List<SearchHit> topK(Map<Long, Double> scores, int k, SearchHit after) {
+        if (k <= 0) {
+            return List.of();
+        }
+        // min-heap holding the k best hits seen so far
+        PriorityQueue<SearchHit> heap = new PriorityQueue<>(Math.min(k, Math.max(scores.size(), 1)),
+                SearchHit.RANKING.reversed());
+        for (Map.Entry<Long, Double> e : scores.entrySet()) {
+            SearchHit hit = new SearchHit(e.getKey(), e.getValue());
+            if (after != null && SearchHit.RANKING.compare(hit, after) <= 0) {
+                continue;
+            }
+            if (heap.size() < k) {
+                heap.add(hit);
+            } else if (SearchHit.RANKING.compare(hit, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(hit);
+            }
+        }
+        List<SearchHit> sorted = new ArrayList<>(heap);
+        sorted.sort(SearchHit.RANKING);
+        return sorted;
+    }
+
+    private record Document(Set<String> terms, float length) {
+    }
+
+    /**
+     * One matching product and its relevance score.
+     */
+    public record SearchHit(long productId, double score) {
+        /** Best score first, ties broken by ascending product id. */
+        public static final Comparator<SearchHit> RANKING = Comparator
+                .comparingDouble(SearchHit::score).reversed()
+                .thenComparingLong(SearchHit::productId);
+    }
+
+    /**
+     * A page of hits plus the total number of matching products.
+     */
+    public record SearchResult(int total, List<SearchHit> hits) {
+        public List<Long> productIds() {
+            List<Long> ids = new ArrayList<>(hits.size());
+            for (SearchHit hit : hits) {
+                ids.add(hit.productId());
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package com.xuwei.index;
+
+import com.xuwei.model.Category;
+import com.xuwei.model.Product;
+import com.xuwei.model.Seller;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typeahead suggestions over product titles, category names and seller
+ * business names, served from a radix (path-compressed) prefix trie.
+ * <p>
+ * A phrase's popularity is the number of products that carry it, so a category
+ * or a seller with many products outranks a single product title. Every trie
+ * node keeps the top-K phrases of its subtree, which makes a lookup a walk down
+ * the prefix followed by a copy of at most K entries, independent of how many
+ * phrases share the prefix. A node's top-K is always the best K of its own
+ * phrase and its children's top-K lists, which is what keeps incremental
+ * updates exact: a popularity increase is merged into each list on the path,
+ * a decrease recomputes the path bottom-up from the children.
+ */
+@Component
+public class ProductSuggestIndex implements ProductIndex {
+
+    public static final int TOP_K = 10;
+
+    private static final Comparator<Entry> RANKING =
+            Comparator.comparingInt((Entry e) -> -e.weight).thenComparing(e -> e.key);
+
+    private final boolean enabled;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Node root = new Node("");
+    private final Map<String, Entry> entries = new HashMap<>();
+    // productId -> phrase keys the product contributed, for removal
+    private final Map<Long, String[]> productKeys = new HashMap<>();
+
+    private volatile boolean ready;
+
+    public ProductSuggestIndex(@Value("${product.suggest.index.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @Override
+    public void markReady() {
+        ready = true;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return productKeys.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of distinct phrases currently suggested.
+     */
+    public int phraseCount() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Product product) {
+        if (!enabled || product == null || product.getId() == null) {
+            return;
+        }
+        Map<String, Phrase> phrases = new LinkedHashMap<>();
+        addPhrase(phrases, product.getTitle(), Type.PRODUCT);
+        for (Category c = product.getCategory(); c != null; c = c.getParentCategory()) {
+            addPhrase(phrases, c.getName(), Type.CATEGORY);
+        }
+        Seller seller = product.getSeller();
+        if (seller != null && seller.getBusinessDetails() != null) {
+            addPhrase(phrases, seller.getBusinessDetails().getBusinessName(), Type.SELLER);
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(product.getId());
+            for (Phrase phrase : phrases.values()) {
+                increment(phrase);
+            }
+            productKeys.put(product.getId(), phrases.keySet().toArray(new String[0]));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long productId) {
+        if (!enabled || productId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            root.children = Node.NO_CHILDREN;
+            root.top = Node.NO_ENTRIES;
+            root.terminal = null;
+            entries.clear();
+            productKeys.clear();
+            ready = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Most popular phrases starting with the given prefix, best first.
+     * The prefix is folded the same way as the phrases, so case, accents and
+     * punctuation do not matter.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        int k = Math.min(Math.max(limit, 0), TOP_K);
+        if (key.isEmpty() || k == 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = find(key);
+            if (node == null) {
+                return List.of();
+            }
+            Entry[] top = node.top;
+            int n = Math.min(k, top.length);
+            List<Suggestion> suggestions = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                suggestions.add(new Suggestion(top[i].text, top[i].type, top[i].weight));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public enum Type {
+        PRODUCT, CATEGORY, SELLER
+    }
+
+    public record Suggestion(String text, Type type, int popularity) {
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private static String normalize(String text) {
+        return String.join(" ", TextAnalyzer.tokenize(text));
+    }
+
+    private static void addPhrase(Map<String, Phrase> phrases, String text, Type type) {
+        String key = normalize(text);
+        if (!key.isEmpty()) {
+            phrases.putIfAbsent(key, new Phrase(key, text.trim(), type));
+        }
+    }
+
+    private void removeLocked(Long productId) {
+        String[] keys = productKeys.remove(productId);
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            decrement(key);
+        }
+    }
+
+    private void increment(Phrase phrase) {
+        List<Node> path = insertPath(phrase.key());
+        Node terminal = path.get(path.size() - 1);
+        Entry entry = terminal.terminal;
+        if (entry == null) {
+            entry = new Entry(phrase.key(), phrase.text(), phrase.type());
+            terminal.terminal = entry;
+            entries.put(phrase.key(), entry);
+        }
+        entry.weight++;
+        for (Node node : path) {
+            offer(node, entry);
+        }
+    }
+
+    private void decrement(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return;
+        }
+        List<Node> path = findPath(key);
+        entry.weight--;
+        if (entry.weight <= 0) {
+            entries.remove(key);
+            path.get(path.size() - 1).terminal = null;
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            if (i > 0 && node.terminal == null) {
+                if (node.children.length == 0) {
+                    removeChild(path.get(i - 1), node);
+                    continue;
+                }
+                if (node.children.length == 1) {
+                    mergeWithOnlyChild(node);
+                    continue;
+                }
+            }
+            recomputeTop(node);
+        }
+    }
+
+    /**
+     * Walks to the node for the key, creating and splitting nodes as needed.
+     * Returns the nodes from the root down to the key's node.
+     */
+    private List<Node> insertPath(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            int index = childIndex(node, key.charAt(i));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(i));
+                insertChild(node, -index - 1, leaf);
+                path.add(leaf);
+                return path;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children = new Node[]{child};
+                middle.top = child.top.clone();
+                node.children[index] = middle;
+                child = middle;
+            }
+            path.add(child);
+            node = child;
+            i += common;
+        }
+        return path;
+    }
+
+    private List<Node> findPath(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            int index = childIndex(node, key.charAt(i));
+            if (index < 0) {
+                break;
+            }
+            node = node.children[index];
+            path.add(node);
+            i += node.label.length();
+        }
+        return path;
+    }
+
+    /**
+     * Node whose subtree holds exactly the phrases starting with the prefix,
+     * or null when there are none. The prefix may end inside an edge label.
+     */
+    private Node find(String prefix) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            int index = childIndex(node, prefix.charAt(i));
+            if (index < 0) {
+                return null;
+            }
+            node = node.children[index];
+            int common = commonPrefix(node.label, prefix, i);
+            if (common < node.label.length() && i + common < prefix.length()) {
+                return null;
+            }
+            i += common;
+        }
+        return node;
+    }
+
+    /**
+     * Merges an entry whose popularity went up into the node's top-K list.
+     */
+    private static void offer(Node node, Entry entry) {
+        Entry[] top = node.top;
+        int pos = -1;
+        for (int i = 0; i < top.length; i++) {
+            if (top[i] == entry) {
+                pos = i;
+                break;
+            }
+        }
+        if (pos < 0) {
+            if (top.length < TOP_K) {
+                top = Arrays.copyOf(top, top.length + 1);
+            } else if (RANKING.compare(entry, top[top.length - 1]) >= 0) {
+                return;
+            }
+            pos = top.length - 1;
+            top[pos] = entry;
+        }
+        while (pos > 0 && RANKING.compare(top[pos], top[pos - 1]) < 0) {
+            Entry swap = top[pos - 1];
+            top[pos - 1] = top[pos];
+            top[pos] = swap;
+            pos--;
+        }
+        node.top = top;
+    }
+
+    private static void recomputeTop(Node node) {
+        List<Entry> candidates = new ArrayList<>();
+        if (node.terminal != null) {
+            candidates.add(node.terminal);
+        }
+        for (Node child : node.children) {
+            Collections.addAll(candidates, child.top);
+        }
+        candidates.sort(RANKING);
+        int n = Math.min(TOP_K, candidates.size());
+        node.top = n == 0 ? Node.NO_ENTRIES : candidates.subList(0, n).toArray(new Entry[0]);
+    }
+
+    private static void mergeWithOnlyChild(Node node) {
+        Node child = node.children[0];
+        node.label = node.label + child.label;
+        node.children = child.children;
+        node.terminal = child.terminal;
+        node.top = child.top;
+    }
+
+    private static int childIndex(Node node, char c) {
+        Node[] children = node.children;
+        int low = 0;
+        int high = children.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = children[mid].label.charAt(0);
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static void insertChild(Node parent, int index, Node child) {
+        Node[] children = new Node[parent.children.length + 1];
+        System.arraycopy(parent.children, 0, children, 0, index);
+        children[index] = child;
+        System.arraycopy(parent.children, index, children, index + 1, parent.children.length - index);
+        parent.children = children;
+    }
+
+    private static void removeChild(Node parent, Node child) {
+        int index = childIndex(parent, child.label.charAt(0));
+        Node[] children = new Node[parent.children.length - 1];
+        System.arraycopy(parent.children, 0, children, 0, index);
+        System.arraycopy(parent.children, index + 1, children, index, children.length - index);
+        parent.children = children;
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private record Phrase(String key, String text, Type type) {
+    }
+
+    private static final class Entry {
+        final String key;
+        final String text;
+        final Type type;
+        int weight;
+
+        Entry(String key, String text, Type type) {
+            this.key = key;
+            this.text = text;
+            this.type = type;
+        }
+    }
+
+    private static final class Node {
+        static final Node[] NO_CHILDREN = new Node[0];
+        static final Entry[] NO_ENTRIES = new Entry[0];
+
+        String label;
+        // sorted by the first character of their labels
+        Node[] children = NO_CHILDREN;
+        Entry terminal;
+        // best phrases of this subtree, best first
+        Entry[] top = NO_ENTRIES;
+
+        Node(String label) {
+            this.label = label;
+        }
+    }
+}
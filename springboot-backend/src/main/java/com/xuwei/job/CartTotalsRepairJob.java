@@ -0,0 +1,100 @@
+package com.xuwei.job;
+
+import com.xuwei.model.Cart;
+import com.xuwei.repository.CartRepository;
+import com.xuwei.service.Impl.CartServiceImpl;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Safety net for the cart totals that add, update and delete maintain as deltas.
+ * <p>
+ * Each run compares every cart's stored totals with the sum of its items, one
+ * id range per aggregate query, and rewrites only the carts that drifted (rows
+ * written before the totals were tracked, or changed outside the services).
+ * A cart is recomputed in its own transaction under its optimistic version;
+ * if a shopper changes it at the same moment, the repair gives way and the
+ * next run checks the cart again.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "cart.totals.repair.enabled", havingValue = "true", matchIfMissing = true)
+public class CartTotalsRepairJob {
+
+    private static final Logger log = LoggerFactory.getLogger(CartTotalsRepairJob.class);
+
+    private final CartRepository cartRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${cart.totals.repair.chunk-size:5000}")
+    private int chunkSize = 5000;
+
+    @Scheduled(initialDelayString = "${cart.totals.repair.initial-delay:PT5M}",
+            fixedDelayString = "${cart.totals.repair.interval:PT1H}")
+    public void run() {
+        int repaired = repairDriftedCarts();
+        if (repaired > 0) {
+            log.warn("Repaired drifted totals of {} carts", repaired);
+        }
+    }
+
+    /**
+     * Returns the number of carts whose totals were rewritten.
+     */
+    public int repairDriftedCarts() {
+        Long maxId = cartRepository.findMaxId();
+        if (maxId == null) {
+            return 0;
+        }
+        int repaired = 0;
+        for (long fromId = 0; fromId < maxId; fromId += chunkSize) {
+            List<CartRepository.CartTotals> drifted = cartRepository.findDriftedTotals(fromId, fromId + chunkSize);
+            for (CartRepository.CartTotals totals : drifted) {
+                if (repair(totals.getCartId())) {
+                    repaired++;
+                }
+            }
+        }
+        return repaired;
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private boolean repair(Long cartId) {
+        try {
+            Boolean changed = transactionTemplate.execute(status -> {
+                Cart cart = cartRepository.findById(cartId).orElse(null);
+                if (cart == null) {
+                    return false;
+                }
+                // summed again inside the transaction, so a change committed since the scan is included
+                CartRepository.CartTotals totals = cartRepository.sumItemTotals(cartId);
+                int mrpPrice = totals.getMrpPrice().intValue();
+                int sellingPrice = totals.getSellingPrice().intValue();
+                int quantity = totals.getQuantity().intValue();
+                if (cart.getTotalMrpPrice() == mrpPrice && cart.getTotalSellingPrice() == sellingPrice
+                        && cart.getTotalItems() == quantity) {
+                    return false;
+                }
+                cart.setTotalMrpPrice(mrpPrice);
+                cart.setTotalSellingPrice(sellingPrice);
+                cart.setTotalItems(quantity);
+                cart.setDiscountedPrice(CartServiceImpl.calculateDiscountPercentage(mrpPrice, sellingPrice));
+                return true;
+            });
+            return Boolean.TRUE.equals(changed);
+        } catch (OptimisticLockingFailureException e) {
+            log.debug("Cart {} changed during repair, leaving it to the next run", cartId);
+            return false;
+        }
+    }
+}
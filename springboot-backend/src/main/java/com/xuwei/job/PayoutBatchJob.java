@@ -0,0 +1,52 @@
+package com.xuwei.job;
+
+import com.xuwei.model.PayoutRun;
+import com.xuwei.service.PayoutService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Turns the sellers' unpaid transactions into pending payouts.
+ * <p>
+ * Each run resumes the batch an earlier run left unfinished, if any, and
+ * pays it a chunk per transaction until nothing dated before its cutoff is
+ * left unpaid.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "payout.batch.enabled", havingValue = "true", matchIfMissing = true)
+public class PayoutBatchJob {
+
+    private static final Logger log = LoggerFactory.getLogger(PayoutBatchJob.class);
+
+    private final PayoutService payoutService;
+
+    @Value("${payout.batch.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    @Scheduled(cron = "${payout.batch.cron:0 0 2 * * *}")
+    public void run() {
+        long paid = payOut();
+        if (paid > 0) {
+            log.info("Paid out {} transactions", paid);
+        }
+    }
+
+    /**
+     * Returns the number of transactions paid by this call.
+     */
+    public long payOut() {
+        PayoutRun run = payoutService.startOrResumeRun();
+        long total = 0;
+        int paid;
+        while ((paid = payoutService.payChunk(run.getId(), chunkSize)) > 0) {
+            total += paid;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,85 @@
+package com.xuwei.job;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Numbers the images of products written before Product.images stored its
+ * list position.
+ * <p>
+ * The schema update adds images_order empty to existing rows. A list with
+ * missing or repeated positions loads with its images collapsed onto one
+ * position, and the next save of the product drops the others, so this runs
+ * while the application starts, before anything loads a product. Each such
+ * product gets its images rewritten as positions 0 to n-1, in the order the
+ * numbered ones already had and then in the order the database returns the
+ * rest. Products already numbered that way are left alone, so later starts
+ * find nothing to do.
+ */
+@Component
+public class ProductImageOrderMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImageOrderMigration.class);
+
+    private static final String FIND_UNNUMBERED = "SELECT product_id FROM product_images GROUP BY product_id "
+            + "HAVING COUNT(images_order) < COUNT(*) OR COUNT(DISTINCT images_order) < COUNT(*) "
+            + "OR MIN(images_order) <> 0 OR MAX(images_order) <> COUNT(*) - 1";
+    // no ORDER BY: unnumbered rows keep the order they are stored in
+    private static final String FIND_IMAGES = "SELECT images, images_order FROM product_images WHERE product_id = ?";
+    private static final String DELETE_IMAGES = "DELETE FROM product_images WHERE product_id = ?";
+    private static final String INSERT_IMAGE =
+            "INSERT INTO product_images (product_id, images, images_order) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // the entity manager factory is taken so the schema update has run first
+    public ProductImageOrderMigration(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                      EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        int numbered = run();
+        if (numbered > 0) {
+            log.info("Numbered the images of {} products", numbered);
+        }
+    }
+
+    /**
+     * Renumbers every product whose image positions are not 0 to n-1, one
+     * transaction per product. Returns the number of products renumbered.
+     */
+    public int run() {
+        List<Long> productIds = jdbcTemplate.queryForList(FIND_UNNUMBERED, Long.class);
+        for (Long productId : productIds) {
+            transactionTemplate.executeWithoutResult(status -> renumber(productId));
+        }
+        return productIds.size();
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private void renumber(Long productId) {
+        List<Image> images = new ArrayList<>(jdbcTemplate.query(FIND_IMAGES,
+                (row, rowNum) -> new Image(row.getString(1), (Integer) row.getObject(2, Integer.class)),
+                productId));
+        // stable, so rows without a position keep the order they were read in
+        images.sort(Comparator.comparing(Image::position, Comparator.nullsLast(Comparator.naturalOrder())));
+        List<Object[]> rows = new ArrayList<>(images.size());
+        for (int i = 0; i < images.size(); i++) {
+            rows.add(new Object[]{productId, images.get(i).url(), i});
+        }
+        jdbcTemplate.update(DELETE_IMAGES, productId);
+        jdbcTemplate.batchUpdate(INSERT_IMAGE, rows);
+    }
+
+    private record Image(String url, Integer position) {
+    }
+}
@@ -0,0 +1,54 @@
+package com.xuwei.job;
+
+import com.xuwei.service.SellerReportService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Nightly check of the seller reports that order events keep as deltas.
+ * <p>
+ * Sellers are recomputed one id range at a time, with an aggregate query
+ * per range over their orders and transactions, so a run never holds more
+ * than a chunk of sellers in memory or locks more than one report at once.
+ * Drifted reports are logged and rewritten from the recomputed totals.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "seller.report.reconcile.enabled", havingValue = "true", matchIfMissing = true)
+public class SellerReportReconciliationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(SellerReportReconciliationJob.class);
+
+    private final SellerReportService sellerReportService;
+
+    @Value("${seller.report.reconcile.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    @Scheduled(cron = "${seller.report.reconcile.cron:0 30 3 * * *}")
+    public void run() {
+        int repaired = reconcileAll();
+        if (repaired > 0) {
+            log.warn("Rewrote {} drifted or missing seller reports", repaired);
+        }
+    }
+
+    /**
+     * Returns the number of reports rewritten or created.
+     */
+    public int reconcileAll() {
+        Long maxId = sellerReportService.findMaxSellerId();
+        if (maxId == null) {
+            return 0;
+        }
+        int repaired = 0;
+        for (long fromId = 0; fromId < maxId; fromId += chunkSize) {
+            repaired += sellerReportService.reconcile(fromId, fromId + chunkSize);
+        }
+        return repaired;
+    }
+}
@@ -0,0 +1,51 @@
+package com.xuwei.job;
+
+import com.xuwei.service.InventoryService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Puts the stock of unpaid orders back on sale once their reservations
+ * expire, and cancels the orders.
+ * <p>
+ * Each run releases expired reservations a chunk per transaction until none
+ * are left, so a backlog after downtime never holds locks for long.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "inventory.reservation.expiry.enabled", havingValue = "true", matchIfMissing = true)
+public class StockReservationExpiryJob {
+
+    private static final Logger log = LoggerFactory.getLogger(StockReservationExpiryJob.class);
+
+    private final InventoryService inventoryService;
+
+    @Value("${inventory.reservation.expiry.chunk-size:500}")
+    private int chunkSize = 500;
+
+    @Scheduled(fixedDelayString = "${inventory.reservation.expiry.interval:PT30S}")
+    public void run() {
+        int released = releaseExpired();
+        if (released > 0) {
+            log.info("Released {} expired stock reservations", released);
+        }
+    }
+
+    /**
+     * Returns the number of expired reservations looked at.
+     */
+    public int releaseExpired() {
+        int total = 0;
+        int found;
+        do {
+            found = inventoryService.releaseExpired(chunkSize);
+            total += found;
+        } while (found == chunkSize);
+        return total;
+    }
+}
@@ -16,7 +16,8 @@ import java.util.Set;
 @NoArgsConstructor
 public class Cart {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_seq")
+    @SequenceGenerator(name = "cart_seq", sequenceName = "cart_seq", allocationSize = 100)
     private Long id;
     @OneToOne
     @JsonIgnore
@@ -30,4 +31,8 @@ public class Cart {
     private double discountedPrice;
     private String couponCode;
 
+    // bumped on every totals change, so concurrent item writes to one cart cannot lose a delta
+    @Version
+    private long version;
+
 }
@@ -8,12 +8,16 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_cart_item_cart_product_size",
+        columnNames = {"cart_id", "product_id", "size"}),
+        indexes = @Index(name = "idx_cart_item_product", columnList = "product_id"))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class CartItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_item_seq")
+    @SequenceGenerator(name = "cart_item_seq", sequenceName = "cart_item_seq", allocationSize = 500)
     private Long id;
 
     @ManyToOne
@@ -15,7 +15,8 @@ import java.util.Set;
 @NoArgsConstructor
 public class Coupon {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "coupon_seq")
+    @SequenceGenerator(name = "coupon_seq", sequenceName = "coupon_seq", allocationSize = 100)
     private Long id;
     private String code;
     private double discountPercentage;
@@ -15,7 +15,13 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "orders")
+@Table(name = "orders", uniqueConstraints = @UniqueConstraint(name = "uk_orders_user_checkout_seller",
+        columnNames = {"user_id", "checkout_key", "seller_id"}),
+        // (owner, order_date, id) triples backing the keyset order history pages
+        indexes = {
+                @Index(name = "idx_orders_user_order_date", columnList = "user_id, order_date, id"),
+                @Index(name = "idx_orders_seller_order_date", columnList = "seller_id, order_date, id")
+        })
 public class Order {
 
     @Id
@@ -24,6 +30,9 @@ public class Order {
 
     private String orderId;
 
+    // idempotency key of the checkout that placed the order, shared by its per-seller orders
+    private String checkoutKey;
+
     @ManyToOne
     private User user;
 
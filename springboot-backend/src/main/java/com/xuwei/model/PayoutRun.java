@@ -0,0 +1,45 @@
+package com.xuwei.model;
+
+import com.xuwei.domain.PayoutRunStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One run of the payout batch and its checkpoint: the (seller, transaction)
+ * position it has paid up to, and the payout still open for that seller.
+ * Each chunk moves the checkpoint in the transaction that writes its
+ * payouts, so a run that stops resumes after the last chunk it committed.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayoutRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // transactions dated before this are paid by the run
+    private LocalDateTime cutoff;
+
+    private PayoutRunStatus status = PayoutRunStatus.RUNNING;
+
+    private long lastSellerId;
+
+    private long lastTransactionId;
+
+    private Long openPayoutId;
+
+    private long transactionsPaid;
+
+    private long payoutsCreated;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+}
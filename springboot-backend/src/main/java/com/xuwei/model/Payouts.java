@@ -22,7 +22,10 @@ public class Payouts {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // a transaction is linked to one payout at most, so it is never paid twice
     @OneToMany
+    @JoinTable(name = "payouts_transactions", joinColumns = @JoinColumn(name = "payouts_id"),
+            inverseJoinColumns = @JoinColumn(name = "transactions_id", unique = true))
     private List<Transaction> transactions = new ArrayList<>();
 
     @ManyToOne
@@ -11,22 +11,35 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+// (sort key, id) pairs backing the keyset listing pages
+@Table(indexes = {
+        @Index(name = "idx_product_selling_price_id", columnList = "selling_price, id"),
+        @Index(name = "idx_product_created_at_id", columnList = "created_at, id")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class Product {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 500)
     private Long id;
     private String title;
     private String description;
     private int mrpPrice;
     private int sellingPrice;
     private int discountPercent;
+    // stock moves only through InventoryService's conditional updates, never a stale entity write
+    @Column(updatable = false)
     private int quantity;
     private String color;
+    // cart adds and checkouts of the product go through the flash sale admission queue
+    private boolean flashSale;
 
+    // list position is stored so the first image, the product's thumbnail, stays first;
+    // rows from before the column existed are numbered by ProductImageOrderMigration
     @ElementCollection
+    @OrderColumn(name = "images_order")
     private List<String> images = new ArrayList<>();
     private int rating;
 
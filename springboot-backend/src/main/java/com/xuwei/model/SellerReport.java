@@ -3,6 +3,11 @@ package com.xuwei.model;
 import jakarta.persistence.*;
 import lombok.*;
 
+/**
+ * A seller's running totals, kept up to date by {@link com.xuwei.service.SellerReportService}
+ * as orders are placed, paid and cancelled, so the dashboard reads one row.
+ * Earnings are sales less refunds; net earnings are earnings less tax.
+ */
 @Entity
 @NoArgsConstructor
 @AllArgsConstructor
@@ -14,6 +19,7 @@ public class SellerReport {
     private Long id;
 
     @OneToOne
+    @JoinColumn(unique = true)
     private Seller seller;
 
     private Long totalEarnings = 0L;
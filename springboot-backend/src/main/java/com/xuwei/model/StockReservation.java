@@ -0,0 +1,40 @@
+package com.xuwei.model;
+
+import com.xuwei.domain.ReservationStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Units of one product held for an unpaid order. The units leave
+ * Product.quantity when the reservation is made; payment confirms them and
+ * expiry puts them back.
+ */
+@Entity
+// the expiry scan seeks on (status, expires_at); payment confirms by order
+@Table(indexes = {
+        @Index(name = "idx_stock_reservation_status_expires", columnList = "status, expires_at"),
+        @Index(name = "idx_stock_reservation_order", columnList = "order_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long orderId;
+
+    private Long productId;
+
+    private int quantity;
+
+    private ReservationStatus status = ReservationStatus.RESERVED;
+
+    private LocalDateTime expiresAt;
+}
@@ -9,6 +9,8 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Data
 @Entity
+// the payout batch walks a seller's transactions in id order
+@Table(indexes = @Index(name = "idx_transaction_seller", columnList = "seller_id, id"))
 public class Transaction {
 
     @Id
@@ -17,7 +17,8 @@ import java.util.Set;
 @NoArgsConstructor
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+    @SequenceGenerator(name = "user_seq", sequenceName = "user_seq", allocationSize = 100)
     private Long id;
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password;
@@ -28,6 +29,8 @@ public class User {
     @OneToMany
     private Set<Address> address = new HashSet<>();
     @ManyToMany
+    @JoinTable(name = "user_used_coupons", joinColumns = @JoinColumn(name = "used_by_users_id"),
+            inverseJoinColumns = @JoinColumn(name = "used_coupons_id"))
     @JsonIgnore
     private Set<Coupon> usedCoupons = new HashSet<>();
     @OneToOne(mappedBy = "user", cascade = CascadeType.ALL)
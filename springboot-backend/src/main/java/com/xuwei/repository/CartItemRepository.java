@@ -4,10 +4,23 @@ import com.xuwei.model.Cart;
 import com.xuwei.model.CartItem;
 import com.xuwei.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     CartItem findByCartAndProductAndSize(Cart cart, Product product, String size);
     List<CartItem> findByCart(Cart cart);
+
+    /**
+     * Items of a cart with everything the cart view renders: product images,
+     * the seller with its pickup address and the category chain. Fetched in
+     * one statement, and usable after the transaction ends.
+     */
+    @Query("SELECT i FROM CartItem i JOIN FETCH i.product p LEFT JOIN FETCH p.images " +
+            "LEFT JOIN FETCH p.seller s LEFT JOIN FETCH s.pickupAddress " +
+            "LEFT JOIN FETCH p.category c1 LEFT JOIN FETCH c1.parentCategory c2 LEFT JOIN FETCH c2.parentCategory " +
+            "WHERE i.cart.id = :cartId")
+    List<CartItem> findViewItemsByCartId(@Param("cartId") Long cartId);
 }
@@ -2,8 +2,51 @@ package com.xuwei.repository;
 
 import com.xuwei.model.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
     Cart findByUserId(Long userId);
 
+    /**
+     * The user's cart for the cart view, with the user and their addresses in the same statement.
+     */
+    @Query("SELECT c FROM Cart c JOIN FETCH c.user u LEFT JOIN FETCH u.address WHERE u.id = :userId")
+    Cart findViewByUserId(@Param("userId") Long userId);
+
+    String ITEM_SUMS = "COALESCE(SUM(i.mrpPrice), 0) AS mrpPrice, " +
+            "COALESCE(SUM(i.sellingPrice), 0) AS sellingPrice, " +
+            "COALESCE(SUM(i.quantity), 0) AS quantity ";
+
+    /**
+     * Carts in the id range (fromId, toId] whose stored totals differ from the
+     * sum of their items, with the sums the totals should have.
+     */
+    @Query("SELECT c.id AS cartId, " + ITEM_SUMS +
+            "FROM Cart c LEFT JOIN c.cartItems i " +
+            "WHERE c.id > :fromId AND c.id <= :toId " +
+            "GROUP BY c.id, c.totalMrpPrice, c.totalSellingPrice, c.totalItems " +
+            "HAVING c.totalMrpPrice <> COALESCE(SUM(i.mrpPrice), 0) " +
+            "OR c.totalSellingPrice <> COALESCE(SUM(i.sellingPrice), 0) " +
+            "OR c.totalItems <> COALESCE(SUM(i.quantity), 0)")
+    List<CartTotals> findDriftedTotals(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Query("SELECT c.id AS cartId, " + ITEM_SUMS +
+            "FROM Cart c LEFT JOIN c.cartItems i WHERE c.id = :cartId GROUP BY c.id")
+    CartTotals sumItemTotals(@Param("cartId") Long cartId);
+
+    @Query("SELECT MAX(c.id) FROM Cart c")
+    Long findMaxId();
+
+    interface CartTotals {
+        Long getCartId();
+
+        Long getMrpPrice();
+
+        Long getSellingPrice();
+
+        Long getQuantity();
+    }
 }
@@ -0,0 +1,29 @@
+package com.xuwei.repository;
+
+import com.xuwei.model.Coupon;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface CouponRepository extends JpaRepository<Coupon, Long> {
+
+    @Query("SELECT c FROM Coupon c WHERE c.isActive = true")
+    List<Coupon> findActive();
+
+    /**
+     * Ids of the users who redeemed the coupon, without loading the users.
+     */
+    @Query("SELECT u.id FROM User u JOIN u.usedCoupons c WHERE c.id = :couponId")
+    List<Long> findRedeemingUserIds(@Param("couponId") Long couponId);
+
+    /**
+     * Records one redemption; the join table's key rejects a second one by the same user.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_used_coupons (used_by_users_id, used_coupons_id) VALUES (:userId, :couponId)",
+            nativeQuery = true)
+    void insertRedemption(@Param("couponId") Long couponId, @Param("userId") Long userId);
+}
@@ -0,0 +1,50 @@
+package com.xuwei.repository;
+
+import com.xuwei.dto.OrderSummaryDTO;
+import com.xuwei.model.Order;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    String SUMMARY_SELECT = "SELECT new com.xuwei.dto.OrderSummaryDTO(" +
+            "o.id, o.orderId, o.sellerId, o.orderDate, o.orderStatus, o.paymentStatus, o.totalMrpPrice, " +
+            "o.totalSellingPrice, o.discount, o.totalItem, " +
+            // MIN keeps the subquery to one row even if a product's positions ever repeat
+            "(SELECT MIN(img) FROM OrderItem i JOIN i.product p JOIN p.images img WHERE INDEX(img) = 0 AND i.id = " +
+            "(SELECT MIN(i2.id) FROM OrderItem i2 WHERE i2.order = o))) " +
+            "FROM Order o ";
+
+    // seeks on the (owner, order_date, id) index, newest first
+    String BEFORE_POSITION = "AND (o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id)) " +
+            "ORDER BY o.orderDate DESC, o.id DESC";
+
+    @Query(SUMMARY_SELECT + "WHERE o.user.id = :userId " + BEFORE_POSITION)
+    Slice<OrderSummaryDTO> findUserSummaries(@Param("userId") Long userId,
+                                             @Param("orderDate") LocalDateTime orderDate,
+                                             @Param("id") Long id, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE o.sellerId = :sellerId " + BEFORE_POSITION)
+    Slice<OrderSummaryDTO> findSellerSummaries(@Param("sellerId") Long sellerId,
+                                               @Param("orderDate") LocalDateTime orderDate,
+                                               @Param("id") Long id, Pageable pageable);
+
+    /**
+     * The orders one checkout placed, with their items and products, in one statement.
+     */
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderItems i LEFT JOIN FETCH i.product " +
+            "LEFT JOIN FETCH o.shippingAddress " +
+            "WHERE o.user.id = :userId AND o.checkoutKey = :checkoutKey ORDER BY o.id")
+    List<Order> findCheckout(@Param("userId") Long userId, @Param("checkoutKey") String checkoutKey);
+
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderItems i LEFT JOIN FETCH i.product " +
+            "LEFT JOIN FETCH o.shippingAddress WHERE o.id = :id")
+    Optional<Order> findWithItemsById(@Param("id") Long id);
+}
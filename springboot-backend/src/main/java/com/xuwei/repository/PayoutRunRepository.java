@@ -0,0 +1,11 @@
+package com.xuwei.repository;
+
+import com.xuwei.domain.PayoutRunStatus;
+import com.xuwei.model.PayoutRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface PayoutRunRepository extends JpaRepository<PayoutRun, Long> {
+    Optional<PayoutRun> findFirstByStatusOrderByIdAsc(PayoutRunStatus status);
+}
@@ -1,25 +1,179 @@
 package com.xuwei.repository;
 
+import com.xuwei.dto.ProductSummaryDTO;
 import com.xuwei.model.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ProductRepository extends JpaRepository<Product,
         Long>, JpaSpecificationExecutor<Product> {
-    List<Product> findBySellerId(Long shopId);
 
+    String SUMMARY_SELECT = "SELECT new com.xuwei.dto.ProductSummaryDTO(" +
+            "p.id, p.title, p.mrpPrice, p.sellingPrice, p.discountPercent, p.color, " +
+            "(SELECT MIN(img) FROM Product p2 JOIN p2.images img WHERE p2.id = p.id AND INDEX(img) = 0), " +
+            "p.rating, p.sizes, c.categoryId, p.seller.id) " +
+            "FROM Product p LEFT JOIN p.category c ";
 
-    @Query("SELECT p FROM Product p WHERE (:query IS NULL OR LOWER" +
-            "(p.title) " +
+    String SEARCH_PREDICATE = "((:query IS NULL OR LOWER(p.title) " +
+            "LIKE LOWER(CONCAT('%', :query, '%'))) " +
+            "OR (:query IS NULL OR LOWER(c.name) " +
             "LIKE LOWER(CONCAT('%', :query, '%'))) " +
-            "OR (:query IS NULL OR LOWER(p.category.name) " +
-            "LIKE LOWER(CONCAT('%', :query, '%')))" +
-            "OR (:query IS NULL OR LOWER(p.category.categoryId) " +
-            "LIKE LOWER(CONCAT('%', :query, '%')))"
-    )
-    List<Product> searchProducts(@Param("query") String query);
+            "OR (:query IS NULL OR LOWER(c.categoryId) " +
+            "LIKE LOWER(CONCAT('%', :query, '%')))) ";
+
+    // rows per round trip of a forward-only cursor; MySQL needs useCursorFetch (see JpaConfig)
+    String STREAMING_FETCH_SIZE = "1000";
+
+    List<Product> findBySellerId(Long shopId);
+
+    Page<Product> findBySellerId(Long sellerId, Pageable pageable);
+
+    Slice<Product> findByIdGreaterThan(Long id, Pageable pageable);
+
+    // images fetched up front so the product stays usable once detached in the product cache
+    @EntityGraph(attributePaths = "images")
+    Optional<Product> findWithImagesById(Long id);
+
+    /**
+     * Products for new cart lines, with what the cart view renders of them, in one statement.
+     */
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.images " +
+            "LEFT JOIN FETCH p.seller s LEFT JOIN FETCH s.pickupAddress " +
+            "LEFT JOIN FETCH p.category c1 LEFT JOIN FETCH c1.parentCategory c2 LEFT JOIN FETCH c2.parentCategory " +
+            "WHERE p.id IN :ids")
+    List<Product> findForCartByIdIn(@Param("ids") Collection<Long> ids);
+
+
+    /**
+     * Keyset page of search matches ordered by id; pass afterId = 0 for the first page.
+     */
+    @Query(SUMMARY_SELECT + "WHERE " + SEARCH_PREDICATE + "AND p.id > :afterId ORDER BY p.id")
+    Slice<ProductSummaryDTO> searchSummaries(@Param("query") String query,
+                                             @Param("afterId") Long afterId,
+                                             Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE " + SEARCH_PREDICATE + "ORDER BY p.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<ProductSummaryDTO> streamSearchSummaries(@Param("query") String query);
+
+    @Query(SUMMARY_SELECT + "WHERE p.id IN :ids")
+    List<ProductSummaryDTO> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Everything the product page needs in one statement: one row per image
+     * in list order (or a single row without images), with the category chain, seller
+     * summary and rating aggregate repeated on each row.
+     */
+    @Query("SELECT p.id AS id, p.title AS title, p.description AS description, " +
+            "p.mrpPrice AS mrpPrice, p.sellingPrice AS sellingPrice, " +
+            "p.discountPercent AS discountPercent, p.quantity AS quantity, " +
+            "p.color AS color, p.sizes AS sizes, p.createdAt AS createdAt, img AS image, " +
+            "c1.id AS categoryDbId, c1.categoryId AS categoryId, c1.name AS categoryName, c1.level AS categoryLevel, " +
+            "c2.id AS parentDbId, c2.categoryId AS parentCategoryId, c2.name AS parentName, c2.level AS parentLevel, " +
+            "c3.id AS rootDbId, c3.categoryId AS rootCategoryId, c3.name AS rootName, c3.level AS rootLevel, " +
+            "s.id AS sellerId, s.sellerName AS sellerName, " +
+            "s.businessDetails.businessName AS businessName, s.businessDetails.logo AS logo, " +
+            "(SELECT AVG(r.rating) FROM Review r WHERE r.product.id = p.id) AS averageRating, " +
+            "(SELECT COUNT(r) FROM Review r WHERE r.product.id = p.id) AS reviewCount " +
+            "FROM Product p LEFT JOIN p.images img " +
+            "LEFT JOIN p.category c1 LEFT JOIN c1.parentCategory c2 LEFT JOIN c2.parentCategory c3 " +
+            "LEFT JOIN p.seller s " +
+            "WHERE p.id = :id ORDER BY INDEX(img)")
+    List<ProductDetailRow> findDetailRowsById(@Param("id") Long id);
+
+    /**
+     * A seller's catalog for export: one row per image, ordered by product id
+     * and image position so the rows of a product arrive together. Only scalar columns are read,
+     * so nothing accumulates in the persistence context and no lazy load has
+     * to run while the streaming result set is open.
+     */
+    @Query("SELECT p.id AS id, p.title AS title, p.description AS description, " +
+            "p.mrpPrice AS mrpPrice, p.sellingPrice AS sellingPrice, " +
+            "p.discountPercent AS discountPercent, p.quantity AS quantity, " +
+            "p.color AS color, p.sizes AS sizes, p.createdAt AS createdAt, img AS image, " +
+            "c3.name AS category, c2.name AS subCategory, c1.name AS subSubCategory " +
+            "FROM Product p LEFT JOIN p.images img " +
+            "LEFT JOIN p.category c1 LEFT JOIN c1.parentCategory c2 LEFT JOIN c2.parentCategory c3 " +
+            "WHERE p.seller.id = :sellerId ORDER BY p.id, INDEX(img)")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<ProductExportRow> streamExportRowsBySellerId(@Param("sellerId") Long sellerId);
+
+    interface ProductExportRow {
+        Long getId();
+        String getTitle();
+        String getDescription();
+        int getMrpPrice();
+        int getSellingPrice();
+        int getDiscountPercent();
+        int getQuantity();
+        String getColor();
+        String getSizes();
+        LocalDateTime getCreatedAt();
+        String getImage();
+        String getCategory();
+        String getSubCategory();
+        String getSubSubCategory();
+    }
+
+    @Query("SELECT oi.product.id AS productId, SUM(oi.quantity) AS units " +
+            "FROM OrderItem oi WHERE oi.product IS NOT NULL GROUP BY oi.product.id")
+    List<ProductUnits> sumUnitsOrderedByProduct();
+
+    interface ProductUnits {
+        Long getProductId();
+        Long getUnits();
+    }
+
+    interface ProductDetailRow {
+        Long getId();
+        String getTitle();
+        String getDescription();
+        int getMrpPrice();
+        int getSellingPrice();
+        int getDiscountPercent();
+        int getQuantity();
+        String getColor();
+        String getSizes();
+        LocalDateTime getCreatedAt();
+        String getImage();
+        Long getCategoryDbId();
+        String getCategoryId();
+        String getCategoryName();
+        Integer getCategoryLevel();
+        Long getParentDbId();
+        String getParentCategoryId();
+        String getParentName();
+        Integer getParentLevel();
+        Long getRootDbId();
+        String getRootCategoryId();
+        String getRootName();
+        Integer getRootLevel();
+        Long getSellerId();
+        String getSellerName();
+        String getBusinessName();
+        String getLogo();
+        Double getAverageRating();
+        Long getReviewCount();
+    }
 }
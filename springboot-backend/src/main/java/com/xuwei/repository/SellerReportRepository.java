@@ -0,0 +1,25 @@
+package com.xuwei.repository;
+
+import com.xuwei.model.SellerReport;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public interface SellerReportRepository extends JpaRepository<SellerReport, Long> {
+
+    /**
+     * The seller's report with the seller and their pickup address, in one statement.
+     */
+    @Query("SELECT r FROM SellerReport r JOIN FETCH r.seller s LEFT JOIN FETCH s.pickupAddress "
+            + "WHERE s.id = :sellerId")
+    Optional<SellerReport> findBySellerId(@Param("sellerId") Long sellerId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM SellerReport r WHERE r.seller.id = :sellerId")
+    void deleteBySellerId(@Param("sellerId") Long sellerId);
+}
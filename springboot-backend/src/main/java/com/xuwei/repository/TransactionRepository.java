@@ -0,0 +1,7 @@
+package com.xuwei.repository;
+
+import com.xuwei.model.Transaction;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+}
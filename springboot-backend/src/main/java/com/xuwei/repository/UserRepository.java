@@ -2,7 +2,12 @@ package com.xuwei.repository;
 
 import com.xuwei.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface UserRepository extends JpaRepository<User,Long> {
     User findByEmail(String email);
+
+    @Query("SELECT COUNT(a) > 0 FROM User u JOIN u.address a WHERE u.id = :userId AND a.id = :addressId")
+    boolean hasAddress(@Param("userId") Long userId, @Param("addressId") Long addressId);
 }
@@ -0,0 +1,34 @@
+package com.xuwei.request;
+
+import com.xuwei.domain.CartOperationType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Several cart changes applied together, in order, by POST /api/carts/batch.
+ */
+@Data
+public class CartBatchRequest {
+    private List<Operation> operations = new ArrayList<>();
+
+    /**
+     * ADD uses productId, size and quantity, adding to the line of that product
+     * and size. UPDATE uses cartItemId with a new quantity, a new size, or both;
+     * moving a line onto a size the cart already holds merges the two. REMOVE
+     * uses cartItemId.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Operation {
+        private CartOperationType type;
+        private Long productId;
+        private Long cartItemId;
+        private String size;
+        private Integer quantity;
+    }
+}
@@ -0,0 +1,8 @@
+package com.xuwei.request;
+
+import lombok.Data;
+
+@Data
+public class CheckoutRequest {
+    private Long addressId;
+}
@@ -13,10 +13,13 @@ public class CreateProductRequest {
     private String description;
     private int mrpPrice;
     private int sellingPrice;
+    // initial stock; later changes go through the stock endpoint
+    private int quantity;
     private String color;
     private List<String> images;
     private String category;
     private String subCategory;
     private String subSubCategory;
     private String sizes;
+    private boolean flashSale;
 }
@@ -0,0 +1,24 @@
+package com.xuwei.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of results that can be continued either by page number or by
+ * passing nextCursor back. total is only set when it is known without an
+ * extra count query.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResponse<T> {
+    private List<T> content;
+    private Integer page;
+    private int size;
+    private Long total;
+    private String nextCursor;
+    private boolean hasNext;
+}
@@ -2,15 +2,20 @@ package com.xuwei.service;
 
 import com.xuwei.dto.CartItemResponseDTO;
 import com.xuwei.dto.CartResponseDTO;
+import com.xuwei.exception.CartItemException;
 import com.xuwei.exception.ProductException;
 import com.xuwei.model.Cart;
 import com.xuwei.model.CartItem;
 import com.xuwei.model.User;
 import com.xuwei.model.Product;
+import com.xuwei.request.CartBatchRequest;
+
+import java.util.List;
 
 public interface CartService {
     Cart findUserCart(User user);
     CartResponseDTO findUserCartWithDetails(User user);
     CartItem addCartItem(User user, Product product, String size, int quantity) throws ProductException;
     CartItemResponseDTO addCartItemWithDetails(User user, Product product, String size, int quantity) throws ProductException;
+    CartResponseDTO applyCartBatch(User user, List<CartBatchRequest.Operation> operations) throws ProductException, CartItemException;
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.xuwei.service;
+
+import com.xuwei.dto.CartResponseDTO;
+import com.xuwei.exception.CouponNotValidException;
+import com.xuwei.model.User;
+
+public interface CouponService {
+    CartResponseDTO applyCoupon(User user, String code) throws CouponNotValidException;
+    CartResponseDTO removeCoupon(User user);
+    int couponDiscount(Long userId, String code, double orderValue);
+    void redeemCoupon(Long userId, String code, double orderValue) throws CouponNotValidException;
+}
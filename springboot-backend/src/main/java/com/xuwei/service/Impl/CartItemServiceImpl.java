@@ -1,5 +1,6 @@
 package com.xuwei.service.Impl;
 
+import com.xuwei.cart.HotCartStore;
 import com.xuwei.converter.CartItemConverter;
 import com.xuwei.dto.CartItemResponseDTO;
 import com.xuwei.exception.CartItemException;
@@ -18,28 +19,46 @@ import java.util.Optional;
 public class CartItemServiceImpl implements CartItemService {
     private final CartItemRepository cartItemRepository;
     private final CartItemConverter cartItemConverter;
+    private final HotCartStore hotCartStore;
 
     @Override
     @Transactional
     public CartItemResponseDTO updateCartItem(Long userId, Long id, CartItem cartItem) throws CartItemException {
+        if (hotCartStore.isEnabled()) {
+            // only the user's own cart is searched, so another user's item is simply not found
+            CartItem updatedItem = hotCartStore.updateQuantity(userId, id, cartItem.getQuantity());
+            return cartItemConverter.convertToCartItemResponseDTO(updatedItem);
+        }
         CartItem item = findCartItemById(id);
         User cartItemUser = item.getCart().getUser();
         if (cartItemUser.getId().equals(userId)) {
+            int oldQuantity = item.getQuantity();
+            int oldMrpPrice = CartServiceImpl.amount(item.getMrpPrice());
+            int oldSellingPrice = CartServiceImpl.amount(item.getSellingPrice());
             item.setQuantity(cartItem.getQuantity());
             item.setMrpPrice(item.getQuantity() * item.getProduct().getMrpPrice());
             item.setSellingPrice(item.getQuantity() * item.getProduct().getSellingPrice());
             CartItem updatedItem = cartItemRepository.save(item);
+            CartServiceImpl.applyTotalsDelta(item.getCart(), updatedItem.getMrpPrice() - oldMrpPrice,
+                    updatedItem.getSellingPrice() - oldSellingPrice, updatedItem.getQuantity() - oldQuantity);
             return cartItemConverter.convertToCartItemResponseDTO(updatedItem);
         }
         throw new CartItemException("you can't update this item");
     }
 
     @Override
+    @Transactional
     public void deleteCartItem(Long userId, Long cartItemId) throws CartItemException, UserException {
+        if (hotCartStore.isEnabled()) {
+            hotCartStore.removeItem(userId, cartItemId);
+            return;
+        }
         CartItem cartItem = findCartItemById(cartItemId);
         User cartItemUser = cartItem.getCart().getUser();
         if (cartItemUser.getId().equals(userId)) {
-            cartItemRepository.deleteById(cartItem.getId());
+            CartServiceImpl.applyTotalsDelta(cartItem.getCart(), -CartServiceImpl.amount(cartItem.getMrpPrice()),
+                    -CartServiceImpl.amount(cartItem.getSellingPrice()), -cartItem.getQuantity());
+            cartItemRepository.delete(cartItem);
             return;
         }
         throw new UserException("you can't delete this item");
@@ -1,20 +1,25 @@
 package com.xuwei.service.Impl;
 
+import com.xuwei.cart.CartWriteLocks;
+import com.xuwei.cart.HotCartStore;
 import com.xuwei.converter.CartConverter;
 import com.xuwei.converter.CartItemConverter;
+import com.xuwei.domain.CartOperationType;
 import com.xuwei.dto.CartItemResponseDTO;
 import com.xuwei.dto.CartResponseDTO;
+import com.xuwei.exception.CartItemException;
 import com.xuwei.exception.ProductException;
 import com.xuwei.model.*;
 import com.xuwei.repository.CartItemRepository;
 import com.xuwei.repository.CartRepository;
+import com.xuwei.repository.ProductRepository;
+import com.xuwei.request.CartBatchRequest;
 import com.xuwei.service.CartService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Collectors;
 
 
@@ -24,32 +29,39 @@ public class CartServiceImpl implements CartService {
 
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
+    private final ProductRepository productRepository;
     private final CartItemConverter cartItemConverter;
     private final CartConverter cartConverter;
+    private final HotCartStore hotCartStore;
+    private final CartWriteLocks cartWriteLocks;
 
     @Override
+    @Transactional(readOnly = true)
     public Cart findUserCart(User user) {
-        Cart cart = cartRepository.findByUserId(user.getId());
-        updateCartTotals(cart);
-        return cart;
+        if (hotCartStore.isEnabled()) {
+            return hotCartStore.findCart(user.getId());
+        }
+        return cartRepository.findByUserId(user.getId());
     }
 
     @Override
     @Transactional(readOnly = true)
     public CartResponseDTO findUserCartWithDetails(User user) {
-        Cart cart = cartRepository.findByUserId(user.getId());
+        Cart cart = hotCartStore.isEnabled()
+                ? hotCartStore.findCart(user.getId())
+                : cartRepository.findViewByUserId(user.getId());
 
         if (cart == null) {
-
+            // nothing to show yet; the cart row is created by the first add
             cart = new Cart();
             cart.setUser(user);
-            cart = cartRepository.save(cart);
+            return cartConverter.convertToCartResponseDTO(cart, Set.of());
         }
 
-        updateCartTotals(cart);
-
-
-        List<CartItem> cartItems = cartItemRepository.findByCart(cart);
+        // one statement for all items, whatever the converter walks on each of them
+        Collection<CartItem> cartItems = hotCartStore.isEnabled()
+                ? cart.getCartItems()
+                : cartItemRepository.findViewItemsByCartId(cart.getId());
         Set<CartItemResponseDTO> cartItemDTOs = cartItems.stream()
                 .map(cartItemConverter::convertToCartItemResponseDTO)
                 .collect(Collectors.toSet());
@@ -68,8 +80,101 @@ public class CartServiceImpl implements CartService {
     }
 
     @Override
-    @Transactional
     public CartItem addCartItem(User user, Product product, String size, int quantity) throws ProductException {
+        if (hotCartStore.isEnabled()) {
+            return hotCartStore.addItem(user, product, size, quantity);
+        }
+        return cartWriteLocks.write(user.getId(), () -> addToCart(user, product, size, quantity));
+    }
+
+    @Override
+    public CartItemResponseDTO addCartItemWithDetails(User user, Product product, String size, int quantity) throws ProductException {
+        CartItem cartItem = addCartItem(user, product, size, quantity);
+        return cartItemConverter.convertToCartItemResponseDTO(cartItem);
+    }
+
+    @Override
+    public CartResponseDTO applyCartBatch(User user, List<CartBatchRequest.Operation> operations)
+            throws ProductException, CartItemException {
+        Map<Long, Product> products = findBatchProducts(operations);
+
+        if (hotCartStore.isEnabled()) {
+            hotCartStore.applyBatch(user, operations, products);
+            return findUserCartWithDetails(user);
+        }
+        return cartWriteLocks.write(user.getId(), () -> applyToCart(user, operations, products));
+    }
+
+    /**
+     *  Utility method: Check a cart batch against the cart's lines (id to size)
+     *  before anything is applied, so a rejected batch changes nothing. A line
+     *  removed or moved to another size can not be named again later in the batch.
+     */
+    public static void validateCartBatch(Map<Long, String> lineSizes, List<CartBatchRequest.Operation> operations)
+            throws CartItemException {
+        if (operations == null || operations.isEmpty()) {
+            throw new CartItemException("cart batch has no operations");
+        }
+        Map<Long, String> lines = new HashMap<>(lineSizes);
+        for (CartBatchRequest.Operation operation : operations) {
+            if (operation.getType() == null) {
+                throw new CartItemException("cart operation type is required");
+            }
+            if (operation.getQuantity() != null && operation.getQuantity() <= 0) {
+                throw new CartItemException("quantity must be positive");
+            }
+            switch (operation.getType()) {
+                case ADD -> {
+                    if (operation.getProductId() == null || operation.getQuantity() == null) {
+                        throw new CartItemException("add needs a productId and a quantity");
+                    }
+                }
+                case UPDATE -> {
+                    String size = requireLine(lines, operation.getCartItemId());
+                    if (operation.getQuantity() == null && operation.getSize() == null) {
+                        throw new CartItemException("update needs a quantity or a size");
+                    }
+                    if (isResize(size, operation.getSize())) {
+                        // it may merge into another line of the product, so its id is not reliable any more
+                        lines.remove(operation.getCartItemId());
+                    }
+                }
+                case REMOVE -> {
+                    requireLine(lines, operation.getCartItemId());
+                    lines.remove(operation.getCartItemId());
+                }
+            }
+        }
+    }
+
+    /**
+     *  Utility method: Fold one item's change into the cart's running totals.
+     *  The cart must be managed; its version is checked when the change is flushed.
+     */
+    public static void applyTotalsDelta(Cart cart, int mrpPriceDelta, int sellingPriceDelta, int quantityDelta) {
+        int totalMrpPrice = cart.getTotalMrpPrice() + mrpPriceDelta;
+        double totalSellingPrice = cart.getTotalSellingPrice() + sellingPriceDelta;
+        cart.setTotalMrpPrice(totalMrpPrice);
+        cart.setTotalSellingPrice(totalSellingPrice);
+        cart.setTotalItems(cart.getTotalItems() + quantityDelta);
+        cart.setDiscountedPrice(calculateDiscountPercentage(totalMrpPrice, totalSellingPrice));
+    }
+
+    /**
+     *  Utility method: Item price totals may be null on rows written before they were tracked.
+     */
+    public static int amount(Integer price) {
+        return price == null ? 0 : price;
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    /**
+     * Check-then-insert of the line; run under the user's write lock. A line
+     * inserted meanwhile by another instance fails the unique constraint, and
+     * the retry finds it and takes the update branch.
+     */
+    private CartItem addToCart(User user, Product product, String size, int quantity) {
         Cart cart = cartRepository.findByUserId(user.getId());
 
         if (cart == null) {
@@ -93,45 +198,150 @@ public class CartServiceImpl implements CartService {
             cartItem.setCart(cart);
 
             CartItem savedItem = cartItemRepository.save(cartItem);
-            updateCartTotals(cart);
+            applyTotalsDelta(cart, savedItem.getMrpPrice(), savedItem.getSellingPrice(), quantity);
             return savedItem;
         } else {
+            int oldMrpPrice = amount(isPresent.getMrpPrice());
+            int oldSellingPrice = amount(isPresent.getSellingPrice());
             isPresent.setQuantity(isPresent.getQuantity() + quantity);
             isPresent.setMrpPrice(isPresent.getQuantity() * product.getMrpPrice());
             isPresent.setSellingPrice(isPresent.getQuantity() * product.getSellingPrice());
 
             CartItem updatedItem = cartItemRepository.save(isPresent);
-            updateCartTotals(cart);
+            applyTotalsDelta(cart, updatedItem.getMrpPrice() - oldMrpPrice,
+                    updatedItem.getSellingPrice() - oldSellingPrice, quantity);
             return updatedItem;
         }
     }
 
-    @Override
-    @Transactional
-    public CartItemResponseDTO addCartItemWithDetails(User user, Product product, String size, int quantity) throws ProductException {
-        CartItem cartItem = addCartItem(user, product, size, quantity);
-        return cartItemConverter.convertToCartItemResponseDTO(cartItem);
+    private CartResponseDTO applyToCart(User user, List<CartBatchRequest.Operation> operations,
+                                        Map<Long, Product> products) throws CartItemException {
+        Cart cart = cartRepository.findViewByUserId(user.getId());
+        if (cart == null) {
+            cart = new Cart();
+            cart.setUser(user);
+            cart = cartRepository.save(cart);
+        }
+        List<CartItem> lines = new ArrayList<>(cartItemRepository.findViewItemsByCartId(cart.getId()));
+        Map<Long, String> lineSizes = new HashMap<>();
+        lines.forEach(line -> lineSizes.put(line.getId(), line.getSize()));
+        validateCartBatch(lineSizes, operations);
+
+        for (CartBatchRequest.Operation operation : operations) {
+            switch (operation.getType()) {
+                case ADD -> {
+                    Product product = products.get(operation.getProductId());
+                    CartItem line = findLine(lines, product.getId(), operation.getSize());
+                    if (line == null) {
+                        line = new CartItem();
+                        line.setCart(cart);
+                        line.setProduct(product);
+                        line.setSize(operation.getSize());
+                        line.setUserId(user.getId());
+                        lines.add(line);
+                    }
+                    setLineQuantity(line, line.getQuantity() + operation.getQuantity());
+                    cartItemRepository.save(line);
+                }
+                case UPDATE -> {
+                    CartItem line = findLine(lines, operation.getCartItemId());
+                    int quantity = operation.getQuantity() != null ? operation.getQuantity() : line.getQuantity();
+                    CartItem target = isResize(line.getSize(), operation.getSize())
+                            ? findLine(lines, line.getProduct().getId(), operation.getSize()) : null;
+                    if (target != null) {
+                        removeLine(lines, line);
+                        setLineQuantity(target, target.getQuantity() + quantity);
+                    } else {
+                        if (operation.getSize() != null) {
+                            line.setSize(operation.getSize());
+                        }
+                        setLineQuantity(line, quantity);
+                    }
+                }
+                case REMOVE -> removeLine(lines, findLine(lines, operation.getCartItemId()));
+            }
+        }
+
+        // totals summed once over the resulting lines instead of a delta per operation
+        int totalMrpPrice = 0;
+        int totalSellingPrice = 0;
+        int totalItems = 0;
+        for (CartItem line : lines) {
+            totalMrpPrice += amount(line.getMrpPrice());
+            totalSellingPrice += amount(line.getSellingPrice());
+            totalItems += line.getQuantity();
+        }
+        cart.setTotalMrpPrice(totalMrpPrice);
+        cart.setTotalSellingPrice(totalSellingPrice);
+        cart.setTotalItems(totalItems);
+        cart.setDiscountedPrice(calculateDiscountPercentage(totalMrpPrice, totalSellingPrice));
+
+        Set<CartItemResponseDTO> cartItemDTOs = lines.stream()
+                .map(cartItemConverter::convertToCartItemResponseDTO)
+                .collect(Collectors.toSet());
+        return cartConverter.convertToCartResponseDTO(cart, cartItemDTOs);
     }
 
-    private void updateCartTotals(Cart cart) {
-        List<CartItem> cartItems = cartItemRepository.findByCart(cart);
+    private static void setLineQuantity(CartItem line, int quantity) {
+        line.setQuantity(quantity);
+        line.setMrpPrice(quantity * line.getProduct().getMrpPrice());
+        line.setSellingPrice(quantity * line.getProduct().getSellingPrice());
+    }
 
-        int totalPrice = 0;
-        int totalDiscountedPrice = 0;
-        int totalItemCount = 0;
+    /**
+     * Deletes right away: Hibernate orders deletes after inserts and updates,
+     * so a later line taking this one's size would otherwise hit the unique
+     * (cart, product, size) constraint.
+     */
+    private void removeLine(List<CartItem> lines, CartItem line) {
+        lines.remove(line);
+        cartItemRepository.delete(line);
+        cartItemRepository.flush();
+    }
 
-        for (CartItem cartItem : cartItems) {
-            totalPrice += cartItem.getMrpPrice();
-            totalDiscountedPrice += cartItem.getSellingPrice();
-            totalItemCount += cartItem.getQuantity();
+    private Map<Long, Product> findBatchProducts(List<CartBatchRequest.Operation> operations) throws ProductException {
+        Set<Long> productIds = new HashSet<>();
+        for (CartBatchRequest.Operation operation : operations == null ? List.<CartBatchRequest.Operation>of() : operations) {
+            if (operation.getType() == CartOperationType.ADD && operation.getProductId() != null) {
+                productIds.add(operation.getProductId());
+            }
         }
+        Map<Long, Product> products = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            productRepository.findForCartByIdIn(productIds).forEach(product -> products.put(product.getId(), product));
+        }
+        if (products.size() < productIds.size()) {
+            throw new ProductException("Product not found");
+        }
+        return products;
+    }
 
-        cart.setTotalMrpPrice(totalPrice);
-        cart.setTotalItems(cartItems.size());
-        cart.setTotalSellingPrice(totalDiscountedPrice);
-        cart.setDiscountedPrice(calculateDiscountPercentage(totalPrice, totalDiscountedPrice));
-        cart.setTotalItems(totalItemCount);
+    private static String requireLine(Map<Long, String> lines, Long cartItemId) throws CartItemException {
+        if (cartItemId == null || !lines.containsKey(cartItemId)) {
+            throw new CartItemException("cartItem not found with id : " + cartItemId);
+        }
+        return lines.get(cartItemId);
+    }
+
+    private static boolean isResize(String currentSize, String newSize) {
+        return newSize != null && !newSize.equals(currentSize);
+    }
 
-        cartRepository.save(cart);
+    private static CartItem findLine(List<CartItem> lines, Long productId, String size) {
+        for (CartItem line : lines) {
+            if (line.getProduct().getId().equals(productId) && Objects.equals(line.getSize(), size)) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    private static CartItem findLine(List<CartItem> lines, Long cartItemId) {
+        for (CartItem line : lines) {
+            if (cartItemId.equals(line.getId())) {
+                return line;
+            }
+        }
+        throw new IllegalStateException("cart batch was validated against another cart state");
     }
-}
\ No newline at end of file
+}
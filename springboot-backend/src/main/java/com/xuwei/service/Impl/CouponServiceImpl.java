@@ -0,0 +1,126 @@
+package com.xuwei.service.Impl;
+
+import com.xuwei.cache.CouponCache;
+import com.xuwei.cart.CartWriteLocks;
+import com.xuwei.cart.HotCartStore;
+import com.xuwei.dto.CartResponseDTO;
+import com.xuwei.exception.CouponNotValidException;
+import com.xuwei.model.Cart;
+import com.xuwei.model.User;
+import com.xuwei.repository.CartRepository;
+import com.xuwei.repository.CouponRepository;
+import com.xuwei.service.CartService;
+import com.xuwei.service.CouponService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Service
+@RequiredArgsConstructor
+public class CouponServiceImpl implements CouponService {
+
+    private final CouponCache couponCache;
+    private final CouponRepository couponRepository;
+    private final CartRepository cartRepository;
+    private final CartService cartService;
+    private final HotCartStore hotCartStore;
+    private final CartWriteLocks cartWriteLocks;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public CartResponseDTO applyCoupon(User user, String code) throws CouponNotValidException {
+        Cart cart = cartService.findUserCart(user);
+        if (cart == null || cart.getTotalItems() == 0) {
+            throw new CouponNotValidException("Cart is empty");
+        }
+        CouponCache.ActiveCoupon coupon = validate(user.getId(), code, cart.getTotalSellingPrice());
+        setCouponCode(user, coupon.code());
+        return findCartWithDiscount(user);
+    }
+
+    @Override
+    public CartResponseDTO removeCoupon(User user) {
+        if (cartService.findUserCart(user) != null) {
+            setCouponCode(user, null);
+        }
+        return findCartWithDiscount(user);
+    }
+
+    /**
+     * Discount the coupon gives on the order value, or 0 when it does not
+     * apply (unknown, expired, already redeemed or below its minimum).
+     */
+    @Override
+    public int couponDiscount(Long userId, String code, double orderValue) {
+        try {
+            return validate(userId, code, orderValue).discountFor(orderValue);
+        } catch (CouponNotValidException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Marks the coupon as used by the user, once per user.
+     */
+    @Override
+    public void redeemCoupon(Long userId, String code, double orderValue) throws CouponNotValidException {
+        CouponCache.ActiveCoupon coupon = validate(userId, code, orderValue);
+        try {
+            transactionTemplate.executeWithoutResult(
+                    status -> couponRepository.insertRedemption(coupon.id(), userId));
+        } catch (DataIntegrityViolationException e) {
+            // redeemed on another instance since this one loaded the coupon's users
+            throw new CouponNotValidException("Coupon already used");
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // inside a checkout: the redemption only counts once the orders commit
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    couponCache.recordRedemption(coupon, userId);
+                }
+            });
+        } else {
+            couponCache.recordRedemption(coupon, userId);
+        }
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private CouponCache.ActiveCoupon validate(Long userId, String code, double orderValue)
+            throws CouponNotValidException {
+        CouponCache.ActiveCoupon coupon = couponCache.find(code);
+        if (coupon == null) {
+            throw new CouponNotValidException("Coupon not found");
+        }
+        if (!coupon.isValidAt(System.currentTimeMillis())) {
+            throw new CouponNotValidException("Coupon expired");
+        }
+        if (orderValue < coupon.minimumOrderValue()) {
+            throw new CouponNotValidException("Order value is below the coupon minimum of "
+                    + coupon.minimumOrderValue());
+        }
+        if (couponCache.isRedeemedBy(coupon, userId)) {
+            throw new CouponNotValidException("Coupon already used");
+        }
+        return coupon;
+    }
+
+    private void setCouponCode(User user, String code) {
+        cartWriteLocks.write(user.getId(), () -> {
+            Cart cart = cartRepository.findByUserId(user.getId());
+            cart.setCouponCode(code);
+            return null;
+        });
+        hotCartStore.setCouponCode(user.getId(), code);
+    }
+
+    private CartResponseDTO findCartWithDiscount(User user) {
+        CartResponseDTO cart = cartService.findUserCartWithDetails(user);
+        cart.setCouponDiscount(couponDiscount(user.getId(), cart.getCouponCode(), cart.getTotalSellingPrice()));
+        return cart;
+    }
+}
@@ -0,0 +1,217 @@
+package com.xuwei.service.Impl;
+
+import com.xuwei.cache.ProductCache;
+import com.xuwei.domain.OrderStatus;
+import com.xuwei.domain.ReservationStatus;
+import com.xuwei.exception.OrderException;
+import com.xuwei.exception.ProductException;
+import com.xuwei.model.StockReservation;
+import com.xuwei.service.InventoryService;
+import com.xuwei.service.SellerReportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Stock moves through conditional updates of Product.quantity only.
+ * <p>
+ * A reservation takes its units with one {@code quantity = quantity - n
+ * WHERE quantity >= n} per product, so the check and the decrement are a
+ * single statement: no read of the row, no lost update and no version to
+ * retry on, however many buyers want the same product. The updates run in
+ * the caller's transaction in product id order, which keeps two checkouts
+ * from locking the same rows in opposite orders, and should be its last
+ * statements, so the rows stay locked only until the commit that follows.
+ * <p>
+ * A reservation lives for a fixed time. Payment confirms it; otherwise
+ * {@link #releaseExpired} puts the units back and cancels the order. Both
+ * move the reservation out of RESERVED with a conditional update, so the
+ * one that comes second finds nothing to change.
+ * <p>
+ * None of this goes through JPA, so every change drops the products it
+ * touched from {@link ProductCache} once it commits.
+ */
+@Service
+@RequiredArgsConstructor
+public class InventoryServiceImpl implements InventoryService {
+
+    private static final String RESERVE_STOCK =
+            "UPDATE product SET quantity = quantity - ? WHERE id = ? AND quantity >= ?";
+    private static final String INSERT_RESERVATION = "INSERT INTO stock_reservation (order_id, product_id, "
+            + "quantity, status, expires_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String CONFIRM_RESERVATIONS =
+            "UPDATE stock_reservation SET status = ? WHERE order_id = ? AND status = ?";
+    private static final String COUNT_RELEASED =
+            "SELECT COUNT(*) FROM stock_reservation WHERE order_id = ? AND status = ?";
+    private static final String FIND_EXPIRED = "SELECT id, order_id, product_id, quantity FROM stock_reservation "
+            + "WHERE status = ? AND expires_at < ? ORDER BY id LIMIT ?";
+    private static final String RELEASE_RESERVATION =
+            "UPDATE stock_reservation SET status = ? WHERE id = ? AND status = ?";
+    private static final String RESTOCK = "UPDATE product SET quantity = quantity + ? WHERE id = ?";
+    private static final String CANCEL_ORDER =
+            "UPDATE orders SET order_status = ? WHERE id = ? AND order_status = ?";
+    private static final String ADJUST_STOCK = "UPDATE product SET quantity = quantity + ? "
+            + "WHERE id = ? AND seller_id = ? AND quantity + ? >= 0";
+    private static final String FIND_STOCK = "SELECT quantity FROM product WHERE id = ? AND seller_id = ?";
+
+    private final SellerReportService sellerReportService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductCache productCache;
+
+    @Value("${inventory.reservation.ttl:PT15M}")
+    private Duration reservationTtl = Duration.ofMinutes(15);
+
+    /**
+     * Takes the units of the reservations from stock and records them,
+     * expiring after the reservation TTL. Throws, leaving the caller's
+     * transaction to roll back the units already taken, when a product does
+     * not have enough left. Must run inside a transaction.
+     */
+    @Override
+    public void reserve(List<StockReservation> reservations) throws OrderException {
+        // a product ordered in several sizes is taken in one statement
+        SortedMap<Long, Integer> units = new TreeMap<>();
+        for (StockReservation reservation : reservations) {
+            units.merge(reservation.getProductId(), reservation.getQuantity(), Integer::sum);
+        }
+        List<Object[]> takes = new ArrayList<>(units.size());
+        units.forEach((productId, quantity) -> takes.add(new Object[]{quantity, productId, quantity}));
+        int[] taken = jdbcTemplate.batchUpdate(RESERVE_STOCK, takes);
+        Iterator<Long> productIds = units.keySet().iterator();
+        for (int count : taken) {
+            Long productId = productIds.next();
+            if (count == 0) {
+                throw new OrderException("Not enough stock for product " + productId);
+            }
+        }
+
+        Timestamp expiresAt = Timestamp.valueOf(LocalDateTime.now().plus(reservationTtl));
+        List<Object[]> rows = new ArrayList<>(reservations.size());
+        for (StockReservation reservation : reservations) {
+            rows.add(new Object[]{reservation.getOrderId(), reservation.getProductId(), reservation.getQuantity(),
+                    ReservationStatus.RESERVED.ordinal(), expiresAt});
+        }
+        jdbcTemplate.batchUpdate(INSERT_RESERVATION, rows);
+        invalidateAfterCommit(units.keySet());
+    }
+
+    /**
+     * Confirms the order's reservations for good. Returns false when any of
+     * them has already expired; the caller must then roll back its
+     * transaction, which this has to run in.
+     */
+    @Override
+    public boolean confirm(Long orderId) {
+        jdbcTemplate.update(CONFIRM_RESERVATIONS, ReservationStatus.CONFIRMED.ordinal(), orderId,
+                ReservationStatus.RESERVED.ordinal());
+        Integer released = jdbcTemplate.queryForObject(COUNT_RELEASED, Integer.class, orderId,
+                ReservationStatus.RELEASED.ordinal());
+        return released == null || released == 0;
+    }
+
+    /**
+     * Releases up to limit expired reservations in one transaction, putting
+     * their units back and cancelling their orders. Returns the number of
+     * reservations looked at, so a caller can stop once it is below limit.
+     */
+    @Override
+    public int releaseExpired(int limit) {
+        Integer found = transactionTemplate.execute(status -> {
+            List<StockReservation> expired = jdbcTemplate.query(FIND_EXPIRED, (row, rowNum) -> {
+                StockReservation reservation = new StockReservation();
+                reservation.setId(row.getLong(1));
+                reservation.setOrderId((Long) row.getObject(2, Long.class));
+                reservation.setProductId(row.getLong(3));
+                reservation.setQuantity(row.getInt(4));
+                return reservation;
+            }, ReservationStatus.RESERVED.ordinal(), Timestamp.valueOf(LocalDateTime.now()), limit);
+            if (expired.isEmpty()) {
+                return 0;
+            }
+            List<Object[]> releases = new ArrayList<>(expired.size());
+            for (StockReservation reservation : expired) {
+                releases.add(new Object[]{ReservationStatus.RELEASED.ordinal(), reservation.getId(),
+                        ReservationStatus.RESERVED.ordinal()});
+            }
+            int[] released = jdbcTemplate.batchUpdate(RELEASE_RESERVATION, releases);
+
+            // only what this run moved out of RESERVED goes back; a payment may have confirmed the rest
+            SortedMap<Long, Integer> units = new TreeMap<>();
+            Set<Long> orderIds = new TreeSet<>();
+            for (int i = 0; i < expired.size(); i++) {
+                if (released[i] == 0) {
+                    continue;
+                }
+                StockReservation reservation = expired.get(i);
+                units.merge(reservation.getProductId(), reservation.getQuantity(), Integer::sum);
+                if (reservation.getOrderId() != null) {
+                    orderIds.add(reservation.getOrderId());
+                }
+            }
+            List<Object[]> restocks = new ArrayList<>(units.size());
+            units.forEach((productId, quantity) -> restocks.add(new Object[]{quantity, productId}));
+            jdbcTemplate.batchUpdate(RESTOCK, restocks);
+            invalidateAfterCommit(units.keySet());
+            List<Object[]> cancels = new ArrayList<>(orderIds.size());
+            for (Long orderId : orderIds) {
+                cancels.add(new Object[]{OrderStatus.CANCELLED.ordinal(), orderId, OrderStatus.PENDING.ordinal()});
+            }
+            int[] cancelled = jdbcTemplate.batchUpdate(CANCEL_ORDER, cancels);
+            List<Long> cancelledIds = new ArrayList<>();
+            Iterator<Long> ids = orderIds.iterator();
+            for (int count : cancelled) {
+                Long orderId = ids.next();
+                if (count > 0) {
+                    cancelledIds.add(orderId);
+                }
+            }
+            sellerReportService.recordCancellations(cancelledIds);
+            return expired.size();
+        });
+        return found == null ? 0 : found;
+    }
+
+    /**
+     * Adds units to the seller's product (or removes them, when negative)
+     * and returns the stock left.
+     */
+    @Override
+    public int adjustStock(Long sellerId, Long productId, int units) throws ProductException {
+        if (jdbcTemplate.update(ADJUST_STOCK, units, productId, sellerId, units) == 1) {
+            invalidateAfterCommit(List.of(productId));
+            Integer stock = jdbcTemplate.queryForObject(FIND_STOCK, Integer.class, productId, sellerId);
+            return stock == null ? 0 : stock;
+        }
+        List<Integer> stock = jdbcTemplate.queryForList(FIND_STOCK, Integer.class, productId, sellerId);
+        if (stock.isEmpty()) {
+            throw new ProductException("Product not found");
+        }
+        throw new ProductException("Only " + stock.get(0) + " units of product " + productId + " in stock");
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private void invalidateAfterCommit(Collection<Long> productIds) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // a reader must not cache the old quantity again between the eviction and the commit
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    productIds.forEach(productCache::invalidate);
+                }
+            });
+        } else {
+            productIds.forEach(productCache::invalidate);
+        }
+    }
+}
@@ -0,0 +1,552 @@
+package com.xuwei.service.Impl;
+
+import com.xuwei.admission.FlashSaleQueue;
+import com.xuwei.cart.CartWriteLocks;
+import com.xuwei.cart.HotCartStore;
+import com.xuwei.converter.OrderConverter;
+import com.xuwei.domain.OrderStatus;
+import com.xuwei.domain.PaymentStatus;
+import com.xuwei.dto.OrderResponseDTO;
+import com.xuwei.dto.OrderSummaryDTO;
+import com.xuwei.exception.AdmissionException;
+import com.xuwei.exception.CouponNotValidException;
+import com.xuwei.exception.OrderException;
+import com.xuwei.id.OrderIdGenerator;
+import com.xuwei.index.ProductCatalogSnapshot;
+import com.xuwei.model.*;
+import com.xuwei.repository.OrderRepository;
+import com.xuwei.repository.TransactionRepository;
+import com.xuwei.repository.UserRepository;
+import com.xuwei.request.CheckoutRequest;
+import com.xuwei.response.CursorPageResponse;
+import com.xuwei.service.CouponService;
+import com.xuwei.service.InventoryService;
+import com.xuwei.service.OrderService;
+import com.xuwei.service.SellerReportService;
+import com.xuwei.utils.CursorUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Turns a cart into one order per seller.
+ * <p>
+ * A checkout runs in one transaction with a fixed number of statements
+ * whatever the size of the cart: the cart row, its lines with their sellers,
+ * one batched insert for the orders and one for their items, one batch
+ * counting them in the sellers' reports, two statements to empty the cart
+ * and two batches reserving the stock (see {@link InventoryServiceImpl}).
+ * Orders and items use identity keys, which keep Hibernate from batching
+ * them, so they are written with JDBC batches and the generated order ids
+ * are read back from the first batch. With
+ * rewriteBatchedStatements on the MySQL URL each batch is a single round trip.
+ * <p>
+ * A checkout with an idempotency key returns the orders the key already
+ * placed instead of ordering again. Concurrent retries are kept apart by the
+ * cart's version and by the unique (user, key, seller) order; the loser is
+ * run again by {@link CartWriteLocks} and then finds the winner's orders.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderServiceImpl implements OrderService {
+
+    private static final int DELIVERY_DAYS = 7;
+    private static final int DEFAULT_HISTORY_PAGE_SIZE = 20;
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    // position before every order: the first page of a history
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    private static final String FIND_CART = "SELECT id, version, coupon_code FROM cart WHERE user_id = ?";
+    private static final String FIND_LINES = "SELECT i.product_id, p.title, p.seller_id, i.size, i.quantity, "
+            + "i.mrp_price, i.selling_price, p.flash_sale FROM cart_item i JOIN product p ON p.id = i.product_id "
+            + "WHERE i.cart_id = ? ORDER BY i.id";
+    private static final String INSERT_ORDER = "INSERT INTO orders (order_id, checkout_key, user_id, seller_id, "
+            + "shipping_address_id, total_mrp_price, total_selling_price, discount, order_status, total_item, "
+            + "payment_status, status, order_date, deliver_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_ORDER_ITEM = "INSERT INTO order_item (order_id, product_id, size, quantity, "
+            + "mrp_price, selling_price, user_id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_CART_ITEMS = "DELETE FROM cart_item WHERE cart_id = ?";
+    private static final String EMPTY_CART = "UPDATE cart SET total_mrp_price = 0, total_selling_price = 0, "
+            + "total_items = 0, discounted_price = 0, coupon_code = NULL, version = version + 1 "
+            + "WHERE id = ? AND version = ?";
+    private static final String DROP_COUPON = "UPDATE cart SET coupon_code = NULL WHERE id = ?";
+    private static final String PAY_ORDER = "UPDATE orders SET order_status = ?, payment_status = ?, status = ?, "
+            + "payment_id = ? WHERE id = ? AND order_status = ?";
+    private static final String FIND_ORDER_STATUS = "SELECT order_status, payment_status FROM orders WHERE id = ?";
+
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final OrderConverter orderConverter;
+    private final OrderIdGenerator orderIdGenerator;
+    private final CouponService couponService;
+    private final FlashSaleQueue flashSaleQueue;
+    private final InventoryService inventoryService;
+    private final SellerReportService sellerReportService;
+    private final TransactionRepository transactionRepository;
+    private final HotCartStore hotCartStore;
+    private final CartWriteLocks cartWriteLocks;
+    private final ProductCatalogSnapshot catalogSnapshot;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public List<OrderResponseDTO> checkout(User user, CheckoutRequest request, String idempotencyKey)
+            throws OrderException {
+        Long addressId = request.getAddressId();
+        if (addressId == null || !userRepository.hasAddress(user.getId(), addressId)) {
+            throw new OrderException("Shipping address not found");
+        }
+
+        List<Order> orders;
+        if (hotCartStore.isEnabled()) {
+            orders = hotCartStore.checkout(user.getId(), cart -> cartWriteLocks.write(user.getId(),
+                    () -> checkoutHeldCart(user, cart, addressId, idempotencyKey)));
+        } else {
+            orders = cartWriteLocks.write(user.getId(), () -> checkoutStoredCart(user, addressId, idempotencyKey));
+        }
+        return orders.stream().map(orderConverter::convertToOrderResponseDTO).toList();
+    }
+
+    /**
+     * Marks the order paid, confirms its stock reservations and records the
+     * seller's transaction and sale, in one transaction. Fails when the
+     * reservations expired first, in which case the order has been cancelled
+     * and its units put back on sale. Paying an order again, or twice at
+     * once, returns it unchanged.
+     */
+    @Override
+    public OrderResponseDTO confirmPayment(User user, Long orderId, String paymentId) throws OrderException {
+        Order order = findUserOrder(user, orderId);
+        if (order.getPaymentStatus() == PaymentStatus.COMPLETED) {
+            return orderConverter.convertToOrderResponseDTO(order);
+        }
+        if (order.getOrderStatus() != OrderStatus.PENDING) {
+            throw new OrderException("Order is " + order.getOrderStatus().name().toLowerCase());
+        }
+        AtomicBoolean expired = new AtomicBoolean();
+        Boolean paid = transactionTemplate.execute(status -> {
+            if (!inventoryService.confirm(orderId)) {
+                expired.set(true);
+                status.setRollbackOnly();
+                return false;
+            }
+            if (jdbcTemplate.update(PAY_ORDER, OrderStatus.PLACED.ordinal(), PaymentStatus.COMPLETED.ordinal(),
+                    PaymentStatus.COMPLETED.ordinal(), paymentId, orderId, OrderStatus.PENDING.ordinal()) == 0) {
+                // paid or cancelled since it was read
+                status.setRollbackOnly();
+                return false;
+            }
+            transactionRepository.save(buildTransaction(user, order));
+            sellerReportService.recordPayment(order);
+            return true;
+        });
+        if (!Boolean.TRUE.equals(paid)) {
+            Map<String, Object> current = jdbcTemplate.queryForMap(FIND_ORDER_STATUS, orderId);
+            // a concurrent confirmation of the same payment may have got there first
+            boolean paidMeanwhile = ((Number) current.get("payment_status")).intValue()
+                    == PaymentStatus.COMPLETED.ordinal();
+            if (!paidMeanwhile && expired.get()) {
+                throw new OrderException("Stock reservation expired");
+            }
+            if (!paidMeanwhile) {
+                OrderStatus orderStatus = OrderStatus.values()[((Number) current.get("order_status")).intValue()];
+                throw new OrderException("Order is " + orderStatus.name().toLowerCase());
+            }
+        }
+        return orderConverter.convertToOrderResponseDTO(findUserOrder(user, orderId));
+    }
+
+    /**
+     * The user's orders, newest first, as flat summaries. Pages are continued
+     * with nextCursor, an (orderDate, id) position, so each page is one index
+     * seek however deep the history goes.
+     */
+    @Override
+    public CursorPageResponse<OrderSummaryDTO> findUserOrderHistory(User user, String cursor, Integer size)
+            throws OrderException {
+        return historyPage(cursor, size, (orderDate, id, pageable) ->
+                orderRepository.findUserSummaries(user.getId(), orderDate, id, pageable));
+    }
+
+    @Override
+    public CursorPageResponse<OrderSummaryDTO> findSellerOrderHistory(Long sellerId, String cursor, Integer size)
+            throws OrderException {
+        return historyPage(cursor, size, (orderDate, id, pageable) ->
+                orderRepository.findSellerSummaries(sellerId, orderDate, id, pageable));
+    }
+
+    @Override
+    public OrderResponseDTO findUserOrderById(User user, Long orderId) throws OrderException {
+        return orderConverter.convertToOrderResponseDTO(findUserOrder(user, orderId));
+    }
+
+    @Override
+    public OrderResponseDTO findSellerOrderById(Long sellerId, Long orderId) throws OrderException {
+        Order order = orderRepository.findWithItemsById(orderId).orElse(null);
+        if (order == null || !sellerId.equals(order.getSellerId())) {
+            throw new OrderException("Order not found");
+        }
+        return orderConverter.convertToOrderResponseDTO(order);
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private List<Order> checkoutStoredCart(User user, Long addressId, String idempotencyKey)
+            throws OrderException {
+        List<Order> placed = findPlaced(user, idempotencyKey);
+        if (placed != null) {
+            return placed;
+        }
+        List<Map<String, Object>> carts = jdbcTemplate.queryForList(FIND_CART, user.getId());
+        if (carts.isEmpty()) {
+            throw new OrderException("Cart is empty");
+        }
+        Long cartId = ((Number) carts.get(0).get("id")).longValue();
+        long version = ((Number) carts.get(0).get("version")).longValue();
+        String couponCode = (String) carts.get(0).get("coupon_code");
+
+        List<Line> lines = jdbcTemplate.query(FIND_LINES, (row, rowNum) -> new Line(row.getLong(1),
+                row.getString(2), (Long) row.getObject(3, Long.class), row.getString(4), row.getInt(5),
+                row.getInt(6), row.getInt(7), row.getBoolean(8)), cartId);
+        List<Order> orders = placeOrders(user, lines, couponCode, addressId, idempotencyKey);
+
+        jdbcTemplate.update(DELETE_CART_ITEMS, cartId);
+        if (jdbcTemplate.update(EMPTY_CART, cartId, version) == 0) {
+            // changed since it was read: roll back, and the retry reads it again
+            throw new ObjectOptimisticLockingFailureException(Cart.class, cartId);
+        }
+        redeemCoupon(user, lines, couponCode);
+        reserveStock(orders);
+        return orders;
+    }
+
+    /**
+     * Orders the held cart, or returns the orders the key already placed, in
+     * which case the store keeps whatever the cart holds by now.
+     */
+    private HotCartStore.CheckoutResult<List<Order>> checkoutHeldCart(User user, Cart cart, Long addressId,
+                                                                    String idempotencyKey) throws OrderException {
+        List<Order> placed = findPlaced(user, idempotencyKey);
+        if (placed != null) {
+            return new HotCartStore.CheckoutResult<>(placed, false);
+        }
+        if (cart == null) {
+            throw new OrderException("Cart is empty");
+        }
+        List<Line> lines = new ArrayList<>();
+        for (CartItem item : cart.getCartItems()) {
+            Product product = item.getProduct();
+            lines.add(new Line(product.getId(), product.getTitle(),
+                    product.getSeller() == null ? null : product.getSeller().getId(), item.getSize(),
+                    item.getQuantity(), CartServiceImpl.amount(item.getMrpPrice()),
+                    CartServiceImpl.amount(item.getSellingPrice()), product.isFlashSale()));
+        }
+        List<Order> orders = placeOrders(user, lines, cart.getCouponCode(), addressId, idempotencyKey);
+        // the store empties the lines; the coupon is kept on the row only
+        jdbcTemplate.update(DROP_COUPON, cart.getId());
+        redeemCoupon(user, lines, cart.getCouponCode());
+        reserveStock(orders);
+        return new HotCartStore.CheckoutResult<>(orders, true);
+    }
+
+    private CursorPageResponse<OrderSummaryDTO> historyPage(String cursor, Integer size, HistoryQuery query)
+            throws OrderException {
+        int pageSize = (size == null || size <= 0) ? DEFAULT_HISTORY_PAGE_SIZE : Math.min(size, MAX_HISTORY_PAGE_SIZE);
+        LocalDateTime orderDate = HISTORY_START;
+        long id = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] position = CursorUtils.decode(cursor);
+                orderDate = LocalDateTime.ofEpochSecond(Long.parseLong(position[0]), Integer.parseInt(position[1]),
+                        ZoneOffset.UTC);
+                id = Long.parseLong(position[2]);
+            } catch (RuntimeException e) {
+                throw new OrderException("Invalid order history cursor");
+            }
+        }
+
+        Slice<OrderSummaryDTO> slice = query.find(orderDate, id, PageRequest.of(0, pageSize));
+        List<OrderSummaryDTO> content = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext() && !content.isEmpty()) {
+            OrderSummaryDTO last = content.get(content.size() - 1);
+            nextCursor = CursorUtils.encode(last.getOrderDate().toEpochSecond(ZoneOffset.UTC),
+                    last.getOrderDate().getNano(), last.getId());
+        }
+        return new CursorPageResponse<>(content, null, pageSize, null, nextCursor, slice.hasNext());
+    }
+
+    private Transaction buildTransaction(User user, Order order) {
+        Transaction transaction = new Transaction();
+        transaction.setCustomer(user);
+        transaction.setOrder(order);
+        if (order.getSellerId() != null) {
+            Seller seller = new Seller();
+            seller.setId(order.getSellerId());
+            transaction.setSeller(seller);
+        }
+        return transaction;
+    }
+
+    private Order findUserOrder(User user, Long orderId) throws OrderException {
+        Order order = orderRepository.findWithItemsById(orderId).orElse(null);
+        if (order == null || !order.getUser().getId().equals(user.getId())) {
+            throw new OrderException("Order not found");
+        }
+        return order;
+    }
+
+    /**
+     * Orders already placed with the key, or null when the checkout is new.
+     */
+    private List<Order> findPlaced(User user, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return null;
+        }
+        List<Order> placed = orderRepository.findCheckout(user.getId(), idempotencyKey);
+        return placed.isEmpty() ? null : placed;
+    }
+
+    private List<Order> placeOrders(User user, List<Line> lines, String couponCode, Long addressId,
+                                    String idempotencyKey) throws OrderException {
+        if (lines.isEmpty()) {
+            throw new OrderException("Cart is empty");
+        }
+        useFlashSaleAdmissions(user, lines);
+        Map<Long, List<Line>> linesBySeller = new LinkedHashMap<>();
+        int cartSellingPrice = 0;
+        for (Line line : lines) {
+            linesBySeller.computeIfAbsent(line.sellerId(), id -> new ArrayList<>()).add(line);
+            cartSellingPrice += line.sellingPrice();
+        }
+        int couponDiscount = couponService.couponDiscount(user.getId(), couponCode, cartSellingPrice);
+
+        Address shippingAddress = new Address();
+        shippingAddress.setId(addressId);
+        LocalDateTime orderDate = LocalDateTime.now();
+        List<Order> orders = new ArrayList<>(linesBySeller.size());
+        int discountLeft = couponDiscount;
+        for (Map.Entry<Long, List<Line>> seller : linesBySeller.entrySet()) {
+            Order order = new Order();
+            order.setOrderId(orderIdGenerator.nextId());
+            order.setCheckoutKey(idempotencyKey);
+            order.setUser(user);
+            order.setSellerId(seller.getKey());
+            order.setShippingAddress(shippingAddress);
+            order.setOrderStatus(OrderStatus.PENDING);
+            order.getPaymentDetails().setStatus(PaymentStatus.PENDING);
+            order.setOrderDate(orderDate);
+            order.setDeliverDate(orderDate.plusDays(DELIVERY_DAYS));
+            int mrpPrice = 0;
+            int sellingPrice = 0;
+            int items = 0;
+            for (Line line : seller.getValue()) {
+                order.getOrderItems().add(line.toOrderItem(order, user.getId()));
+                mrpPrice += line.mrpPrice();
+                sellingPrice += line.sellingPrice();
+                items += line.quantity();
+            }
+            // the coupon is shared by the sellers in proportion to their part of the cart
+            int discount = (int) ((long) couponDiscount * sellingPrice / cartSellingPrice);
+            discountLeft -= discount;
+            order.setTotalMrpPrice(mrpPrice);
+            order.setTotalSellingPrice(sellingPrice);
+            order.setDiscount(discount);
+            order.setTotalItem(items);
+            orders.add(order);
+        }
+        // what rounding left over goes to the first order
+        Order first = orders.get(0);
+        first.setDiscount(first.getDiscount() + discountLeft);
+        for (Order order : orders) {
+            order.setTotalSellingPrice(order.getTotalSellingPrice() - order.getDiscount());
+        }
+
+        insertOrders(orders);
+        insertOrderItems(orders);
+        sellerReportService.recordOrdersPlaced(orders);
+        countUnitsOrdered(lines);
+        return orders;
+    }
+
+    /**
+     * Adds the ordered units to the products' popularity in the catalog
+     * snapshot once the orders commit.
+     */
+    private void countUnitsOrdered(List<Line> lines) {
+        Map<Long, Long> unitsByProduct = new HashMap<>();
+        for (Line line : lines) {
+            unitsByProduct.merge(line.productId(), (long) line.quantity(), Long::sum);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                catalogSnapshot.addUnitsOrdered(unitsByProduct);
+            }
+        });
+    }
+
+    /**
+     * Checks the shopper was admitted to each flash sale product in the
+     * cart, and uses the admissions up once the orders commit.
+     */
+    private void useFlashSaleAdmissions(User user, List<Line> lines) throws OrderException {
+        Set<Long> productIds = new LinkedHashSet<>();
+        for (Line line : lines) {
+            if (line.flashSale()) {
+                productIds.add(line.productId());
+            }
+        }
+        if (productIds.isEmpty()) {
+            return;
+        }
+        for (Long productId : productIds) {
+            try {
+                flashSaleQueue.checkAdmitted(user.getId(), productId);
+            } catch (AdmissionException e) {
+                throw new OrderException(e.getMessage());
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                productIds.forEach(productId -> flashSaleQueue.complete(user.getId(), productId));
+            }
+        });
+    }
+
+    private void insertOrders(List<Order> orders) {
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_ORDER, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Order order = orders.get(i);
+                        ps.setString(1, order.getOrderId());
+                        ps.setString(2, order.getCheckoutKey());
+                        ps.setLong(3, order.getUser().getId());
+                        setNullableLong(ps, 4, order.getSellerId());
+                        ps.setLong(5, order.getShippingAddress().getId());
+                        ps.setDouble(6, order.getTotalMrpPrice());
+                        ps.setInt(7, order.getTotalSellingPrice());
+                        ps.setInt(8, order.getDiscount());
+                        // enums are mapped by ordinal
+                        ps.setInt(9, order.getOrderStatus().ordinal());
+                        ps.setInt(10, order.getTotalItem());
+                        ps.setInt(11, order.getPaymentStatus().ordinal());
+                        ps.setInt(12, order.getPaymentDetails().getStatus().ordinal());
+                        ps.setTimestamp(13, Timestamp.valueOf(order.getOrderDate()));
+                        ps.setTimestamp(14, Timestamp.valueOf(order.getDeliverDate()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return orders.size();
+                    }
+                }, keys);
+        List<Map<String, Object>> generated = keys.getKeyList();
+        for (int i = 0; i < orders.size(); i++) {
+            // the key's name differs between drivers; it is the only column returned
+            orders.get(i).setId(((Number) generated.get(i).values().iterator().next()).longValue());
+        }
+    }
+
+    private void insertOrderItems(List<Order> orders) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Order order : orders) {
+            for (OrderItem item : order.getOrderItems()) {
+                rows.add(new Object[]{order.getId(), item.getProduct().getId(), item.getSize(), item.getQuantity(),
+                        item.getMrpPrice(), item.getSellingPrice(), item.getUserId()});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_ORDER_ITEM, rows);
+    }
+
+    private void redeemCoupon(User user, List<Line> lines, String couponCode) throws OrderException {
+        int cartSellingPrice = lines.stream().mapToInt(Line::sellingPrice).sum();
+        if (couponService.couponDiscount(user.getId(), couponCode, cartSellingPrice) == 0) {
+            return;
+        }
+        try {
+            couponService.redeemCoupon(user.getId(), couponCode, cartSellingPrice);
+        } catch (CouponNotValidException e) {
+            // redeemed by a concurrent checkout; this one rolls back
+            throw new OrderException(e.getMessage());
+        }
+    }
+
+    /**
+     * Holds the ordered units until the orders are paid. Called last, so the
+     * product rows it locks are held only until the checkout commits.
+     */
+    private void reserveStock(List<Order> orders) throws OrderException {
+        List<StockReservation> reservations = new ArrayList<>();
+        for (Order order : orders) {
+            // one reservation per product of the order, whatever its sizes
+            Map<Long, Integer> units = new LinkedHashMap<>();
+            for (OrderItem item : order.getOrderItems()) {
+                units.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+            }
+            units.forEach((productId, quantity) -> {
+                StockReservation reservation = new StockReservation();
+                reservation.setOrderId(order.getId());
+                reservation.setProductId(productId);
+                reservation.setQuantity(quantity);
+                reservations.add(reservation);
+            });
+        }
+        inventoryService.reserve(reservations);
+    }
+
+    private static void setNullableLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.BIGINT);
+        } else {
+            ps.setLong(index, value);
+        }
+    }
+
+    private interface HistoryQuery {
+        Slice<OrderSummaryDTO> find(LocalDateTime orderDate, Long id, Pageable pageable);
+    }
+
+    /**
+     * One cart line with the seller it is ordered from. Prices are line totals.
+     */
+    private record Line(Long productId, String title, Long sellerId, String size, int quantity, int mrpPrice,
+                        int sellingPrice, boolean flashSale) {
+
+        OrderItem toOrderItem(Order order, Long userId) {
+            Product product = new Product();
+            product.setId(productId);
+            product.setTitle(title);
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setProduct(product);
+            item.setSize(size);
+            item.setQuantity(quantity);
+            item.setMrpPrice(mrpPrice);
+            item.setSellingPrice(sellingPrice);
+            item.setUserId(userId);
+            return item;
+        }
+    }
+}
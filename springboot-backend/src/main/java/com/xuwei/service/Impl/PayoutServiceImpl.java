@@ -0,0 +1,212 @@
+package com.xuwei.service.Impl;
+
+import com.xuwei.domain.OrderStatus;
+import com.xuwei.domain.PayoutRunStatus;
+import com.xuwei.domain.PayoutsStatus;
+import com.xuwei.model.PayoutRun;
+import com.xuwei.repository.PayoutRunRepository;
+import com.xuwei.service.PayoutService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Pays sellers for their transactions in chunks.
+ * <p>
+ * A run walks the unpaid transactions dated before its cutoff in (seller,
+ * transaction id) order, a chunk at a time from the position its checkpoint
+ * holds, so it keeps one chunk in memory however many transactions there
+ * are. Each chunk is one transaction: a batch of new payouts for the sellers
+ * it starts, one update adding to the payout of the seller the previous
+ * chunk left open, a batch linking the transactions to their payouts, and
+ * the checkpoint. A run that stops therefore resumes exactly after the last
+ * chunk it committed.
+ * <p>
+ * Paying twice is ruled out by the data rather than by the checkpoint: a
+ * transaction can be linked to one payout only, and only unlinked ones are
+ * read. A chunk racing another run rolls back on that key and is read again.
+ * Transactions of cancelled orders are not paid.
+ */
+@Service
+@RequiredArgsConstructor
+public class PayoutServiceImpl implements PayoutService {
+
+    private static final Logger log = LoggerFactory.getLogger(PayoutServiceImpl.class);
+
+    private static final String LOCK_RUN = "SELECT status, cutoff, last_seller_id, last_transaction_id, "
+            + "open_payout_id FROM payout_run WHERE id = ? FOR UPDATE";
+    private static final String FIND_UNPAID = "SELECT t.id, t.seller_id, o.total_selling_price "
+            + "FROM transaction t JOIN orders o ON o.id = t.order_id "
+            + "WHERE (t.seller_id > ? OR (t.seller_id = ? AND t.id > ?)) AND t.date < ? AND o.order_status <> ? "
+            + "AND NOT EXISTS (SELECT 1 FROM payouts_transactions l WHERE l.transactions_id = t.id) "
+            + "ORDER BY t.seller_id, t.id LIMIT ?";
+    private static final String INSERT_PAYOUT = "INSERT INTO payouts (seller_id, amount, status, data) "
+            + "VALUES (?, ?, ?, ?)";
+    private static final String ADD_TO_PAYOUT = "UPDATE payouts SET amount = amount + ? WHERE id = ?";
+    private static final String LINK_TRANSACTION =
+            "INSERT INTO payouts_transactions (payouts_id, transactions_id) VALUES (?, ?)";
+    private static final String CHECKPOINT = "UPDATE payout_run SET last_seller_id = ?, last_transaction_id = ?, "
+            + "open_payout_id = ?, transactions_paid = transactions_paid + ?, "
+            + "payouts_created = payouts_created + ? WHERE id = ?";
+    private static final String COMPLETE_RUN = "UPDATE payout_run SET status = ?, finished_at = ? WHERE id = ?";
+
+    private final PayoutRunRepository payoutRunRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * The run left unfinished by an earlier batch, or a new one paying
+     * everything dated before now.
+     */
+    @Override
+    public PayoutRun startOrResumeRun() {
+        Optional<PayoutRun> running = payoutRunRepository.findFirstByStatusOrderByIdAsc(PayoutRunStatus.RUNNING);
+        if (running.isPresent()) {
+            return running.get();
+        }
+        PayoutRun run = new PayoutRun();
+        LocalDateTime now = LocalDateTime.now();
+        run.setCutoff(now);
+        run.setStartedAt(now);
+        return payoutRunRepository.save(run);
+    }
+
+    /**
+     * Pays the next chunk of up to limit transactions of the run. Returns the
+     * number paid; 0 once the run is complete.
+     */
+    @Override
+    public int payChunk(Long runId, int limit) {
+        while (true) {
+            try {
+                Integer paid = transactionTemplate.execute(status -> payChunkLocked(runId, limit));
+                return paid == null ? 0 : paid;
+            } catch (DuplicateKeyException e) {
+                log.debug("Payout run {} raced another run for a chunk, reading it again", runId);
+            }
+        }
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private int payChunkLocked(Long runId, int limit) {
+        List<Checkpoint> runs = jdbcTemplate.query(LOCK_RUN, (row, rowNum) -> new Checkpoint(
+                row.getInt(1), row.getTimestamp(2), row.getLong(3), row.getLong(4),
+                (Long) row.getObject(5, Long.class)), runId);
+        if (runs.isEmpty() || runs.get(0).status() != PayoutRunStatus.RUNNING.ordinal()) {
+            return 0;
+        }
+        Checkpoint run = runs.get(0);
+
+        List<SellerPayout> chunk = readChunk(run.lastSellerId(), run.lastTransactionId(), run.cutoff(), limit);
+        if (chunk.isEmpty()) {
+            jdbcTemplate.update(COMPLETE_RUN, PayoutRunStatus.COMPLETED.ordinal(),
+                    Timestamp.valueOf(LocalDateTime.now()), runId);
+            return 0;
+        }
+
+        // the chunk may carry on the seller the previous one ended with
+        SellerPayout first = chunk.get(0);
+        if (run.openPayoutId() != null && first.sellerId == run.lastSellerId()) {
+            first.payoutId = run.openPayoutId();
+            jdbcTemplate.update(ADD_TO_PAYOUT, first.amount, run.openPayoutId());
+        }
+        List<SellerPayout> created = chunk.stream().filter(payout -> payout.payoutId == null).toList();
+        insertPayouts(created);
+        linkTransactions(chunk);
+
+        SellerPayout last = chunk.get(chunk.size() - 1);
+        int paid = chunk.stream().mapToInt(payout -> payout.transactionIds.size()).sum();
+        jdbcTemplate.update(CHECKPOINT, last.sellerId, last.transactionIds.get(last.transactionIds.size() - 1),
+                last.payoutId, paid, created.size(), runId);
+        return paid;
+    }
+
+    /**
+     * The next unpaid transactions after the position, summed per seller in
+     * the order they were read.
+     */
+    private List<SellerPayout> readChunk(long lastSellerId, long lastTransactionId, Timestamp cutoff, int limit) {
+        List<SellerPayout> chunk = new ArrayList<>();
+        jdbcTemplate.query(FIND_UNPAID, row -> {
+            long sellerId = row.getLong(2);
+            SellerPayout payout = chunk.isEmpty() ? null : chunk.get(chunk.size() - 1);
+            if (payout == null || payout.sellerId != sellerId) {
+                payout = new SellerPayout(sellerId);
+                chunk.add(payout);
+            }
+            payout.transactionIds.add(row.getLong(1));
+            payout.amount += row.getLong(3);
+        }, lastSellerId, lastSellerId, lastTransactionId, cutoff, OrderStatus.CANCELLED.ordinal(), limit);
+        return chunk;
+    }
+
+    private void insertPayouts(List<SellerPayout> payouts) {
+        if (payouts.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_PAYOUT, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        SellerPayout payout = payouts.get(i);
+                        ps.setLong(1, payout.sellerId);
+                        ps.setLong(2, payout.amount);
+                        ps.setInt(3, PayoutsStatus.PENDING.ordinal());
+                        ps.setTimestamp(4, now);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return payouts.size();
+                    }
+                }, keys);
+        List<Map<String, Object>> generated = keys.getKeyList();
+        for (int i = 0; i < payouts.size(); i++) {
+            // the key's name differs between drivers; it is the only column returned
+            payouts.get(i).payoutId = ((Number) generated.get(i).values().iterator().next()).longValue();
+        }
+    }
+
+    private void linkTransactions(List<SellerPayout> chunk) {
+        List<Object[]> links = new ArrayList<>();
+        for (SellerPayout payout : chunk) {
+            for (Long transactionId : payout.transactionIds) {
+                links.add(new Object[]{payout.payoutId, transactionId});
+            }
+        }
+        jdbcTemplate.batchUpdate(LINK_TRANSACTION, links);
+    }
+
+    private record Checkpoint(int status, Timestamp cutoff, long lastSellerId, long lastTransactionId,
+                              Long openPayoutId) {
+    }
+
+    /**
+     * One seller's share of a chunk.
+     */
+    private static final class SellerPayout {
+        final long sellerId;
+        final List<Long> transactionIds = new ArrayList<>();
+        long amount;
+        Long payoutId;
+
+        SellerPayout(long sellerId) {
+            this.sellerId = sellerId;
+        }
+    }
+}
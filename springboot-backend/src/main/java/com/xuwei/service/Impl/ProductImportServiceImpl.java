@@ -0,0 +1,194 @@
+package com.xuwei.service.Impl;
+
+import com.xuwei.cache.CategoryTreeCache;
+import com.xuwei.dto.ProductImportProgressDTO;
+import com.xuwei.importer.ProductRowReader;
+import com.xuwei.index.ProductIndex;
+import com.xuwei.model.Category;
+import com.xuwei.model.Product;
+import com.xuwei.model.Seller;
+import com.xuwei.request.CreateProductRequest;
+import com.xuwei.service.ProductImportService;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Bulk product import. Rows are validated as they are read and inserted in
+ * JDBC batches, one transaction per batch; the persistence context is cleared
+ * after every batch, so memory stays flat however large the file is. A failed
+ * batch is reported row by row and the import carries on with the next one.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductImportServiceImpl implements ProductImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImportServiceImpl.class);
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final CategoryTreeCache categoryTreeCache;
+    private final List<ProductIndex> productIndexes;
+
+    @Value("${product.import.batch-size:500}")
+    private int batchSize;
+
+    @Override
+    public ProductImportProgressDTO importProducts(ProductRowReader reader, Seller seller,
+                                                   Consumer<ProductImportProgressDTO> progress) {
+        ImportState state = new ImportState();
+        // category lookups are repeated on nearly every row, so keep them local to the import
+        Map<String, Category> categories = new HashMap<>();
+        List<Product> batch = new ArrayList<>(batchSize);
+        List<Long> batchRows = new ArrayList<>(batchSize);
+
+        try {
+            ProductRowReader.Row row;
+            while ((row = reader.next()) != null) {
+                state.rowsRead++;
+                String error = row.error() != null ? row.error() : validate(row.request());
+                if (error != null) {
+                    state.fail(row.number(), error);
+                    continue;
+                }
+                batch.add(buildProduct(row.request(), seller, categories));
+                batchRows.add((long) row.number());
+                if (batch.size() >= batchSize) {
+                    insertBatch(batch, batchRows, state);
+                    progress.accept(state.snapshot(false));
+                }
+            }
+        } catch (IOException e) {
+            state.fail(state.rowsRead + 1, "Import stopped, unreadable input: " + e.getMessage());
+        }
+        if (!batch.isEmpty()) {
+            insertBatch(batch, batchRows, state);
+        }
+
+        ProductImportProgressDTO result = state.snapshot(true);
+        progress.accept(result);
+        log.info("Product import for seller {}: {} rows, {} imported, {} failed in {} ms",
+                seller.getId(), result.getRowsRead(), result.getImported(), result.getFailed(),
+                result.getElapsedMillis());
+        return result;
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private static String validate(CreateProductRequest request) {
+        if (request.getTitle() == null || request.getTitle().isBlank()) {
+            return "title is required";
+        }
+        if (request.getMrpPrice() <= 0) {
+            return "mrpPrice must be positive";
+        }
+        if (request.getSellingPrice() <= 0 || request.getSellingPrice() > request.getMrpPrice()) {
+            return "sellingPrice must be positive and not above mrpPrice";
+        }
+        if (request.getCategory() == null || request.getCategory().isBlank()) {
+            return "category is required";
+        }
+        return null;
+    }
+
+    private Product buildProduct(CreateProductRequest request, Seller seller, Map<String, Category> categories) {
+        Category category = resolveCategory(categories, request.getCategory(), 1, null);
+        Category subCategory = resolveCategory(categories, request.getSubCategory(), 2, category);
+        Category subSubCategory = resolveCategory(categories, request.getSubSubCategory(), 3, subCategory);
+
+        Product product = new Product();
+        product.setSeller(seller);
+        product.setCategory(subSubCategory);
+        product.setTitle(request.getTitle());
+        product.setColor(request.getColor());
+        product.setDescription(request.getDescription());
+        product.setDiscountPercent(ProductServiceImpl.calculateDiscountPercentage(
+                request.getMrpPrice(), request.getSellingPrice()));
+        product.setSellingPrice(request.getSellingPrice());
+        product.setMrpPrice(request.getMrpPrice());
+        product.setQuantity(request.getQuantity());
+        if (request.getImages() != null) {
+            product.setImages(new ArrayList<>(request.getImages()));
+        }
+        product.setSizes(request.getSizes());
+        product.setFlashSale(request.isFlashSale());
+        product.setCreatedAt(LocalDateTime.now());
+        return product;
+    }
+
+    private Category resolveCategory(Map<String, Category> categories, String name, int level, Category parent) {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+        String categoryId = ProductServiceImpl.generateCategoryId(name, parent);
+        return categories.computeIfAbsent(categoryId,
+                id -> categoryTreeCache.getOrCreate(id, name, level, parent));
+    }
+
+    /**
+     * Inserts the batch in one transaction with JDBC batching, then feeds the
+     * committed products to the in-memory indexes and empties the batch.
+     */
+    private void insertBatch(List<Product> batch, List<Long> batchRows, ImportState state) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+                for (Product product : batch) {
+                    entityManager.persist(product);
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+            state.imported += batch.size();
+            for (ProductIndex index : productIndexes) {
+                batch.forEach(index::index);
+            }
+        } catch (RuntimeException e) {
+            String message = "Batch insert failed: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            for (Long row : batchRows) {
+                state.fail(row, message);
+            }
+        }
+        batch.clear();
+        batchRows.clear();
+    }
+
+    private static final class ImportState {
+        private final long start = System.nanoTime();
+        private long rowsRead;
+        private long imported;
+        private long failed;
+        private int reportedErrors;
+        private List<ProductImportProgressDTO.RowError> newErrors = new ArrayList<>();
+
+        void fail(long row, String message) {
+            failed++;
+            if (reportedErrors < MAX_REPORTED_ERRORS) {
+                reportedErrors++;
+                newErrors.add(new ProductImportProgressDTO.RowError(row, message));
+            }
+        }
+
+        ProductImportProgressDTO snapshot(boolean done) {
+            ProductImportProgressDTO progress = new ProductImportProgressDTO(rowsRead, imported, failed,
+                    newErrors, done, (System.nanoTime() - start) / 1_000_000);
+            newErrors = new ArrayList<>();
+            return progress;
+        }
+    }
+}
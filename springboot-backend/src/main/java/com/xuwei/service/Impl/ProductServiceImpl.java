@@ -1,30 +1,79 @@
 package com.xuwei.service.Impl;
 
+import com.xuwei.cache.CategoryTreeCache;
+import com.xuwei.cache.ListingCountCache;
+import com.xuwei.cache.ProductCache;
+import com.xuwei.converter.ProductConverter;
+import com.xuwei.dto.CacheStatsDTO;
+import com.xuwei.dto.ProductDetailDTO;
+import com.xuwei.dto.ProductExportDTO;
+import com.xuwei.dto.ProductFacetsDTO;
+import com.xuwei.dto.ProductSuggestionDTO;
+import com.xuwei.dto.ProductSummaryDTO;
+import com.xuwei.event.ProductDeletedEvent;
+import com.xuwei.event.ProductPriceChangedEvent;
 import com.xuwei.exception.ProductException;
+import com.xuwei.index.ProductCatalogSnapshot;
+import com.xuwei.index.ProductFacetIndex;
+import com.xuwei.index.ProductIndex;
+import com.xuwei.index.ProductSearchIndex;
+import com.xuwei.index.ProductSuggestIndex;
 import com.xuwei.model.Category;
 import com.xuwei.model.Product;
 import com.xuwei.model.Seller;
-import com.xuwei.repository.CategoryRepository;
 import com.xuwei.repository.ProductRepository;
 import com.xuwei.request.CreateProductRequest;
+import com.xuwei.response.CursorPageResponse;
 import com.xuwei.service.ProductService;
-import jakarta.persistence.criteria.Join;
+import com.xuwei.utils.CursorUtils;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class ProductServiceImpl implements ProductService {
 
+    private static final int DEFAULT_SEARCH_PAGE_SIZE = 20;
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+    private static final int STREAM_CHUNK_SIZE = 500;
+    private static final int DEFAULT_SELLER_PAGE_SIZE = 20;
+    private static final int MAX_SELLER_PAGE_SIZE = 100;
+    private static final int LISTING_PAGE_SIZE = 10;
+    // first part of a listing cursor: which source produced the position
+    private static final String SNAPSHOT_CURSOR = "s";
+    private static final String DATABASE_CURSOR = "d";
+
     private final ProductRepository productRepository;
-    private final CategoryRepository categoryRepository;
+    private final CategoryTreeCache categoryTreeCache;
+    private final ProductCache productCache;
+    private final ListingCountCache listingCountCache;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final ProductCatalogSnapshot catalogSnapshot;
+    private final List<ProductIndex> productIndexes;
+    private final ProductConverter productConverter;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public Product createProduct(CreateProductRequest request, Seller seller) {
@@ -47,32 +96,25 @@ public class ProductServiceImpl implements ProductService {
         product.setSellingPrice(request.getSellingPrice());
         product.setImages(request.getImages());
         product.setMrpPrice(request.getMrpPrice());
+        product.setQuantity(request.getQuantity());
         product.setSizes(request.getSizes());
+        product.setFlashSale(request.isFlashSale());
         product.setCreatedAt(LocalDateTime.now());
 
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        productIndexes.forEach(index -> index.index(saved));
+        return saved;
     }
 
     /**
      *  Utility method: Ensure category exists or create a new one.
+     *  Served from the category tree cache; only new categories touch the database.
      */
     private Category ensureCategoryExists(String name, int level, Category parent) {
         if (name == null || name.isBlank()) return null;
 
         String generatedId = generateCategoryId(name, parent);
-
-        Category existing = categoryRepository.findByCategoryId(generatedId);
-        if (existing != null) {
-            return existing;
-        }
-
-        Category newCategory = new Category();
-        newCategory.setName(name);
-        newCategory.setCategoryId(generatedId);
-        newCategory.setParentCategory(parent);
-        newCategory.setLevel(level);
-
-        return categoryRepository.save(newCategory);
+        return categoryTreeCache.getOrCreate(generatedId, name, level, parent);
     }
 
     /**
@@ -88,13 +130,18 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public void deleteProduct(Long productId) throws ProductException {
-        Product product = getProductById(productId);
+        Product product = findProductForUpdate(productId);
         productRepository.delete(product);
+        productCache.invalidate(productId);
+        eventPublisher.publishEvent(new ProductDeletedEvent(productId));
+        productIndexes.forEach(index -> index.remove(productId));
     }
 
     @Override
     public Product updateProduct(Long productId, CreateProductRequest request, Seller seller) throws ProductException {
-        Product existing = getProductById(productId);
+        Product existing = findProductForUpdate(productId);
+        boolean priceChanged = existing.getMrpPrice() != request.getMrpPrice()
+                || existing.getSellingPrice() != request.getSellingPrice();
 
         existing.setTitle(request.getTitle());
         existing.setDescription(request.getDescription());
@@ -103,6 +150,7 @@ public class ProductServiceImpl implements ProductService {
         existing.setColor(request.getColor());
         existing.setImages(request.getImages());
         existing.setSizes(request.getSizes());
+        existing.setFlashSale(request.isFlashSale());
         existing.setDiscountPercent(calculateDiscountPercentage(request.getMrpPrice(), request.getSellingPrice()));
 
         if (request.getCategory() != null) {
@@ -114,12 +162,51 @@ public class ProductServiceImpl implements ProductService {
 
         existing.setSeller(seller);
 
-        return productRepository.save(existing);
+        Product saved = productRepository.save(existing);
+        productCache.invalidate(productId);
+        productIndexes.forEach(index -> index.index(saved));
+        if (priceChanged) {
+            // carts holding the product are repriced asynchronously
+            eventPublisher.publishEvent(new ProductPriceChangedEvent(productId));
+        }
+        return saved;
     }
 
 
     @Override
     public Product getProductById(Long productId) throws ProductException {
+        Product product = productCache.getProduct(productId,
+                id -> productRepository.findWithImagesById(id).orElse(null));
+        if (product == null) {
+            throw new ProductException("Product not found");
+        }
+        return product;
+    }
+
+    @Override
+    public ProductDetailDTO getProductDetail(Long productId) throws ProductException {
+        ProductDetailDTO detail = productCache.getDetail(productId, id -> {
+            List<ProductRepository.ProductDetailRow> rows = productRepository.findDetailRowsById(id);
+            return rows.isEmpty() ? null : productConverter.convertToProductDetailDTO(rows);
+        });
+        if (detail == null) {
+            throw new ProductException("Product not found");
+        }
+        return detail;
+    }
+
+    @Override
+    public List<CacheStatsDTO> getProductCacheStats() {
+        List<CacheStatsDTO> stats = new ArrayList<>(productCache.stats());
+        stats.add(listingCountCache.stats());
+        return stats;
+    }
+
+    /**
+     *  Utility method: Load a managed product for a write, bypassing the cache so
+     *  the shared cached instance is never mutated.
+     */
+    private Product findProductForUpdate(Long productId) throws ProductException {
         return productRepository.findById(productId)
                 .orElseThrow(() -> new ProductException("Product not found"));
     }
@@ -127,8 +214,163 @@ public class ProductServiceImpl implements ProductService {
 
 
     @Override
-    public List<Product> searchProducts(String query) {
-        return productRepository.searchProducts(query);
+    @Transactional(readOnly = true)
+    public CursorPageResponse<ProductSummaryDTO> searchProducts(String query, Integer page, Integer size, String cursor)
+            throws ProductException {
+        int pageSize = (size == null || size <= 0) ? DEFAULT_SEARCH_PAGE_SIZE : Math.min(size, MAX_SEARCH_PAGE_SIZE);
+        int pageNumber = (page == null || page < 0) ? 0 : page;
+        String[] position = decodeCursor(cursor);
+
+        if (productSearchIndex.isReady() && (position == null || position.length == 2)) {
+            return searchIndexPage(query, pageNumber, pageSize, position);
+        }
+        if (position != null && position.length != 1) {
+            throw new ProductException("Invalid search cursor");
+        }
+        return searchDatabasePage(query, pageNumber, pageSize, position);
+    }
+
+    /**
+     * Streams every match, best first. From the index the matches are read a
+     * page at a time, each continued after the last hit's (score, id), so only
+     * one page of hits and summaries is held however many products match.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamSearchResults(String query, Consumer<ProductSummaryDTO> consumer) {
+        if (productSearchIndex.isReady()) {
+            List<ProductSearchIndex.SearchHit> hits = productSearchIndex.search(query, 0, STREAM_CHUNK_SIZE).hits();
+            while (!hits.isEmpty()) {
+                loadSummariesInOrder(hits.stream().map(ProductSearchIndex.SearchHit::productId).toList())
+                        .forEach(consumer);
+                if (hits.size() < STREAM_CHUNK_SIZE) {
+                    return;
+                }
+                ProductSearchIndex.SearchHit last = hits.get(hits.size() - 1);
+                hits = productSearchIndex.searchAfter(query, last.score(), last.productId(), STREAM_CHUNK_SIZE).hits();
+            }
+            return;
+        }
+        try (Stream<ProductSummaryDTO> rows = productRepository.streamSearchSummaries(query)) {
+            rows.forEach(consumer);
+        }
+    }
+
+    @Override
+    public List<ProductSuggestionDTO> suggestProducts(String prefix, Integer limit) {
+        if (!productSuggestIndex.isReady()) {
+            return List.of();
+        }
+        int k = (limit == null || limit <= 0) ? ProductSuggestIndex.TOP_K : limit;
+        return productSuggestIndex.suggest(prefix, k).stream()
+                .map(s -> new ProductSuggestionDTO(s.text(), s.type().name(), s.popularity()))
+                .toList();
+    }
+
+    /**
+     *  Utility method: Ranked page from the search index, continued by (score, id).
+     */
+    private CursorPageResponse<ProductSummaryDTO> searchIndexPage(String query, int page, int size, String[] position)
+            throws ProductException {
+        ProductSearchIndex.SearchResult result;
+        if (position != null) {
+            try {
+                result = productSearchIndex.searchAfter(query,
+                        Double.parseDouble(position[0]), Long.parseLong(position[1]), size + 1);
+            } catch (NumberFormatException e) {
+                throw new ProductException("Invalid search cursor");
+            }
+        } else {
+            result = productSearchIndex.search(query, page * size, size + 1);
+        }
+
+        List<ProductSearchIndex.SearchHit> hits = result.hits();
+        boolean hasNext = hits.size() > size;
+        if (hasNext) {
+            hits = hits.subList(0, size);
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            ProductSearchIndex.SearchHit last = hits.get(hits.size() - 1);
+            nextCursor = CursorUtils.encode(last.score(), last.productId());
+        }
+        List<Long> ids = hits.stream().map(ProductSearchIndex.SearchHit::productId).toList();
+        return new CursorPageResponse<>(loadSummariesInOrder(ids), position == null ? page : null,
+                size, (long) result.total(), nextCursor, hasNext);
+    }
+
+    /**
+     *  Utility method: Fallback page from the LIKE query, continued by id.
+     */
+    private CursorPageResponse<ProductSummaryDTO> searchDatabasePage(String query, int page, int size, String[] position)
+            throws ProductException {
+        Slice<ProductSummaryDTO> slice;
+        if (position != null) {
+            try {
+                slice = productRepository.searchSummaries(query, Long.parseLong(position[0]), PageRequest.of(0, size));
+            } catch (NumberFormatException e) {
+                throw new ProductException("Invalid search cursor");
+            }
+        } else {
+            slice = productRepository.searchSummaries(query, 0L, PageRequest.of(page, size));
+        }
+
+        List<ProductSummaryDTO> content = slice.getContent();
+        String nextCursor = slice.hasNext() && !content.isEmpty()
+                ? CursorUtils.encode(content.get(content.size() - 1).getId())
+                : null;
+        return new CursorPageResponse<>(content, position == null ? page : null,
+                size, null, nextCursor, slice.hasNext());
+    }
+
+    private static String[] decodeCursor(String cursor) throws ProductException {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return CursorUtils.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ProductException("Invalid search cursor");
+        }
+    }
+
+    /**
+     *  Utility method: Load summaries by id, keeping the order of the given ids.
+     */
+    private List<ProductSummaryDTO> loadSummariesInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ProductSummaryDTO> byId = new HashMap<>();
+        for (ProductSummaryDTO summary : productRepository.findSummariesByIdIn(ids)) {
+            byId.put(summary.getId(), summary);
+        }
+        List<ProductSummaryDTO> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ProductSummaryDTO summary = byId.get(id);
+            if (summary != null) {
+                ordered.add(summary);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     *  Utility method: Load products by id, keeping the order of the given ids.
+     */
+    private List<Product> loadInOrder(List<Long> ids) {
+        Map<Long, Product> byId = new HashMap<>();
+        for (Product product : productRepository.findAllById(ids)) {
+            byId.put(product.getId(), product);
+        }
+        List<Product> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Product product = byId.get(id);
+            if (product != null) {
+                ordered.add(product);
+            }
+        }
+        return ordered;
     }
 
     @Override
@@ -144,17 +386,276 @@ public class ProductServiceImpl implements ProductService {
             String stock,
             Integer pageNumber
     ) {
-        //  Build Specification dynamically (filtering logic)
-        Specification<Product> spec = (root, query, cb) -> {
+        Pageable pageable = buildPageable(pageNumber, sort);
+        // the snapshot has no stock column; those queries keep going to the database
+        if (catalogSnapshot.isReady() && stock == null) {
+            return listFromSnapshot(category, color, sizes, minPrice, maxPrice, minDiscount, sort, pageable);
+        }
+
+        Specification<Product> spec = listingSpec(category, color, sizes, minPrice, maxPrice, minDiscount, stock);
+        return productRepository.findAll(spec, pageable);
+    }
+
+    /**
+     *  Utility method: Answer a listing page from the columnar catalog snapshot,
+     *  then load just that page's products.
+     */
+    private Page<Product> listFromSnapshot(String category, String color, String sizes, Integer minPrice,
+                                           Integer maxPrice, Integer minDiscount, String sort, Pageable pageable) {
+        ProductCatalogSnapshot.Listing listing = catalogSnapshot.list(
+                snapshotFilter(category, color, sizes, minPrice, maxPrice, minDiscount),
+                ProductCatalogSnapshot.Ordering.fromParam(sort),
+                (int) pageable.getOffset(), pageable.getPageSize());
+        List<Long> ids = Arrays.stream(listing.productIds()).boxed().toList();
+        return new PageImpl<>(loadInOrder(ids), pageable, listing.total());
+    }
+
+    @Override
+    public CursorPageResponse<Product> scrollProducts(
+            String category,
+            String color,
+            String sizes,
+            Integer minPrice,
+            Integer maxPrice,
+            Integer minDiscount,
+            String sort,
+            String stock,
+            String mode,
+            Integer pageNumber,
+            String cursor,
+            boolean includeTotal
+    ) throws ProductException {
+        if (!"slice".equals(mode) && !"keyset".equals(mode)) {
+            throw new ProductException("Unknown listing mode: " + mode);
+        }
+        category = trimToNull(category);
+        color = trimToNull(color);
+        sizes = trimToNull(sizes);
+        ProductCatalogSnapshot.Ordering ordering = ProductCatalogSnapshot.Ordering.fromParam(sort);
+        // keyset mode only ever seeks; its first page is the one without a cursor
+        int page = ("keyset".equals(mode) || pageNumber == null || pageNumber < 0) ? 0 : pageNumber;
+        String[] position = decodeListingCursor(cursor, ordering);
+
+        if (catalogSnapshot.isReady() && stock == null) {
+            if (position != null && !SNAPSHOT_CURSOR.equals(position[0])) {
+                throw new ProductException("Listing cursor has expired, start from the first page");
+            }
+            return scrollSnapshot(snapshotFilter(category, color, sizes, minPrice, maxPrice, minDiscount),
+                    ordering, page, position);
+        }
+        if (position != null && !DATABASE_CURSOR.equals(position[0])) {
+            throw new ProductException("Listing cursor has expired, start from the first page");
+        }
+        Specification<Product> spec = listingSpec(category, color, sizes, minPrice, maxPrice, minDiscount, stock);
+        Long total = null;
+        if (includeTotal) {
+            total = listingCountCache.getCount(
+                    filterSignature(category, color, sizes, minPrice, maxPrice, minDiscount, stock),
+                    () -> productRepository.count(spec));
+        }
+        return scrollDatabase(spec, ordering, page, position, total);
+    }
+
+    /**
+     *  Utility method: Count-free page from the catalog snapshot, continued by (sort key, id).
+     *  The snapshot counts matches during its scan anyway, so the total is always exact.
+     */
+    private CursorPageResponse<Product> scrollSnapshot(ProductCatalogSnapshot.Filter filter,
+                                                       ProductCatalogSnapshot.Ordering ordering,
+                                                       int page, String[] position) throws ProductException {
+        ProductCatalogSnapshot.Listing listing;
+        if (position != null) {
+            try {
+                listing = catalogSnapshot.listAfter(filter, ordering,
+                        Long.parseLong(position[2]), Long.parseLong(position[3]), LISTING_PAGE_SIZE + 1);
+            } catch (NumberFormatException e) {
+                throw new ProductException("Invalid listing cursor");
+            }
+        } else {
+            int offset = (int) Math.min((long) page * LISTING_PAGE_SIZE, Integer.MAX_VALUE);
+            listing = catalogSnapshot.list(filter, ordering, offset, LISTING_PAGE_SIZE + 1);
+        }
+
+        long[] ids = listing.productIds();
+        boolean hasNext = ids.length > LISTING_PAGE_SIZE;
+        int n = Math.min(ids.length, LISTING_PAGE_SIZE);
+        String nextCursor = hasNext
+                ? CursorUtils.encode(SNAPSHOT_CURSOR, ordering.name(), ids[n - 1], listing.sortKeys()[n - 1])
+                : null;
+        List<Long> pageIds = Arrays.stream(ids, 0, n).boxed().toList();
+        return new CursorPageResponse<>(loadInOrder(pageIds), position == null ? page : null,
+                LISTING_PAGE_SIZE, listing.total(), nextCursor, hasNext);
+    }
+
+    /**
+     *  Utility method: Count-free page from the database. Without a cursor this is an
+     *  OFFSET slice; with one it seeks past the (sort key, id) of the previous page's
+     *  last row, so the cost no longer grows with the page number.
+     */
+    private CursorPageResponse<Product> scrollDatabase(Specification<Product> spec,
+                                                       ProductCatalogSnapshot.Ordering ordering,
+                                                       int page, String[] position, Long total)
+            throws ProductException {
+        Sort sort = listingSort(ordering);
+        Specification<Product> pageSpec = spec;
+        Pageable pageable = PageRequest.of(page, LISTING_PAGE_SIZE, sort);
+        if (position != null) {
+            pageSpec = spec.and(keysetAfter(ordering, position[2], position[3]));
+            pageable = PageRequest.of(0, LISTING_PAGE_SIZE, sort);
+        }
+        Pageable request = pageable;
+        Slice<Product> slice = productRepository.findBy(pageSpec, query -> query.slice(request));
+
+        List<Product> content = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext() && !content.isEmpty()) {
+            Product last = content.get(content.size() - 1);
+            nextCursor = CursorUtils.encode(DATABASE_CURSOR, ordering.name(), last.getId(), sortKey(ordering, last));
+        }
+        return new CursorPageResponse<>(content, position == null ? page : null,
+                LISTING_PAGE_SIZE, total, nextCursor, slice.hasNext());
+    }
+
+    /**
+     *  Utility method: Decode a listing cursor into (source, ordering, sort key, id),
+     *  rejecting cursors issued for a different sort.
+     */
+    private static String[] decodeListingCursor(String cursor, ProductCatalogSnapshot.Ordering ordering)
+            throws ProductException {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        String[] parts;
+        try {
+            parts = CursorUtils.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ProductException("Invalid listing cursor");
+        }
+        if (parts.length < 4) {
+            throw new ProductException("Invalid listing cursor");
+        }
+        if (!ordering.name().equals(parts[1])) {
+            throw new ProductException("Listing cursor was issued for a different sort");
+        }
+        // the sort key goes last because a timestamp contains the separator
+        String sortKey = String.join(":", Arrays.copyOfRange(parts, 3, parts.length));
+        return new String[]{parts[0], parts[1], sortKey, parts[2]};
+    }
+
+    /**
+     *  Utility method: Rows ranking strictly after (sortKey, id) in listingSort order.
+     */
+    private static Specification<Product> keysetAfter(ProductCatalogSnapshot.Ordering ordering,
+                                                      String sortKey, String productId) throws ProductException {
+        String attribute = sortAttribute(ordering);
+        long afterId;
+        Comparable<?> key;
+        try {
+            afterId = Long.parseLong(productId);
+            if (attribute == null) {
+                key = null;
+            } else if (attribute.equals("createdAt")) {
+                key = sortKey.isEmpty() ? null : LocalDateTime.parse(sortKey);
+            } else {
+                key = Integer.parseInt(sortKey);
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new ProductException("Invalid listing cursor");
+        }
+        boolean descending = ordering != ProductCatalogSnapshot.Ordering.PRICE_LOW;
+        return (root, query, cb) -> {
+            Predicate tieBreak = cb.greaterThan(root.get("id"), afterId);
+            if (attribute == null) {
+                return tieBreak;
+            }
+            return keysetPredicate(cb, root.get(attribute), key, descending, attribute.equals("createdAt"), tieBreak);
+        };
+    }
+
+    /**
+     *  Utility method: Seek predicate for one sort column. The bound on the column comes
+     *  first so the database can range-scan a (column, id) index from the position;
+     *  NULLs sort first ascending and last descending, as MySQL does.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate keysetPredicate(CriteriaBuilder cb, Path path, Comparable key,
+                                             boolean descending, boolean nullable, Predicate tieBreak) {
+        if (key == null) {
+            Predicate sameKey = cb.and(cb.isNull(path), tieBreak);
+            return descending ? sameKey : cb.or(sameKey, cb.isNotNull(path));
+        }
+        Predicate seek = descending
+                ? cb.and(cb.lessThanOrEqualTo(path, key), cb.or(cb.lessThan(path, key), tieBreak))
+                : cb.and(cb.greaterThanOrEqualTo(path, key), cb.or(cb.greaterThan(path, key), tieBreak));
+        return descending && nullable ? cb.or(seek, cb.isNull(path)) : seek;
+    }
+
+    private static String sortKey(ProductCatalogSnapshot.Ordering ordering, Product product) {
+        return switch (ordering) {
+            case PRICE_LOW, PRICE_HIGH -> String.valueOf(product.getSellingPrice());
+            case NEWEST -> product.getCreatedAt() == null ? "" : product.getCreatedAt().toString();
+            case DISCOUNT -> String.valueOf(product.getDiscountPercent());
+            case RATING -> String.valueOf(product.getRating());
+            default -> "";
+        };
+    }
+
+    /**
+     *  Utility method: Sort column of the listing ordering; null means id order.
+     *  Popularity lives only in the catalog snapshot, so the database lists it by id.
+     */
+    private static String sortAttribute(ProductCatalogSnapshot.Ordering ordering) {
+        return switch (ordering) {
+            case PRICE_LOW, PRICE_HIGH -> "sellingPrice";
+            case NEWEST -> "createdAt";
+            case DISCOUNT -> "discountPercent";
+            case RATING -> "rating";
+            default -> null;
+        };
+    }
+
+    /**
+     *  Utility method: Database sort for the listing ordering, with id as the tie-breaker
+     *  in the same position the catalog snapshot uses, so every page is deterministic.
+     */
+    private static Sort listingSort(ProductCatalogSnapshot.Ordering ordering) {
+        String attribute = sortAttribute(ordering);
+        if (attribute == null) {
+            return Sort.by("id");
+        }
+        Sort.Direction direction = ordering == ProductCatalogSnapshot.Ordering.PRICE_LOW
+                ? Sort.Direction.ASC : Sort.Direction.DESC;
+        return Sort.by(direction, attribute).and(Sort.by("id"));
+    }
+
+    /**
+     *  Utility method: Cache key for a filter's match count. Sort and page do not change
+     *  the count, and MySQL compares text case-insensitively.
+     */
+    private static String filterSignature(String category, String color, String sizes, Integer minPrice,
+                                          Integer maxPrice, Integer minDiscount, String stock) {
+        return String.join("|",
+                category == null ? "" : category.toLowerCase(Locale.ROOT),
+                color == null ? "" : color.toLowerCase(Locale.ROOT),
+                sizes == null ? "" : sizes.toLowerCase(Locale.ROOT),
+                String.valueOf(minPrice), String.valueOf(maxPrice), String.valueOf(minDiscount),
+                stock == null ? "" : stock);
+    }
+
+    /**
+     *  Utility method: Build the listing Specification dynamically (filtering logic).
+     */
+    private Specification<Product> listingSpec(String category, String color, String sizes, Integer minPrice,
+                                               Integer maxPrice, Integer minDiscount, String stock) {
+        return (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
 
             if (category != null) {
-                Join<Product, Category> categoryJoin = root.join("category");
-                Predicate categoryPredicate = cb.or(
-                        cb.equal(categoryJoin.get("categoryId"), category),
-                        cb.equal(categoryJoin.get("parentCategory").get("categoryId"), category)
-                );
-                predicates.add(categoryPredicate);
+                // the category and every level below it, precomputed by the category tree cache
+                Set<Long> categoryIds = categoryTreeCache.descendantIds(category);
+                predicates.add(categoryIds.isEmpty()
+                        ? cb.disjunction()
+                        : root.get("category").get("id").in(categoryIds));
             }
 
             if (color != null && !color.isEmpty()) {
@@ -183,9 +684,36 @@ public class ProductServiceImpl implements ProductService {
 
             return cb.and(predicates.toArray(new Predicate[0]));
         };
+    }
 
-        Pageable pageable = buildPageable(pageNumber, sort);
-        return productRepository.findAll(spec, pageable);
+    private ProductCatalogSnapshot.Filter snapshotFilter(String category, String color, String sizes,
+                                                         Integer minPrice, Integer maxPrice, Integer minDiscount) {
+        long[] categoryIds = null;
+        if (category != null) {
+            categoryIds = categoryTreeCache.descendantIds(category).stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+        return new ProductCatalogSnapshot.Filter(categoryIds, blankToNull(color), blankToNull(sizes),
+                minPrice, maxPrice, minDiscount);
+    }
+
+    @Override
+    public ProductFacetsDTO getProductFacets(String category, String color, String sizes,
+                                             Integer minPrice, Integer maxPrice, Integer minDiscount)
+            throws ProductException {
+        if (!productFacetIndex.isReady()) {
+            throw new ProductException("Product facets are not available yet");
+        }
+        ProductFacetIndex.FacetCounts counts = productFacetIndex.count(new ProductFacetIndex.Filter(
+                blankToNull(category), blankToNull(color), blankToNull(sizes), minPrice, maxPrice, minDiscount));
+        return new ProductFacetsDTO(counts.total(), counts.facets());
+    }
+
+    private static String trimToNull(String value) {
+        return (value == null || value.isBlank()) ? null : value.trim();
+    }
+
+    private static String blankToNull(String value) {
+        return (value == null || value.isBlank()) ? null : value;
     }
 
     /**
@@ -193,17 +721,13 @@ public class ProductServiceImpl implements ProductService {
      */
     private Pageable buildPageable(Integer pageNumber, String sort) {
         int page = (pageNumber != null) ? pageNumber : 0;
-        if (sort == null || sort.isEmpty()) {
-            return PageRequest.of(page, 10, Sort.unsorted());
-        }
-        return switch (sort) {
-            case "price_low" -> PageRequest.of(page, 10, Sort.by("sellingPrice").ascending());
-            case "price_high" -> PageRequest.of(page, 10, Sort.by("sellingPrice").descending());
-            default -> PageRequest.of(page, 10, Sort.unsorted());
-        };
+        return PageRequest.of(page, LISTING_PAGE_SIZE, listingSort(ProductCatalogSnapshot.Ordering.fromParam(sort)));
     }
 
-    private String generateCategoryId(String name, Category parent) {
+    /**
+     *  Utility method: Category id derived from the name and the parent's id, e.g. men_top_wear.
+     */
+    public static String generateCategoryId(String name, Category parent) {
         String baseId = name.toLowerCase().replaceAll("\\s+", "_");
         if (parent != null && parent.getCategoryId() != null) {
             return parent.getCategoryId() + "_" + baseId;
@@ -212,7 +736,34 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
-    public List<Product> getProductBySellerId(Long sellerId) {
-        return productRepository.findBySellerId(sellerId);
+    public Page<Product> getProductBySellerId(Long sellerId, Integer page, Integer size) {
+        int pageSize = (size == null || size <= 0) ? DEFAULT_SELLER_PAGE_SIZE : Math.min(size, MAX_SELLER_PAGE_SIZE);
+        int pageNumber = (page == null || page < 0) ? 0 : page;
+        return productRepository.findBySellerId(sellerId,
+                PageRequest.of(pageNumber, pageSize, Sort.by("id").descending()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportSellerProducts(Long sellerId, Consumer<ProductExportDTO> consumer) {
+        try (Stream<ProductRepository.ProductExportRow> rows = productRepository.streamExportRowsBySellerId(sellerId)) {
+            ProductExportDTO current = null;
+            Iterator<ProductRepository.ProductExportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                ProductRepository.ProductExportRow row = iterator.next();
+                if (current == null || !current.getId().equals(row.getId())) {
+                    if (current != null) {
+                        consumer.accept(current);
+                    }
+                    current = productConverter.convertToProductExportDTO(row);
+                }
+                if (row.getImage() != null) {
+                    current.getImages().add(row.getImage());
+                }
+            }
+            if (current != null) {
+                consumer.accept(current);
+            }
+        }
     }
 }
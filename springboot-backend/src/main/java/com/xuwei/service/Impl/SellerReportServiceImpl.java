@@ -0,0 +1,279 @@
+package com.xuwei.service.Impl;
+
+import com.xuwei.domain.OrderStatus;
+import com.xuwei.domain.PaymentStatus;
+import com.xuwei.model.Order;
+import com.xuwei.model.Seller;
+import com.xuwei.model.SellerReport;
+import com.xuwei.repository.SellerReportRepository;
+import com.xuwei.service.SellerReportService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Keeps each seller's report as running totals.
+ * <p>
+ * Every order event adds its delta to the seller's row with one
+ * {@code column = column + ?} update, in the transaction that changes the
+ * orders, so the row is exact whenever that transaction commits and
+ * concurrent events never overwrite each other. A checkout or an expiry run
+ * touching several sellers updates their rows in seller id order, which
+ * keeps two of them from locking the rows in opposite orders.
+ * <p>
+ * {@link #reconcile} recomputes the totals from orders and transactions for
+ * a range of sellers and rewrites the rows that drifted, for example the
+ * rows of sellers whose events came before their row existed. A drifted row
+ * is locked before it is summed again, so an event committing meanwhile is
+ * either counted by the sum or added on top of the rewrite, never both.
+ */
+@Service
+@RequiredArgsConstructor
+public class SellerReportServiceImpl implements SellerReportService {
+
+    private static final Logger log = LoggerFactory.getLogger(SellerReportServiceImpl.class);
+
+    private static final String ADD_ORDERS = "UPDATE seller_report SET total_orders = total_orders + ? "
+            + "WHERE seller_id = ?";
+    private static final String ADD_SALE = "UPDATE seller_report SET total_sales = total_sales + ?, "
+            + "total_earnings = total_earnings + ?, net_earnings = net_earnings + ?, "
+            + "total_transactions = total_transactions + 1 WHERE seller_id = ?";
+    private static final String ADD_CANCELLATIONS = "UPDATE seller_report "
+            + "SET canceled_orders = canceled_orders + ?, total_refunds = total_refunds + ?, "
+            + "total_earnings = total_earnings - ?, net_earnings = net_earnings - ? WHERE seller_id = ?";
+    private static final String FIND_CANCELLED = "SELECT seller_id, payment_status, total_selling_price "
+            + "FROM orders WHERE seller_id IS NOT NULL AND id IN (%s)";
+    private static final String SUM_ORDERS = "SELECT seller_id, COUNT(*), "
+            + "SUM(CASE WHEN order_status = ? THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN payment_status = ? THEN total_selling_price ELSE 0 END), "
+            + "SUM(CASE WHEN payment_status = ? AND order_status = ? THEN total_selling_price ELSE 0 END) "
+            + "FROM orders WHERE seller_id > ? AND seller_id <= ? GROUP BY seller_id";
+    private static final String COUNT_TRANSACTIONS = "SELECT seller_id, COUNT(*) FROM transaction "
+            + "WHERE seller_id > ? AND seller_id <= ? GROUP BY seller_id";
+    private static final String FIND_SELLERS = "SELECT id FROM seller WHERE id > ? AND id <= ?";
+    private static final String FIND_REPORTS = "SELECT seller_id, total_orders, canceled_orders, total_sales, "
+            + "total_refunds, total_earnings, total_tax, net_earnings, total_transactions FROM seller_report "
+            + "WHERE seller_id > ? AND seller_id <= ?";
+    private static final String LOCK_REPORT = FIND_REPORTS + " FOR UPDATE";
+    private static final String INSERT_REPORT = "INSERT INTO seller_report (seller_id, total_orders, "
+            + "canceled_orders, total_sales, total_refunds, total_earnings, total_tax, net_earnings, "
+            + "total_transactions) VALUES (?, ?, ?, ?, ?, ?, 0, ?, ?)";
+    private static final String WRITE_REPORT = "UPDATE seller_report SET total_orders = ?, canceled_orders = ?, "
+            + "total_sales = ?, total_refunds = ?, total_earnings = ?, net_earnings = ?, total_transactions = ? "
+            + "WHERE seller_id = ?";
+    private static final String MAX_SELLER_ID = "SELECT MAX(id) FROM seller";
+
+    private final SellerReportRepository sellerReportRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * The seller's report, one row read. A seller without a row yet gets one
+     * summed from their orders.
+     */
+    @Override
+    public SellerReport getSellerReport(Seller seller) {
+        Optional<SellerReport> report = sellerReportRepository.findBySellerId(seller.getId());
+        if (report.isPresent()) {
+            return report.get();
+        }
+        reconcile(seller.getId() - 1, seller.getId());
+        return sellerReportRepository.findBySellerId(seller.getId()).orElseGet(() -> {
+            SellerReport empty = new SellerReport();
+            empty.setSeller(seller);
+            return empty;
+        });
+    }
+
+    /**
+     * Counts newly placed orders. Must run in the checkout's transaction.
+     */
+    @Override
+    public void recordOrdersPlaced(List<Order> orders) {
+        SortedMap<Long, Integer> placed = new TreeMap<>();
+        for (Order order : orders) {
+            if (order.getSellerId() != null) {
+                placed.merge(order.getSellerId(), 1, Integer::sum);
+            }
+        }
+        if (placed.isEmpty()) {
+            return;
+        }
+        List<Object[]> deltas = new ArrayList<>(placed.size());
+        placed.forEach((sellerId, count) -> deltas.add(new Object[]{count, sellerId}));
+        warnMissing(jdbcTemplate.batchUpdate(ADD_ORDERS, deltas), placed.keySet());
+    }
+
+    /**
+     * Counts a paid order as a sale. Must run in the payment's transaction.
+     */
+    @Override
+    public void recordPayment(Order order) {
+        if (order.getSellerId() == null) {
+            return;
+        }
+        long amount = order.getTotalSellingPrice();
+        int updated = jdbcTemplate.update(ADD_SALE, amount, amount, amount, order.getSellerId());
+        warnMissing(new int[]{updated}, Set.of(order.getSellerId()));
+    }
+
+    /**
+     * Counts orders that were just cancelled, refunding the paid ones. Must
+     * run in the transaction that cancelled them.
+     */
+    @Override
+    public void recordCancellations(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        String sql = String.format(FIND_CANCELLED, String.join(", ", Collections.nCopies(orderIds.size(), "?")));
+        SortedMap<Long, long[]> cancelled = new TreeMap<>();
+        jdbcTemplate.query(sql, row -> {
+            long[] delta = cancelled.computeIfAbsent(row.getLong(1), id -> new long[2]);
+            delta[0]++;
+            if (row.getInt(2) == PaymentStatus.COMPLETED.ordinal()) {
+                delta[1] += row.getLong(3);
+            }
+        }, orderIds.toArray());
+        List<Object[]> deltas = new ArrayList<>(cancelled.size());
+        cancelled.forEach((sellerId, delta) ->
+                deltas.add(new Object[]{delta[0], delta[1], delta[1], delta[1], sellerId}));
+        warnMissing(jdbcTemplate.batchUpdate(ADD_CANCELLATIONS, deltas), cancelled.keySet());
+    }
+
+    /**
+     * Sums the orders and transactions of the sellers in the id range
+     * (fromSellerId, toSellerId] and rewrites the reports that differ,
+     * creating the missing ones. Returns the number of reports rewritten or
+     * created.
+     */
+    @Override
+    public int reconcile(long fromSellerId, long toSellerId) {
+        Map<Long, Totals> expected = sumSources(fromSellerId, toSellerId);
+        Map<Long, StoredReport> stored = new HashMap<>();
+        jdbcTemplate.query(FIND_REPORTS, row -> {
+            stored.put(row.getLong(1), storedReport(row));
+        }, fromSellerId, toSellerId);
+
+        int repaired = 0;
+        for (Long sellerId : jdbcTemplate.queryForList(FIND_SELLERS, Long.class, fromSellerId, toSellerId)) {
+            Totals should = expected.getOrDefault(sellerId, Totals.NONE);
+            StoredReport has = stored.get(sellerId);
+            if (has == null) {
+                if (createReport(sellerId)) {
+                    repaired++;
+                }
+            } else if (!has.matches(should) && repair(sellerId)) {
+                repaired++;
+            }
+        }
+        return repaired;
+    }
+
+    @Override
+    public Long findMaxSellerId() {
+        return jdbcTemplate.queryForObject(MAX_SELLER_ID, Long.class);
+    }
+
+    // ============ PRIVATE HELPER METHODS ============
+
+    private Map<Long, Totals> sumSources(long fromSellerId, long toSellerId) {
+        Map<Long, Totals> totals = new HashMap<>();
+        jdbcTemplate.query(SUM_ORDERS, row -> {
+            totals.put(row.getLong(1), new Totals(row.getLong(2), row.getLong(3), row.getLong(4), row.getLong(5), 0));
+        }, OrderStatus.CANCELLED.ordinal(), PaymentStatus.COMPLETED.ordinal(), PaymentStatus.COMPLETED.ordinal(),
+                OrderStatus.CANCELLED.ordinal(), fromSellerId, toSellerId);
+        jdbcTemplate.query(COUNT_TRANSACTIONS, row -> {
+            totals.merge(row.getLong(1), new Totals(0, 0, 0, 0, row.getLong(2)), Totals::plus);
+        }, fromSellerId, toSellerId);
+        return totals;
+    }
+
+    private boolean createReport(Long sellerId) {
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                Totals totals = sumSources(sellerId - 1, sellerId).getOrDefault(sellerId, Totals.NONE);
+                jdbcTemplate.update(INSERT_REPORT, sellerId, totals.orders(), totals.canceled(), totals.sales(),
+                        totals.refunds(), totals.earnings(), totals.earnings(), totals.transactions());
+                return true;
+            }));
+        } catch (DuplicateKeyException e) {
+            // created by a concurrent read of the dashboard
+            return false;
+        }
+    }
+
+    /**
+     * Rewrites one seller's report from the sources, under the row's lock.
+     */
+    private boolean repair(Long sellerId) {
+        Boolean changed = transactionTemplate.execute(status -> {
+            List<StoredReport> locked = jdbcTemplate.query(LOCK_REPORT, (row, rowNum) -> storedReport(row),
+                    sellerId - 1, sellerId);
+            if (locked.isEmpty()) {
+                return false;
+            }
+            StoredReport has = locked.get(0);
+            Totals should = sumSources(sellerId - 1, sellerId).getOrDefault(sellerId, Totals.NONE);
+            if (has.matches(should)) {
+                return false;
+            }
+            log.warn("Seller report {} drifted: stored {}, recomputed {}", sellerId, has, should);
+            jdbcTemplate.update(WRITE_REPORT, should.orders(), should.canceled(), should.sales(), should.refunds(),
+                    should.earnings(), should.earnings() - has.tax(), should.transactions(), sellerId);
+            return true;
+        });
+        return Boolean.TRUE.equals(changed);
+    }
+
+    private static StoredReport storedReport(ResultSet row) throws SQLException {
+        return new StoredReport(new Totals(row.getLong(2), row.getLong(3), row.getLong(4), row.getLong(5),
+                row.getLong(9)), row.getLong(6), row.getLong(7), row.getLong(8));
+    }
+
+    private static void warnMissing(int[] updated, Set<Long> sellerIds) {
+        Iterator<Long> ids = sellerIds.iterator();
+        for (int count : updated) {
+            Long sellerId = ids.next();
+            if (count == 0) {
+                log.warn("No report for seller {} yet; reconciliation will count the change", sellerId);
+            }
+        }
+    }
+
+    /**
+     * The figures a report is recomputed from.
+     */
+    private record Totals(long orders, long canceled, long sales, long refunds, long transactions) {
+
+        static final Totals NONE = new Totals(0, 0, 0, 0, 0);
+
+        long earnings() {
+            return sales - refunds;
+        }
+
+        Totals plus(Totals other) {
+            return new Totals(orders + other.orders, canceled + other.canceled, sales + other.sales,
+                    refunds + other.refunds, transactions + other.transactions);
+        }
+    }
+
+    /**
+     * A stored report. Tax has no source to recompute it from, so it is kept.
+     */
+    private record StoredReport(Totals totals, long earnings, long tax, long netEarnings) {
+
+        boolean matches(Totals recomputed) {
+            return totals.equals(recomputed) && earnings == recomputed.earnings()
+                    && netEarnings == recomputed.earnings() - tax;
+        }
+    }
+}
@@ -5,7 +5,9 @@ import com.xuwei.domain.AccountStatus;
 import com.xuwei.domain.USER_ROLE;
 import com.xuwei.model.Address;
 import com.xuwei.model.Seller;
+import com.xuwei.model.SellerReport;
 import com.xuwei.repository.AddressRepository;
+import com.xuwei.repository.SellerReportRepository;
 import com.xuwei.repository.SellerRepository;
 import com.xuwei.service.SellerService;
 import lombok.RequiredArgsConstructor;
@@ -29,6 +31,7 @@ public class SellerServiceImpl implements SellerService {
     private final JwtProvider jwtProvider;
     private final PasswordEncoder passwordEncoder;
     private final AddressRepository addressRepository;
+    private final SellerReportRepository sellerReportRepository;
 
     /**
      * Retrieves seller profile using JWT token
@@ -42,7 +45,7 @@ public class SellerServiceImpl implements SellerService {
     }
 
     /**
-     * Creates a new seller account with validation
+     * Creates a new seller account with validation, and its empty report
      * @param seller seller information to create
      * @return created seller entity
      * @throws Exception if seller with email already exists
@@ -54,7 +57,11 @@ public class SellerServiceImpl implements SellerService {
         Address savedAddress = addressRepository.save(seller.getPickupAddress());
         Seller newSeller = buildNewSeller(seller, savedAddress);
 
-        return sellerRepository.save(newSeller);
+        Seller savedSeller = sellerRepository.save(newSeller);
+        SellerReport report = new SellerReport();
+        report.setSeller(savedSeller);
+        sellerReportRepository.save(report);
+        return savedSeller;
     }
 
     /**
@@ -126,6 +133,7 @@ public class SellerServiceImpl implements SellerService {
         if (!sellerRepository.existsById(id)) {
             throw new Exception("Seller not found with id: " + id);
         }
+        sellerReportRepository.deleteBySellerId(id);
         sellerRepository.deleteById(id);
     }
 
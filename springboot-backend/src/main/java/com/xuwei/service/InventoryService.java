@@ -0,0 +1,14 @@
+package com.xuwei.service;
+
+import com.xuwei.exception.OrderException;
+import com.xuwei.exception.ProductException;
+import com.xuwei.model.StockReservation;
+
+import java.util.List;
+
+public interface InventoryService {
+    void reserve(List<StockReservation> reservations) throws OrderException;
+    boolean confirm(Long orderId);
+    int releaseExpired(int limit);
+    int adjustStock(Long sellerId, Long productId, int units) throws ProductException;
+}
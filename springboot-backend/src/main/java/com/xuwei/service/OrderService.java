@@ -0,0 +1,21 @@
+package com.xuwei.service;
+
+import com.xuwei.dto.OrderResponseDTO;
+import com.xuwei.dto.OrderSummaryDTO;
+import com.xuwei.exception.OrderException;
+import com.xuwei.model.User;
+import com.xuwei.request.CheckoutRequest;
+import com.xuwei.response.CursorPageResponse;
+
+import java.util.List;
+
+public interface OrderService {
+    List<OrderResponseDTO> checkout(User user, CheckoutRequest request, String idempotencyKey) throws OrderException;
+    OrderResponseDTO confirmPayment(User user, Long orderId, String paymentId) throws OrderException;
+    CursorPageResponse<OrderSummaryDTO> findUserOrderHistory(User user, String cursor, Integer size)
+            throws OrderException;
+    CursorPageResponse<OrderSummaryDTO> findSellerOrderHistory(Long sellerId, String cursor, Integer size)
+            throws OrderException;
+    OrderResponseDTO findUserOrderById(User user, Long orderId) throws OrderException;
+    OrderResponseDTO findSellerOrderById(Long sellerId, Long orderId) throws OrderException;
+}
@@ -0,0 +1,8 @@
+package com.xuwei.service;
+
+import com.xuwei.model.PayoutRun;
+
+public interface PayoutService {
+    PayoutRun startOrResumeRun();
+    int payChunk(Long runId, int limit);
+}
@@ -0,0 +1,17 @@
+package com.xuwei.service;
+
+import com.xuwei.dto.ProductImportProgressDTO;
+import com.xuwei.importer.ProductRowReader;
+import com.xuwei.model.Seller;
+
+import java.util.function.Consumer;
+
+public interface ProductImportService {
+
+    /**
+     * Imports every row of the reader for the seller, reporting progress after
+     * each batch and once more when done. Returns the final progress.
+     */
+    ProductImportProgressDTO importProducts(ProductRowReader reader, Seller seller,
+                                            Consumer<ProductImportProgressDTO> progress);
+}
@@ -1,21 +1,34 @@
 package com.xuwei.service;
 
+import com.xuwei.dto.CacheStatsDTO;
+import com.xuwei.dto.ProductDetailDTO;
+import com.xuwei.dto.ProductExportDTO;
+import com.xuwei.dto.ProductFacetsDTO;
+import com.xuwei.dto.ProductSuggestionDTO;
+import com.xuwei.dto.ProductSummaryDTO;
 import com.xuwei.exception.ProductException;
 import com.xuwei.model.Product;
 import com.xuwei.model.Seller;
 import com.xuwei.request.CreateProductRequest;
+import com.xuwei.response.CursorPageResponse;
 import org.springframework.data.domain.Page;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ProductService {
     Product createProduct(CreateProductRequest request , Seller seller);
     void deleteProduct(Long productId) throws ProductException;
     Product updateProduct(Long productId, CreateProductRequest request, Seller seller) throws ProductException;
     Product getProductById(Long productId) throws ProductException;
+    ProductDetailDTO getProductDetail(Long productId) throws ProductException;
+    List<CacheStatsDTO> getProductCacheStats();
 
+    CursorPageResponse<ProductSummaryDTO> searchProducts(String query, Integer page, Integer size, String cursor) throws ProductException;
 
-    List<Product> searchProducts(String query);
+    void streamSearchResults(String query, Consumer<ProductSummaryDTO> consumer);
+
+    List<ProductSuggestionDTO> suggestProducts(String prefix, Integer limit);
 
     Page<Product> getAllProducts(
             String category,
@@ -29,6 +42,33 @@ public interface ProductService {
             String stock,
             Integer pageNumber
     );
-    List<Product> getProductBySellerId(Long sellerId);
+
+    CursorPageResponse<Product> scrollProducts(
+            String category,
+            String colors,
+            String sizes,
+            Integer minPrice,
+            Integer maxPrice,
+            Integer minDiscount,
+            String sort,
+            String stock,
+            String mode,
+            Integer pageNumber,
+            String cursor,
+            boolean includeTotal
+    ) throws ProductException;
+
+    ProductFacetsDTO getProductFacets(
+            String category,
+            String colors,
+            String sizes,
+            Integer minPrice,
+            Integer maxPrice,
+            Integer minDiscount
+    ) throws ProductException;
+
+    Page<Product> getProductBySellerId(Long sellerId, Integer page, Integer size);
+
+    void exportSellerProducts(Long sellerId, Consumer<ProductExportDTO> consumer);
 
 }
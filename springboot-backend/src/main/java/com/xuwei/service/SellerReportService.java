@@ -0,0 +1,17 @@
+package com.xuwei.service;
+
+import com.xuwei.model.Order;
+import com.xuwei.model.Seller;
+import com.xuwei.model.SellerReport;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface SellerReportService {
+    SellerReport getSellerReport(Seller seller);
+    void recordOrdersPlaced(List<Order> orders);
+    void recordPayment(Order order);
+    void recordCancellations(Collection<Long> orderIds);
+    int reconcile(long fromSellerId, long toSellerId);
+    Long findMaxSellerId();
+}
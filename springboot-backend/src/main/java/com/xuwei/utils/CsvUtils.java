@@ -0,0 +1,33 @@
+package com.xuwei.utils;
+
+/**
+ * Writes RFC 4180 CSV lines, readable by the product import.
+ */
+public class CsvUtils {
+
+    /**
+     * Joins the values into one CSV line, including the trailing line break.
+     * Null values become empty fields.
+     */
+    public static String line(Object... values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            line.append(escape(values[i] == null ? "" : values[i].toString()));
+        }
+        return line.append('\n').toString();
+    }
+
+    /**
+     * Quotes the field when it contains a comma, quote or line break.
+     */
+    public static String escape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,98 @@
+package com.xuwei.admission;
+
+import com.xuwei.dto.AdmissionTicketDTO;
+import com.xuwei.dto.FlashSaleQueueStatsDTO;
+import com.xuwei.exception.AdmissionException;
+import com.xuwei.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FlashSaleQueueTest {
+
+    private static final long NOW = 1_760_000_000_000L;
+
+    private final AtomicLong clock = new AtomicLong(NOW);
+    private final Product deal = product(1L, true);
+
+    @Test
+    void aCrowdIsAdmittedInJoinOrderAtTheConfiguredRate() throws Exception {
+        FlashSaleQueue queue = new FlashSaleQueue(100, 10, Duration.ofMinutes(5), clock::get);
+
+        List<AdmissionTicketDTO> tickets = new ArrayList<>();
+        for (long user = 1; user <= 30; user++) {
+            tickets.add(queue.join(user, deal));
+        }
+        // a quiet queue banks one second of admissions
+        assertThat(tickets).filteredOn(AdmissionTicketDTO::isAdmitted).hasSize(10);
+        assertThat(tickets.get(10).getPosition()).isEqualTo(1);
+        assertThat(tickets.get(29).getPosition()).isEqualTo(20);
+        assertThat(tickets.get(29).getEstimatedWaitSeconds()).isEqualTo(2);
+        assertThatThrownBy(() -> queue.checkAdmitted(11L, deal.getId()))
+                .isInstanceOf(AdmissionException.class).hasMessageContaining("position 1");
+
+        clock.addAndGet(500);
+        assertThat(queue.status(tickets.get(14).getToken()).isAdmitted()).isTrue();
+        assertThat(queue.status(tickets.get(15).getToken()).getPosition()).isEqualTo(1);
+        queue.checkAdmitted(15L, deal.getId());
+        // rejoining keeps the place
+        assertThat(queue.join(20L, deal).getToken()).isEqualTo(tickets.get(19).getToken());
+
+        clock.addAndGet(1_500);
+        assertThat(queue.stats()).singleElement().satisfies(stats -> {
+            assertThat(stats.getWaiting()).isZero();
+            assertThat(stats.getAdmitted()).isEqualTo(30);
+            assertThat(stats.getIssuedTotal()).isEqualTo(30);
+        });
+    }
+
+    @Test
+    void aFullQueueTurnsShoppersAwayAndOtherProductsAreNotQueued() throws Exception {
+        FlashSaleQueue queue = new FlashSaleQueue(5, 1, Duration.ofMinutes(5), clock::get);
+
+        for (long user = 1; user <= 6; user++) {
+            queue.join(user, deal);
+        }
+        assertThatThrownBy(() -> queue.join(7L, deal))
+                .isInstanceOf(AdmissionException.class).hasMessageContaining("is full");
+        assertThatThrownBy(() -> queue.join(1L, product(2L, false)))
+                .isInstanceOf(AdmissionException.class).hasMessageContaining("not on flash sale");
+        assertThatThrownBy(() -> queue.checkAdmitted(1L, 2L)).isInstanceOf(AdmissionException.class);
+
+        FlashSaleQueueStatsDTO stats = queue.stats().get(0);
+        assertThat(stats.getWaiting()).isEqualTo(5);
+        assertThat(stats.getAdmitted()).isEqualTo(1);
+        assertThat(stats.getRejectedTotal()).isEqualTo(1);
+    }
+
+    @Test
+    void anAdmissionLastsForItsWindowOrUntilACheckoutUsesIt() throws Exception {
+        FlashSaleQueue queue = new FlashSaleQueue(100, 10, Duration.ofMinutes(5), clock::get);
+        AdmissionTicketDTO first = queue.join(1L, deal);
+        queue.join(2L, deal);
+
+        queue.complete(1L, deal.getId());
+        assertThatThrownBy(() -> queue.checkAdmitted(1L, deal.getId()))
+                .isInstanceOf(AdmissionException.class).hasMessageContaining("first");
+        assertThatThrownBy(() -> queue.status(first.getToken())).isInstanceOf(AdmissionException.class);
+
+        clock.addAndGet(Duration.ofMinutes(5).toMillis());
+        assertThatThrownBy(() -> queue.checkAdmitted(2L, deal.getId())).isInstanceOf(AdmissionException.class);
+        queue.sweep();
+        assertThat(queue.stats()).isEmpty();
+        assertThat(queue.join(2L, deal).isAdmitted()).isTrue();
+    }
+
+    private static Product product(Long id, boolean flashSale) {
+        Product product = new Product();
+        product.setId(id);
+        product.setFlashSale(flashSale);
+        return product;
+    }
+}
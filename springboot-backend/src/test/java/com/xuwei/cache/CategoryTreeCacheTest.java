@@ -0,0 +1,149 @@
+package com.xuwei.cache;
+
+import com.xuwei.model.Category;
+import com.xuwei.repository.CategoryRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties", properties =
+        "spring.datasource.url=jdbc:h2:mem:category_tree;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1")
+@Import(CategoryTreeCache.class)
+class CategoryTreeCacheTest {
+
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        // each test rolls its categories back, so start from what the database holds now
+        categoryTreeCache.reload();
+    }
+
+    @Test
+    void everyLevelCoversItselfAndEverythingBelowIt() {
+        Category men = category("men", 1, null);
+        Category topWear = category("men_top_wear", 2, men);
+        Category shirts = category("men_top_wear_shirts", 3, topWear);
+        Category tees = category("men_top_wear_tees", 3, topWear);
+        Category bottomWear = category("men_bottom_wear", 2, men);
+        Category women = category("women", 1, null);
+        categoryTreeCache.reload();
+
+        assertThat(categoryTreeCache.descendantIds("men")).containsExactlyInAnyOrder(
+                men.getId(), topWear.getId(), shirts.getId(), tees.getId(), bottomWear.getId());
+        assertThat(categoryTreeCache.descendantIds("men_top_wear")).containsExactlyInAnyOrder(
+                topWear.getId(), shirts.getId(), tees.getId());
+        assertThat(categoryTreeCache.descendantIds("men_top_wear_tees")).containsExactly(tees.getId());
+        assertThat(categoryTreeCache.descendantIds("women")).containsExactly(women.getId());
+    }
+
+    @Test
+    void aCreatedCategoryJoinsTheSetsOfAllItsAncestors() {
+        Category men = categoryTreeCache.getOrCreate("men", "Men", 1, null);
+        Category topWear = categoryTreeCache.getOrCreate("men_top_wear", "Top Wear", 2, men);
+        Set<Long> before = categoryTreeCache.descendantIds("men");
+
+        Category shirts = categoryTreeCache.getOrCreate("men_top_wear_shirts", "Shirts", 3, topWear);
+
+        assertThat(categoryTreeCache.getOrCreate("men_top_wear_shirts", "Shirts", 3, topWear)).isSameAs(shirts);
+        assertThat(categoryRepository.count()).isEqualTo(3);
+        assertThat(categoryTreeCache.descendantIds("men"))
+                .containsExactlyInAnyOrder(men.getId(), topWear.getId(), shirts.getId());
+        assertThat(categoryTreeCache.descendantIds("men_top_wear"))
+                .containsExactlyInAnyOrder(topWear.getId(), shirts.getId());
+        // sets handed out earlier are never changed under their reader
+        assertThat(before).containsExactlyInAnyOrder(men.getId(), topWear.getId());
+    }
+
+    @Test
+    void categoriesCreatedByAnotherInstanceAreFoundOnTheirFirstLookup() {
+        Category men = categoryTreeCache.getOrCreate("men", "Men", 1, null);
+        assertThat(categoryTreeCache.descendantIds("men")).containsExactly(men.getId());
+
+        // written straight to the database, as another instance would
+        Category topWear = category("men_top_wear", 2, men);
+        Category shirts = category("men_top_wear_shirts", 3, topWear);
+
+        assertThat(categoryTreeCache.descendantIds("men_top_wear"))
+                .containsExactlyInAnyOrder(topWear.getId(), shirts.getId());
+        assertThat(categoryTreeCache.descendantIds("men"))
+                .containsExactlyInAnyOrder(men.getId(), topWear.getId(), shirts.getId());
+        assertThat(categoryTreeCache.findByCategoryId("men_top_wear_shirts").getId()).isEqualTo(shirts.getId());
+    }
+
+    @Test
+    void aCategoryNobodyCreatedHasNoDescendants() {
+        assertThat(categoryTreeCache.descendantIds("nowhere")).isEmpty();
+        assertThat(categoryTreeCache.findByCategoryId("nowhere")).isNull();
+    }
+
+    @Test
+    void repeatedLookupsOfAMissingCategoryQueryTheDatabaseOnce() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(categoryTreeCache.descendantIds("nowhere")).isEmpty();
+            assertThat(categoryTreeCache.findByCategoryId("nowhere")).isNull();
+        }
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void readersNeverSeeATreeHalfwayThroughAReload() {
+        Category men = category("men", 1, null);
+        Category topWear = category("men_top_wear", 2, men);
+        Category shirts = category("men_top_wear_shirts", 3, topWear);
+        categoryTreeCache.reload();
+
+        AtomicBoolean reloading = new AtomicBoolean(true);
+        CompletableFuture<Boolean> reader = CompletableFuture.supplyAsync(() -> {
+            while (reloading.get()) {
+                if (categoryTreeCache.descendantIds("men").size() != 3) {
+                    return false;
+                }
+            }
+            return true;
+        });
+        for (int i = 0; i < 200; i++) {
+            categoryTreeCache.reload();
+        }
+        reloading.set(false);
+
+        assertThat(reader.join()).isTrue();
+        assertThat(categoryTreeCache.descendantIds("men"))
+                .containsExactlyInAnyOrder(men.getId(), topWear.getId(), shirts.getId());
+    }
+
+    private Category category(String categoryId, int level, Category parent) {
+        Category category = new Category();
+        category.setCategoryId(categoryId);
+        category.setName(categoryId);
+        category.setLevel(level);
+        category.setParentCategory(parent);
+        return categoryRepository.save(category);
+    }
+}
@@ -0,0 +1,102 @@
+package com.xuwei.cache;
+
+import com.xuwei.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductCacheTest {
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        ProductCache cache = new ProductCache(true, 100, Duration.ofMinutes(10));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Function<Long, Product> slowLoader = id -> {
+            loads.incrementAndGet();
+            sleep(100);
+            return product(id);
+        };
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            Future<?>[] futures = new Future<?>[16];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = pool.submit(() -> {
+                    start.await();
+                    return cache.getProduct(7L, slowLoader);
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                assertThat(((Product) future.get(5, TimeUnit.SECONDS)).getId()).isEqualTo(7L);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.stats().get(0).getMissCount()).isEqualTo(1);
+        assertThat(cache.stats().get(0).getHitCount()).isEqualTo(15);
+    }
+
+    @Test
+    void invalidateForcesReloadAndMissesAreNotCached() {
+        ProductCache cache = new ProductCache(true, 100, Duration.ofMinutes(10));
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.getProduct(1L, id -> { loads.incrementAndGet(); return product(id); });
+        cache.getProduct(1L, id -> { loads.incrementAndGet(); return product(id); });
+        assertThat(loads.get()).isEqualTo(1);
+
+        cache.invalidate(1L);
+        cache.getProduct(1L, id -> { loads.incrementAndGet(); return product(id); });
+        assertThat(loads.get()).isEqualTo(2);
+
+        assertThat(cache.getProduct(2L, id -> null)).isNull();
+        assertThat(cache.getProduct(2L, id -> product(id))).isNotNull();
+    }
+
+    @Test
+    void callersCannotChangeTheCachedProduct() {
+        ProductCache cache = new ProductCache(true, 100, Duration.ofMinutes(10));
+        Function<Long, Product> loader = id -> {
+            Product product = product(id);
+            product.setTitle("Shirt");
+            product.getImages().add("front.jpg");
+            return product;
+        };
+
+        Product first = cache.getProduct(1L, loader);
+        first.setTitle("Changed");
+        first.getImages().clear();
+
+        Product second = cache.getProduct(1L, loader);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getTitle()).isEqualTo("Shirt");
+        assertThat(second.getImages()).containsExactly("front.jpg");
+    }
+
+    private static Product product(Long id) {
+        Product product = new Product();
+        product.setId(id);
+        return product;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.xuwei.cart;
+
+import com.xuwei.cache.CategoryTreeCache;
+import com.xuwei.cache.ListingCountCache;
+import com.xuwei.cache.ProductCache;
+import com.xuwei.converter.ProductConverter;
+import com.xuwei.index.ProductCatalogSnapshot;
+import com.xuwei.index.ProductFacetIndex;
+import com.xuwei.index.ProductSearchIndex;
+import com.xuwei.index.ProductSuggestIndex;
+import com.xuwei.model.Cart;
+import com.xuwei.model.CartItem;
+import com.xuwei.model.Product;
+import com.xuwei.model.User;
+import com.xuwei.repository.CartItemRepository;
+import com.xuwei.repository.CartRepository;
+import com.xuwei.repository.ProductRepository;
+import com.xuwei.repository.UserRepository;
+import com.xuwei.request.CreateProductRequest;
+import com.xuwei.service.CartService;
+import com.xuwei.service.CartSliceConfiguration;
+import com.xuwei.service.Impl.CartServiceImpl;
+import com.xuwei.service.Impl.ProductServiceImpl;
+import com.xuwei.service.ProductService;
+import com.xuwei.service.ShopFixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:cart_repricer;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1",
+        "cart.repricer.chunk-size=2"})
+@Import({CartRepricer.class, CartSliceConfiguration.class, ProductServiceImpl.class, ProductConverter.class,
+        CategoryTreeCache.class, ProductCache.class, ListingCountCache.class, ProductSearchIndex.class,
+        ProductFacetIndex.class, ProductSuggestIndex.class, ProductCatalogSnapshot.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartRepricerTest {
+
+    @Autowired
+    private ShopFixtures fixtures;
+
+    @Autowired
+    private CartRepricer cartRepricer;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<User> users = new ArrayList<>();
+    private Product shirt;
+    private Product cap;
+
+    @BeforeEach
+    void setUp() {
+        cartRepricer.repricePending();
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+        users.clear();
+        for (int i = 0; i < 5; i++) {
+            User user = new User();
+            user.setEmail("shopper" + i + "@example.com");
+            users.add(userRepository.save(user));
+        }
+        shirt = fixtures.product("Shirt", 1000, 800);
+        cap = fixtures.product("Cap", 400, 300);
+    }
+
+    @Test
+    void aPriceChangeRepricesEveryCartHoldingTheProduct() throws Exception {
+        for (int i = 0; i < users.size(); i++) {
+            cartService.addCartItem(users.get(i), shirt, "M", i + 1);
+            cartService.addCartItem(users.get(i), cap, "One", 1);
+        }
+        cartService.addCartItem(users.get(0), shirt, "L", 2);
+        cartService.addCartItem(users.get(1), shirt, "L", 1);
+
+        updatePrices(shirt, 1200, 900);
+        assertThat(cartRepricer.pendingCount()).isEqualTo(1);
+
+        // seven lines in chunks of two
+        assertThat(cartRepricer.repricePending()).isEqualTo(7);
+
+        for (CartItem item : cartItemRepository.findAll()) {
+            boolean isShirt = item.getProduct().getId().equals(shirt.getId());
+            assertThat(item.getMrpPrice()).isEqualTo(item.getQuantity() * (isShirt ? 1200 : 400));
+            assertThat(item.getSellingPrice()).isEqualTo(item.getQuantity() * (isShirt ? 900 : 300));
+        }
+        for (int i = 0; i < users.size(); i++) {
+            Cart cart = cartRepository.findByUserId(users.get(i).getId());
+            int shirts = i + 1 + (i == 0 ? 2 : i == 1 ? 1 : 0);
+            assertThat(cart.getTotalItems()).isEqualTo(shirts + 1);
+            assertThat(cart.getTotalMrpPrice()).isEqualTo(shirts * 1200 + 400);
+            assertThat(cart.getTotalSellingPrice()).isEqualTo(shirts * 900 + 300);
+            assertThat(cart.getDiscountedPrice()).isEqualTo(
+                    CartServiceImpl.calculateDiscountPercentage(shirts * 1200 + 400, shirts * 900 + 300));
+        }
+        assertThat(cartRepricer.repricePending()).isZero();
+    }
+
+    @Test
+    void aBurstOfChangesIsRepricedOnceAtTheLastPrices() throws Exception {
+        for (User user : users) {
+            cartService.addCartItem(user, shirt, "M", 2);
+        }
+
+        updatePrices(shirt, 1100, 900);
+        updatePrices(shirt, 1100, 850);
+        updatePrices(shirt, 1150, 850);
+        assertThat(cartRepricer.pendingCount()).isEqualTo(1);
+        assertThat(cartRepricer.repricePending()).isEqualTo(users.size());
+
+        assertThat(cartItemRepository.findAll()).extracting(CartItem::getSellingPrice).containsOnly(2 * 850);
+        assertThat(cartRepository.findAll()).extracting(Cart::getTotalMrpPrice).containsOnly(2 * 1150);
+        // one version bump per cart for the whole burst
+        assertThat(cartRepository.findAll()).extracting(Cart::getVersion).containsOnly(2L);
+    }
+
+    @Test
+    void changesThatKeepThePricesAreNotQueued() throws Exception {
+        cartService.addCartItem(users.get(0), shirt, "M", 1);
+
+        updatePrices(shirt, 1000, 800);
+
+        assertThat(cartRepricer.pendingCount()).isZero();
+    }
+
+    private void updatePrices(Product product, int mrpPrice, int sellingPrice) throws Exception {
+        CreateProductRequest request = new CreateProductRequest();
+        request.setTitle(product.getTitle());
+        request.setMrpPrice(mrpPrice);
+        request.setSellingPrice(sellingPrice);
+        productService.updateProduct(product.getId(), request, null);
+    }
+}
@@ -0,0 +1,430 @@
+package com.xuwei.cart;
+
+import com.xuwei.domain.CartOperationType;
+import com.xuwei.dto.CartItemResponseDTO;
+import com.xuwei.dto.CartResponseDTO;
+import com.xuwei.dto.OrderResponseDTO;
+import com.xuwei.exception.CartItemException;
+import com.xuwei.model.Address;
+import com.xuwei.model.Cart;
+import com.xuwei.model.CartItem;
+import com.xuwei.model.Product;
+import com.xuwei.model.User;
+import com.xuwei.repository.AddressRepository;
+import com.xuwei.repository.CartItemRepository;
+import com.xuwei.repository.CartRepository;
+import com.xuwei.repository.ProductRepository;
+import com.xuwei.repository.UserRepository;
+import com.xuwei.request.CartBatchRequest;
+import com.xuwei.request.CheckoutRequest;
+import com.xuwei.service.CartItemService;
+import com.xuwei.service.CartService;
+import com.xuwei.service.OrderService;
+import com.xuwei.service.OrderSliceConfiguration;
+import com.xuwei.service.ShopFixtures;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:hot_cart_store;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1",
+        "cart.store.enabled=true",
+        "cart.store.shards=8",
+        "cart.store.flush-interval=1h",
+        "cart.store.idle-timeout=0s"})
+@Import(OrderSliceConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HotCartStoreTest {
+
+    @DynamicPropertySource
+    static void journalDirectory(DynamicPropertyRegistry registry) throws Exception {
+        Path directory = Files.createTempDirectory("cart-journal");
+        registry.add("cart.store.journal-dir", directory::toString);
+    }
+
+    @Autowired
+    private ShopFixtures fixtures;
+
+    @Autowired
+    private HotCartStore hotCartStore;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartItemService cartItemService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+    private Product shirt;
+    private Product jeans;
+
+    @BeforeEach
+    void setUp() {
+        // writes what the previous test left and, with no idle timeout, evicts every cart
+        hotCartStore.flush();
+        jdbcTemplate.update("DELETE FROM stock_reservation");
+        jdbcTemplate.update("DELETE FROM order_item");
+        jdbcTemplate.update("DELETE FROM orders");
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+        user = user("shopper@example.com");
+        shirt = fixtures.product("Shirt", 1000, 800);
+        jeans = fixtures.product("Jeans", 2500, 2000);
+    }
+
+    @Test
+    void changesAreServedFromMemoryAndFlushedOncePerRow() throws Exception {
+        cartService.addCartItem(user, shirt, "M", 2);
+        cartService.addCartItem(user, shirt, "M", 1);
+        CartItem jeansItem = cartService.addCartItem(user, jeans, "32", 1);
+        CartItem update = new CartItem();
+        update.setQuantity(4);
+        cartItemService.updateCartItem(user.getId(), jeansItem.getId(), update);
+
+        CartResponseDTO cart = cartService.findUserCartWithDetails(user);
+        assertThat(cart.getTotalItems()).isEqualTo(7);
+        assertThat(cart.getTotalMrpPrice()).isEqualTo(3 * 1000 + 4 * 2500);
+        assertThat(cart.getTotalSellingPrice()).isEqualTo(3 * 800 + 4 * 2000);
+        assertThat(cart.getCartItems()).extracting(CartItemResponseDTO::getQuantity).containsExactlyInAnyOrder(3, 4);
+        assertThat(cartItemRepository.count()).isZero();
+
+        assertThat(hotCartStore.flush()).isEqualTo(1);
+
+        Cart stored = cartRepository.findByUserId(user.getId());
+        assertThat(stored.getTotalItems()).isEqualTo(7);
+        assertThat(stored.getTotalMrpPrice()).isEqualTo(3 * 1000 + 4 * 2500);
+        assertThat(stored.getDiscountedPrice()).isEqualTo(cart.getDiscountedPrice());
+        // one write for the cart row's creation and one for the whole flush
+        assertThat(stored.getVersion()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForList("SELECT quantity FROM cart_item WHERE cart_id = ?", Integer.class,
+                stored.getId())).containsExactlyInAnyOrder(3, 4);
+    }
+
+    @Test
+    void evictedCartsAreReloadedFromTheDatabase() throws Exception {
+        CartItem shirtItem = cartService.addCartItem(user, shirt, "M", 2);
+        cartService.addCartItem(user, jeans, "32", 1);
+        hotCartStore.flush();
+        assertThat(hotCartStore.size()).isZero();
+
+        Cart cart = cartService.findUserCart(user);
+        assertThat(hotCartStore.size()).isEqualTo(1);
+        assertThat(cart.getTotalItems()).isEqualTo(3);
+        assertThat(cart.getCartItems()).extracting(item -> item.getProduct().getImages()).isNotNull();
+
+        CartItem update = new CartItem();
+        update.setQuantity(5);
+        cartItemService.updateCartItem(user.getId(), shirtItem.getId(), update);
+        hotCartStore.flush();
+        assertThat(cartItemRepository.findById(shirtItem.getId()).orElseThrow().getQuantity()).isEqualTo(5);
+        assertThat(cartRepository.findByUserId(user.getId()).getTotalItems()).isEqualTo(6);
+    }
+
+    @Test
+    void removedItemsLeaveNoRowsAndOtherUsersItemsAreNotFound() throws Exception {
+        CartItem kept = cartService.addCartItem(user, shirt, "M", 1);
+        CartItem dropped = cartService.addCartItem(user, jeans, "32", 1);
+        cartItemService.deleteCartItem(user.getId(), dropped.getId());
+        User other = user("other@example.com");
+
+        assertThatThrownBy(() -> cartItemService.deleteCartItem(other.getId(), kept.getId()))
+                .isInstanceOf(CartItemException.class);
+        assertThat(cartService.findUserCartWithDetails(other).getCartItems()).isEmpty();
+        assertThat(cartRepository.findByUserId(other.getId())).isNull();
+
+        hotCartStore.flush();
+        assertThat(cartItemRepository.findAll()).extracting(CartItem::getId).containsExactly(kept.getId());
+        assertThat(cartRepository.findByUserId(user.getId()).getTotalItems()).isEqualTo(1);
+    }
+
+    @Test
+    void batchesApplyInMemoryAndFlushLikeSingleChanges() throws Exception {
+        CartItem shirtM = cartService.addCartItem(user, shirt, "M", 1);
+        cartService.addCartItem(user, shirt, "L", 2);
+
+        CartResponseDTO cart = cartService.applyCartBatch(user, List.of(
+                new CartBatchRequest.Operation(CartOperationType.UPDATE, null, shirtM.getId(), "L", 1),
+                new CartBatchRequest.Operation(CartOperationType.ADD, jeans.getId(), null, "32", 2)));
+        assertThat(cart.getTotalItems()).isEqualTo(5);
+        assertThat(cart.getCartItems()).extracting(CartItemResponseDTO::getSize, CartItemResponseDTO::getQuantity)
+                .containsExactlyInAnyOrder(tuple("L", 3), tuple("32", 2));
+        assertThatThrownBy(() -> cartService.applyCartBatch(user, List.of(
+                new CartBatchRequest.Operation(CartOperationType.REMOVE, null, shirtM.getId(), null, null))))
+                .isInstanceOf(CartItemException.class);
+
+        hotCartStore.flush();
+        assertThat(jdbcTemplate.queryForList("SELECT size FROM cart_item", String.class))
+                .containsExactlyInAnyOrder("L", "32");
+        assertThat(cartRepository.findByUserId(user.getId()).getTotalSellingPrice()).isEqualTo(3 * 800 + 2 * 2000);
+    }
+
+    @Test
+    void heldLinesAreRepricedInMemoryAndFlushed() throws Exception {
+        cartService.addCartItem(user, shirt, "M", 2);
+        cartService.addCartItem(user, shirt, "L", 1);
+        cartService.addCartItem(user, jeans, "32", 1);
+        hotCartStore.flush();
+        cartService.findUserCartWithDetails(user);
+
+        shirt.setMrpPrice(1200);
+        shirt.setSellingPrice(900);
+        productRepository.save(shirt);
+        assertThat(hotCartStore.reprice(productRepository.findForCartByIdIn(List.of(shirt.getId())).get(0)))
+                .isEqualTo(2);
+
+        CartResponseDTO cart = cartService.findUserCartWithDetails(user);
+        assertThat(cart.getTotalMrpPrice()).isEqualTo(3 * 1200 + 2500);
+        assertThat(cart.getTotalSellingPrice()).isEqualTo(3 * 900 + 2000);
+        assertThat(hotCartStore.flush()).isEqualTo(1);
+        assertThat(cartRepository.findByUserId(user.getId()).getTotalSellingPrice()).isEqualTo(3 * 900 + 2000);
+        assertThat(cartItemRepository.findAll()).extracting(CartItem::getSize, CartItem::getSellingPrice)
+                .containsExactlyInAnyOrder(tuple("M", 2 * 900), tuple("L", 900), tuple("32", 2000));
+    }
+
+    @Test
+    void theJournalRestoresChangesLostInACrash() throws Exception {
+        Path directory = Files.createTempDirectory("cart-journal");
+        HotCartStore crashed = store(directory);
+        CartItem shirtItem = crashed.addItem(user, shirt, "M", 2);
+        crashed.flush();
+        crashed.updateQuantity(user.getId(), shirtItem.getId(), 3);
+        CartItem jeansItem = crashed.addItem(user, jeans, "32", 1);
+        crashed.addItem(user, jeans, "34", 1);
+        crashed.removeItem(user.getId(), jeansItem.getId());
+        crashed.close(false);
+        assertThat(cartRepository.findByUserId(user.getId()).getTotalItems()).isEqualTo(2);
+
+        HotCartStore restarted = store(directory);
+        try {
+            Cart cart = cartRepository.findByUserId(user.getId());
+            assertThat(cart.getTotalItems()).isEqualTo(4);
+            assertThat(cart.getTotalSellingPrice()).isEqualTo(3 * 800 + 2000);
+            assertThat(cartItemRepository.findByCart(cart)).extracting(CartItem::getSize)
+                    .containsExactlyInAnyOrder("M", "34");
+            // one empty open segment per shard is all that is left
+            try (var files = Files.walk(directory)) {
+                assertThat(files.filter(Files::isRegularFile).toList()).hasSize(4)
+                        .allMatch(file -> file.toFile().length() == 0);
+            }
+        } finally {
+            restarted.close(true);
+        }
+    }
+
+    @Test
+    void aHeldCartIsCheckedOutAndEmptied() throws Exception {
+        Address address = new Address();
+        address.setCity("Mumbai");
+        user.getAddress().add(addressRepository.save(address));
+        user = userRepository.save(user);
+        cartService.addCartItem(user, shirt, "M", 2);
+        cartService.addCartItem(user, jeans, "32", 1);
+
+        CheckoutRequest request = new CheckoutRequest();
+        request.setAddressId(address.getId());
+        List<OrderResponseDTO> orders = orderService.checkout(user, request, "held");
+
+        assertThat(orders).hasSize(1);
+        assertThat(orders.get(0).getTotalSellingPrice()).isEqualTo(2 * 800 + 2000);
+        assertThat(cartService.findUserCartWithDetails(user).getCartItems()).isEmpty();
+        assertThat(orderService.checkout(user, request, "held")).extracting(OrderResponseDTO::getId)
+                .containsExactly(orders.get(0).getId());
+
+        hotCartStore.flush();
+        assertThat(cartItemRepository.count()).isZero();
+        assertThat(cartRepository.findByUserId(user.getId()).getTotalItems()).isZero();
+    }
+
+    @Test
+    void aRetriedCheckoutKeepsWhatWasAddedSince() throws Exception {
+        Address address = new Address();
+        address.setCity("Mumbai");
+        user.getAddress().add(addressRepository.save(address));
+        user = userRepository.save(user);
+        cartService.addCartItem(user, shirt, "M", 2);
+        CheckoutRequest request = new CheckoutRequest();
+        request.setAddressId(address.getId());
+        List<OrderResponseDTO> orders = orderService.checkout(user, request, "retried");
+
+        cartService.addCartItem(user, jeans, "32", 1);
+        assertThat(orderService.checkout(user, request, "retried")).extracting(OrderResponseDTO::getId)
+                .containsExactly(orders.get(0).getId());
+
+        assertThat(cartService.findUserCartWithDetails(user).getCartItems()).extracting(CartItemResponseDTO::getSize)
+                .containsExactly("32");
+        hotCartStore.flush();
+        assertThat(cartItemRepository.findAll()).extracting(CartItem::getSize).containsExactly("32");
+        assertThat(cartRepository.findByUserId(user.getId()).getTotalSellingPrice()).isEqualTo(2000);
+    }
+
+    @Test
+    void aCheckoutHoldsUpItsUserButNotTheRestOfTheShard() throws Exception {
+        cartService.addCartItem(user, shirt, "M", 1);
+        User neighbour = user("neighbour0@example.com");
+        for (int i = 1; shard(neighbour) != shard(user); i++) {
+            neighbour = user("neighbour" + i + "@example.com");
+        }
+        User sameShard = neighbour;
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> checkout = executor.submit(() -> hotCartStore.checkout(user.getId(), cart -> {
+                started.countDown();
+                assertThat(finish.await(10, TimeUnit.SECONDS)).isTrue();
+                return new HotCartStore.CheckoutResult<>(cart.getCartItems().size(), true);
+            }));
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // loaded and changed while the checkout still runs
+            Future<CartItem> neighbourAdd = executor.submit(() -> cartService.addCartItem(sameShard, jeans, "32", 1));
+            assertThat(neighbourAdd.get(10, TimeUnit.SECONDS).getQuantity()).isEqualTo(1);
+            Future<CartItem> ownAdd = executor.submit(() -> cartService.addCartItem(user, jeans, "32", 1));
+            Thread.sleep(200);
+            assertThat(ownAdd).isNotDone();
+
+            finish.countDown();
+            assertThat(checkout.get(10, TimeUnit.SECONDS)).isEqualTo(1);
+            ownAdd.get(10, TimeUnit.SECONDS);
+        } finally {
+            finish.countDown();
+            executor.shutdown();
+        }
+        assertThat(hotCartStore.findCart(user.getId()).getCartItems()).extracting(CartItem::getSize)
+                .containsExactly("32");
+    }
+
+    @Test
+    void newLinesTakeTheirIdsFromAReservedBlock() {
+        hotCartStore.addItem(user, shirt, "XS", 1);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            ids.add(hotCartStore.addItem(user, jeans, String.valueOf(i), 1).getId());
+        }
+
+        assertThat(ids).doesNotHaveDuplicates();
+        // at most one refill of the spare ids, instead of a Session for every line
+        assertThat(statistics.getSessionOpenCount()).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    void concurrentShoppersKeepConsistentTotals() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            users.add(user("shopper" + i + "@example.com"));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int task = 0; task < 8; task++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 300; i++) {
+                        User shopper = users.get(i % users.size());
+                        cartService.addCartItem(shopper, i / users.size() % 2 == 0 ? shirt : jeans, "M", 1);
+                        if (i % 50 == 0) {
+                            hotCartStore.flush();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        hotCartStore.flush();
+
+        for (User shopper : users) {
+            Cart cart = cartRepository.findByUserId(shopper.getId());
+            assertThat(cart.getTotalItems()).isEqualTo(400);
+            assertThat(cart.getTotalMrpPrice()).isEqualTo(200 * 1000 + 200 * 2500);
+            Map<String, Object> sums = jdbcTemplate.queryForMap(
+                    "SELECT COUNT(*) AS item_lines, SUM(quantity) AS units FROM cart_item WHERE cart_id = ?", cart.getId());
+            assertThat(((Number) sums.get("ITEM_LINES")).intValue()).isEqualTo(2);
+            assertThat(((Number) sums.get("UNITS")).intValue()).isEqualTo(400);
+        }
+    }
+
+    private HotCartStore store(Path directory) throws Exception {
+        return new HotCartStore(cartRepository, cartItemRepository, transactionTemplate, jdbcTemplate,
+                entityManagerFactory, true, 4, directory.toString(), false, Duration.ofHours(1), Duration.ZERO);
+    }
+
+    /**
+     * The user's shard among the eight the store is configured with.
+     */
+    private static int shard(User shopper) {
+        return Math.floorMod(Long.hashCode(shopper.getId()), 8);
+    }
+
+    private User user(String email) {
+        User newUser = new User();
+        newUser.setEmail(email);
+        return userRepository.save(newUser);
+    }
+}
@@ -0,0 +1,140 @@
+package com.xuwei.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.xuwei.dto.ProductExportDTO;
+import com.xuwei.importer.CsvProductRowReader;
+import com.xuwei.importer.ProductRowReader;
+import com.xuwei.model.Seller;
+import com.xuwei.request.CreateProductRequest;
+import com.xuwei.service.InventoryService;
+import com.xuwei.service.ProductImportService;
+import com.xuwei.service.ProductService;
+import com.xuwei.service.SellerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SellerProductExportTest {
+
+    private static final String JWT = "Bearer seller";
+
+    // configured as Spring Boot configures the application's mapper
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+    private final ProductService productService = mock(ProductService.class);
+    private SellerProductController controller;
+
+    @BeforeEach
+    void setUp() {
+        Seller seller = new Seller();
+        seller.setId(7L);
+        SellerService sellerService = mock(SellerService.class);
+        when(sellerService.getSellerProfile(JWT)).thenReturn(seller);
+        controller = new SellerProductController(productService, sellerService, mock(ProductImportService.class),
+                mock(InventoryService.class), objectMapper);
+
+        ProductExportDTO kurta = product(1L, "Kurta, \"festive\"", "Hand-block print\nCotton", "front.jpg",
+                "back.jpg");
+        kurta.setCategory("Women");
+        kurta.setSubCategory("Ethnic Wear");
+        kurta.setSubSubCategory("Kurtas");
+        ProductExportDTO scarf = product(2L, "Plain scarf", null);
+        doAnswer(invocation -> {
+            Consumer<ProductExportDTO> consumer = invocation.getArgument(1);
+            consumer.accept(kurta);
+            consumer.accept(scarf);
+            return null;
+        }).when(productService).exportSellerProducts(eq(7L), any());
+    }
+
+    @Test
+    void csvQuotesWhatNeedsItAndReadsBackThroughTheImport() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = controller.exportProducts(JWT, "CSV");
+
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.valueOf("text/csv"));
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION))
+                .isEqualTo("attachment; filename=\"products.csv\"");
+        String csv = body(response);
+        assertThat(csv).startsWith("id,title,description,mrpPrice,sellingPrice,discountPercent,quantity,color,"
+                + "sizes,images,category,subCategory,subSubCategory,createdAt\n");
+        assertThat(csv).contains("1,\"Kurta, \"\"festive\"\"\",\"Hand-block print\nCotton\",1200,960,20,5,Red,"
+                + "\"S,M\",front.jpg|back.jpg,Women,Ethnic Wear,Kurtas,2024-03-01T10:15\n");
+        assertThat(csv).endsWith("2,Plain scarf,,1200,960,20,5,Red,\"S,M\",,,,,2024-03-01T10:15\n");
+
+        ProductRowReader reader = new CsvProductRowReader(new StringReader(csv));
+        CreateProductRequest kurta = reader.next().request();
+        assertThat(kurta.getTitle()).isEqualTo("Kurta, \"festive\"");
+        assertThat(kurta.getDescription()).isEqualTo("Hand-block print\nCotton");
+        assertThat(kurta.getSizes()).isEqualTo("S,M");
+        assertThat(kurta.getImages()).containsExactly("front.jpg", "back.jpg");
+        assertThat(kurta.getSubSubCategory()).isEqualTo("Kurtas");
+        assertThat(reader.next().request().getTitle()).isEqualTo("Plain scarf");
+        assertThat(reader.next()).isNull();
+    }
+
+    @Test
+    void ndjsonWritesOneObjectPerLine() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = controller.exportProducts(JWT, "ndjson");
+
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION))
+                .isEqualTo("attachment; filename=\"products.ndjson\"");
+        String ndjson = body(response);
+        assertThat(ndjson).endsWith("\n");
+        List<String> lines = ndjson.lines().toList();
+        assertThat(lines).hasSize(2);
+
+        JsonNode kurta = objectMapper.readTree(lines.get(0));
+        assertThat(kurta.get("title").asText()).isEqualTo("Kurta, \"festive\"");
+        assertThat(kurta.get("description").asText()).isEqualTo("Hand-block print\nCotton");
+        assertThat(kurta.get("images")).extracting(JsonNode::asText).containsExactly("front.jpg", "back.jpg");
+        assertThat(kurta.get("createdAt").asText()).isEqualTo("2024-03-01T10:15:00");
+        JsonNode scarf = objectMapper.readTree(lines.get(1));
+        assertThat(scarf.get("id").asLong()).isEqualTo(2L);
+        assertThat(scarf.get("description").isNull()).isTrue();
+        assertThat(scarf.get("images")).isEmpty();
+    }
+
+    private static String body(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static ProductExportDTO product(Long id, String title, String description, String... images) {
+        ProductExportDTO product = new ProductExportDTO();
+        product.setId(id);
+        product.setTitle(title);
+        product.setDescription(description);
+        product.setMrpPrice(1200);
+        product.setSellingPrice(960);
+        product.setDiscountPercent(20);
+        product.setQuantity(5);
+        product.setColor("Red");
+        product.setSizes("S,M");
+        product.setImages(List.of(images));
+        product.setCreatedAt(LocalDateTime.of(2024, 3, 1, 10, 15));
+        return product;
+    }
+}
@@ -0,0 +1,140 @@
+package com.xuwei.id;
+
+import com.xuwei.config.JpaConfig;
+import com.xuwei.model.CartItem;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Concurrent insert throughput with ids from a single shared sequence row
+ * fetched one id per transaction (the hotspot being replaced) against the
+ * pooled-lo block generator of CartItem, plus the cost of public order ids.
+ * Run with: mvn test -Dtest=IdGenerationBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:id_benchmark;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=16",
+        "spring.jpa.properties.hibernate.generate_statistics=false"})
+@Import(JpaConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdGenerationBenchmark {
+
+    private static final int THREADS = 8;
+    private static final int INSERTS_PER_THREAD = 5_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS id_benchmark");
+        jdbcTemplate.execute("CREATE TABLE id_benchmark (id BIGINT PRIMARY KEY, public_id VARCHAR(13))");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS shared_sequence");
+        jdbcTemplate.execute("CREATE TABLE shared_sequence (next_val BIGINT)");
+        jdbcTemplate.update("INSERT INTO shared_sequence VALUES (1)");
+    }
+
+    @Test
+    void sharedSequenceRowAgainstPooledBlocks() throws Exception {
+        run("shared sequence row", () -> transactionTemplate.execute(status -> {
+            jdbcTemplate.update("UPDATE shared_sequence SET next_val = next_val + 1");
+            return jdbcTemplate.queryForObject("SELECT next_val FROM shared_sequence", Long.class);
+        }), false);
+
+        jdbcTemplate.update("DELETE FROM id_benchmark");
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        BeforeExecutionGenerator generator = (BeforeExecutionGenerator) sessionFactory.getMappingMetamodel()
+                .getEntityDescriptor(CartItem.class).getGenerator();
+        run("pooled-lo blocks", () -> {
+            try (Session session = sessionFactory.openSession()) {
+                return ((Number) generator.generate((SharedSessionContractImplementor) session, null, null,
+                        EventType.INSERT)).longValue();
+            }
+        }, false);
+
+        jdbcTemplate.update("DELETE FROM id_benchmark");
+        run("pooled-lo blocks + order id", () -> {
+            try (Session session = sessionFactory.openSession()) {
+                return ((Number) generator.generate((SharedSessionContractImplementor) session, null, null,
+                        EventType.INSERT)).longValue();
+            }
+        }, true);
+
+        OrderIdGenerator orderIds = new OrderIdGenerator(0);
+        long start = System.nanoTime();
+        for (int i = 0; i < 1_000_000; i++) {
+            orderIds.nextId();
+        }
+        System.out.printf("OrderIdGenerator: %.1f M ids/s on one thread%n",
+                1_000_000 / ((System.nanoTime() - start) / 1e9) / 1e6);
+    }
+
+    private void run(String name, LongSupplier ids, boolean withOrderId) throws Exception {
+        OrderIdGenerator orderIds = new OrderIdGenerator(0);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long[] latencies = new long[THREADS * INSERTS_PER_THREAD];
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t * INSERTS_PER_THREAD;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < INSERTS_PER_THREAD; i++) {
+                        long begin = System.nanoTime();
+                        jdbcTemplate.update("INSERT INTO id_benchmark (id, public_id) VALUES (?, ?)",
+                                ids.getAsLong(), withOrderId ? orderIds.nextId() : null);
+                        latencies[offset + i] = System.nanoTime() - begin;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        assertEquals(latencies.length, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM id_benchmark", Integer.class));
+        Arrays.sort(latencies);
+        System.out.printf("%s: %d inserts on %d threads, %.0f inserts/s, p50 %d us, p99 %d us%n",
+                name, latencies.length, THREADS, latencies.length / (elapsedNanos / 1e9),
+                latencies[latencies.length / 2] / 1_000, latencies[latencies.length * 99 / 100] / 1_000);
+    }
+}
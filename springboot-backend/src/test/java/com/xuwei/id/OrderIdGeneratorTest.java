@@ -0,0 +1,86 @@
+package com.xuwei.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderIdGeneratorTest {
+
+    private static final long NOW = 1_760_000_000_000L;
+
+    @Test
+    void idsSortByTimeAndCarryTheirTimestamp() {
+        AtomicLong clock = new AtomicLong(NOW);
+        OrderIdGenerator generator = new OrderIdGenerator(7, clock::get);
+
+        String first = generator.nextId();
+        String second = generator.nextId();
+        clock.addAndGet(1);
+        String third = generator.nextId();
+
+        assertThat(first).hasSize(13).isLessThan(second);
+        assertThat(second).isLessThan(third);
+        assertThat(OrderIdGenerator.timestampOf(first)).isEqualTo(NOW);
+        assertThat(OrderIdGenerator.timestampOf(third)).isEqualTo(NOW + 1);
+        assertThat((generator.nextValue() >>> OrderIdGenerator.SEQUENCE_BITS) & OrderIdGenerator.MAX_NODE)
+                .isEqualTo(7);
+    }
+
+    @Test
+    void aClockSteppingBackOrAFullMillisecondNeverRepeatsAnId() {
+        AtomicLong clock = new AtomicLong(NOW);
+        OrderIdGenerator generator = new OrderIdGenerator(1, clock::get);
+
+        long previous = generator.nextValue();
+        for (int i = 0; i < 10_000; i++) {
+            if (i == 5_000) {
+                clock.addAndGet(-60_000);
+            }
+            long next = generator.nextValue();
+            assertThat(next).isGreaterThan(previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void concurrentCallersGetDistinctIds() throws Exception {
+        OrderIdGenerator generator = new OrderIdGenerator(0, System::currentTimeMillis);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    List<Long> ids = new ArrayList<>();
+                    for (int i = 0; i < 50_000; i++) {
+                        ids.add(generator.nextValue());
+                    }
+                    return ids;
+                }));
+            }
+            Set<Long> all = new HashSet<>();
+            for (Future<List<Long>> future : futures) {
+                List<Long> ids = future.get();
+                assertThat(ids).isSorted();
+                all.addAll(ids);
+            }
+            assertThat(all).hasSize(8 * 50_000);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void theNodeMustFitItsBits() {
+        assertThatThrownBy(() -> new OrderIdGenerator(1024)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
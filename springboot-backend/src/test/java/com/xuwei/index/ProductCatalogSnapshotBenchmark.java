@@ -0,0 +1,93 @@
+package com.xuwei.index;
+
+import com.xuwei.model.Category;
+import com.xuwei.model.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Sorted listing latency at 1M products, first page and a deep page.
+ * Run with: mvn test -Dtest=ProductCatalogSnapshotBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProductCatalogSnapshotBenchmark {
+
+    private static final int PRODUCTS = 1_000_000;
+    private static final int QUERIES = 500;
+    private static final String[] COLORS = {"Red", "Blue", "Green", "Black", "White", "Yellow", "Pink", "Grey"};
+    private static final String[] SIZES = {"S", "M", "L", "XL", "S,M", "M,L", "L,XL"};
+
+    @Test
+    void sortedListingsAtOneMillionProducts() {
+        Random random = new Random(42);
+        Category[] leaves = new Category[1_000];
+        for (int i = 0; i < leaves.length; i++) {
+            leaves[i] = new Category();
+            leaves[i].setId((long) i + 1);
+        }
+        ProductCatalogSnapshot snapshot = new ProductCatalogSnapshot(true);
+        LocalDateTime epoch = LocalDateTime.of(2023, 1, 1, 0, 0);
+
+        long buildStart = System.nanoTime();
+        Product product = new Product();
+        for (int i = 1; i <= PRODUCTS; i++) {
+            int mrp = 200 + random.nextInt(60_000);
+            int selling = mrp - random.nextInt(mrp * 9 / 10);
+            product.setId((long) i);
+            product.setSellingPrice(selling);
+            product.setDiscountPercent((mrp - selling) * 100 / mrp);
+            product.setRating(random.nextInt(6));
+            product.setCreatedAt(epoch.plusMinutes(random.nextInt(1_000_000)));
+            product.setColor(COLORS[random.nextInt(COLORS.length)]);
+            product.setSizes(SIZES[random.nextInt(SIZES.length)]);
+            product.setCategory(leaves[random.nextInt(leaves.length)]);
+            snapshot.index(product);
+        }
+        snapshot.markReady();
+        long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+        assertEquals(PRODUCTS, snapshot.size());
+
+        for (int offset : new int[]{0, 5_000}) {
+            for (int i = 0; i < 50; i++) {
+                snapshot.list(randomFilter(random), randomOrdering(random), offset, 10);
+            }
+            long[] latencies = new long[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                ProductCatalogSnapshot.Filter filter = randomFilter(random);
+                ProductCatalogSnapshot.Ordering ordering = randomOrdering(random);
+                long start = System.nanoTime();
+                snapshot.list(filter, ordering, offset, 10);
+                latencies[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(latencies);
+            System.out.printf("ProductCatalogSnapshot: offset %d, %d queries, p50 %.2f ms, p99 %.2f ms%n",
+                    offset, QUERIES, latencies[QUERIES / 2] / 1e6, latencies[QUERIES * 99 / 100] / 1e6);
+        }
+        System.out.printf("ProductCatalogSnapshot: build %d products in %d ms%n", PRODUCTS, buildMs);
+    }
+
+    private static ProductCatalogSnapshot.Ordering randomOrdering(Random random) {
+        ProductCatalogSnapshot.Ordering[] orderings = ProductCatalogSnapshot.Ordering.values();
+        return orderings[random.nextInt(orderings.length)];
+    }
+
+    private static ProductCatalogSnapshot.Filter randomFilter(Random random) {
+        long[] categories = null;
+        if (random.nextBoolean()) {
+            long base = 1 + random.nextInt(990);
+            categories = new long[]{base, base + 1, base + 2, base + 3, base + 4, base + 5, base + 6, base + 7, base + 8, base + 9};
+        }
+        String color = random.nextBoolean() ? COLORS[random.nextInt(COLORS.length)] : null;
+        String size = random.nextInt(3) == 0 ? "M" : null;
+        Integer minPrice = random.nextInt(3) == 0 ? random.nextInt(5_000) : null;
+        Integer maxPrice = random.nextInt(3) == 0 ? 5_000 + random.nextInt(30_000) : null;
+        Integer minDiscount = random.nextInt(3) == 0 ? random.nextInt(8) * 10 : null;
+        return new ProductCatalogSnapshot.Filter(categories, color, size, minPrice, maxPrice, minDiscount);
+    }
+}
@@ -0,0 +1,96 @@
+package com.xuwei.index;
+
+import com.xuwei.model.Category;
+import com.xuwei.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductCatalogSnapshotTest {
+
+    private static final String[] COLORS = {"Red", "Blue", "Green"};
+    private static final String[] SIZES = {"S", "M", "L", "S,M", "M,L,XL"};
+
+    @Test
+    void pagesMatchFullSortForEveryOrdering() {
+        Random random = new Random(11);
+        Category[] categories = new Category[5];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = new Category();
+            categories[i].setId((long) i + 1);
+        }
+        ProductCatalogSnapshot snapshot = new ProductCatalogSnapshot(true);
+        Map<Long, Product> products = new HashMap<>();
+        for (long id = 1; id <= 2_000; id++) {
+            Product product = new Product();
+            product.setId(id);
+            product.setSellingPrice(random.nextInt(50) * 100);
+            product.setDiscountPercent(random.nextInt(10) * 10);
+            product.setRating(random.nextInt(5));
+            product.setCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(random.nextInt(500)));
+            product.setColor(COLORS[random.nextInt(COLORS.length)]);
+            product.setSizes(SIZES[random.nextInt(SIZES.length)]);
+            product.setCategory(categories[random.nextInt(categories.length)]);
+            snapshot.index(product);
+            products.put(id, product);
+        }
+        for (long id = 1; id <= 2_000; id += 7) {
+            snapshot.remove(id);
+            products.remove(id);
+        }
+        Map<Long, Long> units = new HashMap<>();
+        for (long id = 2; id <= 2_000; id += 3) {
+            units.put(id, (long) random.nextInt(20));
+        }
+        snapshot.addUnitsOrdered(units);
+
+        ProductCatalogSnapshot.Filter filter = new ProductCatalogSnapshot.Filter(
+                new long[]{2, 4}, "red", "m", 1000, 4000, 20);
+        Predicate<Product> matches = p -> (p.getCategory().getId() == 2 || p.getCategory().getId() == 4)
+                && p.getColor().equals("Red") && Arrays.asList(p.getSizes().split(",")).contains("M")
+                && p.getSellingPrice() >= 1000 && p.getSellingPrice() <= 4000 && p.getDiscountPercent() >= 20;
+
+        for (ProductCatalogSnapshot.Ordering ordering : ProductCatalogSnapshot.Ordering.values()) {
+            Comparator<Product> comparator = comparator(ordering, units);
+            List<Long> expected = products.values().stream().filter(matches).sorted(comparator)
+                    .map(Product::getId).toList();
+            for (int offset : new int[]{0, 10, expected.size() - 3, expected.size() + 5}) {
+                ProductCatalogSnapshot.Listing listing = snapshot.list(filter, ordering, offset, 10);
+                assertThat(listing.total()).isEqualTo(expected.size());
+                List<Long> page = expected.subList(Math.min(Math.max(offset, 0), expected.size()),
+                        Math.min(offset + 10, expected.size()));
+                assertThat(Arrays.stream(listing.productIds()).boxed().toList())
+                        .as("%s at offset %d", ordering, offset)
+                        .isEqualTo(page);
+            }
+
+            List<Long> walked = new ArrayList<>();
+            ProductCatalogSnapshot.Listing listing = snapshot.list(filter, ordering, 0, 7);
+            while (listing.productIds().length > 0) {
+                assertThat(listing.total()).isEqualTo(expected.size());
+                Arrays.stream(listing.productIds()).forEach(walked::add);
+                int last = listing.productIds().length - 1;
+                listing = snapshot.listAfter(filter, ordering,
+                        listing.sortKeys()[last], listing.productIds()[last], 7);
+            }
+            assertThat(walked).as("%s walked with listAfter", ordering).isEqualTo(expected);
+        }
+    }
+
+    private static Comparator<Product> comparator(ProductCatalogSnapshot.Ordering ordering, Map<Long, Long> units) {
+        Comparator<Product> primary = switch (ordering) {
+            case DEFAULT -> (a, b) -> 0;
+            case PRICE_LOW -> Comparator.comparingInt(Product::getSellingPrice);
+            case PRICE_HIGH -> Comparator.comparingInt(Product::getSellingPrice).reversed();
+            case NEWEST -> Comparator.comparing(Product::getCreatedAt).reversed();
+            case DISCOUNT -> Comparator.comparingInt(Product::getDiscountPercent).reversed();
+            case RATING -> Comparator.comparingInt(Product::getRating).reversed();
+            case POPULARITY -> Comparator.comparingLong((Product p) -> units.getOrDefault(p.getId(), 0L)).reversed();
+        };
+        return primary.thenComparing(Product::getId);
+    }
+}
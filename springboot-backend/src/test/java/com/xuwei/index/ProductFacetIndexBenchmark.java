@@ -0,0 +1,106 @@
+package com.xuwei.index;
+
+import com.xuwei.model.Category;
+import com.xuwei.model.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Facet count latency at 1M products.
+ * Run with: mvn test -Dtest=ProductFacetIndexBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProductFacetIndexBenchmark {
+
+    private static final int PRODUCTS = 1_000_000;
+    private static final int QUERIES = 2_000;
+    private static final String[] COLORS = {"Red", "Blue", "Green", "Black", "White", "Yellow", "Pink", "Grey"};
+    private static final String[] SIZES = {"S", "M", "L", "XL", "XXL"};
+
+    @Test
+    void facetCountsAtOneMillionProducts() {
+        Random random = new Random(42);
+        Category[] leaves = buildCategories();
+        ProductFacetIndex index = new ProductFacetIndex(true);
+
+        long buildStart = System.nanoTime();
+        Product product = new Product();
+        for (int i = 1; i <= PRODUCTS; i++) {
+            int mrp = 200 + random.nextInt(60_000);
+            int selling = mrp - random.nextInt(mrp * 9 / 10);
+            product.setId((long) i);
+            product.setColor(COLORS[random.nextInt(COLORS.length)]);
+            product.setSizes(SIZES[random.nextInt(SIZES.length)] + "," + SIZES[random.nextInt(SIZES.length)]);
+            product.setCategory(leaves[random.nextInt(leaves.length)]);
+            product.setMrpPrice(mrp);
+            product.setSellingPrice(selling);
+            product.setDiscountPercent((mrp - selling) * 100 / mrp);
+            index.index(product);
+        }
+        index.markReady();
+        long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+        assertEquals(PRODUCTS, index.size());
+
+        // warm-up
+        for (int i = 0; i < 200; i++) {
+            index.count(randomFilter(random, leaves));
+        }
+
+        long[] latencies = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            ProductFacetIndex.Filter filter = randomFilter(random, leaves);
+            long start = System.nanoTime();
+            index.count(filter);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+
+        ProductFacetIndex.FacetCounts unfiltered = index.count(
+                new ProductFacetIndex.Filter(null, null, null, null, null, null));
+        assertEquals(PRODUCTS, unfiltered.total());
+
+        System.out.printf("ProductFacetIndex: build %d products in %d ms%n", PRODUCTS, buildMs);
+        System.out.printf("ProductFacetIndex: %d filtered facet queries, p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                QUERIES, latencies[QUERIES / 2] / 1e6, latencies[QUERIES * 99 / 100] / 1e6,
+                latencies[QUERIES - 1] / 1e6);
+    }
+
+    private static ProductFacetIndex.Filter randomFilter(Random random, Category[] leaves) {
+        String category = random.nextBoolean() ? leaves[random.nextInt(leaves.length)].getParentCategory().getCategoryId() : null;
+        String color = random.nextBoolean() ? COLORS[random.nextInt(COLORS.length)] : null;
+        String size = random.nextInt(3) == 0 ? SIZES[random.nextInt(SIZES.length)] : null;
+        Integer minPrice = random.nextInt(3) == 0 ? random.nextInt(5_000) : null;
+        Integer maxPrice = random.nextInt(3) == 0 ? 5_000 + random.nextInt(30_000) : null;
+        Integer minDiscount = random.nextInt(3) == 0 ? random.nextInt(8) * 10 + random.nextInt(2) * 5 : null;
+        return new ProductFacetIndex.Filter(category, color, size, minPrice, maxPrice, minDiscount);
+    }
+
+    private static Category[] buildCategories() {
+        Category[] leaves = new Category[10 * 10 * 10];
+        int n = 0;
+        for (int a = 0; a < 10; a++) {
+            Category level1 = category("c" + a, null, 1);
+            for (int b = 0; b < 10; b++) {
+                Category level2 = category(level1.getCategoryId() + "_" + b, level1, 2);
+                for (int c = 0; c < 10; c++) {
+                    leaves[n++] = category(level2.getCategoryId() + "_" + c, level2, 3);
+                }
+            }
+        }
+        return leaves;
+    }
+
+    private static Category category(String categoryId, Category parent, int level) {
+        Category category = new Category();
+        category.setCategoryId(categoryId);
+        category.setName(categoryId);
+        category.setParentCategory(parent);
+        category.setLevel(level);
+        return category;
+    }
+}
@@ -0,0 +1,148 @@
+package com.xuwei.index;
+
+import com.xuwei.model.Category;
+import com.xuwei.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductFacetIndexTest {
+
+    private static final ProductFacetIndex.Filter NO_FILTER =
+            new ProductFacetIndex.Filter(null, null, null, null, null, null);
+
+    @Test
+    void eachFacetIsCountedUnderEveryFilterButItsOwn() {
+        Category men = category("men", null);
+        Category shirts = category("men_shirts", men);
+        Category women = category("women", null);
+        ProductFacetIndex index = new ProductFacetIndex(true);
+        index.index(product(1L, "Red", "S,M", 800, 10, shirts));
+        index.index(product(2L, "Red", "M", 1500, 40, shirts));
+        index.index(product(3L, "Blue", "M,L", 1500, 0, men));
+        index.index(product(4L, "Red", "L", 6000, 55, women));
+
+        ProductFacetIndex.FacetCounts counts = index.count(
+                new ProductFacetIndex.Filter("men", " RED ", null, null, null, null));
+
+        assertThat(counts.total()).isEqualTo(2);
+        // colors are counted within men only, sizes within red men only
+        assertThat(counts.facets().get(ProductFacetIndex.COLOR)).containsExactly(
+                Map.entry("red", 2), Map.entry("blue", 1));
+        assertThat(counts.facets().get(ProductFacetIndex.SIZE)).containsExactly(
+                Map.entry("m", 2), Map.entry("s", 1));
+        assertThat(counts.facets().get(ProductFacetIndex.CATEGORY)).containsExactly(
+                Map.entry("men", 2), Map.entry("men_shirts", 2), Map.entry("women", 1));
+        assertThat(counts.facets().get(ProductFacetIndex.DISCOUNT)).containsExactly(
+                Map.entry("10", 2), Map.entry("20", 1), Map.entry("30", 1), Map.entry("40", 1));
+        assertThat(counts.facets().get(ProductFacetIndex.PRICE)).containsExactly(
+                Map.entry("1000-1999", 1), Map.entry("500-999", 1));
+    }
+
+    @Test
+    void priceRangesAreExactAtTheEdgesOfTheirBlocks() {
+        ProductFacetIndex index = new ProductFacetIndex(true);
+        int[] prices = {950, 999, 1000, 1049, 1050, 1099, 1100, 1250};
+        for (int i = 0; i < prices.length; i++) {
+            index.index(product(i + 1L, "Red", "M", prices[i], 0, null));
+        }
+
+        assertThat(index.count(new ProductFacetIndex.Filter(null, null, null, 999, 1050, null)).total())
+                .isEqualTo(4);
+        assertThat(index.count(new ProductFacetIndex.Filter(null, null, null, 1000, 1099, null)).total())
+                .isEqualTo(4);
+        assertThat(index.count(new ProductFacetIndex.Filter(null, null, null, null, 999, null)).total())
+                .isEqualTo(2);
+        assertThat(index.count(new ProductFacetIndex.Filter(null, null, null, 1100, null, null)).total())
+                .isEqualTo(2);
+        assertThat(index.count(new ProductFacetIndex.Filter(null, null, null, 1200, 1100, null)).total())
+                .isZero();
+    }
+
+    @Test
+    void anUpdatedProductMovesBetweenValuesAndADeletedOneLeavesThemAll() {
+        ProductFacetIndex index = new ProductFacetIndex(true);
+        index.index(product(1L, "Red", "S,M", 800, 30, null));
+        index.index(product(2L, "Blue", "M", 1200, 0, null));
+
+        index.index(product(1L, "Green", "L", 2500, 5, null));
+        ProductFacetIndex.FacetCounts counts = index.count(NO_FILTER);
+        assertThat(counts.total()).isEqualTo(2);
+        assertThat(counts.facets().get(ProductFacetIndex.COLOR)).containsOnlyKeys("blue", "green");
+        assertThat(counts.facets().get(ProductFacetIndex.SIZE)).containsOnlyKeys("m", "l");
+        assertThat(counts.facets().get(ProductFacetIndex.DISCOUNT)).isEmpty();
+        assertThat(index.count(new ProductFacetIndex.Filter(null, null, null, 700, 900, null)).total()).isZero();
+        assertThat(index.count(new ProductFacetIndex.Filter(null, null, null, null, null, 5)).total()).isEqualTo(1);
+
+        index.remove(1L);
+        counts = index.count(NO_FILTER);
+        assertThat(counts.total()).isEqualTo(1);
+        assertThat(counts.facets().get(ProductFacetIndex.COLOR)).containsExactly(Map.entry("blue", 1));
+        assertThat(index.count(new ProductFacetIndex.Filter(null, "green", null, null, null, null)).total())
+                .isZero();
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void countsAfterRandomWritesMatchBruteForce() {
+        Random random = new Random(5);
+        String[] colors = {"Red", "Blue", "Green"};
+        String[] sizes = {"S", "M", "L", "S,M", "M,L"};
+        ProductFacetIndex index = new ProductFacetIndex(true);
+        Map<Long, Product> products = new HashMap<>();
+        for (int step = 0; step < 3_000; step++) {
+            long id = random.nextInt(400);
+            if (random.nextInt(5) == 0) {
+                index.remove(id);
+                products.remove(id);
+            } else {
+                Product product = product(id, colors[random.nextInt(colors.length)],
+                        sizes[random.nextInt(sizes.length)], random.nextInt(3_000), random.nextInt(60), null);
+                index.index(product);
+                products.put(id, product);
+            }
+        }
+
+        ProductFacetIndex.FacetCounts counts = index.count(
+                new ProductFacetIndex.Filter(null, "blue", "m", 450, 2_050, 25));
+        Predicate<Product> priced = p -> p.getSellingPrice() >= 450 && p.getSellingPrice() <= 2_050;
+        Predicate<Product> discounted = p -> p.getDiscountPercent() >= 25;
+        Predicate<Product> blue = p -> p.getColor().equals("Blue");
+        Predicate<Product> medium = p -> Arrays.asList(p.getSizes().split(",")).contains("M");
+
+        assertThat(counts.total()).isEqualTo(count(products, priced.and(discounted).and(blue).and(medium)));
+        Map<String, Integer> colorCounts = counts.facets().get(ProductFacetIndex.COLOR);
+        for (String color : colors) {
+            assertThat(colorCounts.getOrDefault(color.toLowerCase(), 0)).as(color).isEqualTo(count(products,
+                    priced.and(discounted).and(medium).and(p -> p.getColor().equals(color))));
+        }
+        assertThat(counts.facets().get(ProductFacetIndex.SIZE).getOrDefault("l", 0)).isEqualTo(count(products,
+                priced.and(discounted).and(blue).and(p -> p.getSizes().contains("L"))));
+    }
+
+    private static int count(Map<Long, Product> products, Predicate<Product> matches) {
+        return (int) products.values().stream().filter(matches).count();
+    }
+
+    private static Product product(Long id, String color, String sizes, int price, int discount,
+                                   Category category) {
+        Product product = new Product();
+        product.setId(id);
+        product.setColor(color);
+        product.setSizes(sizes);
+        product.setSellingPrice(price);
+        product.setDiscountPercent(discount);
+        product.setCategory(category);
+        return product;
+    }
+
+    private static Category category(String categoryId, Category parent) {
+        Category category = new Category();
+        category.setCategoryId(categoryId);
+        category.setParentCategory(parent);
+        return category;
+    }
+}
@@ -0,0 +1,63 @@
+package com.xuwei.index;
+
+import com.xuwei.event.ProductDeletedEvent;
+import com.xuwei.model.Product;
+import com.xuwei.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductIndexLoaderTest {
+
+    @Test
+    void aProductDeletedAfterItsBatchWasReadStaysOutOfTheIndex() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        ProductSearchIndex index = new ProductSearchIndex(true);
+        ProductIndexLoader loader = new ProductIndexLoader(productRepository, List.of(index),
+                mock(ProductCatalogSnapshot.class));
+        when(productRepository.findByIdGreaterThan(eq(0L), any())).thenAnswer(invocation -> {
+            List<Product> batch = List.of(product(1L, "Linen shirt"), product(2L, "Linen shorts"),
+                    product(3L, "Linen scarf"));
+            // deleted once the batch is read, as ProductServiceImpl deletes it
+            loader.onProductDeleted(new ProductDeletedEvent(2L));
+            index.remove(2L);
+            return new SliceImpl<>(batch, invocation.getArgument(1, Pageable.class), false);
+        });
+
+        loader.rebuild();
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.search("linen", 0, 10).productIds()).containsExactlyInAnyOrder(1L, 3L);
+    }
+
+    @Test
+    void deletesOutsideARebuildAreNotRemembered() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        ProductSearchIndex index = new ProductSearchIndex(true);
+        ProductIndexLoader loader = new ProductIndexLoader(productRepository, List.of(index),
+                mock(ProductCatalogSnapshot.class));
+        loader.onProductDeleted(new ProductDeletedEvent(2L));
+        when(productRepository.findByIdGreaterThan(eq(0L), any())).thenAnswer(invocation -> new SliceImpl<>(
+                List.of(product(2L, "Linen shorts")), invocation.getArgument(1, Pageable.class), false));
+
+        loader.rebuild();
+
+        assertThat(index.search("linen", 0, 10).productIds()).containsExactly(2L);
+    }
+
+    private static Product product(Long id, String title) {
+        Product product = new Product();
+        product.setId(id);
+        product.setTitle(title);
+        return product;
+    }
+}
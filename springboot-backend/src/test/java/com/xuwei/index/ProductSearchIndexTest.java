@@ -0,0 +1,109 @@
+package com.xuwei.index;
+
+import com.xuwei.model.Category;
+import com.xuwei.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTest {
+
+    @Test
+    void titleMatchesRankAboveCategoryAndDescriptionMatches() {
+        ProductSearchIndex index = new ProductSearchIndex(true);
+        index.index(product(1L, "Summer dress", "A light linen blend", null));
+        index.index(product(2L, "Summer dress", "Cut loose for hot days", category("Linen")));
+        index.index(product(3L, "Linen dress", "Cut loose for hot days", null));
+        index.index(product(4L, "Wool coat", "Warm", null));
+
+        ProductSearchIndex.SearchResult result = index.search("linen", 0, 10);
+
+        assertThat(result.total()).isEqualTo(3);
+        assertThat(result.productIds()).containsExactly(3L, 2L, 1L);
+    }
+
+    @Test
+    void everyTermMustMatchAndTheLastOneAlsoAsAPrefix() {
+        ProductSearchIndex index = new ProductSearchIndex(true);
+        index.index(product(1L, "Linen shirt", null, null));
+        index.index(product(2L, "Linen shorts", null, null));
+        index.index(product(3L, "Cotton shirt", null, null));
+
+        assertThat(index.search("linen shirt", 0, 10).productIds()).containsExactly(1L);
+        assertThat(index.search("linen sh", 0, 10).productIds()).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(index.search("shirt linen", 0, 10).productIds()).containsExactly(1L);
+        assertThat(index.search("silk shirt", 0, 10).total()).isZero();
+        assertThat(index.search(" ", 0, 10).productIds()).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void queriesAreFoldedLikeTheDocuments() {
+        ProductSearchIndex index = new ProductSearchIndex(true);
+        index.index(product(1L, "Café Crème mug", null, null));
+
+        assertThat(index.search("CAFE creme", 0, 10).productIds()).containsExactly(1L);
+        assertThat(index.search("café-CRÈ", 0, 10).productIds()).containsExactly(1L);
+    }
+
+    @Test
+    void anUpdatedOrDeletedProductNoLongerMatchesWhatItHad() {
+        ProductSearchIndex index = new ProductSearchIndex(true);
+        index.index(product(1L, "Red scarf", null, null));
+        index.index(product(2L, "Red hat", null, null));
+
+        index.index(product(1L, "Blue scarf", null, null));
+        assertThat(index.search("red", 0, 10).productIds()).containsExactly(2L);
+        assertThat(index.search("blue", 0, 10).productIds()).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(2);
+
+        index.remove(1L);
+        assertThat(index.search("scarf", 0, 10).total()).isZero();
+        assertThat(index.search("", 0, 10).productIds()).containsExactly(2L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void pagesAndKeysetContinuationsFollowTheRanking() {
+        ProductSearchIndex index = new ProductSearchIndex(true);
+        for (long id = 1; id <= 40; id++) {
+            // varying lengths and repeats spread the scores, with ties among equal titles
+            String title = "shirt " + "plain ".repeat((int) (id % 4)) + (id % 3 == 0 ? "shirt" : "");
+            index.index(product(id, title, null, null));
+        }
+        List<Long> ranked = index.search("shirt", 0, 40).productIds();
+        assertThat(ranked).hasSize(40).doesNotHaveDuplicates();
+
+        assertThat(index.search("shirt", 10, 10).productIds()).isEqualTo(ranked.subList(10, 20));
+        assertThat(index.search("shirt", 35, 10).productIds()).isEqualTo(ranked.subList(35, 40));
+        assertThat(index.search("shirt", 45, 10).productIds()).isEmpty();
+
+        List<Long> walked = new ArrayList<>();
+        ProductSearchIndex.SearchResult page = index.search("shirt", 0, 7);
+        while (!page.hits().isEmpty()) {
+            assertThat(page.total()).isEqualTo(40);
+            walked.addAll(page.productIds());
+            ProductSearchIndex.SearchHit last = page.hits().get(page.hits().size() - 1);
+            page = index.searchAfter("shirt", last.score(), last.productId(), 7);
+        }
+        assertThat(walked).isEqualTo(ranked);
+    }
+
+    private static Product product(Long id, String title, String description, Category category) {
+        Product product = new Product();
+        product.setId(id);
+        product.setTitle(title);
+        product.setDescription(description);
+        product.setCategory(category);
+        return product;
+    }
+
+    private static Category category(String name) {
+        Category category = new Category();
+        category.setName(name);
+        category.setLevel(1);
+        return category;
+    }
+}
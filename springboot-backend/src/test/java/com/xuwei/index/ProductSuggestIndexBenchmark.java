@@ -0,0 +1,82 @@
+package com.xuwei.index;
+
+import com.xuwei.model.Category;
+import com.xuwei.model.Product;
+import com.xuwei.model.Seller;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Suggestion latency at 1M product titles.
+ * Run with: mvn test -Dtest=ProductSuggestIndexBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProductSuggestIndexBenchmark {
+
+    private static final int PRODUCTS = 1_000_000;
+    private static final int QUERIES = 100_000;
+    private static final String[] ADJECTIVES = {"classic", "slim", "linen", "cotton", "printed", "striped",
+            "casual", "formal", "vintage", "relaxed", "cropped", "oversized", "woven", "knitted", "denim"};
+    private static final String[] NOUNS = {"shirt", "dress", "kurta", "saree", "jeans", "jacket", "blazer",
+            "hoodie", "skirt", "tee", "trousers", "shorts", "sweater", "scarf", "sneakers"};
+
+    @Test
+    void suggestAtOneMillionTitles() {
+        Random random = new Random(42);
+        Category[] categories = new Category[200];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = new Category();
+            categories[i].setName(NOUNS[i % NOUNS.length] + " collection " + i);
+        }
+        Seller[] sellers = new Seller[2_000];
+        for (int i = 0; i < sellers.length; i++) {
+            sellers[i] = new Seller();
+            sellers[i].getBusinessDetails().setBusinessName(ADJECTIVES[i % ADJECTIVES.length] + " store " + i);
+        }
+
+        ProductSuggestIndex index = new ProductSuggestIndex(true);
+        String[] titles = new String[PRODUCTS];
+        long buildStart = System.nanoTime();
+        Product product = new Product();
+        for (int i = 0; i < PRODUCTS; i++) {
+            titles[i] = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " "
+                    + NOUNS[random.nextInt(NOUNS.length)] + " " + Integer.toString(random.nextInt(1 << 30), 36);
+            product.setId((long) i + 1);
+            product.setTitle(titles[i]);
+            product.setCategory(categories[random.nextInt(categories.length)]);
+            product.setSeller(sellers[random.nextInt(sellers.length)]);
+            index.index(product);
+        }
+        index.markReady();
+        long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+
+        String[] prefixes = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String title = titles[random.nextInt(PRODUCTS)];
+            prefixes[i] = title.substring(0, 1 + random.nextInt(Math.min(title.length(), 16)));
+        }
+        for (int i = 0; i < 20_000; i++) {
+            index.suggest(prefixes[i], ProductSuggestIndex.TOP_K);
+        }
+
+        long[] latencies = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            long start = System.nanoTime();
+            index.suggest(prefixes[i], ProductSuggestIndex.TOP_K);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        assertTrue(index.phraseCount() >= PRODUCTS / 2);
+
+        System.out.printf("ProductSuggestIndex: build %d products (%d phrases) in %d ms%n",
+                PRODUCTS, index.phraseCount(), buildMs);
+        System.out.printf("ProductSuggestIndex: %d prefix queries, p50 %.1f us, p99 %.1f us, max %.1f us%n",
+                QUERIES, latencies[QUERIES / 2] / 1e3, latencies[QUERIES * 99 / 100] / 1e3,
+                latencies[QUERIES - 1] / 1e3);
+    }
+}
@@ -0,0 +1,98 @@
+package com.xuwei.index;
+
+import com.xuwei.model.Category;
+import com.xuwei.model.Product;
+import com.xuwei.model.Seller;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSuggestIndexTest {
+
+    @Test
+    void ranksPhrasesByNumberOfProducts() {
+        ProductSuggestIndex index = new ProductSuggestIndex(true);
+        Category shirts = category("Shirts");
+        Seller seller = new Seller();
+        seller.getBusinessDetails().setBusinessName("Shore Outfitters");
+
+        index.index(product(1L, "Shirt dress", shirts, seller));
+        index.index(product(2L, "Short sleeve tee", shirts, seller));
+        index.index(product(3L, "Café Shorts", null, null));
+
+        List<ProductSuggestIndex.Suggestion> suggestions = index.suggest("SH", 10);
+        assertThat(suggestions).extracting(ProductSuggestIndex.Suggestion::text)
+                .containsExactly("Shirts", "Shore Outfitters", "Shirt dress", "Short sleeve tee");
+        assertThat(suggestions.get(0).popularity()).isEqualTo(2);
+        assertThat(suggestions.get(0).type()).isEqualTo(ProductSuggestIndex.Type.CATEGORY);
+
+        assertThat(index.suggest("cafe sh", 10)).extracting(ProductSuggestIndex.Suggestion::text)
+                .containsExactly("Café Shorts");
+
+        index.remove(1L);
+        index.remove(2L);
+        assertThat(index.suggest("sh", 10)).isEmpty();
+        assertThat(index.phraseCount()).isEqualTo(1);
+    }
+
+    @Test
+    void incrementalUpdatesMatchBruteForce() {
+        Random random = new Random(7);
+        String[] words = {"a", "ab", "abc", "abd", "b", "ba", "bab", "c", "ca", "cab", "abca"};
+        ProductSuggestIndex index = new ProductSuggestIndex(true);
+        Map<Long, String> titles = new HashMap<>();
+
+        for (int step = 0; step < 5_000; step++) {
+            long id = random.nextInt(300);
+            if (random.nextInt(4) == 0) {
+                index.remove(id);
+                titles.remove(id);
+            } else {
+                String title = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+                index.index(product(id, title, null, null));
+                titles.put(id, title);
+            }
+            if (step % 50 == 0) {
+                for (String prefix : List.of("a", "ab", "abc", "b", "ba b", "c", "cab a", "z")) {
+                    assertThat(texts(index.suggest(prefix, 10)))
+                            .as("prefix %s at step %d", prefix, step)
+                            .isEqualTo(bruteForce(titles.values(), prefix));
+                }
+            }
+        }
+    }
+
+    private static List<String> texts(List<ProductSuggestIndex.Suggestion> suggestions) {
+        return suggestions.stream().map(ProductSuggestIndex.Suggestion::text).toList();
+    }
+
+    private static List<String> bruteForce(Collection<String> titles, String prefix) {
+        Map<String, Long> counts = titles.stream()
+                .filter(title -> title.startsWith(prefix))
+                .collect(Collectors.groupingBy(title -> title, Collectors.counting()));
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(ProductSuggestIndex.TOP_K)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private static Product product(Long id, String title, Category category, Seller seller) {
+        Product product = new Product();
+        product.setId(id);
+        product.setTitle(title);
+        product.setCategory(category);
+        product.setSeller(seller);
+        return product;
+    }
+
+    private static Category category(String name) {
+        Category category = new Category();
+        category.setName(name);
+        category.setLevel(1);
+        return category;
+    }
+}
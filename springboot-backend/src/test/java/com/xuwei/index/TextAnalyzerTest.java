@@ -0,0 +1,24 @@
+package com.xuwei.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextAnalyzerTest {
+
+    @Test
+    void foldsCaseAccentsAndCompatibilityForms() {
+        assertThat(TextAnalyzer.fold("Café CRÈME")).isEqualTo("cafe creme");
+        assertThat(TextAnalyzer.fold("Ｓｏｆａ ﬁt")).isEqualTo("sofa fit");
+        assertThat(TextAnalyzer.fold(null)).isEmpty();
+    }
+
+    @Test
+    void splitsOnAnythingButLettersAndDigits() {
+        assertThat(TextAnalyzer.tokenize("Café-Noir")).containsExactly("cafe", "noir")
+                .isEqualTo(TextAnalyzer.tokenize("cafe noir"));
+        assertThat(TextAnalyzer.tokenize("  iPhone 15, Pro/Max! ")).containsExactly("iphone", "15", "pro", "max");
+        assertThat(TextAnalyzer.tokenize("--- ")).isEmpty();
+        assertThat(TextAnalyzer.tokenize(null)).isEmpty();
+    }
+}
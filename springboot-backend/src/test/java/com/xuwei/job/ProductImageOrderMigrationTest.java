@@ -0,0 +1,95 @@
+package com.xuwei.job;
+
+import com.xuwei.model.Product;
+import com.xuwei.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties", properties =
+        "spring.datasource.url=jdbc:h2:mem:image_order;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1")
+@Import(ProductImageOrderMigration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductImageOrderMigrationTest {
+
+    @Autowired
+    private ProductImageOrderMigration migration;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAll();
+        // the shape a schema update leaves an existing table in: no key, positions optional
+        Integer keys = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS "
+                + "WHERE TABLE_NAME = 'PRODUCT_IMAGES' AND CONSTRAINT_TYPE = 'PRIMARY KEY'", Integer.class);
+        if (keys != null && keys > 0) {
+            jdbcTemplate.execute("ALTER TABLE product_images DROP PRIMARY KEY");
+        }
+        jdbcTemplate.execute("ALTER TABLE product_images ALTER COLUMN images_order SET NULL");
+    }
+
+    @Test
+    void imagesWithoutPositionsAreNumberedInStoredOrder() {
+        Product legacy = product("front.jpg", "back.jpg", "detail.jpg");
+        jdbcTemplate.update("UPDATE product_images SET images_order = NULL WHERE product_id = ?", legacy.getId());
+        Product repeated = product("a.jpg", "b.jpg");
+        jdbcTemplate.update("UPDATE product_images SET images_order = 0 WHERE product_id = ?", repeated.getId());
+        Product numbered = product("z.jpg", "y.jpg");
+
+        assertThat(migration.run()).isEqualTo(2);
+
+        assertThat(positions(legacy)).containsExactly(0, 1, 2);
+        assertThat(productRepository.findWithImagesById(legacy.getId()).orElseThrow().getImages())
+                .containsExactly("front.jpg", "back.jpg", "detail.jpg");
+        assertThat(positions(repeated)).containsExactly(0, 1);
+        assertThat(productRepository.findWithImagesById(repeated.getId()).orElseThrow().getImages())
+                .containsExactlyInAnyOrder("a.jpg", "b.jpg");
+        assertThat(productRepository.findWithImagesById(numbered.getId()).orElseThrow().getImages())
+                .containsExactly("z.jpg", "y.jpg");
+        assertThat(migration.run()).isZero();
+    }
+
+    @Test
+    void numberedImagesKeepTheirOrderAndUnnumberedOnesFollow() {
+        Product product = product("first.jpg", "second.jpg", "third.jpg");
+        jdbcTemplate.update("UPDATE product_images SET images_order = images_order + 5 WHERE product_id = ?",
+                product.getId());
+        jdbcTemplate.update("INSERT INTO product_images (product_id, images, images_order) VALUES (?, ?, NULL)",
+                product.getId(), "late.jpg");
+
+        assertThat(migration.run()).isEqualTo(1);
+
+        assertThat(productRepository.findWithImagesById(product.getId()).orElseThrow().getImages())
+                .containsExactly("first.jpg", "second.jpg", "third.jpg", "late.jpg");
+    }
+
+    private Product product(String... images) {
+        Product product = new Product();
+        product.setTitle("Shirt");
+        product.setImages(List.of(images));
+        return productRepository.save(product);
+    }
+
+    private List<Integer> positions(Product product) {
+        return jdbcTemplate.queryForList("SELECT images_order FROM product_images WHERE product_id = ? "
+                + "ORDER BY images_order", Integer.class, product.getId());
+    }
+}
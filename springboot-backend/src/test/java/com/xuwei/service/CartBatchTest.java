@@ -0,0 +1,139 @@
+package com.xuwei.service;
+
+import com.xuwei.domain.CartOperationType;
+import com.xuwei.dto.CartItemResponseDTO;
+import com.xuwei.dto.CartResponseDTO;
+import com.xuwei.exception.CartItemException;
+import com.xuwei.exception.ProductException;
+import com.xuwei.model.Cart;
+import com.xuwei.model.CartItem;
+import com.xuwei.model.Product;
+import com.xuwei.model.User;
+import com.xuwei.repository.CartItemRepository;
+import com.xuwei.repository.CartRepository;
+import com.xuwei.repository.ProductRepository;
+import com.xuwei.repository.UserRepository;
+import com.xuwei.request.CartBatchRequest.Operation;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties", properties =
+        "spring.datasource.url=jdbc:h2:mem:cart_batch;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1")
+@Import(CartSliceConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartBatchTest {
+
+    @Autowired
+    private ShopFixtures fixtures;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+    private Product shirt;
+    private Product jeans;
+    private Product cap;
+
+    @BeforeEach
+    void setUp() {
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+        user = new User();
+        user.setEmail("shopper@example.com");
+        user = userRepository.save(user);
+        shirt = fixtures.product("Shirt", 1000, 800);
+        jeans = fixtures.product("Jeans", 2500, 2000);
+        cap = fixtures.product("Cap", 400, 300);
+    }
+
+    @Test
+    void appliesAllOperationsWithOneLookupPerKindAndOneTotalsWrite() throws Exception {
+        CartItem shirtM = cartService.addCartItem(user, shirt, "M", 1);
+        CartItem shirtL = cartService.addCartItem(user, shirt, "L", 2);
+        CartItem jeans32 = cartService.addCartItem(user, jeans, "32", 1);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        CartResponseDTO cart = cartService.applyCartBatch(user, List.of(
+                new Operation(CartOperationType.ADD, cap.getId(), null, "One", 2),
+                new Operation(CartOperationType.ADD, jeans.getId(), null, "32", 1),
+                // moving M onto L merges the two shirt lines
+                new Operation(CartOperationType.UPDATE, null, shirtM.getId(), "L", 1),
+                new Operation(CartOperationType.UPDATE, null, jeans32.getId(), "34", null),
+                new Operation(CartOperationType.ADD, shirt.getId(), null, "XL", 1)));
+
+        // the cart, its items and the added products: one query each
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(3);
+        assertThat(statistics.getEntityStatistics(Cart.class.getName()).getUpdateCount()).isEqualTo(1);
+
+        assertThat(cart.getCartItems()).extracting(item -> item.getProduct().getTitle(), CartItemResponseDTO::getSize,
+                CartItemResponseDTO::getQuantity).containsExactlyInAnyOrder(
+                tuple("Shirt", "L", 3), tuple("Jeans", "34", 2), tuple("Cap", "One", 2), tuple("Shirt", "XL", 1));
+        assertThat(cart.getTotalItems()).isEqualTo(8);
+        assertThat(cart.getTotalMrpPrice()).isEqualTo(4 * 1000 + 2 * 2500 + 2 * 400);
+        assertThat(cart.getTotalSellingPrice()).isEqualTo(4 * 800 + 2 * 2000 + 2 * 300);
+
+        Cart stored = cartRepository.findByUserId(user.getId());
+        assertThat(stored.getTotalItems()).isEqualTo(8);
+        assertThat(cartItemRepository.findById(shirtM.getId())).isEmpty();
+        assertThat(cartItemRepository.findById(shirtL.getId()).orElseThrow().getQuantity()).isEqualTo(3);
+        assertThat(cartItemRepository.findById(jeans32.getId()).orElseThrow().getSellingPrice()).isEqualTo(2 * 2000);
+    }
+
+    @Test
+    void aRejectedBatchChangesNothing() throws Exception {
+        CartItem shirtM = cartService.addCartItem(user, shirt, "M", 1);
+
+        assertThatThrownBy(() -> cartService.applyCartBatch(user, List.of(
+                new Operation(CartOperationType.ADD, cap.getId(), null, "One", 1),
+                new Operation(CartOperationType.REMOVE, null, shirtM.getId(), null, null),
+                new Operation(CartOperationType.UPDATE, null, shirtM.getId(), null, 4))))
+                .isInstanceOf(CartItemException.class);
+        assertThatThrownBy(() -> cartService.applyCartBatch(user, List.of(
+                new Operation(CartOperationType.ADD, -1L, null, "M", 1))))
+                .isInstanceOf(ProductException.class);
+        assertThatThrownBy(() -> cartService.applyCartBatch(user, List.of(
+                new Operation(CartOperationType.UPDATE, null, shirtM.getId(), null, 0))))
+                .isInstanceOf(CartItemException.class);
+
+        assertThat(cartItemRepository.findAll()).extracting(CartItem::getId).containsExactly(shirtM.getId());
+        Cart stored = cartRepository.findByUserId(user.getId());
+        assertThat(stored.getTotalItems()).isEqualTo(1);
+        assertThat(stored.getVersion()).isEqualTo(1);
+    }
+}
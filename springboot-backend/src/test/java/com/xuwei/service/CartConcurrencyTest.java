@@ -0,0 +1,185 @@
+package com.xuwei.service;
+
+import com.xuwei.cart.CartWriteLocks;
+import com.xuwei.cart.HotCartStore;
+import com.xuwei.converter.CartConverter;
+import com.xuwei.converter.CartItemConverter;
+import com.xuwei.model.Cart;
+import com.xuwei.model.Product;
+import com.xuwei.model.User;
+import com.xuwei.repository.CartItemRepository;
+import com.xuwei.repository.CartRepository;
+import com.xuwei.repository.ProductRepository;
+import com.xuwei.repository.UserRepository;
+import com.xuwei.service.Impl.CartServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Thousands of parallel adds to a few cart lines must leave exactly one row
+ * per line holding the exact sum of the added quantities.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:cart_concurrency;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=false",
+        "cart.write.max-attempts=50"})
+@Import(CartSliceConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartConcurrencyTest {
+
+    private static final String[] SIZES = {"M", "L"};
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartItemConverter cartItemConverter;
+
+    @Autowired
+    private CartConverter cartConverter;
+
+    @Autowired
+    private HotCartStore hotCartStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<User> users = new ArrayList<>();
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+        users.clear();
+        products.clear();
+        for (int i = 0; i < 4; i++) {
+            User user = new User();
+            user.setEmail("shopper" + i + "@example.com");
+            users.add(userRepository.save(user));
+        }
+        for (int i = 0; i < 2; i++) {
+            Product product = new Product();
+            product.setTitle("Product " + i);
+            product.setMrpPrice(100 * (i + 1));
+            product.setSellingPrice(80 * (i + 1));
+            products.add(productRepository.save(product));
+        }
+    }
+
+    @Test
+    void parallelAddsInOneInstanceKeepExactQuantities() throws Exception {
+        Map<String, AtomicInteger> added = run(List.of(cartService), 16, 250);
+
+        assertExactCarts(added);
+    }
+
+    @Test
+    void parallelAddsFromTwoInstancesAreReconciledByTheConstraint() throws Exception {
+        // a second instance: its own lock stripes, so only the database keeps the two apart
+        CartService otherInstance = new CartServiceImpl(cartRepository, cartItemRepository, productRepository,
+                cartItemConverter, cartConverter, hotCartStore, new CartWriteLocks(transactionManager, 64, 50));
+
+        Map<String, AtomicInteger> added = run(List.of(cartService, otherInstance), 6, 200);
+
+        assertExactCarts(added);
+    }
+
+    /**
+     * Runs threadsPerInstance threads on each instance, each making the given
+     * number of adds, and returns the quantity added per user|product|size.
+     */
+    private Map<String, AtomicInteger> run(List<CartService> instances, int threadsPerInstance, int addsPerThread)
+            throws Exception {
+        Map<String, AtomicInteger> added = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(instances.size() * threadsPerInstance);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (CartService instance : instances) {
+                for (int thread = 0; thread < threadsPerInstance; thread++) {
+                    Random random = new Random(thread * 31L + instances.indexOf(instance));
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < addsPerThread; i++) {
+                            User user = users.get(random.nextInt(users.size()));
+                            Product product = products.get(random.nextInt(products.size()));
+                            String size = SIZES[random.nextInt(SIZES.length)];
+                            int quantity = 1 + random.nextInt(3);
+                            instance.addCartItem(user, product, size, quantity);
+                            added.computeIfAbsent(key(user.getId(), product.getId(), size), k -> new AtomicInteger())
+                                    .addAndGet(quantity);
+                        }
+                        return null;
+                    }));
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return added;
+    }
+
+    private void assertExactCarts(Map<String, AtomicInteger> added) {
+        assertThat(added).isNotEmpty();
+        Map<String, Integer> stored = new HashMap<>();
+        jdbcTemplate.query("SELECT c.user_id, i.product_id, i.size, i.quantity FROM cart_item i "
+                + "JOIN cart c ON c.id = i.cart_id", row -> {
+            String key = key(row.getLong(1), row.getLong(2), row.getString(3));
+            assertThat(stored.put(key, row.getInt(4))).as("one row for %s", key).isNull();
+        });
+        Map<String, Integer> expected = new HashMap<>();
+        added.forEach((key, quantity) -> expected.put(key, quantity.get()));
+        assertThat(stored).isEqualTo(expected);
+
+        for (User user : users) {
+            Cart cart = cartRepository.findByUserId(user.getId());
+            int items = expected.entrySet().stream().filter(e -> e.getKey().startsWith(user.getId() + "|"))
+                    .mapToInt(Map.Entry::getValue).sum();
+            assertThat(cart.getTotalItems()).isEqualTo(items);
+        }
+        assertThat(cartRepository.count()).isEqualTo(users.size());
+    }
+
+    private static String key(Long userId, Long productId, String size) {
+        return userId + "|" + productId + "|" + size;
+    }
+}
@@ -0,0 +1,22 @@
+package com.xuwei.service;
+
+import com.xuwei.cart.CartWriteLocks;
+import com.xuwei.cart.HotCartStore;
+import com.xuwei.converter.CartConverter;
+import com.xuwei.converter.CartItemConverter;
+import com.xuwei.converter.UserConverter;
+import com.xuwei.service.Impl.CartItemServiceImpl;
+import com.xuwei.service.Impl.CartServiceImpl;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * The cart services and what they are wired to, for slice tests of carts.
+ * A new collaborator of the cart services is added here, not to each test,
+ * and so are the shared {@link ShopFixtures}.
+ */
+@TestConfiguration
+@Import({CartServiceImpl.class, CartItemServiceImpl.class, CartConverter.class, CartItemConverter.class,
+        UserConverter.class, HotCartStore.class, CartWriteLocks.class, ShopFixtures.class})
+public class CartSliceConfiguration {
+}
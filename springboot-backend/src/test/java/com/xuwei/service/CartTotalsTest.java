@@ -0,0 +1,179 @@
+package com.xuwei.service;
+
+import com.xuwei.dto.CartItemResponseDTO;
+import com.xuwei.dto.CartResponseDTO;
+import com.xuwei.exception.ProductException;
+import com.xuwei.job.CartTotalsRepairJob;
+import com.xuwei.model.Cart;
+import com.xuwei.model.CartItem;
+import com.xuwei.model.Product;
+import com.xuwei.model.User;
+import com.xuwei.repository.CartItemRepository;
+import com.xuwei.repository.CartRepository;
+import com.xuwei.repository.ProductRepository;
+import com.xuwei.repository.UserRepository;
+import com.xuwei.service.Impl.CartServiceImpl;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties", properties =
+        "spring.datasource.url=jdbc:h2:mem:cart_totals;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1")
+@Import({CartSliceConfiguration.class, CartTotalsRepairJob.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartTotalsTest {
+
+    @Autowired
+    private ShopFixtures fixtures;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartItemService cartItemService;
+
+    @Autowired
+    private CartTotalsRepairJob cartTotalsRepairJob;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User user;
+    private Product shirt;
+    private Product jeans;
+
+    @BeforeEach
+    void setUp() {
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+        user = user("shopper@example.com");
+        shirt = fixtures.product("Shirt", 1000, 800);
+        jeans = fixtures.product("Jeans", 2500, 2000);
+    }
+
+    @Test
+    void itemChangesMoveTheTotalsByTheirDelta() throws Exception {
+        cartService.addCartItem(user, shirt, "M", 2);
+        cartService.addCartItem(user, shirt, "M", 1);
+        CartItem jeansItem = cartService.addCartItem(user, jeans, "32", 1);
+        assertTotals(3 * 1000 + 2500, 3 * 800 + 2000, 4);
+
+        CartItem shirtItem = cartItemRepository.findByCartAndProductAndSize(
+                cartRepository.findByUserId(user.getId()), shirt, "M");
+        CartItem update = new CartItem();
+        update.setQuantity(5);
+        cartItemService.updateCartItem(user.getId(), shirtItem.getId(), update);
+        assertTotals(5 * 1000 + 2500, 5 * 800 + 2000, 6);
+
+        cartItemService.deleteCartItem(user.getId(), jeansItem.getId());
+        Cart cart = assertTotals(5 * 1000, 5 * 800, 5);
+        assertThat(cart.getDiscountedPrice()).isEqualTo(20);
+        assertThat(cart.getVersion()).isEqualTo(5);
+    }
+
+    @Test
+    void readingTheCartWritesNothing() throws Exception {
+        cartService.addCartItem(user, shirt, "M", 2);
+        User newcomer = user("newcomer@example.com");
+        long carts = cartRepository.count();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        CartResponseDTO cart = cartService.findUserCartWithDetails(user);
+        CartResponseDTO empty = cartService.findUserCartWithDetails(newcomer);
+        cartService.findUserCart(user);
+
+        assertThat(cart.getTotalItems()).isEqualTo(2);
+        assertThat(cart.getCartItems()).extracting(CartItemResponseDTO::getQuantity).containsExactly(2);
+        assertThat(empty.getTotalItems()).isZero();
+        assertThat(empty.getCartItems()).isEmpty();
+        assertThat(statistics.getEntityInsertCount() + statistics.getEntityUpdateCount()).isZero();
+        assertThat(cartRepository.count()).isEqualTo(carts);
+    }
+
+    @Test
+    void aStaleCartCannotOverwriteNewerTotals() throws Exception {
+        cartService.addCartItem(user, shirt, "M", 1);
+        TransactionTemplate concurrent = new TransactionTemplate(transactionManager);
+        concurrent.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        assertThatThrownBy(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Cart stale = cartRepository.findByUserId(user.getId());
+            concurrent.executeWithoutResult(inner -> {
+                try {
+                    cartService.addCartItem(user, jeans, "32", 1);
+                } catch (ProductException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            CartServiceImpl.applyTotalsDelta(stale, 0, 0, -1);
+        })).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertTotals(1000 + 2500, 800 + 2000, 2);
+    }
+
+    @Test
+    void repairRewritesOnlyDriftedCarts() throws Exception {
+        cartService.addCartItem(user, shirt, "M", 2);
+        User other = user("other@example.com");
+        cartService.addCartItem(other, jeans, "32", 1);
+        Cart drifted = cartRepository.findByUserId(user.getId());
+        jdbcTemplate.update("UPDATE cart SET total_items = 99, total_mrp_price = 1 WHERE id = ?", drifted.getId());
+
+        assertThat(cartTotalsRepairJob.repairDriftedCarts()).isEqualTo(1);
+        assertTotals(2 * 1000, 2 * 800, 2);
+        assertThat(cartTotalsRepairJob.repairDriftedCarts()).isZero();
+    }
+
+    private Cart assertTotals(int mrpPrice, int sellingPrice, int items) {
+        Cart cart = cartRepository.findByUserId(user.getId());
+        assertThat(cart.getTotalMrpPrice()).isEqualTo(mrpPrice);
+        assertThat(cart.getTotalSellingPrice()).isEqualTo(sellingPrice);
+        assertThat(cart.getTotalItems()).isEqualTo(items);
+        return cart;
+    }
+
+    private User user(String email) {
+        User newUser = new User();
+        newUser.setEmail(email);
+        return userRepository.save(newUser);
+    }
+}
@@ -0,0 +1,121 @@
+package com.xuwei.service;
+
+import com.xuwei.dto.CartItemResponseDTO;
+import com.xuwei.dto.CartResponseDTO;
+import com.xuwei.model.*;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource("classpath:jpa-test.properties")
+@Import(CartSliceConfiguration.class)
+class CartViewQueryTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void statementCountDoesNotGrowWithTheItems() {
+        User small = cartOwner("small@example.com", 1);
+        User large = cartOwner("large@example.com", 20);
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics.clear();
+        CartResponseDTO smallCart = cartService.findUserCartWithDetails(small);
+        long smallStatements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+
+        statistics.clear();
+        CartResponseDTO largeCart = cartService.findUserCartWithDetails(large);
+        long largeStatements = statistics.getPrepareStatementCount();
+
+        assertThat(smallStatements).isEqualTo(2);
+        assertThat(largeStatements).isEqualTo(smallStatements);
+        assertThat(smallCart.getCartItems()).hasSize(1);
+        assertThat(largeCart.getCartItems()).hasSize(20);
+        assertThat(largeCart.getUser().getAddress()).hasSize(2);
+        CartItemResponseDTO.ProductDTO product = largeCart.getCartItems().iterator().next().getProduct();
+        assertThat(product.getImages()).hasSize(2);
+        assertThat(product.getSeller().getPickupAddress().getCity()).isEqualTo("Pune");
+        assertThat(product.getCategory().getParentCategory().getName()).isEqualTo("Top Wear");
+    }
+
+    /**
+     * A user with two addresses and a cart of the given number of items, each
+     * from its own seller and leaf category.
+     */
+    private User cartOwner(String email, int items) {
+        User user = new User();
+        user.setEmail(email);
+        for (String city : List.of("Mumbai", "Delhi")) {
+            Address address = new Address();
+            address.setCity(city);
+            entityManager.persist(address);
+            user.getAddress().add(address);
+        }
+        entityManager.persist(user);
+
+        Category men = category(email + "_men", "Men", 1, null);
+        Category topWear = category(email + "_top_wear", "Top Wear", 2, men);
+
+        Cart cart = new Cart();
+        cart.setUser(user);
+        entityManager.persist(cart);
+        for (int i = 0; i < items; i++) {
+            Seller seller = new Seller();
+            seller.setEmail(email + ".seller" + i);
+            seller.getPickupAddress().setCity("Pune");
+            entityManager.persist(seller);
+
+            Product product = new Product();
+            product.setTitle("Shirt " + i);
+            product.setSeller(seller);
+            product.setCategory(category(email + "_shirts_" + i, "Shirts " + i, 3, topWear));
+            product.setImages(List.of("front.jpg", "back.jpg"));
+            entityManager.persist(product);
+
+            CartItem cartItem = new CartItem();
+            cartItem.setCart(cart);
+            cartItem.setProduct(product);
+            cartItem.setQuantity(1);
+            cartItem.setUserId(user.getId());
+            entityManager.persist(cartItem);
+        }
+        return user;
+    }
+
+    private Category category(String categoryId, String name, int level, Category parent) {
+        Category category = new Category();
+        category.setCategoryId(categoryId);
+        category.setName(name);
+        category.setLevel(level);
+        category.setParentCategory(parent);
+        entityManager.persist(category);
+        return category;
+    }
+}
@@ -0,0 +1,298 @@
+package com.xuwei.service;
+
+import com.xuwei.admission.FlashSaleQueue;
+import com.xuwei.cache.CouponCache;
+import com.xuwei.dto.OrderResponseDTO;
+import com.xuwei.exception.OrderException;
+import com.xuwei.index.ProductCatalogSnapshot;
+import com.xuwei.model.*;
+import com.xuwei.repository.*;
+import com.xuwei.request.CheckoutRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties", properties =
+        "spring.datasource.url=jdbc:h2:mem:checkout;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1")
+@Import({OrderSliceConfiguration.class, CheckoutTest.StatementCounting.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CheckoutTest {
+
+    private static final int SELLERS = 10;
+    private static final int PRODUCTS_PER_SELLER = 5;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private CouponCache couponCache;
+
+    @Autowired
+    private FlashSaleQueue flashSaleQueue;
+
+    @Autowired
+    private ProductCatalogSnapshot catalogSnapshot;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Address address;
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM stock_reservation");
+        jdbcTemplate.update("DELETE FROM order_item");
+        jdbcTemplate.update("DELETE FROM orders");
+        jdbcTemplate.update("DELETE FROM user_used_coupons");
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        productRepository.deleteAll();
+        sellerRepository.deleteAll();
+        couponRepository.deleteAll();
+        userRepository.deleteAll();
+        products.clear();
+
+        address = new Address();
+        address.setCity("Mumbai");
+        address = addressRepository.save(address);
+        user = new User();
+        user.setEmail("shopper@example.com");
+        user.getAddress().add(address);
+        user = userRepository.save(user);
+
+        for (int s = 0; s < SELLERS; s++) {
+            Seller seller = new Seller();
+            seller.setEmail("seller" + s + "@example.com");
+            seller = sellerRepository.save(seller);
+            for (int p = 0; p < PRODUCTS_PER_SELLER; p++) {
+                Product product = new Product();
+                product.setTitle("Product " + s + "-" + p);
+                product.setMrpPrice(1000);
+                product.setSellingPrice(800);
+                product.setQuantity(100);
+                product.setSeller(seller);
+                products.add(productRepository.save(product));
+            }
+        }
+    }
+
+    @Test
+    void aFiftyItemTenSellerCartIsCheckedOutInAHandfulOfStatements() throws Exception {
+        for (Product product : products) {
+            cartService.addCartItem(user, product, "M", 2);
+        }
+
+        StatementCounting.statements.set(0);
+        List<OrderResponseDTO> orders = orderService.checkout(user, checkoutRequest(), "key-1");
+
+        // address, replay lookup, cart, lines, two batched inserts, the sellers' report counts,
+        // two statements to empty the cart, two batches reserving the stock
+        assertThat(StatementCounting.statements.get()).isEqualTo(11);
+        assertThat(orders).hasSize(SELLERS);
+        assertThat(orders).allSatisfy(order -> {
+            assertThat(order.getOrderItems()).hasSize(PRODUCTS_PER_SELLER);
+            assertThat(order.getTotalItem()).isEqualTo(2 * PRODUCTS_PER_SELLER);
+            assertThat(order.getTotalSellingPrice()).isEqualTo(2 * 800 * PRODUCTS_PER_SELLER);
+            assertThat(order.getShippingAddressId()).isEqualTo(address.getId());
+        });
+        assertThat(orders).extracting(OrderResponseDTO::getSellerId).doesNotHaveDuplicates();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_item", Integer.class))
+                .isEqualTo(products.size());
+
+        assertThat(cartItemRepository.count()).isZero();
+        Cart cart = cartRepository.findByUserId(user.getId());
+        assertThat(cart.getTotalItems()).isZero();
+        assertThat(cart.getTotalSellingPrice()).isZero();
+    }
+
+    @Test
+    void aRetryWithTheSameKeyReturnsTheFirstOrders() throws Exception {
+        cartService.addCartItem(user, products.get(0), "M", 1);
+        cartService.addCartItem(user, products.get(PRODUCTS_PER_SELLER), "L", 1);
+
+        List<OrderResponseDTO> first = orderService.checkout(user, checkoutRequest(), "key-2");
+        List<OrderResponseDTO> retry = orderService.checkout(user, checkoutRequest(), "key-2");
+
+        assertThat(retry).extracting(OrderResponseDTO::getId)
+                .containsExactlyElementsOf(first.stream().map(OrderResponseDTO::getId).toList());
+        assertThat(retry).flatExtracting(OrderResponseDTO::getOrderItems).hasSize(2);
+        assertThat(orderRepository.count()).isEqualTo(2);
+        assertThatThrownBy(() -> orderService.checkout(user, checkoutRequest(), "key-3"))
+                .isInstanceOf(OrderException.class).hasMessage("Cart is empty");
+    }
+
+    @Test
+    void theCouponIsSharedBetweenTheSellersAndRedeemed() throws Exception {
+        Coupon coupon = new Coupon();
+        coupon.setCode("SAVE10");
+        coupon.setDiscountPercentage(10);
+        coupon.setValidityEndDate(LocalDate.now().plusDays(1));
+        couponRepository.save(coupon);
+        couponCache.reload();
+        cartService.addCartItem(user, products.get(0), "M", 1);
+        cartService.addCartItem(user, products.get(PRODUCTS_PER_SELLER), "M", 2);
+        cartService.addCartItem(user, products.get(2 * PRODUCTS_PER_SELLER), "M", 4);
+        couponService.applyCoupon(user, "SAVE10");
+
+        List<OrderResponseDTO> orders = orderService.checkout(user, checkoutRequest(), null);
+
+        // 10% of 7 * 800, shared 1:2:4
+        assertThat(orders).extracting(OrderResponseDTO::getDiscount).containsExactlyInAnyOrder(80, 160, 320);
+        assertThat(orders).extracting(OrderResponseDTO::getTotalSellingPrice)
+                .containsExactlyInAnyOrder(720, 1440, 2880);
+        assertThat(cartRepository.findByUserId(user.getId()).getCouponCode()).isNull();
+        assertThat(couponService.couponDiscount(user.getId(), "SAVE10", 10_000)).isZero();
+    }
+
+    @Test
+    void anAddressOfAnotherUserIsRejected() throws Exception {
+        cartService.addCartItem(user, products.get(0), "M", 1);
+        CheckoutRequest request = new CheckoutRequest();
+        request.setAddressId(address.getId() + 1000);
+
+        assertThatThrownBy(() -> orderService.checkout(user, request, null))
+                .isInstanceOf(OrderException.class);
+        assertThat(orderRepository.count()).isZero();
+        assertThat(cartItemRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void aFlashSaleProductIsCheckedOutOnceWithAnAdmission() throws Exception {
+        Product deal = products.get(0);
+        deal.setFlashSale(true);
+        deal = productRepository.save(deal);
+        cartService.addCartItem(user, deal, "M", 1);
+
+        assertThatThrownBy(() -> orderService.checkout(user, checkoutRequest(), null))
+                .isInstanceOf(OrderException.class).hasMessageContaining("flash sale queue");
+        assertThat(flashSaleQueue.join(user.getId(), deal).isAdmitted()).isTrue();
+
+        assertThat(orderService.checkout(user, checkoutRequest(), null)).hasSize(1);
+        // the admission is used up by the checkout
+        cartService.addCartItem(user, deal, "M", 1);
+        assertThatThrownBy(() -> orderService.checkout(user, checkoutRequest(), null))
+                .isInstanceOf(OrderException.class);
+    }
+
+    @Test
+    void orderedUnitsCountTowardsPopularity() throws Exception {
+        catalogSnapshot.clear();
+        products.subList(0, 3).forEach(catalogSnapshot::index);
+        cartService.addCartItem(user, products.get(2), "M", 3);
+        cartService.addCartItem(user, products.get(1), "M", 1);
+        cartService.addCartItem(user, products.get(1), "L", 1);
+
+        orderService.checkout(user, checkoutRequest(), null);
+
+        ProductCatalogSnapshot.Listing listing = catalogSnapshot.list(
+                new ProductCatalogSnapshot.Filter(null, null, null, null, null, null),
+                ProductCatalogSnapshot.Ordering.POPULARITY, 0, 3);
+        assertThat(listing.productIds()).containsExactly(products.get(2).getId(), products.get(1).getId(),
+                products.get(0).getId());
+    }
+
+    private CheckoutRequest checkoutRequest() {
+        CheckoutRequest request = new CheckoutRequest();
+        request.setAddressId(address.getId());
+        return request;
+    }
+
+    /**
+     * Counts the statements prepared on every connection of the data source.
+     */
+    @TestConfiguration
+    static class StatementCounting {
+
+        static final AtomicInteger statements = new AtomicInteger();
+
+        @Bean
+        static BeanPostProcessor countingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource dataSource)) {
+                        return bean;
+                    }
+                    return new DelegatingDataSource(dataSource) {
+                        @Override
+                        public Connection getConnection() throws SQLException {
+                            return counting(super.getConnection());
+                        }
+                    };
+                }
+            };
+        }
+
+        private static Connection counting(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        if (method.getName().startsWith("prepare") || method.getName().equals("createStatement")) {
+                            statements.incrementAndGet();
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
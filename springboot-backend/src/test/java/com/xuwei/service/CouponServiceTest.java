@@ -0,0 +1,171 @@
+package com.xuwei.service;
+
+import com.xuwei.cache.CouponCache;
+import com.xuwei.dto.CartResponseDTO;
+import com.xuwei.exception.CouponNotValidException;
+import com.xuwei.model.Coupon;
+import com.xuwei.model.Product;
+import com.xuwei.model.User;
+import com.xuwei.repository.CartItemRepository;
+import com.xuwei.repository.CartRepository;
+import com.xuwei.repository.CouponRepository;
+import com.xuwei.repository.ProductRepository;
+import com.xuwei.repository.UserRepository;
+import com.xuwei.service.Impl.CouponServiceImpl;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties", properties =
+        "spring.datasource.url=jdbc:h2:mem:coupon_service;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1")
+@Import({CartSliceConfiguration.class, CouponServiceImpl.class, CouponCache.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CouponServiceTest {
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private CouponCache couponCache;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+    private Product shirt;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM user_used_coupons");
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+        couponRepository.deleteAll();
+        coupon("SAVE10", 10, LocalDate.now(), 1000, true);
+        coupon("EXPIRED", 10, LocalDate.now().minusDays(1), 0, true);
+        coupon("OFF", 10, null, 0, false);
+        couponCache.reload();
+
+        user = user("shopper@example.com");
+        shirt = new Product();
+        shirt.setTitle("Shirt");
+        shirt.setMrpPrice(1000);
+        shirt.setSellingPrice(800);
+        shirt = productRepository.save(shirt);
+    }
+
+    @Test
+    void anAppliedCouponDiscountsTheCartWhileItQualifies() throws Exception {
+        cartService.addCartItem(user, shirt, "M", 2);
+
+        CartResponseDTO cart = couponService.applyCoupon(user, "SAVE10");
+        assertThat(cart.getCouponCode()).isEqualTo("SAVE10");
+        assertThat(cart.getCouponDiscount()).isEqualTo(160);
+        assertThat(cartRepository.findByUserId(user.getId()).getCouponCode()).isEqualTo("SAVE10");
+
+        // below the minimum the coupon stays on the cart but gives nothing
+        assertThat(couponService.couponDiscount(user.getId(), "SAVE10", 800)).isZero();
+
+        cart = couponService.removeCoupon(user);
+        assertThat(cart.getCouponCode()).isNull();
+        assertThat(cart.getCouponDiscount()).isZero();
+    }
+
+    @Test
+    void invalidCouponsAreRejected() throws Exception {
+        assertThatThrownBy(() -> couponService.applyCoupon(user, "SAVE10"))
+                .isInstanceOf(CouponNotValidException.class).hasMessage("Cart is empty");
+        cartService.addCartItem(user, shirt, "M", 1);
+
+        assertThatThrownBy(() -> couponService.applyCoupon(user, "NOPE"))
+                .isInstanceOf(CouponNotValidException.class).hasMessage("Coupon not found");
+        assertThatThrownBy(() -> couponService.applyCoupon(user, "OFF"))
+                .isInstanceOf(CouponNotValidException.class).hasMessage("Coupon not found");
+        assertThatThrownBy(() -> couponService.applyCoupon(user, "EXPIRED"))
+                .isInstanceOf(CouponNotValidException.class).hasMessage("Coupon expired");
+        assertThatThrownBy(() -> couponService.applyCoupon(user, "SAVE10"))
+                .isInstanceOf(CouponNotValidException.class).hasMessageStartingWith("Order value is below");
+        assertThat(cartRepository.findByUserId(user.getId()).getCouponCode()).isNull();
+    }
+
+    @Test
+    void redemptionsAreCheckedWithoutLoadingTheRedeemingUsers() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            couponService.redeemCoupon(user("redeemer" + i + "@example.com").getId(), "SAVE10", 2000);
+        }
+        couponService.redeemCoupon(user.getId(), "SAVE10", 2000);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_used_coupons", Integer.class))
+                .isEqualTo(51);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        assertThat(couponService.couponDiscount(user.getId(), "SAVE10", 2000)).isZero();
+        assertThat(couponService.couponDiscount(-1L, "SAVE10", 2000)).isEqualTo(200);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThatThrownBy(() -> couponService.redeemCoupon(user.getId(), "SAVE10", 2000))
+                .isInstanceOf(CouponNotValidException.class).hasMessage("Coupon already used");
+
+        // a fresh index reads the redeeming ids once, as ids
+        couponCache.reload();
+        statistics.clear();
+        assertThat(couponService.couponDiscount(user.getId(), "SAVE10", 2000)).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    private User user(String email) {
+        User newUser = new User();
+        newUser.setEmail(email);
+        return userRepository.save(newUser);
+    }
+
+    private void coupon(String code, double discountPercentage, LocalDate validityEndDate, double minimumOrderValue,
+                        boolean active) {
+        Coupon coupon = new Coupon();
+        coupon.setCode(code);
+        coupon.setDiscountPercentage(discountPercentage);
+        coupon.setValidityEndDate(validityEndDate);
+        coupon.setMinimumOrderValue(minimumOrderValue);
+        coupon.setActive(active);
+        couponRepository.save(coupon);
+    }
+}
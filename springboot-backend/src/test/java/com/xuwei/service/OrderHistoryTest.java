@@ -0,0 +1,169 @@
+package com.xuwei.service;
+
+import com.xuwei.domain.OrderStatus;
+import com.xuwei.dto.OrderResponseDTO;
+import com.xuwei.dto.OrderSummaryDTO;
+import com.xuwei.exception.OrderException;
+import com.xuwei.model.*;
+import com.xuwei.response.CursorPageResponse;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties", properties =
+        "spring.datasource.url=jdbc:h2:mem:order_history;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1")
+@Import(OrderSliceConfiguration.class)
+class OrderHistoryTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+    private User user;
+    private Seller seller;
+    private Seller otherSeller;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        user = new User();
+        user.setEmail("shopper@example.com");
+        entityManager.persist(user);
+        seller = seller("seller@example.com");
+        otherSeller = seller("other@example.com");
+    }
+
+    @Test
+    void theHistoryIsPagedNewestFirstWithOneQueryPerPage() throws Exception {
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            // pairs of orders share a timestamp, so the id breaks the tie
+            Order order = order(user, i % 3 == 0 ? otherSeller : seller, START.plusMinutes(i / 2), 3);
+            expected.add(0, order.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            statistics.clear();
+            CursorPageResponse<OrderSummaryDTO> page = orderService.findUserOrderHistory(user, cursor, 10);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+            page.getContent().forEach(summary -> seen.add(summary.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(seen).containsExactlyElementsOf(expected);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        OrderSummaryDTO newest = orderService.findUserOrderHistory(user, null, 1).getContent().get(0);
+        assertThat(newest.getItemCount()).isEqualTo(3);
+        // the first image in list order, not the first by name
+        assertThat(newest.getThumbnail()).isEqualTo("item0-front.jpg");
+        assertThat(newest.getTotalSellingPrice()).isEqualTo(2400);
+        assertThat(newest.getOrderStatus()).isEqualTo(OrderStatus.PENDING);
+    }
+
+    @Test
+    void sellersSeeOnlyTheirOrdersAndDetailsLoadOnDemand() throws Exception {
+        Order mine = order(user, seller, START, 2);
+        Order theirs = order(user, otherSeller, START.plusMinutes(1), 1);
+        entityManager.flush();
+        entityManager.clear();
+
+        CursorPageResponse<OrderSummaryDTO> page = orderService.findSellerOrderHistory(seller.getId(), null, null);
+        assertThat(page.getContent()).extracting(OrderSummaryDTO::getId).containsExactly(mine.getId());
+        assertThat(page.isHasNext()).isFalse();
+
+        OrderResponseDTO details = orderService.findSellerOrderById(seller.getId(), mine.getId());
+        assertThat(details.getOrderItems()).hasSize(2);
+        assertThatThrownBy(() -> orderService.findSellerOrderById(seller.getId(), theirs.getId()))
+                .isInstanceOf(OrderException.class);
+        User stranger = new User();
+        stranger.setEmail("stranger@example.com");
+        entityManager.persist(stranger);
+        assertThatThrownBy(() -> orderService.findUserOrderById(stranger, mine.getId()))
+                .isInstanceOf(OrderException.class);
+        assertThatThrownBy(() -> orderService.findUserOrderHistory(user, "not a cursor", null))
+                .isInstanceOf(OrderException.class);
+    }
+
+    @Test
+    void theHistoryQueriesHaveOwnerAndDateIndexes() {
+        List<String> columns = jdbcTemplate.queryForList("SELECT i.INDEX_NAME || ':' || c.COLUMN_NAME "
+                + "FROM INFORMATION_SCHEMA.INDEXES i JOIN INFORMATION_SCHEMA.INDEX_COLUMNS c "
+                + "ON c.INDEX_NAME = i.INDEX_NAME AND c.TABLE_NAME = i.TABLE_NAME "
+                + "WHERE i.TABLE_NAME = 'ORDERS' AND i.INDEX_NAME LIKE 'IDX_ORDERS_%' "
+                + "ORDER BY i.INDEX_NAME, c.ORDINAL_POSITION", String.class);
+
+        assertThat(columns).containsExactly(
+                "IDX_ORDERS_SELLER_ORDER_DATE:SELLER_ID", "IDX_ORDERS_SELLER_ORDER_DATE:ORDER_DATE",
+                "IDX_ORDERS_SELLER_ORDER_DATE:ID",
+                "IDX_ORDERS_USER_ORDER_DATE:USER_ID", "IDX_ORDERS_USER_ORDER_DATE:ORDER_DATE",
+                "IDX_ORDERS_USER_ORDER_DATE:ID");
+    }
+
+    private Seller seller(String email) {
+        Seller seller = new Seller();
+        seller.setEmail(email);
+        entityManager.persist(seller);
+        return seller;
+    }
+
+    /**
+     * An order of the given number of items, each of its own product with two images.
+     */
+    private Order order(User owner, Seller from, LocalDateTime orderDate, int items) {
+        Order order = new Order();
+        order.setUser(owner);
+        order.setSellerId(from.getId());
+        order.setOrderDate(orderDate);
+        order.setOrderStatus(OrderStatus.PENDING);
+        order.setTotalSellingPrice(800 * items);
+        order.setDiscount(0);
+        order.setTotalItem(items);
+        for (int i = 0; i < items; i++) {
+            Product product = new Product();
+            product.setTitle("Item " + i);
+            product.setSeller(from);
+            product.setImages(List.of("item" + i + "-front.jpg", "item" + i + "-back.jpg"));
+            entityManager.persist(product);
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setProduct(product);
+            item.setQuantity(1);
+            order.getOrderItems().add(item);
+        }
+        entityManager.persist(order);
+        return order;
+    }
+}
@@ -0,0 +1,26 @@
+package com.xuwei.service;
+
+import com.xuwei.admission.FlashSaleQueue;
+import com.xuwei.cache.CouponCache;
+import com.xuwei.cache.ProductCache;
+import com.xuwei.converter.OrderConverter;
+import com.xuwei.id.OrderIdGenerator;
+import com.xuwei.index.ProductCatalogSnapshot;
+import com.xuwei.service.Impl.CouponServiceImpl;
+import com.xuwei.service.Impl.InventoryServiceImpl;
+import com.xuwei.service.Impl.OrderServiceImpl;
+import com.xuwei.service.Impl.SellerReportServiceImpl;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * The order service with everything a checkout touches, carts included,
+ * for slice tests of orders. A new collaborator of the order, inventory or
+ * seller report services is added here, not to each test.
+ */
+@TestConfiguration
+@Import({CartSliceConfiguration.class, OrderServiceImpl.class, OrderConverter.class, OrderIdGenerator.class,
+        InventoryServiceImpl.class, SellerReportServiceImpl.class, FlashSaleQueue.class, CouponServiceImpl.class,
+        CouponCache.class, ProductCache.class, ProductCatalogSnapshot.class})
+public class OrderSliceConfiguration {
+}
@@ -0,0 +1,138 @@
+package com.xuwei.service;
+
+import com.xuwei.domain.OrderStatus;
+import com.xuwei.model.PayoutRun;
+import com.xuwei.service.Impl.PayoutServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A month of transactions for ten thousand sellers paid out in chunks,
+ * with the chunk latency and the heap retained as the batch moves through
+ * the sellers, sampled after a collection every hundred chunks.
+ * Run with: mvn test -Dtest=PayoutBatchBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:payout_benchmark;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=false"})
+@Import(PayoutServiceImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PayoutBatchBenchmark {
+
+    private static final int SELLERS = 10_000;
+    private static final int TRANSACTIONS_PER_SELLER = 30;
+    private static final int CHUNK_SIZE = 1_000;
+
+    @Autowired
+    private PayoutService payoutService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM payouts_transactions");
+        jdbcTemplate.update("DELETE FROM payouts");
+        jdbcTemplate.update("DELETE FROM payout_run");
+        jdbcTemplate.update("DELETE FROM transaction");
+        jdbcTemplate.update("DELETE FROM orders");
+        jdbcTemplate.update("DELETE FROM seller");
+
+        List<Object[]> sellers = new ArrayList<>();
+        for (long seller = 1; seller <= SELLERS; seller++) {
+            sellers.add(new Object[]{seller, "seller" + seller + "@example.com"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO seller (id, email, is_email_verified) VALUES (?, ?, FALSE)", sellers);
+
+        // transactions interleave across sellers over the month, as they arrive
+        LocalDateTime start = LocalDateTime.now().minusDays(31);
+        List<Object[]> orders = new ArrayList<>();
+        List<Object[]> transactions = new ArrayList<>();
+        long id = 0;
+        for (int day = 0; day < TRANSACTIONS_PER_SELLER; day++) {
+            Timestamp date = Timestamp.valueOf(start.plusDays(day));
+            for (long seller = 1; seller <= SELLERS; seller++) {
+                id++;
+                orders.add(new Object[]{id, seller, 100 + (int) (id % 900), OrderStatus.DELIVERED.ordinal(), date});
+                transactions.add(new Object[]{id, id, seller, date});
+                if (orders.size() == 10_000) {
+                    insert(orders, transactions);
+                }
+            }
+        }
+        insert(orders, transactions);
+    }
+
+    @Test
+    void aMonthOfTransactionsForTenThousandSellers() {
+        long expectedAmount = jdbcTemplate.queryForObject("SELECT SUM(total_selling_price) FROM orders", Long.class);
+        List<Long> retainedHeap = new ArrayList<>();
+        retainedHeap.add(retainedHeap());
+
+        PayoutRun run = payoutService.startOrResumeRun();
+        List<Long> latencies = new ArrayList<>();
+        long paid = 0;
+        long elapsedNanos = 0;
+        while (true) {
+            long chunkStart = System.nanoTime();
+            int chunk = payoutService.payChunk(run.getId(), CHUNK_SIZE);
+            long latency = System.nanoTime() - chunkStart;
+            latencies.add(latency);
+            elapsedNanos += latency;
+            if (chunk == 0) {
+                break;
+            }
+            paid += chunk;
+            if (latencies.size() % 100 == 0) {
+                retainedHeap.add(retainedHeap());
+            }
+        }
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        System.out.printf("payout batch: %d transactions of %d sellers in %d chunks of %d, %.1f s, "
+                        + "%.0f transactions/s, chunk p50 %d ms, p99 %d ms, retained heap MB %s%n",
+                paid, SELLERS, sorted.length, CHUNK_SIZE, elapsedNanos / 1e9, paid / (elapsedNanos / 1e9),
+                sorted[sorted.length / 2] / 1_000_000, sorted[sorted.length * 99 / 100] / 1_000_000,
+                retainedHeap.stream().map(bytes -> bytes >> 20).toList());
+
+        assertEquals((long) SELLERS * TRANSACTIONS_PER_SELLER, paid);
+        assertEquals(SELLERS, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payouts", Integer.class));
+        assertEquals(expectedAmount, jdbcTemplate.queryForObject("SELECT SUM(amount) FROM payouts", Long.class));
+    }
+
+    private static long retainedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private void insert(List<Object[]> orders, List<Object[]> transactions) {
+        jdbcTemplate.batchUpdate("INSERT INTO orders (id, seller_id, total_mrp_price, total_selling_price, "
+                + "order_status, total_item, payment_status, order_date) VALUES (?, ?, 0, ?, ?, 1, 1, ?)", orders);
+        jdbcTemplate.batchUpdate("INSERT INTO transaction (id, order_id, seller_id, date) VALUES (?, ?, ?, ?)",
+                transactions);
+        orders.clear();
+        transactions.clear();
+    }
+}
@@ -0,0 +1,168 @@
+package com.xuwei.service;
+
+import com.xuwei.domain.OrderStatus;
+import com.xuwei.domain.PayoutRunStatus;
+import com.xuwei.job.PayoutBatchJob;
+import com.xuwei.model.PayoutRun;
+import com.xuwei.model.Seller;
+import com.xuwei.repository.PayoutRunRepository;
+import com.xuwei.repository.SellerRepository;
+import com.xuwei.service.Impl.PayoutServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:payout_batch;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1",
+        "payout.batch.chunk-size=4"})
+@Import({PayoutServiceImpl.class, PayoutBatchJob.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PayoutBatchTest {
+
+    private static final LocalDateTime LAST_MONTH = LocalDateTime.now().minusDays(20);
+
+    private final AtomicLong ids = new AtomicLong(1000);
+
+    @Autowired
+    private PayoutBatchJob payoutBatchJob;
+
+    @Autowired
+    private PayoutService payoutService;
+
+    @Autowired
+    private PayoutRunRepository payoutRunRepository;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM payouts_transactions");
+        jdbcTemplate.update("DELETE FROM payouts");
+        jdbcTemplate.update("DELETE FROM payout_run");
+        jdbcTemplate.update("DELETE FROM transaction");
+        jdbcTemplate.update("DELETE FROM orders");
+        sellerRepository.deleteAll();
+    }
+
+    @Test
+    void everyTransactionIsPaidOnceInOnePayoutPerSeller() {
+        Seller first = seller("first@example.com");
+        Seller second = seller("second@example.com");
+        Seller third = seller("third@example.com");
+        transactions(first, 5, 100, OrderStatus.PLACED, LAST_MONTH);
+        transactions(second, 7, 250, OrderStatus.DELIVERED, LAST_MONTH);
+        transactions(second, 1, 999, OrderStatus.CANCELLED, LAST_MONTH);
+        transactions(third, 2, 40, OrderStatus.PLACED, LAST_MONTH);
+        transactions(third, 1, 40, OrderStatus.PLACED, LocalDateTime.now().plusDays(1));
+
+        // chunks of 4 split the first two sellers across chunks
+        assertThat(payoutBatchJob.payOut()).isEqualTo(14);
+
+        assertThat(payoutAmounts()).containsOnly(entry(first.getId(), 500L), entry(second.getId(), 1750L),
+                entry(third.getId(), 80L));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payouts_transactions", Integer.class))
+                .isEqualTo(14);
+        PayoutRun run = payoutRunRepository.findAll().get(0);
+        assertThat(run.getStatus()).isEqualTo(PayoutRunStatus.COMPLETED);
+        assertThat(run.getTransactionsPaid()).isEqualTo(14);
+        assertThat(run.getPayoutsCreated()).isEqualTo(3);
+
+        // the next run finds nothing left before its cutoff
+        assertThat(payoutBatchJob.payOut()).isZero();
+        assertThat(payoutAmounts()).hasSize(3);
+    }
+
+    @Test
+    void aStoppedRunResumesFromItsCheckpoint() {
+        Seller first = seller("first@example.com");
+        Seller second = seller("second@example.com");
+        transactions(first, 6, 100, OrderStatus.PLACED, LAST_MONTH);
+        transactions(second, 6, 10, OrderStatus.PLACED, LAST_MONTH);
+
+        PayoutRun run = payoutService.startOrResumeRun();
+        assertThat(payoutService.payChunk(run.getId(), 4)).isEqualTo(4);
+        assertThat(payoutService.payChunk(run.getId(), 4)).isEqualTo(4);
+        // the batch stops here; the next one carries on with the same run
+        assertThat(payoutBatchJob.payOut()).isEqualTo(4);
+
+        assertThat(payoutRunRepository.count()).isEqualTo(1);
+        assertThat(payoutAmounts()).containsOnly(entry(first.getId(), 600L), entry(second.getId(), 60L));
+    }
+
+    @Test
+    void aLostCheckpointNeverPaysATransactionTwice() {
+        Seller first = seller("first@example.com");
+        Seller second = seller("second@example.com");
+        transactions(first, 3, 100, OrderStatus.PLACED, LAST_MONTH);
+        transactions(second, 3, 10, OrderStatus.PLACED, LAST_MONTH);
+
+        PayoutRun run = payoutService.startOrResumeRun();
+        payoutService.payChunk(run.getId(), 4);
+        jdbcTemplate.update("UPDATE payout_run SET last_seller_id = 0, last_transaction_id = 0, "
+                + "open_payout_id = NULL WHERE id = ?", run.getId());
+
+        assertThat(payoutBatchJob.payOut()).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT transactions_id) FROM payouts_transactions",
+                Integer.class)).isEqualTo(6);
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(amount) FROM payouts", Long.class)).isEqualTo(330);
+        // the join table's key is what stops a second link
+        assertThatThrownBy(() -> jdbcTemplate.update("INSERT INTO payouts_transactions (payouts_id, transactions_id) "
+                + "SELECT MAX(payouts_id), MIN(transactions_id) FROM payouts_transactions"))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    private Seller seller(String email) {
+        Seller seller = new Seller();
+        seller.setEmail(email);
+        return sellerRepository.save(seller);
+    }
+
+    /**
+     * Paid orders of the seller, each with its transaction.
+     */
+    private void transactions(Seller seller, int count, int amount, OrderStatus status, LocalDateTime date) {
+        for (int i = 0; i < count; i++) {
+            long id = ids.incrementAndGet();
+            jdbcTemplate.update("INSERT INTO orders (id, seller_id, total_mrp_price, total_selling_price, "
+                    + "order_status, total_item, payment_status, order_date) VALUES (?, ?, 0, ?, ?, 1, 1, ?)",
+                    id, seller.getId(), amount, status.ordinal(), Timestamp.valueOf(date));
+            jdbcTemplate.update("INSERT INTO transaction (id, order_id, seller_id, date) VALUES (?, ?, ?, ?)",
+                    id, id, seller.getId(), Timestamp.valueOf(date));
+        }
+    }
+
+    private Map<Long, Long> payoutAmounts() {
+        Map<Long, Long> amounts = new HashMap<>();
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT seller_id, amount FROM payouts");
+        for (Map<String, Object> row : rows) {
+            Long sellerId = ((Number) row.get("SELLER_ID")).longValue();
+            assertThat(amounts.put(sellerId, ((Number) row.get("AMOUNT")).longValue())).isNull();
+        }
+        return amounts;
+    }
+}
@@ -0,0 +1,156 @@
+package com.xuwei.service;
+
+import com.xuwei.cache.CategoryTreeCache;
+import com.xuwei.cache.ListingCountCache;
+import com.xuwei.cache.ProductCache;
+import com.xuwei.converter.ProductConverter;
+import com.xuwei.dto.ProductDetailDTO;
+import com.xuwei.dto.ProductExportDTO;
+import com.xuwei.index.ProductCatalogSnapshot;
+import com.xuwei.index.ProductFacetIndex;
+import com.xuwei.index.ProductSearchIndex;
+import com.xuwei.index.ProductSuggestIndex;
+import com.xuwei.model.*;
+import com.xuwei.service.Impl.ProductServiceImpl;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource("classpath:jpa-test.properties")
+@Import({ProductServiceImpl.class, ProductConverter.class, CategoryTreeCache.class, ProductCache.class,
+        ListingCountCache.class, ProductSearchIndex.class, ProductFacetIndex.class, ProductSuggestIndex.class,
+        ProductCatalogSnapshot.class})
+class ProductDetailQueryTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void productDetailIsLoadedWithOneStatement() throws Exception {
+        Category men = category("men", "Men", 1, null);
+        Category topWear = category("men_top_wear", "Top Wear", 2, men);
+        Category shirts = category("men_top_wear_shirts", "Shirts", 3, topWear);
+
+        Seller seller = new Seller();
+        seller.setEmail("seller@example.com");
+        seller.setSellerName("Xuwei");
+        seller.getBusinessDetails().setBusinessName("Xuwei Store");
+        entityManager.persist(seller);
+
+        User user = new User();
+        user.setEmail("buyer@example.com");
+        entityManager.persist(user);
+
+        Product product = new Product();
+        product.setTitle("Linen shirt");
+        product.setCategory(shirts);
+        product.setSeller(seller);
+        product.setImages(List.of("front.jpg", "back.jpg", "detail.jpg"));
+        entityManager.persist(product);
+
+        for (double rating : new double[]{4, 5}) {
+            Review review = new Review();
+            review.setReviewText("ok");
+            review.setRating(rating);
+            review.setProduct(product);
+            review.setUser(user);
+            entityManager.persist(review);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics.clear();
+        ProductDetailDTO detail = productService.getProductDetail(product.getId());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(detail.getImages()).containsExactly("front.jpg", "back.jpg", "detail.jpg");
+        assertThat(detail.getCategory().getCategoryId()).isEqualTo("men_top_wear_shirts");
+        assertThat(detail.getCategory().getParentCategory().getParentCategory().getName()).isEqualTo("Men");
+        assertThat(detail.getSeller().getBusinessName()).isEqualTo("Xuwei Store");
+        assertThat(detail.getReviewCount()).isEqualTo(2);
+        assertThat(detail.getAverageRating()).isEqualTo(4.5);
+    }
+
+    @Test
+    void productWithoutImagesOrCategoryStillResolves() throws Exception {
+        Product product = new Product();
+        product.setTitle("Plain mug");
+        entityManager.persist(product);
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics.clear();
+        ProductDetailDTO detail = productService.getProductDetail(product.getId());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(detail.getTitle()).isEqualTo("Plain mug");
+        assertThat(detail.getImages()).isEmpty();
+        assertThat(detail.getCategory()).isNull();
+        assertThat(detail.getSeller()).isNull();
+        assertThat(detail.getReviewCount()).isZero();
+    }
+
+    @Test
+    void sellerExportStreamsOneEntryPerProductWithAllImages() {
+        Category women = category("women", "Women", 1, null);
+        Category ethnic = category("women_ethnic", "Ethnic", 2, women);
+        Category kurtas = category("women_ethnic_kurtas", "Kurtas", 3, ethnic);
+        Seller seller = new Seller();
+        seller.setEmail("export@example.com");
+        entityManager.persist(seller);
+        for (int i = 1; i <= 3; i++) {
+            Product product = new Product();
+            product.setTitle("Kurta " + i);
+            product.setSeller(seller);
+            product.setCategory(kurtas);
+            product.setImages(i == 2 ? List.of() : List.of("k" + i + "-front.jpg", "k" + i + "-back.jpg"));
+            entityManager.persist(product);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<ProductExportDTO> exported = new ArrayList<>();
+        productService.exportSellerProducts(seller.getId(), exported::add);
+
+        assertThat(exported).extracting(ProductExportDTO::getTitle).containsExactly("Kurta 1", "Kurta 2", "Kurta 3");
+        assertThat(exported.get(0).getImages()).containsExactly("k1-front.jpg", "k1-back.jpg");
+        assertThat(exported.get(1).getImages()).isEmpty();
+        assertThat(exported.get(2).getCategory()).isEqualTo("Women");
+        assertThat(exported.get(2).getSubSubCategory()).isEqualTo("Kurtas");
+    }
+
+    private Category category(String categoryId, String name, int level, Category parent) {
+        Category category = new Category();
+        category.setCategoryId(categoryId);
+        category.setName(name);
+        category.setLevel(level);
+        category.setParentCategory(parent);
+        entityManager.persist(category);
+        return category;
+    }
+}
@@ -0,0 +1,101 @@
+package com.xuwei.service;
+
+import com.xuwei.cache.CategoryTreeCache;
+import com.xuwei.config.JpaConfig;
+import com.xuwei.dto.ProductImportProgressDTO;
+import com.xuwei.importer.CsvProductRowReader;
+import com.xuwei.model.Seller;
+import com.xuwei.repository.SellerRepository;
+import com.xuwei.service.Impl.ProductImportServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.Reader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 100k-row CSV import into in-memory H2. The CSV is generated while it is
+ * read, so the heap figure reflects the importer rather than the input.
+ * Run with: mvn test -Dtest=ProductImportBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:product_import_benchmark;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=false"})
+@Import({ProductImportServiceImpl.class, CategoryTreeCache.class, JpaConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductImportBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Test
+    void importOneHundredThousandRows() {
+        Seller seller = new Seller();
+        seller.setEmail("benchmark@example.com");
+        seller = sellerRepository.save(seller);
+
+        long[] peakHeap = {0};
+        Runtime runtime = Runtime.getRuntime();
+        ProductImportProgressDTO result = productImportService.importProducts(
+                new CsvProductRowReader(new GeneratedCsv(ROWS)), seller,
+                progress -> peakHeap[0] = Math.max(peakHeap[0], runtime.totalMemory() - runtime.freeMemory()));
+
+        assertEquals(ROWS, result.getImported());
+        System.out.printf("ProductImport: %d rows in %d ms, peak heap seen %d MB%n",
+                result.getImported(), result.getElapsedMillis(), peakHeap[0] / (1024 * 1024));
+    }
+
+    /**
+     * Produces the CSV on demand instead of holding it in memory.
+     */
+    private static final class GeneratedCsv extends Reader {
+        private final int rows;
+        private int row = -1;
+        private String current = "";
+        private int position;
+
+        GeneratedCsv(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position == current.length()) {
+                if (row >= rows) {
+                    return -1;
+                }
+                current = row < 0
+                        ? "title,description,mrpPrice,sellingPrice,color,images,category,subCategory,subSubCategory,sizes\n"
+                        : "Product " + row + ",Generated row," + (1000 + row % 5000) + "," + (1000 + row % 5000 - row % 200)
+                        + ",Color" + row % 12 + ",img" + row + "-1.jpg|img" + row + "-2.jpg,Cat" + row % 4
+                        + ",Sub" + row % 10 + ",Leaf" + row % 25 + ",\"S,M,L\"\n";
+                row++;
+                position = 0;
+            }
+            int n = Math.min(length, current.length() - position);
+            current.getChars(position, position + n, buffer, offset);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.xuwei.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xuwei.cache.CategoryTreeCache;
+import com.xuwei.config.JpaConfig;
+import com.xuwei.dto.ProductImportProgressDTO;
+import com.xuwei.importer.CsvProductRowReader;
+import com.xuwei.importer.JsonProductRowReader;
+import com.xuwei.index.ProductSearchIndex;
+import com.xuwei.model.Product;
+import com.xuwei.model.Seller;
+import com.xuwei.repository.CategoryRepository;
+import com.xuwei.repository.ProductRepository;
+import com.xuwei.repository.SellerRepository;
+import com.xuwei.service.Impl.ProductImportServiceImpl;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:product_import;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1",
+        "product.import.batch-size=200"})
+@Import({ProductImportServiceImpl.class, CategoryTreeCache.class, ProductSearchIndex.class, JpaConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductImportServiceTest {
+
+    private static final String HEADER = "title,description,mrpPrice,sellingPrice,color,images,category,subCategory,subSubCategory,sizes\n";
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Seller seller;
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        sellerRepository.deleteAll();
+        categoryTreeCache.reload();
+        productSearchIndex.clear();
+        Seller newSeller = new Seller();
+        newSeller.setEmail("bulk@example.com");
+        seller = sellerRepository.save(newSeller);
+    }
+
+    @Test
+    void csvImportBatchesInsertsAndReportsBadRows() {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 1; i <= 1_000; i++) {
+            csv.append("Shirt ").append(i).append(",\"Soft, breathable\nlinen\",1000,800,Blue,a.jpg|b.jpg,Men,Top Wear,Shirts,\"S,M\"\n");
+        }
+        csv.append(",no title,1000,800,Blue,,Men,Top Wear,Shirts,S\n");
+        csv.append("Bad price,x,abc,800,Blue,,Men,Top Wear,Shirts,S\n");
+        csv.append("Too cheap mrp,x,500,800,Blue,,Men,Top Wear,Shirts,S\n");
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<ProductImportProgressDTO> events = new ArrayList<>();
+        ProductImportProgressDTO result = productImportService.importProducts(
+                new CsvProductRowReader(new StringReader(csv.toString())), seller, events::add);
+
+        assertThat(result.isDone()).isTrue();
+        assertThat(result.getRowsRead()).isEqualTo(1_003);
+        assertThat(result.getImported()).isEqualTo(1_000);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(events).hasSize(6);
+        assertThat(events.stream().flatMap(e -> e.getErrors().stream()).map(ProductImportProgressDTO.RowError::getRow))
+                .containsExactly(1_001L, 1_002L, 1_003L);
+
+        assertThat(productRepository.count()).isEqualTo(1_000);
+        assertThat(categoryRepository.count()).isEqualTo(3);
+        assertThat(productSearchIndex.size()).isEqualTo(1_000);
+        // 1000 products + 2000 image rows go out in JDBC batches, not one statement per row
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(100);
+    }
+
+    @Test
+    void jsonImportRejectsOnlyTheMalformedElement() throws Exception {
+        String json = """
+                [
+                  {"title": "Kurta", "mrpPrice": 1500, "sellingPrice": 1200, "category": "Women", "images": ["k.jpg"]},
+                  {"title": "Saree", "mrpPrice": "not a number", "sellingPrice": 900, "category": "Women"},
+                  42,
+                  {"title": "Dupatta", "mrpPrice": 700, "sellingPrice": 700, "category": "Women"}
+                ]
+                """;
+        ProductImportProgressDTO result = productImportService.importProducts(
+                new JsonProductRowReader(new ObjectMapper(), new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))),
+                seller, progress -> { });
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting(ProductImportProgressDTO.RowError::getRow).containsExactly(2L, 3L);
+        assertThat(productRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void flashSaleRowsAreImportedAsFlashSaleProducts() throws Exception {
+        String csv = "title,mrpPrice,sellingPrice,category,flashSale\nDrop,900,500,Men,true\nRegular,900,800,Men,\n";
+        productImportService.importProducts(new CsvProductRowReader(new StringReader(csv)), seller, progress -> { });
+        String json = "[{\"title\": \"Json drop\", \"mrpPrice\": 900, \"sellingPrice\": 500, \"category\": \"Men\", "
+                + "\"flashSale\": true}]";
+        productImportService.importProducts(new JsonProductRowReader(new ObjectMapper(),
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))), seller, progress -> { });
+
+        assertThat(productRepository.findAll()).extracting(Product::getTitle, Product::isFlashSale)
+                .containsExactlyInAnyOrder(tuple("Drop", true), tuple("Regular", false), tuple("Json drop", true));
+    }
+
+    @Test
+    void truncatedInputStopsTheImportAfterKeepingEarlierRows() {
+        String csv = HEADER + "Tee,x,500,400,Red,,Men,,,S\n\"Unclosed,x,500,400,Red,,Men,,,S\n";
+        ProductImportProgressDTO result = productImportService.importProducts(
+                new CsvProductRowReader(new StringReader(csv)), seller, progress -> { });
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getErrors().get(0).getMessage()).contains("Unterminated");
+    }
+}
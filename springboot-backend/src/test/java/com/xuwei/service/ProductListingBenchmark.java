@@ -0,0 +1,140 @@
+package com.xuwei.service;
+
+import com.xuwei.cache.CategoryTreeCache;
+import com.xuwei.cache.ListingCountCache;
+import com.xuwei.cache.ProductCache;
+import com.xuwei.converter.ProductConverter;
+import com.xuwei.exception.ProductException;
+import com.xuwei.index.ProductCatalogSnapshot;
+import com.xuwei.index.ProductFacetIndex;
+import com.xuwei.index.ProductSearchIndex;
+import com.xuwei.index.ProductSuggestIndex;
+import com.xuwei.model.Product;
+import com.xuwei.response.CursorPageResponse;
+import com.xuwei.service.Impl.ProductServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Deep pages of the price-sorted listing over 200k products in in-memory H2,
+ * comparing the Page endpoint (COUNT + OFFSET) with a count-free OFFSET slice
+ * and a keyset seek to the same position. The catalog snapshot is left
+ * unbuilt so every request goes to the database.
+ * Run with: mvn test -Dtest=ProductListingBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:product_listing_benchmark;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE",
+        "spring.jpa.properties.hibernate.generate_statistics=false"})
+@Import({ProductServiceImpl.class, ProductConverter.class, CategoryTreeCache.class, ProductCache.class,
+        ListingCountCache.class, ProductSearchIndex.class, ProductFacetIndex.class, ProductSuggestIndex.class,
+        ProductCatalogSnapshot.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductListingBenchmark {
+
+    private static final int PRODUCTS = 200_000;
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 50;
+    private static final String SORT = "price_low";
+    // keeps ~85% of the rows, so neither the count nor the OFFSET can be answered from the index alone
+    private static final int MIN_DISCOUNT = 10;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void deepPages() throws Exception {
+        insertProducts();
+
+        for (int page : new int[]{1, 500, 5_000, 16_000}) {
+            // the slice of the previous page hands out the cursor that seeks to this one
+            String cursor = scroll("slice", page - 1, null).getNextCursor();
+            List<Long> expected = ids(scroll("slice", page, null).getContent());
+            assertEquals(expected, ids(scroll("keyset", 0, cursor).getContent()));
+            assertEquals(expected, ids(productService.getAllProducts(null, null, null, null, null, null, MIN_DISCOUNT,
+                    SORT, null, page).getContent()));
+
+            long[] paged = time(() -> productService.getAllProducts(null, null, null, null, null, null, MIN_DISCOUNT,
+                    SORT, null, page));
+            long[] sliced = time(() -> scroll("slice", page, null));
+            long[] seeked = time(() -> scroll("keyset", 0, cursor));
+            System.out.printf("ProductListing page %6d: page+count p50 %6.2f ms p99 %6.2f ms | slice p50 %6.2f ms p99 %6.2f ms"
+                            + " | keyset p50 %6.2f ms p99 %6.2f ms%n", page,
+                    percentile(paged, 50), percentile(paged, 99), percentile(sliced, 50), percentile(sliced, 99),
+                    percentile(seeked, 50), percentile(seeked, 99));
+        }
+    }
+
+    private CursorPageResponse<Product> scroll(String mode, int page, String cursor) throws ProductException {
+        return productService.scrollProducts(null, null, null, null, null, MIN_DISCOUNT, SORT, null,
+                mode, page, cursor, false);
+    }
+
+    private void insertProducts() {
+        List<Object[]> batch = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (long id = 1; id <= PRODUCTS; id++) {
+            int price = 100 + (int) (id * 7919 % 5000);
+            batch.add(new Object[]{id, "Product " + id, 10_000, price, (int) (id % 70), 5,
+                    "Color" + id % 12, (int) (id % 5), Timestamp.valueOf(start.plusMinutes(id)), "S,M"});
+            if (batch.size() == 5_000) {
+                flush(batch);
+            }
+        }
+        flush(batch);
+    }
+
+    private void flush(List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("INSERT INTO product (id, title, mrp_price, selling_price, discount_percent, "
+                + "quantity, color, rating, created_at, sizes) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", batch);
+        batch.clear();
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+
+    private static long[] time(Call call) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            call.run();
+        }
+        long[] nanos = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long begin = System.nanoTime();
+            call.run();
+            nanos[i] = System.nanoTime() - begin;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static double percentile(long[] sortedNanos, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    private interface Call {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,184 @@
+package com.xuwei.service;
+
+import com.xuwei.cache.CategoryTreeCache;
+import com.xuwei.cache.ListingCountCache;
+import com.xuwei.cache.ProductCache;
+import com.xuwei.converter.ProductConverter;
+import com.xuwei.exception.ProductException;
+import com.xuwei.index.ProductCatalogSnapshot;
+import com.xuwei.index.ProductFacetIndex;
+import com.xuwei.index.ProductSearchIndex;
+import com.xuwei.index.ProductSuggestIndex;
+import com.xuwei.model.Product;
+import com.xuwei.response.CursorPageResponse;
+import com.xuwei.service.Impl.ProductServiceImpl;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource("classpath:jpa-test.properties")
+@Import({ProductServiceImpl.class, ProductConverter.class, CategoryTreeCache.class, ProductCache.class,
+        ListingCountCache.class, ProductSearchIndex.class, ProductFacetIndex.class, ProductSuggestIndex.class,
+        ProductCatalogSnapshot.class})
+class ProductListingScrollTest {
+
+    private static final String[] SORTS = {null, "price_low", "price_high", "newest", "discount", "rating"};
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductCatalogSnapshot catalogSnapshot;
+
+    @Autowired
+    private ListingCountCache listingCountCache;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        catalogSnapshot.clear();
+        listingCountCache.invalidateAll();
+
+        Random random = new Random(3);
+        for (int i = 0; i < 57; i++) {
+            Product product = new Product();
+            product.setTitle("Product " + i);
+            // few distinct values, so most pages end inside a run of equal sort keys
+            product.setSellingPrice(100 * (1 + random.nextInt(6)));
+            product.setMrpPrice(1000);
+            product.setDiscountPercent(10 * random.nextInt(4));
+            product.setRating(random.nextInt(3));
+            product.setColor(i % 2 == 0 ? "Red" : "Blue");
+            product.setCreatedAt(i % 9 == 0 ? null : LocalDateTime.of(2025, 1, 1, 0, 0).plusHours(random.nextInt(20)));
+            entityManager.persist(product);
+            products.add(product);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void keysetAndSliceWalksMatchTheOffsetPages() throws Exception {
+        for (String sort : SORTS) {
+            List<Long> pages = new ArrayList<>();
+            Page<Product> page;
+            int pageNumber = 0;
+            do {
+                page = productService.getAllProducts(null, null, null, null, null, null, null, sort, null, pageNumber++);
+                page.getContent().forEach(p -> pages.add(p.getId()));
+            } while (page.hasNext());
+            assertThat(pages).as("offset pages for %s", sort).hasSize(products.size());
+
+            assertThat(walk(sort, "keyset")).as("keyset walk for %s", sort).isEqualTo(pages);
+            assertThat(slices(sort)).as("slice pages for %s", sort).isEqualTo(pages);
+        }
+
+        List<Long> byPrice = products.stream()
+                .sorted(Comparator.comparingInt(Product::getSellingPrice).thenComparing(Product::getId))
+                .map(Product::getId).toList();
+        assertThat(walk("price_low", "keyset")).isEqualTo(byPrice);
+    }
+
+    @Test
+    void snapshotWalksInTheSameOrderAsTheDatabase() throws Exception {
+        Map<String, List<Long>> fromDatabase = new HashMap<>();
+        for (String sort : SORTS) {
+            fromDatabase.put(String.valueOf(sort), walk(sort, "keyset"));
+        }
+        products.forEach(catalogSnapshot::index);
+        catalogSnapshot.markReady();
+
+        for (String sort : SORTS) {
+            assertThat(walk(sort, "keyset")).as("snapshot walk for %s", sort)
+                    .isEqualTo(fromDatabase.get(String.valueOf(sort)));
+        }
+        CursorPageResponse<Product> first = scroll("price_low", "slice", 0, null, false);
+        assertThat(first.getTotal()).isEqualTo(products.size());
+    }
+
+    @Test
+    void sliceSkipsTheCountQueryAndTotalsAreCachedPerFilter() throws Exception {
+        statistics.clear();
+        productService.getAllProducts(null, null, "Red", null, null, null, null, "price_low", null, 1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+
+        statistics.clear();
+        CursorPageResponse<Product> slice = productService.scrollProducts(null, "Red", null, null, null, null,
+                "price_low", null, "slice", 1, null, false);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(slice.getTotal()).isNull();
+        assertThat(slice.getContent()).hasSize(10);
+
+        CursorPageResponse<Product> counted = productService.scrollProducts(null, " Red ", null, null, null, null,
+                "price_low", null, "slice", 1, null, true);
+        assertThat(counted.getTotal()).isEqualTo(29);
+        statistics.clear();
+        counted = productService.scrollProducts(null, "Red", null, null, null, null,
+                "newest", null, "keyset", 0, null, true);
+        assertThat(counted.getTotal()).isEqualTo(29);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsCursorsOfAnotherSort() throws Exception {
+        String cursor = scroll("price_low", "keyset", 0, null, false).getNextCursor();
+
+        assertThatThrownBy(() -> scroll("price_high", "keyset", 0, cursor, false))
+                .isInstanceOf(ProductException.class);
+        assertThatThrownBy(() -> scroll("price_low", "keyset", 0, "not-a-cursor", false))
+                .isInstanceOf(ProductException.class);
+        assertThatThrownBy(() -> scroll("price_low", "everything", 0, null, false))
+                .isInstanceOf(ProductException.class);
+    }
+
+    private List<Long> walk(String sort, String mode) throws ProductException {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPageResponse<Product> page = scroll(sort, mode, 0, cursor, false);
+            page.getContent().forEach(p -> ids.add(p.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private List<Long> slices(String sort) throws ProductException {
+        List<Long> ids = new ArrayList<>();
+        CursorPageResponse<Product> page;
+        int pageNumber = 0;
+        do {
+            page = scroll(sort, "slice", pageNumber++, null, false);
+            page.getContent().forEach(p -> ids.add(p.getId()));
+        } while (page.isHasNext());
+        return ids;
+    }
+
+    private CursorPageResponse<Product> scroll(String sort, String mode, int pageNumber, String cursor,
+                                               boolean includeTotal) throws ProductException {
+        return productService.scrollProducts(null, null, null, null, null, null,
+                sort, null, mode, pageNumber, cursor, includeTotal);
+    }
+}
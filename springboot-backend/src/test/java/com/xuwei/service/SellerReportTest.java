@@ -0,0 +1,167 @@
+package com.xuwei.service;
+
+import com.xuwei.dto.OrderResponseDTO;
+import com.xuwei.job.SellerReportReconciliationJob;
+import com.xuwei.job.StockReservationExpiryJob;
+import com.xuwei.model.*;
+import com.xuwei.repository.*;
+import com.xuwei.request.CheckoutRequest;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:seller_report;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1",
+        "seller.report.reconcile.chunk-size=2"})
+@Import({OrderSliceConfiguration.class, SellerReportReconciliationJob.class, StockReservationExpiryJob.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SellerReportTest {
+
+    @Autowired
+    private ShopFixtures fixtures;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private SellerReportService sellerReportService;
+
+    @Autowired
+    private SellerReportReconciliationJob reconciliationJob;
+
+    @Autowired
+    private StockReservationExpiryJob expiryJob;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM seller_report");
+        jdbcTemplate.update("DELETE FROM transaction");
+        jdbcTemplate.update("DELETE FROM stock_reservation");
+        jdbcTemplate.update("DELETE FROM order_item");
+        jdbcTemplate.update("DELETE FROM orders");
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        productRepository.deleteAll();
+        sellerRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void theReportFollowsOrdersPaymentsAndCancellations() throws Exception {
+        Seller seller = seller("seller@example.com");
+        Product shirt = product(seller);
+        assertThat(sellerReportService.getSellerReport(seller).getTotalOrders()).isZero();
+
+        User first = fixtures.shopper("first@example.com");
+        OrderResponseDTO paid = checkout(first, shirt, 2);
+        OrderResponseDTO unpaid = checkout(fixtures.shopper("second@example.com"), shirt, 1);
+        orderService.confirmPayment(first, paid.getId(), "pay_1");
+        jdbcTemplate.update("UPDATE stock_reservation SET expires_at = DATEADD('MINUTE', -1, CURRENT_TIMESTAMP) "
+                + "WHERE order_id = ?", unpaid.getId());
+        expiryJob.releaseExpired();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        SellerReport report = sellerReportService.getSellerReport(seller);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(report.getTotalOrders()).isEqualTo(2);
+        assertThat(report.getCanceledOrders()).isEqualTo(1);
+        assertThat(report.getTotalSales()).isEqualTo(1600);
+        assertThat(report.getTotalEarnings()).isEqualTo(1600);
+        assertThat(report.getNetEarnings()).isEqualTo(1600);
+        assertThat(report.getTotalRefunds()).isZero();
+        assertThat(report.getTotalTransactions()).isEqualTo(1);
+        // the deltas add up to what the orders say
+        assertThat(reconciliationJob.reconcileAll()).isZero();
+    }
+
+    @Test
+    void reconciliationRewritesDriftedReportsAndCreatesMissingOnes() throws Exception {
+        Seller tracked = seller("tracked@example.com");
+        Seller untracked = seller("untracked@example.com");
+        sellerReportService.getSellerReport(tracked);
+        Product shirt = product(tracked);
+        Product cap = product(untracked);
+        User user = fixtures.shopper("shopper@example.com");
+        cartService.addCartItem(user, shirt, "M", 1);
+        cartService.addCartItem(user, cap, "One", 3);
+        orderService.checkout(user, checkoutRequest(user), null);
+        jdbcTemplate.update("UPDATE seller_report SET total_sales = 999, total_orders = 7 WHERE seller_id = ?",
+                tracked.getId());
+
+        assertThat(reconciliationJob.reconcileAll()).isEqualTo(2);
+
+        SellerReport repaired = sellerReportService.getSellerReport(tracked);
+        assertThat(repaired.getTotalOrders()).isEqualTo(1);
+        assertThat(repaired.getTotalSales()).isZero();
+        SellerReport created = sellerReportService.getSellerReport(untracked);
+        assertThat(created.getTotalOrders()).isEqualTo(1);
+        assertThat(reconciliationJob.reconcileAll()).isZero();
+    }
+
+    private Seller seller(String email) {
+        Seller seller = new Seller();
+        seller.setEmail(email);
+        return sellerRepository.save(seller);
+    }
+
+    private Product product(Seller seller) {
+        Product product = new Product();
+        product.setTitle("Shirt");
+        product.setMrpPrice(1000);
+        product.setSellingPrice(800);
+        product.setQuantity(10);
+        product.setSeller(seller);
+        return productRepository.save(product);
+    }
+
+    private OrderResponseDTO checkout(User user, Product product, int quantity) throws Exception {
+        cartService.addCartItem(user, product, "M", quantity);
+        return orderService.checkout(user, checkoutRequest(user), null).get(0);
+    }
+
+    private CheckoutRequest checkoutRequest(User user) {
+        CheckoutRequest request = new CheckoutRequest();
+        request.setAddressId(user.getAddress().iterator().next().getId());
+        return request;
+    }
+}
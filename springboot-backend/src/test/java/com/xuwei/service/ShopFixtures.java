@@ -0,0 +1,45 @@
+package com.xuwei.service;
+
+import com.xuwei.model.Address;
+import com.xuwei.model.Product;
+import com.xuwei.model.User;
+import com.xuwei.repository.AddressRepository;
+import com.xuwei.repository.ProductRepository;
+import com.xuwei.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Saves the products and shoppers that cart and order slice tests start
+ * from; imported with CartSliceConfiguration.
+ */
+@RequiredArgsConstructor
+public class ShopFixtures {
+
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final AddressRepository addressRepository;
+
+    /**
+     * A product with 100 units in stock.
+     */
+    public Product product(String title, int mrpPrice, int sellingPrice) {
+        Product product = new Product();
+        product.setTitle(title);
+        product.setMrpPrice(mrpPrice);
+        product.setSellingPrice(sellingPrice);
+        product.setQuantity(100);
+        return productRepository.save(product);
+    }
+
+    /**
+     * A user with one address, enough for a checkout.
+     */
+    public User shopper(String email) {
+        Address address = new Address();
+        address.setCity("Mumbai");
+        User user = new User();
+        user.setEmail(email);
+        user.getAddress().add(addressRepository.save(address));
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,172 @@
+package com.xuwei.service;
+
+import com.xuwei.exception.OrderException;
+import com.xuwei.model.Product;
+import com.xuwei.model.StockReservation;
+import com.xuwei.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Thousands of buyers reserving one unit each of the same product, more
+ * buyers than units: the conditional update of InventoryService against a
+ * locking read-check-write and the unguarded read-then-write it replaces,
+ * which oversells. Every reservation is its own transaction.
+ * Run with: mvn test -Dtest=StockContentionBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:stock_benchmark;MODE=MySQL;NON_KEYWORDS=USER,VALUE;"
+                + "LOCK_TIMEOUT=30000;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=64",
+        "spring.jpa.properties.hibernate.generate_statistics=false"})
+@Import(OrderSliceConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockContentionBenchmark {
+
+    private static final int THREADS = 64;
+    private static final int BUYERS = 20_000;
+    private static final int STOCK = 15_000;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM stock_reservation");
+        productRepository.deleteAll();
+        Product product = new Product();
+        product.setTitle("Flash sale");
+        productId = productRepository.save(product).getId();
+    }
+
+    @Test
+    void oneHotProductUnderThousandsOfBuyers() throws Exception {
+        run("unguarded read then write", buyer -> transactionTemplate.execute(status -> {
+            int stock = jdbcTemplate.queryForObject("SELECT quantity FROM product WHERE id = ?", Integer.class,
+                    productId);
+            if (stock < 1) {
+                return false;
+            }
+            jdbcTemplate.update("UPDATE product SET quantity = ? WHERE id = ?", stock - 1, productId);
+            insertReservation(buyer);
+            return true;
+        }), false);
+
+        run("locking read, check, write", buyer -> transactionTemplate.execute(status -> {
+            int stock = jdbcTemplate.queryForObject("SELECT quantity FROM product WHERE id = ? FOR UPDATE",
+                    Integer.class, productId);
+            if (stock < 1) {
+                return false;
+            }
+            jdbcTemplate.update("UPDATE product SET quantity = ? WHERE id = ?", stock - 1, productId);
+            insertReservation(buyer);
+            return true;
+        }), true);
+
+        run("conditional update", buyer -> transactionTemplate.execute(status -> {
+            StockReservation reservation = new StockReservation();
+            reservation.setOrderId(buyer);
+            reservation.setProductId(productId);
+            reservation.setQuantity(1);
+            try {
+                inventoryService.reserve(List.of(reservation));
+                return true;
+            } catch (OrderException e) {
+                status.setRollbackOnly();
+                return false;
+            }
+        }), true);
+    }
+
+    /**
+     * Sells STOCK units to BUYERS buyers through the reservation and prints
+     * throughput, latency and how many units were sold; a correct
+     * reservation must sell exactly the stock.
+     */
+    private void run(String name, LongFunction<Boolean> reserve, boolean mustNotOversell) throws Exception {
+        jdbcTemplate.update("DELETE FROM stock_reservation");
+        jdbcTemplate.update("UPDATE product SET quantity = ? WHERE id = ?", STOCK, productId);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger nextBuyer = new AtomicInteger();
+        AtomicInteger sold = new AtomicInteger();
+        long[] latencies = new long[BUYERS];
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int buyer = nextBuyer.getAndIncrement(); buyer < BUYERS;
+                         buyer = nextBuyer.getAndIncrement()) {
+                        long begin = System.nanoTime();
+                        if (Boolean.TRUE.equals(reserve.apply(buyer))) {
+                            sold.incrementAndGet();
+                        }
+                        latencies[buyer] = System.nanoTime() - begin;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        int left = jdbcTemplate.queryForObject("SELECT quantity FROM product WHERE id = ?", Integer.class,
+                productId);
+        Arrays.sort(latencies);
+        System.out.printf("%s: %d buyers on %d threads for %d units, %.0f reservations/s, p50 %d us, "
+                        + "p99 %d us, %d sold with %d left (%d oversold)%n",
+                name, BUYERS, THREADS, STOCK, BUYERS / (elapsedNanos / 1e9),
+                latencies[BUYERS / 2] / 1_000, latencies[BUYERS * 99 / 100] / 1_000,
+                sold.get(), left, sold.get() + left - STOCK);
+        if (mustNotOversell) {
+            assertEquals(STOCK, sold.get());
+            assertEquals(0, left);
+            assertEquals(STOCK, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_reservation", Integer.class));
+        }
+    }
+
+    private void insertReservation(long buyer) {
+        jdbcTemplate.update("INSERT INTO stock_reservation (order_id, product_id, quantity, status, expires_at) "
+                + "VALUES (?, ?, 1, 0, CURRENT_TIMESTAMP)", buyer, productId);
+    }
+}
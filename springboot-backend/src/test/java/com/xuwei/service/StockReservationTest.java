@@ -0,0 +1,281 @@
+package com.xuwei.service;
+
+import com.xuwei.cache.ProductCache;
+import com.xuwei.domain.OrderStatus;
+import com.xuwei.domain.PaymentStatus;
+import com.xuwei.domain.ReservationStatus;
+import com.xuwei.dto.OrderResponseDTO;
+import com.xuwei.exception.OrderException;
+import com.xuwei.job.StockReservationExpiryJob;
+import com.xuwei.model.*;
+import com.xuwei.repository.*;
+import com.xuwei.request.CheckoutRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:stock_reservation;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=false"})
+@Import({OrderSliceConfiguration.class, StockReservationExpiryJob.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockReservationTest {
+
+    @Autowired
+    private ShopFixtures fixtures;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private StockReservationExpiryJob expiryJob;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Seller seller;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM stock_reservation");
+        jdbcTemplate.update("DELETE FROM transaction");
+        jdbcTemplate.update("DELETE FROM order_item");
+        jdbcTemplate.update("DELETE FROM orders");
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        productRepository.deleteAll();
+        sellerRepository.deleteAll();
+        userRepository.deleteAll();
+        seller = new Seller();
+        seller.setEmail("seller@example.com");
+        seller = sellerRepository.save(seller);
+    }
+
+    @Test
+    void checkoutTakesTheUnitsAndPaymentConfirmsThem() throws Exception {
+        Product shirt = product("Shirt", 5);
+        User user = fixtures.shopper("shopper@example.com");
+        cartService.addCartItem(user, shirt, "M", 2);
+        cartService.addCartItem(user, shirt, "L", 1);
+
+        OrderResponseDTO order = orderService.checkout(user, checkoutRequest(user), null).get(0);
+
+        assertThat(stock(shirt)).isEqualTo(2);
+        assertThat(reservations(order)).containsExactly(ReservationStatus.RESERVED.ordinal());
+
+        OrderResponseDTO paid = orderService.confirmPayment(user, order.getId(), "pay_1");
+
+        assertThat(paid.getOrderStatus()).isEqualTo(OrderStatus.PLACED);
+        assertThat(paid.getPaymentStatus()).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(reservations(order)).containsExactly(ReservationStatus.CONFIRMED.ordinal());
+        // confirmed units are sold: expiry leaves them alone
+        expire(order);
+        expiryJob.releaseExpired();
+        assertThat(stock(shirt)).isEqualTo(2);
+        assertThat(orderService.confirmPayment(user, order.getId(), "pay_1").getOrderStatus())
+                .isEqualTo(OrderStatus.PLACED);
+    }
+
+    @Test
+    void paymentsConfirmedAtOnceAllSeeThePaidOrder() throws Exception {
+        Product shirt = product("Shirt", 100);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 10; round++) {
+                User user = fixtures.shopper("shopper" + round + "@example.com");
+                cartService.addCartItem(user, shirt, "M", 1);
+                OrderResponseDTO order = orderService.checkout(user, checkoutRequest(user), null).get(0);
+
+                List<Future<OrderResponseDTO>> payments = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    payments.add(executor.submit(() -> orderService.confirmPayment(user, order.getId(), "pay_1")));
+                }
+                for (Future<OrderResponseDTO> payment : payments) {
+                    assertThat(payment.get().getPaymentStatus()).isEqualTo(PaymentStatus.COMPLETED);
+                }
+                assertThat(reservations(order)).containsExactly(ReservationStatus.CONFIRMED.ordinal());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction", Integer.class)).isEqualTo(10);
+    }
+
+    @Test
+    void aCheckoutShortOfStockPlacesNothing() throws Exception {
+        Product shirt = product("Shirt", 10);
+        Product cap = product("Cap", 1);
+        User user = fixtures.shopper("shopper@example.com");
+        cartService.addCartItem(user, shirt, "M", 2);
+        cartService.addCartItem(user, cap, "One", 2);
+
+        assertThatThrownBy(() -> orderService.checkout(user, checkoutRequest(user), null))
+                .isInstanceOf(OrderException.class)
+                .hasMessage("Not enough stock for product " + cap.getId());
+
+        assertThat(stock(shirt)).isEqualTo(10);
+        assertThat(stock(cap)).isEqualTo(1);
+        assertThat(orderRepository.count()).isZero();
+        assertThat(cartItemRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void anUnpaidOrderIsCancelledAndItsUnitsPutBackWhenTheReservationExpires() throws Exception {
+        Product shirt = product("Shirt", 5);
+        User user = fixtures.shopper("shopper@example.com");
+        cartService.addCartItem(user, shirt, "M", 4);
+        OrderResponseDTO order = orderService.checkout(user, checkoutRequest(user), null).get(0);
+
+        assertThat(expiryJob.releaseExpired()).isZero();
+        expire(order);
+        assertThat(expiryJob.releaseExpired()).isEqualTo(1);
+
+        assertThat(stock(shirt)).isEqualTo(5);
+        assertThat(reservations(order)).containsExactly(ReservationStatus.RELEASED.ordinal());
+        assertThat(orderRepository.findById(order.getId()).orElseThrow().getOrderStatus())
+                .isEqualTo(OrderStatus.CANCELLED);
+        assertThatThrownBy(() -> orderService.confirmPayment(user, order.getId(), "pay_late"))
+                .isInstanceOf(OrderException.class);
+    }
+
+    @Test
+    void everyStockChangeDropsTheCachedProduct() throws Exception {
+        Product shirt = product("Shirt", 5);
+        User user = fixtures.shopper("shopper@example.com");
+        cartService.addCartItem(user, shirt, "M", 2);
+
+        assertThat(cachedStock(shirt)).isEqualTo(5);
+        OrderResponseDTO order = orderService.checkout(user, checkoutRequest(user), null).get(0);
+        assertThat(cachedStock(shirt)).isEqualTo(3);
+
+        expire(order);
+        expiryJob.releaseExpired();
+        assertThat(cachedStock(shirt)).isEqualTo(5);
+
+        inventoryService.adjustStock(seller.getId(), shirt.getId(), -4);
+        assertThat(cachedStock(shirt)).isEqualTo(1);
+    }
+
+    @Test
+    void parallelCheckoutsOfOneProductNeverOversell() throws Exception {
+        Product shirt = product("Shirt", 0);
+        assertThat(inventoryService.adjustStock(seller.getId(), shirt.getId(), 20)).isEqualTo(20);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            User user = fixtures.shopper("shopper" + i + "@example.com");
+            cartService.addCartItem(user, shirt, "M", 1);
+            users.add(user);
+        }
+
+        AtomicInteger placed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (User user : users) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        orderService.checkout(user, checkoutRequest(user), null);
+                        placed.incrementAndGet();
+                    } catch (OrderException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(placed.get()).isEqualTo(20);
+        assertThat(rejected.get()).isEqualTo(40);
+        assertThat(stock(shirt)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(quantity) FROM stock_reservation", Integer.class))
+                .isEqualTo(20);
+    }
+
+    private Product product(String title, int quantity) {
+        Product product = new Product();
+        product.setTitle(title);
+        product.setMrpPrice(1000);
+        product.setSellingPrice(800);
+        product.setQuantity(quantity);
+        product.setSeller(seller);
+        return productRepository.save(product);
+    }
+
+    private CheckoutRequest checkoutRequest(User user) {
+        CheckoutRequest request = new CheckoutRequest();
+        request.setAddressId(user.getAddress().iterator().next().getId());
+        return request;
+    }
+
+    private int stock(Product product) {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM product WHERE id = ?", Integer.class,
+                product.getId());
+    }
+
+    private int cachedStock(Product product) {
+        return productCache.getProduct(product.getId(), id -> productRepository.findWithImagesById(id).orElse(null))
+                .getQuantity();
+    }
+
+    private List<Integer> reservations(OrderResponseDTO order) {
+        return jdbcTemplate.queryForList("SELECT status FROM stock_reservation WHERE order_id = ?", Integer.class,
+                order.getId());
+    }
+
+    private void expire(OrderResponseDTO order) {
+        jdbcTemplate.update("UPDATE stock_reservation SET expires_at = DATEADD('MINUTE', -1, CURRENT_TIMESTAMP) "
+                + "WHERE order_id = ?", order.getId());
+    }
+}